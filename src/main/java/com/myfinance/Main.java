@@ -1,29 +1,76 @@
 package com.myfinance;
 
+import com.myfinance.model.BudgetAlert;
 import com.myfinance.model.Category;
+import com.myfinance.model.CronSchedule;
 import com.myfinance.model.Expense;
 import com.myfinance.model.Income;
-import com.myfinance.model.Transaction;
+import com.myfinance.model.Money;
+import com.myfinance.model.RecurringRule;
+import com.myfinance.model.SpendingAnomalyAlert;
+import com.myfinance.model.TransactionType;
+import com.myfinance.model.User;
 import com.myfinance.model.Wallet;
+import com.myfinance.model.WalletEvent;
+import com.myfinance.service.BudgetForecastServiceImpl;
+import com.myfinance.service.BudgetMonitorImpl;
+import com.myfinance.service.BulkExportServiceImpl;
+import com.myfinance.service.CrossUserAnalyticsServiceImpl;
 import com.myfinance.service.FinanceManagerImpl;
+import com.myfinance.service.ReplicaFollower;
+import com.myfinance.service.ReplicaServer;
+import com.myfinance.service.ReplicationLog;
+import com.myfinance.service.RecurringSchedulerImpl;
 import com.myfinance.service.ReportGeneratorImpl;
+import com.myfinance.service.SpendingAnomalyMonitorImpl;
+import com.myfinance.service.WalletEventSubscriber;
+import com.myfinance.service.api.BudgetForecastService;
+import com.myfinance.service.api.BudgetMonitor;
 import com.myfinance.service.api.FinanceManager;
+import com.myfinance.service.api.ImportMode;
+import com.myfinance.service.api.RecurringScheduler;
 import com.myfinance.service.api.ReportGenerator;
+import com.myfinance.service.api.SpendingAnomalyMonitor;
 import com.myfinance.service.api.CsvExportImportService;
 import com.myfinance.service.CsvExportImportServiceImpl;
+import com.myfinance.service.codec.WalletCodec;
+import com.myfinance.service.codec.WalletCodecs;
 
 import java.io.*;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.Scanner;
 
 public class Main {
-    private static final FinanceManager financeManager = new FinanceManagerImpl();
+    private static final String COMPRESSION_PROPERTY = "pfms.compression";
+    private static final String REPLICATION_PROPERTY = "pfms.replication";
+    private static final WalletCodec walletCodec = WalletCodecs.parse(System.getProperty(COMPRESSION_PROPERTY, "none"));
+    private static final FinanceManager financeManager = new FinanceManagerImpl("data", Clock.systemDefaultZone(), walletCodec,
+            openReplicationLog("data"));
     private static final ReportGenerator reportGenerator = new ReportGeneratorImpl();
     private static final CsvExportImportService csvService = new CsvExportImportServiceImpl(financeManager);
+    private static final BudgetMonitor budgetMonitor = new BudgetMonitorImpl();
+    private static final SpendingAnomalyMonitor anomalyMonitor = new SpendingAnomalyMonitorImpl();
+    private static final BudgetForecastService budgetForecastService = new BudgetForecastServiceImpl();
+    private static final RecurringScheduler recurringScheduler = new RecurringSchedulerImpl(financeManager);
     private static final Scanner scanner = new Scanner(System.in);
+    private static Wallet monitoredWallet;
 
     public static void main(final String[] args) {
+        if (args.length > 0) {
+            runAdminCommand(args);
+            return;
+        }
         System.out.println("Добро пожаловать в приложение для управления личными финансами!");
+        budgetMonitor.addAlertListener(Main::printBudgetAlert);
+        anomalyMonitor.addAlertListener(Main::printAnomalyAlert);
+        financeManager.getEvents().subscribe(new WalletEventSubscriber(Main::checkOverallBalance));
+        recurringScheduler.start();
 
         //noinspection InfiniteLoopStatement
         while (true) {
@@ -36,6 +83,130 @@ public class Main {
         }
     }
 
+    private static void runAdminCommand(final String[] args) {
+        final String dataDirectory = args.length > 1 ? args[1] : "data";
+        switch (args[0]) {
+            case "analytics":
+                System.out.println(reportGenerator.generateAnalyticsReport(new CrossUserAnalyticsServiceImpl().analyze(dataDirectory)));
+                break;
+            case "migrate-layout":
+                System.out.println("Перенесено кошельков: " + openFinanceManager(dataDirectory).migrateToShardedLayout());
+                break;
+            case "mapped-storage":
+                if (args.length < 3) {
+                    System.out.println("Использование: mapped-storage <директория_данных> <логин>");
+                } else if (openFinanceManager(dataDirectory).convertToMappedStorage(args[2])) {
+                    System.out.println("Кошелек пользователя " + args[2] + " переведен на отображаемые в память сегменты.");
+                } else {
+                    System.out.println("Пользователь " + args[2] + " не найден.");
+                }
+                break;
+            case "tiered-storage":
+                if (args.length < 3) {
+                    System.out.println("Использование: tiered-storage <директория_данных> <логин>");
+                } else if (openFinanceManager(dataDirectory).convertToTieredStorage(args[2])) {
+                    System.out.println("Кошелек пользователя " + args[2] + " переведен на многоуровневое хранение.");
+                } else {
+                    System.out.println("Пользователь " + args[2] + " не найден.");
+                }
+                break;
+            case "bulk-export":
+                if (args.length < 3) {
+                    System.out.println("Использование: bulk-export <директория_данных> <директория_выгрузки> [потоков]");
+                } else {
+                    final BulkExportServiceImpl bulkExportService = args.length > 3
+                            ? new BulkExportServiceImpl(Integer.parseInt(args[3]), 5_000)
+                            : new BulkExportServiceImpl();
+                    System.out.println(reportGenerator.generateBulkExportReport(bulkExportService.exportAll(dataDirectory, args[2])));
+                }
+                break;
+            case "compress-wallets":
+                if (args.length < 3) {
+                    System.out.println("Использование: compress-wallets <директория_данных> <none|deflate[:1-9]|lz>");
+                } else {
+                    try {
+                        final WalletCodec codec = WalletCodecs.parse(args[2]);
+                        final int rewritten = new FinanceManagerImpl(dataDirectory, Clock.systemDefaultZone(), codec,
+                                openReplicationLog(dataDirectory)).recompressWallets();
+                        System.out.println("Перезаписано кошельков: " + rewritten);
+                    } catch (final IllegalArgumentException e) {
+                        System.out.println(e.getMessage());
+                    }
+                }
+                break;
+            case "recurring":
+                System.out.println("Добавлено регулярных транзакций: " + openFinanceManager(dataDirectory).postDueRecurringTransactions());
+                break;
+            case "delta-export":
+            case "compact-delta":
+                if (args.length < 4) {
+                    System.out.println("Использование: " + args[0] + " <директория_данных> <логин> <получатель>");
+                } else if (args[0].equals("compact-delta")) {
+                    csvService.compactDeltaExport(args[2], args[3]);
+                } else {
+                    final Optional<Wallet> wallet = openFinanceManager(dataDirectory).findWallet(args[2]);
+                    if (wallet.isPresent()) {
+                        csvService.exportDeltaCsv(wallet.get(), args[2], args[3]);
+                    } else {
+                        System.out.println("Пользователь " + args[2] + " не найден.");
+                    }
+                }
+                break;
+            case "replica":
+                if (args.length < 4) {
+                    System.out.println("Использование: replica <директория_лидера> <директория_копии> <порт>");
+                } else {
+                    runReplica(args[1], args[2], Integer.parseInt(args[3]));
+                }
+                break;
+            case "replica-query":
+                if (args.length < 3) {
+                    System.out.println("Использование: replica-query <порт> <STATUS|REPORT логин>");
+                } else {
+                    try {
+                        System.out.print(ReplicaServer.query(Integer.parseInt(args[1]), String.join(" ", Arrays.copyOfRange(args, 2, args.length))));
+                    } catch (final IOException e) {
+                        System.out.println("Не удалось подключиться к реплике: " + e.getMessage());
+                    }
+                }
+                break;
+            default:
+                System.out.println("Неизвестная команда: " + args[0]);
+        }
+    }
+
+    private static void runReplica(final String leaderDirectory, final String followerDirectory, final int port) {
+        final ReplicaFollower follower = new ReplicaFollower(leaderDirectory, followerDirectory);
+        final ReplicaServer server = new ReplicaServer(follower, reportGenerator, port);
+        try {
+            server.start();
+        } catch (final IOException e) {
+            System.out.println("Не удалось запустить сервер реплики: " + e.getMessage());
+            return;
+        }
+        follower.start(ReplicaFollower.DEFAULT_POLL_MILLIS);
+        System.out.println("Реплика " + followerDirectory + " следует за " + leaderDirectory + ", порт " + server.getPort());
+        try {
+            Thread.currentThread().join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            follower.stop();
+            server.stop();
+        }
+    }
+
+    private static FinanceManagerImpl openFinanceManager(final String dataDirectory) {
+        return new FinanceManagerImpl(dataDirectory, Clock.systemDefaultZone(), walletCodec, openReplicationLog(dataDirectory));
+    }
+
+    private static ReplicationLog openReplicationLog(final String dataDirectory) {
+        if (!"on".equals(System.getProperty(REPLICATION_PROPERTY, "off"))) {
+            return null;
+        }
+        return new ReplicationLog(Paths.get(dataDirectory, ReplicationLog.DIRECTORY_NAME));
+    }
+
     private static void showAuthMenu() {
         System.out.println("\n1. Регистрация");
         System.out.println("2. Авторизация");
@@ -75,7 +246,11 @@ public class Main {
             System.out.println("10. Просмотр баланса");
             System.out.println("11. Экспорт в CSV");
             System.out.println("12. Импорт из CSV");
-            System.out.println("13. Выйти из аккаунта");
+            System.out.println("13. Статистика расходов");
+            System.out.println("14. Изменить или удалить транзакцию");
+            System.out.println("15. Регулярные платежи");
+            System.out.println("16. Прогноз бюджета");
+            System.out.println("17. Выйти из аккаунта");
             System.out.print("Выберите действие: ");
 
             final int choice = readInt();
@@ -118,6 +293,18 @@ public class Main {
                     importFromCsv();
                     break;
                 case 13:
+                    showExpenseStatistics();
+                    break;
+                case 14:
+                    editTransaction();
+                    break;
+                case 15:
+                    manageRecurringRules();
+                    break;
+                case 16:
+                    showBudgetForecast();
+                    break;
+                case 17:
                     logoutUser();
                     break;
                 default:
@@ -126,29 +313,56 @@ public class Main {
         });
     }
 
+    /**
+     * Login only reads the summary header of the wallet file; the transactions are loaded by the first command that
+     * needs them, and the budget and anomaly monitors are attached at that point.
+     */
+    private static Optional<Wallet> currentWallet() {
+        final Optional<Wallet> wallet = financeManager.getCurrentUserWallet();
+        if (wallet.isPresent() && wallet.get() != monitoredWallet) {
+            monitoredWallet = wallet.get();
+            budgetMonitor.attach(monitoredWallet);
+            anomalyMonitor.attach(monitoredWallet);
+        }
+        return wallet;
+    }
+
     private static void showBalance() {
-        System.out.printf("Текущий баланс: %.2f%n", financeManager.getWalletBalance());
+        System.out.println("Текущий баланс: " + Money.format(financeManager.getWalletBalance()));
     }
 
     private static void exportToCsv() {
         financeManager.getCurrentUser().ifPresent(user ->
-            financeManager.getCurrentUserWallet().ifPresent(wallet ->
+            currentWallet().ifPresent(wallet ->
                 csvService.exportToCsv(wallet, user.getLogin())
             )
         );
     }
 
     private static void importFromCsv() {
-        System.out.println("ВНИМАНИЕ! Импорт заменит все текущие транзакции и бюджеты.");
-        String answer = readString("Вы уверены, что хотите продолжить? (да/нет): ");
-        if (!answer.equalsIgnoreCase("да")) {
-            System.out.println("Импорт отменен.");
+        System.out.println("1. Заменить все текущие транзакции и бюджеты");
+        System.out.println("2. Добавить только новые транзакции");
+        System.out.print("Выберите режим импорта: ");
+        final int choice = readInt();
+        final ImportMode mode;
+        if (choice == 1) {
+            System.out.println("ВНИМАНИЕ! Импорт заменит все текущие транзакции и бюджеты.");
+            String answer = readString("Вы уверены, что хотите продолжить? (да/нет): ");
+            if (!answer.equalsIgnoreCase("да")) {
+                System.out.println("Импорт отменен.");
+                return;
+            }
+            mode = ImportMode.REPLACE;
+        } else if (choice == 2) {
+            mode = ImportMode.MERGE;
+        } else {
+            System.out.println("Неверный выбор. Импорт отменен.");
             return;
         }
 
         financeManager.getCurrentUser().ifPresent(user ->
-            financeManager.getCurrentUserWallet().ifPresent(wallet ->
-                csvService.importFromCsv(wallet, user.getLogin())
+            currentWallet().ifPresent(wallet ->
+                csvService.importFromCsv(wallet, user.getLogin(), mode)
             )
         );
     }
@@ -177,13 +391,16 @@ public class Main {
     }
     
     private static void logoutUser() {
+        budgetMonitor.detach();
+        anomalyMonitor.detach();
+        monitoredWallet = null;
         financeManager.logout();
         System.out.println("Вы вышли из аккаунта.");
     }
 
     private static void addIncome() {
-        financeManager.getCurrentUserWallet().ifPresent(wallet -> {
-            final double amount = readPositiveDouble("Введите сумму дохода: ");
+        currentWallet().ifPresent(wallet -> {
+            final long amount = readPositiveAmount("Введите сумму дохода: ");
             final String categoryName = readString("Введите категорию дохода: ");
 
             final Category category = financeManager.getOrCreateCategory(categoryName);
@@ -194,38 +411,98 @@ public class Main {
     }
 
     private static void addExpense() {
-        financeManager.getCurrentUserWallet().ifPresent(wallet -> {
-            final double amount = readPositiveDouble("Введите сумму расхода: ");
+        currentWallet().ifPresent(wallet -> {
+            final long amount = readPositiveAmount("Введите сумму расхода: ");
             final String categoryName = readString("Введите категорию расхода: ");
 
             final Category category = financeManager.getOrCreateCategory(categoryName);
             final Expense expense = new Expense(amount, category);
             wallet.addTransaction(expense);
             System.out.println("Расход успешно добавлен.");
-            checkBudget(category);
-            checkOverallBalance(wallet);
         });
     }
 
-    private static void checkOverallBalance(final Wallet wallet) {
-        final double totalIncome = wallet.getTransactions().stream()
-                .filter(t -> t instanceof Income)
-                .mapToDouble(Transaction::getAmount)
-                .sum();
-        final double totalExpense = wallet.getTransactions().stream()
-                .filter(t -> t instanceof Expense)
-                .mapToDouble(Transaction::getAmount)
-                .sum();
+    private static void editTransaction() {
+        currentWallet().ifPresent(wallet -> {
+            System.out.println("Последние транзакции:");
+            wallet.forEachTransactionFrom(wallet.getNextId() - 10, (id, type, amount, category, timestamp) ->
+                    System.out.println("  #" + id + " " + type + " " + Money.format(amount) + " " + category.getName()));
+            System.out.print("Введите номер транзакции: ");
+            final long id = readInt();
+            if (wallet.getTransaction(id).isEmpty()) {
+                System.out.println("Транзакция #" + id + " не найдена.");
+                return;
+            }
+            System.out.println("1. Изменить сумму и категорию");
+            System.out.println("2. Удалить");
+            System.out.print("Выберите действие: ");
+            final int choice = readInt();
+            if (choice == 1) {
+                final long amount = readPositiveAmount("Введите новую сумму: ");
+                final String categoryName = readString("Введите новую категорию: ");
+                financeManager.editTransaction(id, amount, categoryName);
+                System.out.println("Транзакция #" + id + " изменена.");
+            } else if (choice == 2) {
+                financeManager.deleteTransaction(id);
+                System.out.println("Транзакция #" + id + " удалена.");
+            } else {
+                System.out.println("Неверный выбор.");
+            }
+        });
+    }
+
+    private static void manageRecurringRules() {
+        currentWallet().ifPresent(wallet -> {
+            final ZoneId zone = ZoneId.systemDefault();
+            if (wallet.getRecurringRules().isEmpty()) {
+                System.out.println("Регулярных платежей нет.");
+            }
+            for (final RecurringRule rule : wallet.getRecurringRules()) {
+                System.out.println("  #" + rule.getId() + " " + rule.getType() + " " + Money.format(rule.getAmount()) + " "
+                        + rule.getCategory().getName() + " [" + rule.getSchedule() + "], следующий: "
+                        + (rule.getNextDue() == CronSchedule.NEVER ? "никогда" : Instant.ofEpochMilli(rule.getNextDue()).atZone(zone).toLocalDateTime()));
+            }
+            System.out.println("1. Добавить доход");
+            System.out.println("2. Добавить расход");
+            System.out.println("3. Удалить правило");
+            System.out.println("4. Назад");
+            System.out.print("Выберите действие: ");
+            final int choice = readInt();
+            if (choice == 1 || choice == 2) {
+                final long amount = readPositiveAmount("Введите сумму: ");
+                final Category category = financeManager.getOrCreateCategory(readString("Введите категорию: "));
+                final CronSchedule schedule;
+                try {
+                    schedule = new CronSchedule(readString("Введите расписание (минута час день месяц день_недели, например '0 9 1 * *' или @monthly): "));
+                } catch (final IllegalArgumentException e) {
+                    System.out.println(e.getMessage());
+                    return;
+                }
+                wallet.addRecurringRule(choice == 1 ? TransactionType.INCOME : TransactionType.EXPENSE, amount, category,
+                        schedule, System.currentTimeMillis(), zone);
+                System.out.println("Регулярный платеж добавлен.");
+            } else if (choice == 3) {
+                System.out.print("Введите номер правила: ");
+                System.out.println(wallet.removeRecurringRule(readInt()) ? "Правило удалено." : "Правило не найдено.");
+            }
+        });
+    }
 
-        if (totalExpense > totalIncome) {
-            System.out.println("Внимание! Ваши расходы превышают доходы!");
+    private static void checkOverallBalance(final List<WalletEvent> batch) {
+        final Optional<String> login = financeManager.getCurrentUser().map(User::getLogin);
+        for (final WalletEvent event : batch) {
+            if (event.getType() == WalletEvent.Type.TRANSACTION_ADDED && event.getLogin().equals(login.orElse(null))
+                    && event.getTransaction().getType() == TransactionType.EXPENSE && event.getBalance() < 0) {
+                System.out.println("Внимание! Ваши расходы превышают доходы!");
+                return;
+            }
         }
     }
 
     private static void setBudget() {
-        financeManager.getCurrentUserWallet().ifPresent(wallet -> {
+        currentWallet().ifPresent(wallet -> {
             final String categoryName = readString("Введите категорию для бюджета: ");
-            final double amount = readPositiveDouble("Введите сумму бюджета: ");
+            final long amount = readPositiveAmount("Введите сумму бюджета: ");
 
             final Category category = financeManager.getOrCreateCategory(categoryName);
             wallet.setBudget(category, amount);
@@ -234,9 +511,9 @@ public class Main {
     }
 
     private static void editBudget() {
-        financeManager.getCurrentUserWallet().ifPresent(wallet -> {
+        currentWallet().ifPresent(wallet -> {
             final String categoryName = readString("Введите категорию для редактирования бюджета: ");
-            final double amount = readPositiveDouble("Введите новую сумму бюджета: ");
+            final long amount = readPositiveAmount("Введите новую сумму бюджета: ");
 
             final Category category = financeManager.getOrCreateCategory(categoryName);
             wallet.setBudget(category, amount);
@@ -245,15 +522,31 @@ public class Main {
     }
 
     private static void showReport() {
-        financeManager.getCurrentUserWallet().ifPresent(wallet -> {
-            final String report = reportGenerator.generateFullReport(wallet);
+        financeManager.getCurrentUserSummary().ifPresent(summary -> {
+            final String report = reportGenerator.generateFullReport(summary);
             System.out.println("\n--- Финансовый отчет ---");
             System.out.println(report);
         });
     }
 
+    private static void showExpenseStatistics() {
+        currentWallet().ifPresent(wallet -> {
+            final String report = reportGenerator.generateExpenseStatisticsReport(wallet, 5);
+            System.out.println("\n--- Статистика расходов ---");
+            System.out.println(report);
+        });
+    }
+
+    private static void showBudgetForecast() {
+        currentWallet().ifPresent(wallet -> {
+            final String report = reportGenerator.generateBudgetForecastReport(budgetForecastService.forecast(wallet, System.currentTimeMillis()));
+            System.out.println("\n--- Прогноз бюджета ---");
+            System.out.println(report);
+        });
+    }
+
     private static void showReportByCategories() {
-        financeManager.getCurrentUserWallet().ifPresent(wallet -> {
+        currentWallet().ifPresent(wallet -> {
             System.out.println("Введите категории для отчета через запятую (например: Еда, Такси):");
             final String[] categoryNames = scanner.nextLine().split(",");
             final java.util.List<Category> categories = new java.util.ArrayList<>();
@@ -277,8 +570,8 @@ public class Main {
     }
 
     private static void exportReport() {
-        financeManager.getCurrentUser().ifPresent(user -> financeManager.getCurrentUserWallet().ifPresent(wallet -> {
-            final String report = reportGenerator.generateFullReport(wallet);
+        financeManager.getCurrentUser().ifPresent(user -> financeManager.getCurrentUserSummary().ifPresent(summary -> {
+            final String report = reportGenerator.generateFullReport(summary);
             final String fileName = user.getLogin() + "_report.txt";
             try (final java.io.FileWriter writer = new java.io.FileWriter(fileName)) {
                 writer.write(report);
@@ -302,37 +595,41 @@ public class Main {
         System.out.println("9. Помощь - показывает это сообщение.");
         System.out.println("10. Просмотр баланса - показывает текущий баланс кошелька.");
         System.out.println("11. Экспорт в CSV - сохраняет транзакции и бюджеты в CSV файлы.");
-        System.out.println("12. Импорт из CSV - загружает транзакции и бюджеты из CSV файлов, заменяя текущие данные.");
-        System.out.println("13. Выйти из аккаунта - выходит из текущего аккаунта.");
+        System.out.println("12. Импорт из CSV - загружает транзакции и бюджеты из CSV файлов, заменяя текущие данные или добавляя только новые строки.");
+        System.out.println("13. Статистика расходов - медиана, p90, p99 и крупнейшие расходы по категориям.");
+        System.out.println("14. Изменить или удалить транзакцию - исправляет сумму и категорию транзакции по ее номеру или удаляет ее.");
+        System.out.println("15. Регулярные платежи - правила для аренды, зарплаты и подписок с расписанием в формате cron.");
+        System.out.println("16. Прогноз бюджета - вероятность превысить каждый бюджет до конца месяца по истории расходов.");
+        System.out.println("17. Выйти из аккаунта - выходит из текущего аккаунта.");
     }
 
     private static void transferFunds() {
         final String toLogin = readString("Введите логин получателя: ");
-        final double amount = readPositiveDouble("Введите сумму перевода: ");
+        final long amount = readPositiveAmount("Введите сумму перевода: ");
         final String categoryName = readString("Введите категорию перевода: ");
 
-        if (financeManager.transfer(toLogin, amount, categoryName)) {
-            System.out.println("Перевод выполнен успешно.");
+        currentWallet().ifPresent(wallet -> {
+            if (financeManager.transfer(toLogin, amount, categoryName)) {
+                System.out.println("Перевод выполнен успешно.");
+            } else {
+                System.out.println("Не удалось выполнить перевод. Проверьте данные и баланс.");
+            }
+        });
+    }
+
+    private static void printBudgetAlert(final BudgetAlert alert) {
+        final String categoryName = alert.getCategory().getName();
+        if (alert.isExceeded()) {
+            System.out.println("Внимание! Превышен бюджет по категории '" + categoryName + "'.");
         } else {
-            System.out.println("Не удалось выполнить перевод. Проверьте данные и баланс.");
+            System.out.printf("Внимание! Вы потратили более %.0f%% бюджета по категории '%s'.%n", alert.getThreshold() * 100, categoryName);
         }
     }
 
-    private static void checkBudget(final Category category) {
-        financeManager.getCurrentUserWallet().ifPresent(wallet -> {
-            final Double budget = wallet.getBudgets().get(category);
-            if (budget != null) {
-                final double totalSpent = wallet.getTransactions().stream()
-                        .filter(t -> t instanceof Expense && t.getCategory().getName().equals(category.getName()))
-                        .mapToDouble(Transaction::getAmount)
-                        .sum();
-                if (totalSpent > budget) {
-                    System.out.println("Внимание! Превышен бюджет по категории '" + category.getName() + "'.");
-                } else if (totalSpent >= budget * 0.8) {
-                    System.out.println("Внимание! Вы потратили более 80% бюджета по категории '" + category.getName() + "'.");
-                }
-            }
-        });
+    private static void printAnomalyAlert(final SpendingAnomalyAlert alert) {
+        System.out.printf("Внимание! Необычно высокие расходы по категории '%s': за последние %d ч потрачено %s при среднем %s в день за %d дней.%n",
+                alert.getCategory().getName(), SpendingAnomalyMonitorImpl.RECENT_HOURS, Money.format(alert.getRecentSpent()),
+                Money.format(alert.getDailyAverage()), SpendingAnomalyMonitorImpl.BASELINE_DAYS);
     }
 
     private static String readString(final String prompt) {
@@ -356,23 +653,24 @@ public class Main {
         return value;
     }
 
-    private static double readDouble() {
-        while (!scanner.hasNextDouble()) {
-            System.out.println("Это не число. Пожалуйста, введите число.");
-            scanner.next();
+    private static long readAmount() {
+        while (true) {
+            final String input = scanner.nextLine().trim().replace(',', '.');
+            try {
+                return Money.parse(input);
+            } catch (final NumberFormatException e) {
+                System.out.println("Это не число. Пожалуйста, введите число.");
+            }
         }
-        final double value = scanner.nextDouble();
-        scanner.nextLine();
-        return value;
     }
 
-    private static double readPositiveDouble(final String prompt) {
+    private static long readPositiveAmount(final String prompt) {
         System.out.print(prompt);
-        double amount = readDouble();
+        long amount = readAmount();
         while (amount <= 0) {
             System.out.println("Сумма должна быть положительной.");
             System.out.print(prompt);
-            amount = readDouble();
+            amount = readAmount();
         }
         return amount;
     }
@@ -0,0 +1,71 @@
+package com.myfinance.model;
+
+import java.util.List;
+import java.util.Map;
+
+public class AnalyticsReport {
+    private final int walletCount;
+    private final int failedWalletCount;
+    private final Map<String, Long> expenseByCategory;
+    private final List<UserSpending> topSpenders;
+    private final long[] balanceBucketBounds;
+    private final long[] balanceBucketCounts;
+    private final long totalBalance;
+    private final long minBalance;
+    private final long maxBalance;
+
+    public AnalyticsReport(final int walletCount, final int failedWalletCount, final Map<String, Long> expenseByCategory,
+                           final List<UserSpending> topSpenders, final long[] balanceBucketBounds,
+                           final long[] balanceBucketCounts, final long totalBalance,
+                           final long minBalance, final long maxBalance) {
+        this.walletCount = walletCount;
+        this.failedWalletCount = failedWalletCount;
+        this.expenseByCategory = expenseByCategory;
+        this.topSpenders = topSpenders;
+        this.balanceBucketBounds = balanceBucketBounds;
+        this.balanceBucketCounts = balanceBucketCounts;
+        this.totalBalance = totalBalance;
+        this.minBalance = minBalance;
+        this.maxBalance = maxBalance;
+    }
+
+    public int getWalletCount() {
+        return walletCount;
+    }
+
+    public int getFailedWalletCount() {
+        return failedWalletCount;
+    }
+
+    public Map<String, Long> getExpenseByCategory() {
+        return expenseByCategory;
+    }
+
+    public List<UserSpending> getTopSpenders() {
+        return topSpenders;
+    }
+
+    public long[] getBalanceBucketBounds() {
+        return balanceBucketBounds.clone();
+    }
+
+    public long[] getBalanceBucketCounts() {
+        return balanceBucketCounts.clone();
+    }
+
+    public long getTotalBalance() {
+        return totalBalance;
+    }
+
+    public long getAverageBalance() {
+        return walletCount == 0 ? 0 : totalBalance / walletCount;
+    }
+
+    public long getMinBalance() {
+        return minBalance;
+    }
+
+    public long getMaxBalance() {
+        return maxBalance;
+    }
+}
@@ -0,0 +1,35 @@
+package com.myfinance.model;
+
+public class BudgetAlert {
+    private final Category category;
+    private final double threshold;
+    private final long budget;
+    private final long spent;
+
+    public BudgetAlert(final Category category, final double threshold, final long budget, final long spent) {
+        this.category = category;
+        this.threshold = threshold;
+        this.budget = budget;
+        this.spent = spent;
+    }
+
+    public Category getCategory() {
+        return category;
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    public long getSpent() {
+        return spent;
+    }
+
+    public boolean isExceeded() {
+        return threshold >= 1.0;
+    }
+}
@@ -0,0 +1,33 @@
+package com.myfinance.model;
+
+import java.util.List;
+
+public class BudgetForecast {
+    private final int pathCount;
+    private final int historyDays;
+    private final int remainingDays;
+    private final List<BudgetRisk> risks;
+
+    public BudgetForecast(final int pathCount, final int historyDays, final int remainingDays, final List<BudgetRisk> risks) {
+        this.pathCount = pathCount;
+        this.historyDays = historyDays;
+        this.remainingDays = remainingDays;
+        this.risks = risks;
+    }
+
+    public int getPathCount() {
+        return pathCount;
+    }
+
+    public int getHistoryDays() {
+        return historyDays;
+    }
+
+    public int getRemainingDays() {
+        return remainingDays;
+    }
+
+    public List<BudgetRisk> getRisks() {
+        return risks;
+    }
+}
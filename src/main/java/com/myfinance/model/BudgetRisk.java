@@ -0,0 +1,41 @@
+package com.myfinance.model;
+
+public class BudgetRisk {
+    private final Category category;
+    private final long budget;
+    private final long spent;
+    private final long expectedSpent;
+    private final double exceedProbability;
+
+    public BudgetRisk(final Category category, final long budget, final long spent, final long expectedSpent,
+                      final double exceedProbability) {
+        this.category = category;
+        this.budget = budget;
+        this.spent = spent;
+        this.expectedSpent = expectedSpent;
+        this.exceedProbability = exceedProbability;
+    }
+
+    public Category getCategory() {
+        return category;
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    public long getSpent() {
+        return spent;
+    }
+
+    /**
+     * Mean simulated spending at the end of the month, including what is already spent.
+     */
+    public long getExpectedSpent() {
+        return expectedSpent;
+    }
+
+    public double getExceedProbability() {
+        return exceedProbability;
+    }
+}
@@ -0,0 +1,58 @@
+package com.myfinance.model;
+
+public class BulkExportReport {
+    private final int walletCount;
+    private final int exportedCount;
+    private final int skippedCount;
+    private final int failedCount;
+    private final long rowCount;
+    private final long byteCount;
+    private final long elapsedMillis;
+
+    public BulkExportReport(final int walletCount, final int exportedCount, final int skippedCount, final int failedCount,
+                            final long rowCount, final long byteCount, final long elapsedMillis) {
+        this.walletCount = walletCount;
+        this.exportedCount = exportedCount;
+        this.skippedCount = skippedCount;
+        this.failedCount = failedCount;
+        this.rowCount = rowCount;
+        this.byteCount = byteCount;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public int getWalletCount() {
+        return walletCount;
+    }
+
+    public int getExportedCount() {
+        return exportedCount;
+    }
+
+    public int getSkippedCount() {
+        return skippedCount;
+    }
+
+    public int getFailedCount() {
+        return failedCount;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public double getWalletsPerSecond() {
+        return elapsedMillis == 0 ? 0 : exportedCount * 1000.0 / elapsedMillis;
+    }
+
+    public double getMegabytesPerSecond() {
+        return elapsedMillis == 0 ? 0 : byteCount / 1048576.0 * 1000.0 / elapsedMillis;
+    }
+}
@@ -4,16 +4,52 @@ import java.io.Serializable;
 import java.util.Objects;
 
 public class Category implements Serializable {
+    private static final long serialVersionUID = -1494433510983440486L;
+
+    public static final String PATH_SEPARATOR = "/";
+
     private final String name;
+    private final Category parent;
 
     public Category(String name) {
+        this(name, parentOf(name));
+    }
+
+    public Category(String name, Category parent) {
         this.name = name;
+        this.parent = parent;
     }
 
     public String getName() {
         return name;
     }
 
+    public Category getParent() {
+        return parent;
+    }
+
+    public int getDepth() {
+        int depth = 0;
+        for (Category ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+            depth++;
+        }
+        return depth;
+    }
+
+    public boolean isWithin(Category ancestor) {
+        for (Category category = this; category != null; category = category.parent) {
+            if (category.equals(ancestor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Category parentOf(String name) {
+        final int separator = name == null ? -1 : name.lastIndexOf(PATH_SEPARATOR);
+        return separator > 0 ? new Category(name.substring(0, separator)) : null;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,136 @@
+package com.myfinance.model;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+
+public class CronSchedule implements Serializable {
+    private static final long serialVersionUID = 7530482076718939450L;
+
+    public static final long NEVER = Long.MAX_VALUE;
+    private static final int MAX_SEARCH_DAYS = 5 * 366;
+    private static final Map<String, String> ALIASES = Map.of(
+            "@hourly", "0 * * * *",
+            "@daily", "0 0 * * *",
+            "@weekly", "0 0 * * 0",
+            "@monthly", "0 0 1 * *",
+            "@yearly", "0 0 1 1 *");
+
+    private final String expression;
+    private final long minutes;
+    private final long hours;
+    private final long daysOfMonth;
+    private final long months;
+    private final long daysOfWeek;
+    private final boolean anyDayOfMonth;
+    private final boolean anyDayOfWeek;
+
+    public CronSchedule(final String expression) {
+        this.expression = expression.trim();
+        final String[] fields = ALIASES.getOrDefault(this.expression, this.expression).split("\\s+");
+        if (fields.length != 5) {
+            throw new IllegalArgumentException("Расписание должно состоять из 5 полей: минута час день месяц день_недели");
+        }
+        this.minutes = parseField(fields[0], 0, 59);
+        this.hours = parseField(fields[1], 0, 23);
+        this.daysOfMonth = parseField(fields[2], 1, 31);
+        this.months = parseField(fields[3], 1, 12);
+        final long weekDays = parseField(fields[4], 0, 7);
+        this.daysOfWeek = (weekDays | (weekDays >>> 7)) & 0x7F;
+        this.anyDayOfMonth = fields[2].equals("*");
+        this.anyDayOfWeek = fields[4].equals("*");
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    public long next(final long afterMillis, final ZoneId zone) {
+        final LocalDateTime start = LocalDateTime.ofInstant(Instant.ofEpochMilli(afterMillis), zone)
+                .truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        final LocalDate firstDay = start.toLocalDate();
+        for (int day = 0; day < MAX_SEARCH_DAYS; day++) {
+            final LocalDate date = firstDay.plusDays(day);
+            if (!matches(months, date.getMonthValue()) || !matchesDay(date)) {
+                continue;
+            }
+            for (int hour = day == 0 ? start.getHour() : 0; hour < 24; hour++) {
+                if (!matches(hours, hour)) {
+                    continue;
+                }
+                for (int minute = day == 0 && hour == start.getHour() ? start.getMinute() : 0; minute < 60; minute++) {
+                    if (matches(minutes, minute)) {
+                        return date.atTime(hour, minute).atZone(zone).toInstant().toEpochMilli();
+                    }
+                }
+            }
+        }
+        return NEVER;
+    }
+
+    private boolean matchesDay(final LocalDate date) {
+        final boolean dayOfMonth = matches(daysOfMonth, date.getDayOfMonth());
+        final boolean dayOfWeek = matches(daysOfWeek, date.getDayOfWeek().getValue() % 7);
+        if (anyDayOfMonth || anyDayOfWeek) {
+            return dayOfMonth && dayOfWeek;
+        }
+        return dayOfMonth || dayOfWeek;
+    }
+
+    private static boolean matches(final long mask, final int value) {
+        return (mask & (1L << value)) != 0;
+    }
+
+    private static long parseField(final String field, final int min, final int max) {
+        long mask = 0;
+        for (final String item : field.split(",")) {
+            final String[] stepParts = item.split("/", -1);
+            if (stepParts.length > 2) {
+                throw invalid(field);
+            }
+            final int step = stepParts.length == 2 ? parseNumber(stepParts[1], 1, max, field) : 1;
+            final int from;
+            final int to;
+            if (stepParts[0].equals("*")) {
+                from = min;
+                to = max;
+            } else {
+                final String[] range = stepParts[0].split("-", -1);
+                if (range.length > 2) {
+                    throw invalid(field);
+                }
+                from = parseNumber(range[0], min, max, field);
+                to = range.length == 2 ? parseNumber(range[1], from, max, field) : (stepParts.length == 2 ? max : from);
+            }
+            for (int value = from; value <= to; value += step) {
+                mask |= 1L << value;
+            }
+        }
+        return mask;
+    }
+
+    private static int parseNumber(final String value, final int min, final int max, final String field) {
+        try {
+            final int number = Integer.parseInt(value);
+            if (number < min || number > max) {
+                throw invalid(field);
+            }
+            return number;
+        } catch (final NumberFormatException e) {
+            throw invalid(field);
+        }
+    }
+
+    private static IllegalArgumentException invalid(final String field) {
+        return new IllegalArgumentException("Неверное поле расписания: " + field);
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
@@ -3,7 +3,18 @@ package com.myfinance.model;
 import java.io.Serializable;
 
 public class Expense extends Transaction implements Serializable {
-    public Expense(double amount, Category category) {
+    private static final long serialVersionUID = 3049170663552820666L;
+
+    public Expense(long amount, Category category) {
         super(amount, category);
     }
+
+    public Expense(long amount, Category category, long timestamp) {
+        super(amount, category, timestamp);
+    }
+
+    @Override
+    public TransactionType getType() {
+        return TransactionType.EXPENSE;
+    }
 }
@@ -0,0 +1,6 @@
+package com.myfinance.model;
+
+@FunctionalInterface
+public interface IdentifiedTransactionVisitor {
+    void visit(long id, TransactionType type, long amount, Category category, long timestamp);
+}
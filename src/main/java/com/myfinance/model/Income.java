@@ -3,7 +3,18 @@ package com.myfinance.model;
 import java.io.Serializable;
 
 public class Income extends Transaction implements Serializable {
-    public Income(double amount, Category category) {
+    private static final long serialVersionUID = 3305241037750849808L;
+
+    public Income(long amount, Category category) {
         super(amount, category);
     }
+
+    public Income(long amount, Category category, long timestamp) {
+        super(amount, category, timestamp);
+    }
+
+    @Override
+    public TransactionType getType() {
+        return TransactionType.INCOME;
+    }
 }
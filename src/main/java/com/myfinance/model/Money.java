@@ -0,0 +1,83 @@
+package com.myfinance.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+public final class Money {
+    public static final int SCALE = 2;
+    public static final long MINOR_UNITS_PER_MAJOR = 100;
+
+    private Money() {
+    }
+
+    public static long parse(final CharSequence text) {
+        final int length = text.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+            negative = text.charAt(0) == '-';
+            i++;
+        }
+        long units = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean point = false;
+        try {
+            for (; i < length; i++) {
+                final char c = text.charAt(i);
+                if (c >= '0' && c <= '9') {
+                    if (point && fractionDigits == SCALE) {
+                        return parseSlow(text);
+                    }
+                    units = Math.addExact(Math.multiplyExact(units, 10), c - '0');
+                    digits++;
+                    if (point) {
+                        fractionDigits++;
+                    }
+                } else if (c == '.' && !point) {
+                    point = true;
+                } else if (c == 'e' || c == 'E') {
+                    return parseSlow(text);
+                } else {
+                    throw new NumberFormatException("Неверный формат суммы: " + text);
+                }
+            }
+            if (digits == 0) {
+                throw new NumberFormatException("Неверный формат суммы: " + text);
+            }
+            for (; fractionDigits < SCALE; fractionDigits++) {
+                units = Math.multiplyExact(units, 10);
+            }
+        } catch (final ArithmeticException e) {
+            throw new NumberFormatException("Слишком большая сумма: " + text);
+        }
+        return negative ? -units : units;
+    }
+
+    private static long parseSlow(final CharSequence text) {
+        try {
+            return new BigDecimal(text.toString()).setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        } catch (final ArithmeticException e) {
+            throw new NumberFormatException("Слишком большая сумма: " + text);
+        }
+    }
+
+    public static String format(final long amount) {
+        return appendTo(new StringBuilder(24), amount).toString();
+    }
+
+    public static StringBuilder appendTo(final StringBuilder builder, final long amount) {
+        long major = amount / MINOR_UNITS_PER_MAJOR;
+        long minor = amount % MINOR_UNITS_PER_MAJOR;
+        if (amount < 0) {
+            builder.append('-');
+            major = -major;
+            minor = -minor;
+        }
+        builder.append(major).append('.');
+        if (minor < 10) {
+            builder.append('0');
+        }
+        return builder.append(minor);
+    }
+}
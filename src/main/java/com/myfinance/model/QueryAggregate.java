@@ -0,0 +1,40 @@
+package com.myfinance.model;
+
+import java.util.OptionalLong;
+
+public class QueryAggregate {
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    void add(final long amount) {
+        count++;
+        sum += amount;
+        min = Math.min(min, amount);
+        max = Math.max(max, amount);
+    }
+
+    void add(final long count, final long sum, final long min, final long max) {
+        this.count += count;
+        this.sum += sum;
+        this.min = Math.min(this.min, min);
+        this.max = Math.max(this.max, max);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public OptionalLong getMin() {
+        return count == 0 ? OptionalLong.empty() : OptionalLong.of(min);
+    }
+
+    public OptionalLong getMax() {
+        return count == 0 ? OptionalLong.empty() : OptionalLong.of(max);
+    }
+}
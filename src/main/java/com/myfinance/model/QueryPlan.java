@@ -0,0 +1,10 @@
+package com.myfinance.model;
+
+public enum QueryPlan {
+    EMPTY,
+    CATEGORY_TOTALS,
+    TIME_RANGE_SCAN,
+    BITMAP_INDEX,
+    SEGMENT_SUMMARIES,
+    FULL_SCAN
+}
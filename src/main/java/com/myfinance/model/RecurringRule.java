@@ -0,0 +1,76 @@
+package com.myfinance.model;
+
+import java.io.Serializable;
+import java.time.ZoneId;
+import java.util.List;
+
+public class RecurringRule implements Serializable {
+    private static final long serialVersionUID = -5384570246163843312L;
+
+    private final int id;
+    private final TransactionType type;
+    private final long amount;
+    private final Category category;
+    private final CronSchedule schedule;
+    private final ZoneId zone;
+    private long nextDue;
+
+    public RecurringRule(final int id, final TransactionType type, final long amount, final Category category,
+                         final CronSchedule schedule, final ZoneId zone, final long createdAt) {
+        this.id = id;
+        this.type = type;
+        this.amount = amount;
+        this.category = category;
+        this.schedule = schedule;
+        this.zone = zone;
+        this.nextDue = schedule.next(createdAt, zone);
+    }
+
+    private RecurringRule(final RecurringRule source) {
+        this.id = source.id;
+        this.type = source.type;
+        this.amount = source.amount;
+        this.category = source.category;
+        this.schedule = source.schedule;
+        this.zone = source.zone;
+        this.nextDue = source.nextDue;
+    }
+
+    public RecurringRule copy() {
+        return new RecurringRule(this);
+    }
+
+    public int collectDue(final long now, final List<Transaction> due) {
+        int count = 0;
+        while (nextDue <= now) {
+            due.add(Transaction.of(type, amount, category, nextDue));
+            nextDue = schedule.next(nextDue, zone);
+            count++;
+        }
+        return count;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public TransactionType getType() {
+        return type;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    public Category getCategory() {
+        return category;
+    }
+
+    public CronSchedule getSchedule() {
+        return schedule;
+    }
+
+    public long getNextDue() {
+        return nextDue;
+    }
+}
@@ -0,0 +1,38 @@
+package com.myfinance.model;
+
+public class SpendingAnomalyAlert {
+    private final Category category;
+    private final long recentSpent;
+    private final long dailyAverage;
+    private final double factor;
+    private final long timestamp;
+
+    public SpendingAnomalyAlert(final Category category, final long recentSpent, final long dailyAverage,
+                                final double factor, final long timestamp) {
+        this.category = category;
+        this.recentSpent = recentSpent;
+        this.dailyAverage = dailyAverage;
+        this.factor = factor;
+        this.timestamp = timestamp;
+    }
+
+    public Category getCategory() {
+        return category;
+    }
+
+    public long getRecentSpent() {
+        return recentSpent;
+    }
+
+    public long getDailyAverage() {
+        return dailyAverage;
+    }
+
+    public double getFactor() {
+        return factor;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
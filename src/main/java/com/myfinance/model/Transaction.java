@@ -3,19 +3,41 @@ package com.myfinance.model;
 import java.io.Serializable;
 
 public abstract class Transaction implements Serializable {
-    private final double amount;
+    private static final long serialVersionUID = 7651676606193620440L;
+
+    private final long amount;
     private final Category category;
+    private final long timestamp;
+
+    public Transaction(final long amount, final Category category) {
+        this(amount, category, System.currentTimeMillis());
+    }
 
-    public Transaction(final double amount, final Category category) {
+    public Transaction(final long amount, final Category category, final long timestamp) {
         this.amount = amount;
         this.category = category;
+        this.timestamp = timestamp;
+    }
+
+    public static Transaction of(final TransactionType type, final long amount, final Category category) {
+        return of(type, amount, category, System.currentTimeMillis());
     }
 
-    public double getAmount() {
+    public static Transaction of(final TransactionType type, final long amount, final Category category, final long timestamp) {
+        return type == TransactionType.INCOME ? new Income(amount, category, timestamp) : new Expense(amount, category, timestamp);
+    }
+
+    public long getAmount() {
         return amount;
     }
 
     public Category getCategory() {
         return category;
     }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public abstract TransactionType getType();
 }
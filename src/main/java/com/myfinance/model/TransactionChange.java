@@ -0,0 +1,7 @@
+package com.myfinance.model;
+
+public enum TransactionChange {
+    ADDED,
+    EDITED,
+    DELETED
+}
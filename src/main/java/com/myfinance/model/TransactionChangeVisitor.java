@@ -0,0 +1,10 @@
+package com.myfinance.model;
+
+/**
+ * Receives one changed transaction. For {@link TransactionChange#DELETED} only the id is set: type and category are
+ * {@code null}, amount and timestamp are zero.
+ */
+@FunctionalInterface
+public interface TransactionChangeVisitor {
+    void visit(long id, TransactionChange change, TransactionType type, long amount, Category category, long timestamp);
+}
@@ -0,0 +1,261 @@
+package com.myfinance.model;
+
+import com.myfinance.model.index.RoaringBitmap;
+import com.myfinance.model.stats.CategoryTotals;
+import com.myfinance.model.store.SegmentSummary;
+
+import java.util.*;
+
+public class TransactionQuery {
+    /**
+     * The bitmap index is used when the selected transactions are at most this fraction of the scanned range;
+     * above it a sequential scan is cheaper than gathering scattered slots.
+     */
+    private static final int BITMAP_SELECTIVITY = 4;
+
+    private final Wallet wallet;
+    private TransactionType type;
+    private Set<Category> categories;
+    private long minAmount = Long.MIN_VALUE;
+    private long maxAmount = Long.MAX_VALUE;
+    private long fromTimestamp = Long.MIN_VALUE;
+    private long toTimestamp = Long.MAX_VALUE;
+    private QueryPlan lastPlan;
+
+    TransactionQuery(final Wallet wallet) {
+        this.wallet = wallet;
+    }
+
+    public TransactionQuery ofType(final TransactionType type) {
+        this.type = type;
+        return this;
+    }
+
+    public TransactionQuery inCategories(final Collection<Category> categories) {
+        this.categories = new HashSet<>(categories);
+        return this;
+    }
+
+    public TransactionQuery inCategory(final Category category) {
+        return inCategories(Collections.singleton(category));
+    }
+
+    public TransactionQuery amountBetween(final long minAmount, final long maxAmount) {
+        this.minAmount = minAmount;
+        this.maxAmount = maxAmount;
+        return this;
+    }
+
+    public TransactionQuery between(final long fromTimestamp, final long toTimestamp) {
+        this.fromTimestamp = fromTimestamp;
+        this.toTimestamp = toTimestamp;
+        return this;
+    }
+
+    public long count() {
+        synchronized (wallet) {
+            if (type == null && canUseTotals()) {
+                long count = 0;
+                for (final CategoryTotals totals : selectedTotals()) {
+                    count += totals.getCount();
+                }
+                return count;
+            }
+            return aggregate().getCount();
+        }
+    }
+
+    public long sum() {
+        synchronized (wallet) {
+            if (canUseTotals()) {
+                long sum = 0;
+                for (final CategoryTotals totals : selectedTotals()) {
+                    if (type != null) {
+                        sum += totals.getTotal(type);
+                    } else {
+                        for (final TransactionType each : TransactionType.values()) {
+                            sum += totals.getTotal(each);
+                        }
+                    }
+                }
+                return sum;
+            }
+            return aggregate().getSum();
+        }
+    }
+
+    public OptionalLong min() {
+        return aggregate().getMin();
+    }
+
+    public OptionalLong max() {
+        return aggregate().getMax();
+    }
+
+    public QueryAggregate aggregate() {
+        final QueryAggregate aggregate = new QueryAggregate();
+        execute((slot, type, amount, category, timestamp) -> aggregate.add(amount),
+                (category, type, count, sum, min, max) -> aggregate.add(count, sum, min, max));
+        return aggregate;
+    }
+
+    public Map<Category, QueryAggregate> groupByCategory() {
+        final Map<Category, QueryAggregate> groups = new HashMap<>();
+        execute((slot, type, amount, category, timestamp) -> groups.computeIfAbsent(category, key -> new QueryAggregate()).add(amount),
+                (category, type, count, sum, min, max) -> groups.computeIfAbsent(category, key -> new QueryAggregate())
+                        .add(count, sum, min, max));
+        return groups;
+    }
+
+    public Map<TransactionType, QueryAggregate> groupByType() {
+        final Map<TransactionType, QueryAggregate> groups = new EnumMap<>(TransactionType.class);
+        execute((slot, type, amount, category, timestamp) -> groups.computeIfAbsent(type, key -> new QueryAggregate()).add(amount),
+                (category, type, count, sum, min, max) -> groups.computeIfAbsent(type, key -> new QueryAggregate())
+                        .add(count, sum, min, max));
+        return groups;
+    }
+
+    public List<Transaction> list() {
+        final List<Transaction> matches = new ArrayList<>();
+        execute((slot, type, amount, category, timestamp) -> matches.add(Transaction.of(type, amount, category, timestamp)));
+        return matches;
+    }
+
+    public long[] ids() {
+        final long[][] ids = {new long[16]};
+        final int[] size = {0};
+        execute((slot, type, amount, category, timestamp) -> {
+            if (size[0] == ids[0].length) {
+                ids[0] = Arrays.copyOf(ids[0], size[0] * 2);
+            }
+            ids[0][size[0]++] = wallet.idAt(slot);
+        });
+        return Arrays.copyOf(ids[0], size[0]);
+    }
+
+    public QueryPlan getLastPlan() {
+        return lastPlan;
+    }
+
+    private boolean canUseTotals() {
+        if (minAmount != Long.MIN_VALUE || maxAmount != Long.MAX_VALUE
+                || fromTimestamp != Long.MIN_VALUE || toTimestamp != Long.MAX_VALUE) {
+            return false;
+        }
+        lastPlan = QueryPlan.CATEGORY_TOTALS;
+        return true;
+    }
+
+    private List<CategoryTotals> selectedTotals() {
+        final List<CategoryTotals> selected = new ArrayList<>();
+        if (categories == null) {
+            for (final Category category : wallet.indexedCategories()) {
+                if (category.getParent() == null) {
+                    selected.add(wallet.categoryTotalsOf(category));
+                }
+            }
+            return selected;
+        }
+        for (final Category category : categories) {
+            final CategoryTotals totals = wallet.categoryTotalsOf(category);
+            if (totals != null && !hasSelectedAncestor(category)) {
+                selected.add(totals);
+            }
+        }
+        return selected;
+    }
+
+    private boolean hasSelectedAncestor(final Category category) {
+        for (Category ancestor = category.getParent(); ancestor != null; ancestor = ancestor.getParent()) {
+            if (categories.contains(ancestor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Set<Category> matchingCategories() {
+        final Set<Category> matching = new HashSet<>();
+        for (final Category category : wallet.indexedCategories()) {
+            for (Category node = category; node != null; node = node.getParent()) {
+                if (categories.contains(node)) {
+                    matching.add(category);
+                    break;
+                }
+            }
+        }
+        return matching;
+    }
+
+    private void execute(final TransactionRecordVisitor sink) {
+        execute(sink, null);
+    }
+
+    private void execute(final TransactionRecordVisitor sink, final SegmentSummary.EntryVisitor summarySink) {
+        synchronized (wallet) {
+            final Set<Category> matching = categories == null ? null : matchingCategories();
+            if ((matching != null && matching.isEmpty()) || minAmount > maxAmount || fromTimestamp >= toTimestamp) {
+                lastPlan = QueryPlan.EMPTY;
+                return;
+            }
+            int fromSlot = 0;
+            int toSlot = wallet.slotCount();
+            lastPlan = QueryPlan.FULL_SCAN;
+            if ((fromTimestamp != Long.MIN_VALUE || toTimestamp != Long.MAX_VALUE) && wallet.isTimeOrdered()) {
+                fromSlot = wallet.firstSlotAtOrAfter(fromTimestamp);
+                toSlot = toTimestamp == Long.MAX_VALUE ? toSlot : wallet.firstSlotAtOrAfter(toTimestamp);
+                lastPlan = QueryPlan.TIME_RANGE_SCAN;
+            }
+            final TransactionRecordVisitor filter = (slot, type, amount, category, timestamp) -> {
+                if (selects(type, category, matching)
+                        && amount >= minAmount && amount <= maxAmount
+                        && timestamp >= fromTimestamp && timestamp < toTimestamp) {
+                    sink.visit(slot, type, amount, category, timestamp);
+                }
+            };
+            // The bitmaps cost a full pass to build, so a one-shot query builds them only when the category totals
+            // show it selective enough to use them; a type alone is never selective enough.
+            if ((this.type != null || matching != null) && (summarySink == null || !wallet.hasSegmentSummaries())
+                    && (wallet.hasPositionIndex()
+                        || (matching != null && wallet.countIn(matching) * BITMAP_SELECTIVITY <= toSlot - fromSlot))) {
+                final RoaringBitmap positions = wallet.positionsOf(matching, this.type);
+                if ((long) positions.getCardinality() * BITMAP_SELECTIVITY <= toSlot - fromSlot) {
+                    lastPlan = QueryPlan.BITMAP_INDEX;
+                    wallet.gather(positions, fromSlot, toSlot, filter);
+                    return;
+                }
+            }
+            if (summarySink == null) {
+                wallet.scan(fromSlot, toSlot, filter);
+            } else if (wallet.scanSummarized(fromSlot, toSlot, summary -> summarize(summary, matching, summarySink), filter)) {
+                lastPlan = QueryPlan.SEGMENT_SUMMARIES;
+            }
+        }
+    }
+
+    private boolean selects(final TransactionType type, final Category category, final Set<Category> matching) {
+        return (this.type == null || type == this.type) && (matching == null || matching.contains(category));
+    }
+
+    /**
+     * Answers for a whole sealed segment from its summary when the segment lies inside the time range and every
+     * selected category either fits the amount range entirely or misses it entirely.
+     */
+    private boolean summarize(final SegmentSummary summary, final Set<Category> matching, final SegmentSummary.EntryVisitor sink) {
+        if (summary.getMinTimestamp() < fromTimestamp || summary.getMaxTimestamp() >= toTimestamp) {
+            return false;
+        }
+        final boolean[] partial = {false};
+        summary.forEach((category, type, count, sum, min, max) -> partial[0] |= selects(type, category, matching)
+                && max >= minAmount && min <= maxAmount && (min < minAmount || max > maxAmount));
+        if (partial[0]) {
+            return false;
+        }
+        summary.forEach((category, type, count, sum, min, max) -> {
+            if (selects(type, category, matching) && min >= minAmount && max <= maxAmount) {
+                sink.visit(category, type, count, sum, min, max);
+            }
+        });
+        return true;
+    }
+}
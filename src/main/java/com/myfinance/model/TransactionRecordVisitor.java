@@ -0,0 +1,6 @@
+package com.myfinance.model;
+
+@FunctionalInterface
+public interface TransactionRecordVisitor {
+    void visit(final int slot, final TransactionType type, final long amount, final Category category, final long timestamp);
+}
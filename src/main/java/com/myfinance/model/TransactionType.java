@@ -0,0 +1,6 @@
+package com.myfinance.model;
+
+public enum TransactionType {
+    INCOME,
+    EXPENSE
+}
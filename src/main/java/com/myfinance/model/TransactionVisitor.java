@@ -0,0 +1,6 @@
+package com.myfinance.model;
+
+@FunctionalInterface
+public interface TransactionVisitor {
+    void visit(final TransactionType type, final long amount, final Category category);
+}
@@ -3,6 +3,8 @@ package com.myfinance.model;
 import java.io.Serializable;
 
 public class User implements Serializable {
+    private static final long serialVersionUID = 8562271803353441988L;
+
     private final String login;
     private final String password;
 
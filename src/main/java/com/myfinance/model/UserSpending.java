@@ -0,0 +1,25 @@
+package com.myfinance.model;
+
+public class UserSpending {
+    private final String login;
+    private final long totalExpense;
+    private final long balance;
+
+    public UserSpending(final String login, final long totalExpense, final long balance) {
+        this.login = login;
+        this.totalExpense = totalExpense;
+        this.balance = balance;
+    }
+
+    public String getLogin() {
+        return login;
+    }
+
+    public long getTotalExpense() {
+        return totalExpense;
+    }
+
+    public long getBalance() {
+        return balance;
+    }
+}
@@ -1,38 +1,870 @@
 package com.myfinance.model;
 
+import com.myfinance.model.index.LongHashSet;
+import com.myfinance.model.index.RoaringBitmap;
+import com.myfinance.model.stats.CategoryTotals;
+import com.myfinance.model.stats.ExpenseStatistics;
+import com.myfinance.model.store.HeapTransactionStore;
+import com.myfinance.model.store.SegmentSummary;
+import com.myfinance.model.store.TransactionStore;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.time.ZoneId;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
 
 public class Wallet implements Serializable {
-    private final List<Transaction> transactions = new ArrayList<>();
-    private final Map<Category, Double> budgets = new HashMap<>();
-    private double balance;
+    private static final long serialVersionUID = 932199129725228792L;
+
+    public static final int COMPACTION_MIN_TOMBSTONES = 1024;
+    public static final double COMPACTION_TOMBSTONE_RATIO = 0.25;
+    public static final int CHANGE_LOG_CAPACITY = 1 << 16;
+
+    private final TransactionStore transactions;
+    private final Map<Category, Long> budgets = new HashMap<>();
+    private final Map<Category, ExpenseStatistics> expenseStatistics = new HashMap<>();
+    private final Set<Category> staleStatistics = new HashSet<>();
+    private final Map<Category, CategoryTotals> categoryTotals = new HashMap<>();
+    private final LongHashSet importFingerprints = new LongHashSet();
+    private BitSet tombstones = new BitSet();
+    private final List<RecurringRule> recurringRules = new ArrayList<>();
+    private int nextRuleId;
+    private int[] runSlots = new int[4];
+    private long[] runIds = new long[4];
+    private int runCount;
+    private int tombstoneCount;
+    private long balance;
+    private long nextId;
+    private long nextSequence;
+    private long baseSequence;
+    private long changeLogStart;
+    private long[] changeSequences = new long[16];
+    private long[] changedIds = new long[16];
+    private int changeCount;
+    private transient Boolean timeOrdered;
+    private transient long lastTimestamp;
+    private transient List<WalletListener> listeners;
+    private transient boolean frozen;
+    private transient boolean tombstonesShared;
+    private transient Set<Category> sharedStatistics;
+    private transient Map<Category, RoaringBitmap> categoryPositions;
+    private transient RoaringBitmap[] typePositions;
+
+    public Wallet() {
+        this(new HeapTransactionStore());
+    }
+
+    public Wallet(final TransactionStore transactions) {
+        this.transactions = transactions;
+    }
+
+    private Wallet(final Wallet source) {
+        this.transactions = source.transactions.snapshot();
+        this.frozen = true;
+        this.runSlots = source.runSlots;
+        this.runIds = source.runIds;
+        this.runCount = source.runCount;
+        this.tombstones = source.tombstones;
+        source.tombstonesShared = true;
+        this.tombstoneCount = source.tombstoneCount;
+        this.balance = source.balance;
+        this.nextId = source.nextId;
+        this.nextSequence = source.nextSequence;
+        this.baseSequence = source.baseSequence;
+        this.changeLogStart = source.changeLogStart;
+        this.changeSequences = source.changeSequences;
+        this.changedIds = source.changedIds;
+        this.changeCount = source.changeCount;
+        this.nextRuleId = source.nextRuleId;
+        this.timeOrdered = source.timeOrdered;
+        this.lastTimestamp = source.lastTimestamp;
+        budgets.putAll(source.budgets);
+        source.categoryTotals.forEach((category, totals) -> categoryTotals.put(category, totals.copy()));
+        expenseStatistics.putAll(source.expenseStatistics);
+        source.sharedStatistics = new HashSet<>(source.expenseStatistics.keySet());
+        staleStatistics.addAll(source.staleStatistics);
+        for (final RecurringRule rule : source.recurringRules) {
+            recurringRules.add(rule.copy());
+        }
+        if (source.typePositions != null) {
+            categoryPositions = new HashMap<>();
+            source.categoryPositions.forEach((category, positions) -> categoryPositions.put(category, positions.snapshot()));
+            typePositions = new RoaringBitmap[source.typePositions.length];
+            for (int i = 0; i < typePositions.length; i++) {
+                typePositions[i] = source.typePositions[i].snapshot();
+            }
+        }
+    }
+
+    /**
+     * Returns a read-only copy of the wallet as of this moment. Heap wallets share their transaction chunks,
+     * ids, tombstones and expense statistics with the copy until the next in-place write, so taking a snapshot
+     * costs one entry per {@link HeapTransactionStore#CHUNK_SIZE} transactions; other stores are copied. Long
+     * reports and exports scan the snapshot without holding this wallet's monitor, so writers are not blocked.
+     */
+    public synchronized Wallet snapshot() {
+        return frozen ? this : new Wallet(this);
+    }
+
+    public long addTransaction(Transaction transaction) {
+        final long id;
+        synchronized (this) {
+            id = append(transaction);
+        }
+        for (final WalletListener listener : listeners()) {
+            listener.onTransactionAdded(this, transaction);
+        }
+        return id;
+    }
+
+    public void addTransactions(Collection<? extends Transaction> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        final List<Transaction> added = new ArrayList<>(batch);
+        synchronized (this) {
+            for (final Transaction transaction : added) {
+                append(transaction);
+            }
+        }
+        for (final WalletListener listener : listeners()) {
+            listener.onTransactionsAdded(this, added);
+        }
+    }
+
+    private long append(Transaction transaction) {
+        checkWritable();
+        final int slot = transactions.size();
+        transactions.append(transaction);
+        final long id = nextId++;
+        nextSequence++;
+        recordId(slot, id);
+        if (timeOrdered != null) {
+            timeOrdered = timeOrdered && transaction.getTimestamp() >= lastTimestamp;
+            lastTimestamp = Math.max(lastTimestamp, transaction.getTimestamp());
+        }
+        applyToBalance(transaction, 1);
+        rollUp(transaction, 1);
+        if (typePositions != null) {
+            indexPosition(slot, transaction.getType(), transaction.getCategory());
+        }
+        if (transaction instanceof Expense && !staleStatistics.contains(transaction.getCategory())) {
+            if (sharedStatistics != null && sharedStatistics.remove(transaction.getCategory())) {
+                expenseStatistics.computeIfPresent(transaction.getCategory(), (category, statistics) -> statistics.copy());
+            }
+            expenseStatistics.computeIfAbsent(transaction.getCategory(), category -> new ExpenseStatistics()).add(transaction);
+        }
+        return id;
+    }
+
+    public synchronized Optional<Transaction> getTransaction(final long id) {
+        final int slot = slotOf(id);
+        return slot < 0 ? Optional.empty() : Optional.of(transactions.get(slot));
+    }
+
+    public boolean editTransaction(final long id, final Transaction replacement) {
+        final Transaction previous;
+        synchronized (this) {
+            checkWritable();
+            final int slot = slotOf(id);
+            if (slot < 0) {
+                return false;
+            }
+            previous = transactions.get(slot);
+            transactions.set(slot, replacement);
+            if (typePositions != null) {
+                typePositions[previous.getType().ordinal()].remove(slot);
+                categoryPositions.get(previous.getCategory()).remove(slot);
+                indexPosition(slot, replacement.getType(), replacement.getCategory());
+            }
+            if (replacement.getTimestamp() != previous.getTimestamp()) {
+                timeOrdered = null;
+            }
+            applyToBalance(previous, -1);
+            applyToBalance(replacement, 1);
+            rollUp(previous, -1);
+            rollUp(replacement, 1);
+            markStatisticsStale(previous);
+            markStatisticsStale(replacement);
+            logChange(id);
+        }
+        for (final WalletListener listener : listeners()) {
+            listener.onTransactionEdited(this, previous, replacement);
+        }
+        return true;
+    }
+
+    public boolean deleteTransaction(final long id) {
+        final Transaction removed;
+        synchronized (this) {
+            checkWritable();
+            final int slot = slotOf(id);
+            if (slot < 0) {
+                return false;
+            }
+            removed = transactions.get(slot);
+            ownTombstones().set(slot);
+            tombstoneCount++;
+            applyToBalance(removed, -1);
+            rollUp(removed, -1);
+            markStatisticsStale(removed);
+            logChange(id);
+        }
+        for (final WalletListener listener : listeners()) {
+            listener.onTransactionRemoved(this, removed);
+        }
+        return true;
+    }
+
+    private void checkWritable() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Снимок кошелька доступен только для чтения");
+        }
+    }
+
+    /**
+     * Records that the transaction changed at the next sequence number. The arrays are only appended to in place, so
+     * snapshots share them. A full log drops its older half; consumers behind what is left need a full export.
+     */
+    private void logChange(final long id) {
+        if (changeCount == changedIds.length) {
+            final int dropped = changeCount >= CHANGE_LOG_CAPACITY ? changeCount / 2 : 0;
+            final int length = dropped > 0 ? changedIds.length : changedIds.length * 2;
+            changedIds = Arrays.copyOfRange(changedIds, dropped, dropped + length);
+            changeSequences = Arrays.copyOfRange(changeSequences, dropped, dropped + length);
+            changeCount -= dropped;
+            if (dropped > 0) {
+                changeLogStart = changeSequences[0];
+            }
+        }
+        changedIds[changeCount] = id;
+        changeSequences[changeCount] = nextSequence++;
+        changeCount++;
+    }
+
+    private BitSet ownTombstones() {
+        if (tombstonesShared) {
+            tombstones = (BitSet) tombstones.clone();
+            tombstonesShared = false;
+        }
+        return tombstones;
+    }
 
-    public void addTransaction(Transaction transaction) {
-        transactions.add(transaction);
+    /**
+     * Ids are not stored per transaction: slots are split into runs of consecutive ids, and a new run starts only
+     * where the next id does not follow the previous one, which happens after a compaction or a clear. Runs are
+     * appended in place, so snapshots share the arrays and see only their own {@code runCount} entries.
+     */
+    private void recordId(final int slot, final long id) {
+        if (runCount > 0 && id == runIds[runCount - 1] + (slot - runSlots[runCount - 1])) {
+            return;
+        }
+        if (runCount == runSlots.length) {
+            runSlots = Arrays.copyOf(runSlots, runCount * 2);
+            runIds = Arrays.copyOf(runIds, runCount * 2);
+        }
+        runSlots[runCount] = slot;
+        runIds[runCount] = id;
+        runCount++;
+    }
+
+    private int runOfSlot(final int slot) {
+        int low = 0;
+        int high = runCount - 1;
+        while (low < high) {
+            final int middle = (low + high + 1) >>> 1;
+            if (runSlots[middle] <= slot) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private long idOf(final int slot) {
+        final int run = runOfSlot(slot);
+        return runIds[run] + (slot - runSlots[run]);
+    }
+
+    private int runEnd(final int run) {
+        return run + 1 < runCount ? runSlots[run + 1] : transactions.size();
+    }
+
+    private int slotOf(final long id) {
+        int low = 0;
+        int high = runCount - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            if (runIds[middle] > id) {
+                high = middle - 1;
+            } else if (id - runIds[middle] >= runEnd(middle) - runSlots[middle]) {
+                low = middle + 1;
+            } else {
+                final int slot = runSlots[middle] + (int) (id - runIds[middle]);
+                return tombstones.get(slot) ? -1 : slot;
+            }
+        }
+        return -1;
+    }
+
+    private void applyToBalance(final Transaction transaction, final int sign) {
         if (transaction instanceof Income) {
-            balance += transaction.getAmount();
+            balance += sign * transaction.getAmount();
         } else if (transaction instanceof Expense) {
-            balance -= transaction.getAmount();
+            balance -= sign * transaction.getAmount();
+        }
+    }
+
+    private void rollUp(final Transaction transaction, final int sign) {
+        for (Category category = transaction.getCategory(); category != null; category = category.getParent()) {
+            categoryTotals.computeIfAbsent(category, key -> new CategoryTotals()).add(transaction.getType(), transaction.getAmount(), sign);
+        }
+    }
+
+    private void markStatisticsStale(final Transaction transaction) {
+        if (transaction instanceof Expense) {
+            staleStatistics.add(transaction.getCategory());
+            expenseStatistics.remove(transaction.getCategory());
+        }
+    }
+
+    public synchronized boolean needsCompaction() {
+        return tombstoneCount >= COMPACTION_MIN_TOMBSTONES && tombstoneCount >= transactions.size() * COMPACTION_TOMBSTONE_RATIO;
+    }
+
+    public synchronized void compactTombstones() {
+        if (tombstoneCount == 0) {
+            return;
+        }
+        checkWritable();
+        final int size = transactions.size();
+        transactions.compact(tombstones);
+        final int[] oldRunSlots = runSlots;
+        final long[] oldRunIds = runIds;
+        final int oldRunCount = runCount;
+        runSlots = new int[4];
+        runIds = new long[4];
+        runCount = 0;
+        int target = 0;
+        int run = 0;
+        for (int slot = tombstones.nextClearBit(0); slot < size; slot = tombstones.nextClearBit(slot + 1)) {
+            while (run + 1 < oldRunCount && oldRunSlots[run + 1] <= slot) {
+                run++;
+            }
+            recordId(target++, oldRunIds[run] + (slot - oldRunSlots[run]));
+        }
+        tombstones = new BitSet();
+        tombstonesShared = false;
+        tombstoneCount = 0;
+        categoryPositions = null;
+        typePositions = null;
+    }
+
+    public synchronized int getTombstoneCount() {
+        return tombstoneCount;
+    }
+
+    public void clearTransactions() {
+        synchronized (this) {
+            checkWritable();
+            baseSequence = nextSequence;
+            changeLogStart = nextSequence;
+            changeSequences = new long[16];
+            changedIds = new long[16];
+            changeCount = 0;
+            transactions.clear();
+            runSlots = new int[4];
+            runIds = new long[4];
+            runCount = 0;
+            tombstones = new BitSet();
+            tombstonesShared = false;
+            tombstoneCount = 0;
+            timeOrdered = null;
+            categoryPositions = null;
+            typePositions = null;
+            expenseStatistics.clear();
+            staleStatistics.clear();
+            categoryTotals.clear();
+            importFingerprints.clear();
+            balance = 0;
+        }
+        for (final WalletListener listener : listeners()) {
+            listener.onTransactionsCleared(this);
+        }
+    }
+
+    public synchronized List<Transaction> getTransactions() {
+        if (tombstoneCount > 0) {
+            final List<Transaction> live = new ArrayList<>(transactions.size() - tombstoneCount);
+            for (int slot = tombstones.nextClearBit(0); slot < transactions.size(); slot = tombstones.nextClearBit(slot + 1)) {
+                live.add(transactions.get(slot));
+            }
+            return Collections.unmodifiableList(live);
+        }
+        final TransactionStore view = transactions.snapshot();
+        return new AbstractList<>() {
+            @Override
+            public Transaction get(final int index) {
+                return view.get(index);
+            }
+
+            @Override
+            public int size() {
+                return view.size();
+            }
+        };
+    }
+
+    public synchronized void forEachTransaction(final TransactionVisitor visitor) {
+        if (tombstoneCount == 0) {
+            transactions.forEach(visitor);
+            return;
+        }
+        final int[] slot = {0};
+        transactions.forEach((type, amount, category) -> {
+            if (!tombstones.get(slot[0]++)) {
+                visitor.visit(type, amount, category);
+            }
+        });
+    }
+
+    public synchronized void forEachTransactionFrom(final long fromId, final IdentifiedTransactionVisitor visitor) {
+        final int size = transactions.size();
+        if (size == 0) {
+            return;
+        }
+        int run = 0;
+        int high = runCount - 1;
+        while (run < high) {
+            final int middle = (run + high + 1) >>> 1;
+            if (runIds[middle] <= fromId) {
+                run = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        final int from = (int) Math.min(runEnd(run), runSlots[run] + Math.max(0, fromId - runIds[run]));
+        final int[] cursor = {run};
+        transactions.forEach(from, size, (slot, type, amount, category, timestamp) -> {
+            while (cursor[0] + 1 < runCount && runSlots[cursor[0] + 1] <= slot) {
+                cursor[0]++;
+            }
+            if (!tombstones.get(slot)) {
+                visitor.visit(runIds[cursor[0]] + (slot - runSlots[cursor[0]]), type, amount, category, timestamp);
+            }
+        });
+    }
+
+    /**
+     * Visits what changed at or after {@code fromSequence}, which must not be older than {@link #getChangeLogStart}:
+     * first, in id order, every older transaction that was edited or deleted since, with its current contents, then
+     * every transaction added since and still present, like {@link #forEachTransactionFrom}.
+     */
+    public synchronized void forEachChangeFrom(final long fromSequence, final TransactionChangeVisitor visitor) {
+        int low = 0;
+        int high = changeCount;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (changeSequences[middle] < fromSequence) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        // Every sequence number since fromSequence went to either a logged change or an added transaction.
+        final long firstAddedId = nextId - (nextSequence - fromSequence) + (changeCount - low);
+        final long[] changed = new long[changeCount - low];
+        int count = 0;
+        for (int i = low; i < changeCount; i++) {
+            if (changedIds[i] < firstAddedId) {
+                changed[count++] = changedIds[i];
+            }
+        }
+        Arrays.sort(changed, 0, count);
+        for (int i = 0; i < count; i++) {
+            final long id = changed[i];
+            if (i > 0 && id == changed[i - 1]) {
+                continue;
+            }
+            final int slot = slotOf(id);
+            if (slot < 0) {
+                visitor.visit(id, TransactionChange.DELETED, null, 0, null, 0);
+            } else {
+                final Transaction transaction = transactions.get(slot);
+                visitor.visit(id, TransactionChange.EDITED, transaction.getType(), transaction.getAmount(),
+                        transaction.getCategory(), transaction.getTimestamp());
+            }
+        }
+        forEachTransactionFrom(firstAddedId, (id, type, amount, category, timestamp) ->
+                visitor.visit(id, TransactionChange.ADDED, type, amount, category, timestamp));
+    }
+
+    public TransactionQuery query() {
+        return new TransactionQuery(this);
+    }
+
+    synchronized boolean isTimeOrdered() {
+        if (timeOrdered == null) {
+            final OptionalLong last = transactions.lastTimestampIfOrdered();
+            timeOrdered = last.isPresent();
+            lastTimestamp = last.orElse(Long.MIN_VALUE);
+        }
+        return timeOrdered;
+    }
+
+    synchronized void scan(final int fromSlot, final int toSlot, final TransactionRecordVisitor visitor) {
+        if (tombstoneCount == 0) {
+            transactions.forEach(fromSlot, toSlot, visitor);
+            return;
+        }
+        transactions.forEach(fromSlot, toSlot, (slot, type, amount, category, timestamp) -> {
+            if (!tombstones.get(slot)) {
+                visitor.visit(slot, type, amount, category, timestamp);
+            }
+        });
+    }
+
+    /**
+     * Scans like {@link #scan}, but lets {@code summaries} answer for whole sealed segments that hold no deleted
+     * transactions. Returns whether any segment was answered from its summary.
+     */
+    synchronized boolean scanSummarized(final int fromSlot, final int toSlot, final Predicate<SegmentSummary> summaries,
+                                        final TransactionRecordVisitor visitor) {
+        final boolean[] summarized = {false};
+        final Predicate<SegmentSummary> live = summary -> {
+            final int deleted = tombstones.nextSetBit(summary.getFirstIndex());
+            if (deleted >= 0 && deleted < summary.getFirstIndex() + summary.getRowCount()) {
+                return false;
+            }
+            final boolean accepted = summaries.test(summary);
+            summarized[0] |= accepted;
+            return accepted;
+        };
+        if (tombstoneCount == 0) {
+            transactions.forEach(fromSlot, toSlot, live, visitor);
+        } else {
+            transactions.forEach(fromSlot, toSlot, live, (slot, type, amount, category, timestamp) -> {
+                if (!tombstones.get(slot)) {
+                    visitor.visit(slot, type, amount, category, timestamp);
+                }
+            });
+        }
+        return summarized[0];
+    }
+
+    /**
+     * Returns the slots holding transactions of the given type in any of the given categories; {@code null} means
+     * no restriction. The per-category and per-type bitmaps are built on first use and then kept up to date, so
+     * callers check {@link #hasPositionIndex} or {@link #countIn} before paying for the build.
+     */
+    synchronized RoaringBitmap positionsOf(final Set<Category> categories, final TransactionType type) {
+        if (typePositions == null) {
+            categoryPositions = new HashMap<>();
+            typePositions = new RoaringBitmap[TransactionType.values().length];
+            for (int i = 0; i < typePositions.length; i++) {
+                typePositions[i] = new RoaringBitmap();
+            }
+            transactions.forEach(0, transactions.size(), (slot, recordType, amount, category, timestamp) ->
+                    indexPosition(slot, recordType, category));
+        }
+        RoaringBitmap selected = null;
+        if (categories != null) {
+            selected = new RoaringBitmap();
+            for (final Category category : categories) {
+                final RoaringBitmap positions = categoryPositions.get(category);
+                if (positions != null) {
+                    selected = RoaringBitmap.or(selected, positions);
+                }
+            }
+        }
+        if (type != null) {
+            selected = selected == null ? typePositions[type.ordinal()] : RoaringBitmap.and(selected, typePositions[type.ordinal()]);
+        }
+        return selected;
+    }
+
+    synchronized boolean hasPositionIndex() {
+        return typePositions != null;
+    }
+
+    /**
+     * Returns the number of live transactions in the given categories, taken from the running category totals.
+     * Totals are rolled up into parents, so a category whose ancestor is also given is already counted there.
+     */
+    synchronized long countIn(final Set<Category> categories) {
+        long count = 0;
+        for (final Category category : categories) {
+            final CategoryTotals totals = categoryTotals.get(category);
+            if (totals != null && !hasAncestorIn(category, categories)) {
+                count += totals.getCount();
+            }
+        }
+        return count;
+    }
+
+    private static boolean hasAncestorIn(final Category category, final Set<Category> categories) {
+        for (Category ancestor = category.getParent(); ancestor != null; ancestor = ancestor.getParent()) {
+            if (categories.contains(ancestor)) {
+                return true;
+            }
         }
+        return false;
+    }
+
+    private void indexPosition(final int slot, final TransactionType type, final Category category) {
+        typePositions[type.ordinal()].add(slot);
+        categoryPositions.computeIfAbsent(category, key -> new RoaringBitmap()).add(slot);
+    }
+
+    /**
+     * Visits the live transactions at the given slots within {@code [fromSlot, toSlot)}.
+     */
+    synchronized void gather(final RoaringBitmap positions, final int fromSlot, final int toSlot, final TransactionRecordVisitor visitor) {
+        positions.forEach(fromSlot, toSlot, slot -> {
+            if (!tombstones.get(slot)) {
+                final Transaction transaction = transactions.get(slot);
+                visitor.visit(slot, transaction.getType(), transaction.getAmount(), transaction.getCategory(), transaction.getTimestamp());
+            }
+        });
+    }
+
+    synchronized boolean hasSegmentSummaries() {
+        return transactions.hasSegmentSummaries();
+    }
+
+    synchronized int firstSlotAtOrAfter(final long timestamp) {
+        return transactions.firstIndexAtOrAfter(timestamp);
+    }
+
+    synchronized int slotCount() {
+        return transactions.size();
+    }
+
+    synchronized long idAt(final int slot) {
+        return idOf(slot);
+    }
+
+    synchronized CategoryTotals categoryTotalsOf(final Category category) {
+        return categoryTotals.get(category);
+    }
+
+    synchronized Set<Category> indexedCategories() {
+        return categoryTotals.keySet();
+    }
+
+    /**
+     * Returns the sequence at which the transactions were last cleared; nothing before it can be replayed.
+     */
+    public synchronized long getBaseSequence() {
+        return baseSequence;
+    }
+
+    /**
+     * Returns the oldest sequence {@link #forEachChangeFrom} can start at.
+     */
+    public synchronized long getChangeLogStart() {
+        return changeLogStart;
+    }
+
+    /**
+     * Returns the sequence number the next addition, edit or deletion will get; each of them takes one.
+     */
+    public synchronized long getNextSequence() {
+        return nextSequence;
     }
 
-    public List<Transaction> getTransactions() {
+    public synchronized long getNextId() {
+        return nextId;
+    }
+
+    public synchronized int getTransactionCount() {
+        return transactions.size() - tombstoneCount;
+    }
+
+    public TransactionStore getTransactionStore() {
         return transactions;
     }
 
-    public double getBalance() {
+    /**
+     * Lets the store delete files it no longer uses; called by the owner after this wallet was saved.
+     */
+    public synchronized void deleteObsoleteFiles() {
+        transactions.deleteObsoleteFiles();
+    }
+
+    public synchronized Map<Category, ExpenseStatistics> getExpenseStatistics() {
+        if (!staleStatistics.isEmpty()) {
+            final Map<Category, ExpenseStatistics> rebuilt = new HashMap<>();
+            forEachTransaction((type, amount, category) -> {
+                if (type == TransactionType.EXPENSE && staleStatistics.contains(category)) {
+                    rebuilt.computeIfAbsent(category, key -> new ExpenseStatistics()).add(new Expense(amount, category));
+                }
+            });
+            expenseStatistics.putAll(rebuilt);
+            staleStatistics.clear();
+        }
+        return Collections.unmodifiableMap(expenseStatistics);
+    }
+
+    public synchronized long getCategoryTotal(final Category category, final TransactionType type) {
+        final CategoryTotals totals = categoryTotals.get(category);
+        return totals == null ? 0 : totals.getTotal(type);
+    }
+
+    public synchronized Map<Category, CategoryTotals> getCategoryTotals() {
+        return Collections.unmodifiableMap(new HashMap<>(categoryTotals));
+    }
+
+    public synchronized WalletSummary summarize() {
+        final List<Category> categories = new ArrayList<>(categoryTotals.keySet());
+        categories.sort(Comparator.comparing(Category::getName));
+        final String[] categoryNames = new String[categories.size()];
+        final boolean[] topLevel = new boolean[categoryNames.length];
+        final long[] incomes = new long[categoryNames.length];
+        final long[] expenses = new long[categoryNames.length];
+        for (int i = 0; i < categoryNames.length; i++) {
+            final Category category = categories.get(i);
+            final CategoryTotals totals = categoryTotals.get(category);
+            categoryNames[i] = category.getName();
+            topLevel[i] = category.getParent() == null;
+            incomes[i] = totals.getIncome();
+            expenses[i] = totals.getExpense();
+        }
+        final String[] budgetNames = new String[budgets.size()];
+        final long[] budgetAmounts = new long[budgetNames.length];
+        final long[] spent = new long[budgetNames.length];
+        int budget = 0;
+        for (final Map.Entry<Category, Long> entry : budgets.entrySet()) {
+            budgetNames[budget] = entry.getKey().getName();
+            budgetAmounts[budget] = entry.getValue();
+            spent[budget] = getCategoryTotal(entry.getKey(), TransactionType.EXPENSE);
+            budget++;
+        }
+        return new WalletSummary(balance, getTransactionCount(), getNextRecurringDue(), categoryNames, topLevel, incomes,
+                expenses, budgetNames, budgetAmounts, spent);
+    }
+
+    public synchronized RecurringRule addRecurringRule(final TransactionType type, final long amount, final Category category,
+                                                      final CronSchedule schedule, final long now, final ZoneId zone) {
+        checkWritable();
+        final RecurringRule rule = new RecurringRule(nextRuleId++, type, amount, category, schedule, zone, now);
+        recurringRules.add(rule);
+        return rule;
+    }
+
+    public synchronized boolean removeRecurringRule(final int id) {
+        checkWritable();
+        return recurringRules.removeIf(rule -> rule.getId() == id);
+    }
+
+    public synchronized List<RecurringRule> getRecurringRules() {
+        return Collections.unmodifiableList(new ArrayList<>(recurringRules));
+    }
+
+    public synchronized long getNextRecurringDue() {
+        long next = CronSchedule.NEVER;
+        for (final RecurringRule rule : recurringRules) {
+            next = Math.min(next, rule.getNextDue());
+        }
+        return next;
+    }
+
+    public int postDueRecurring(final long now) {
+        final List<Transaction> due = new ArrayList<>();
+        synchronized (this) {
+            for (final RecurringRule rule : recurringRules) {
+                rule.collectDue(now, due);
+            }
+        }
+        due.sort(Comparator.comparingLong(Transaction::getTimestamp));
+        addTransactions(due);
+        return due.size();
+    }
+
+    /**
+     * Records the fingerprint of an imported row and returns {@code false} if a row with the same fingerprint was
+     * already imported into this wallet.
+     */
+    public synchronized boolean rememberImportFingerprint(final long fingerprint) {
+        checkWritable();
+        return importFingerprints.add(fingerprint);
+    }
+
+    public synchronized int getImportFingerprintCount() {
+        return importFingerprints.size();
+    }
+
+    public synchronized long getBalance() {
         return balance;
     }
 
-    public void setBudget(Category category, double amount) {
-        budgets.put(category, amount);
+    public void setBudget(Category category, long amount) {
+        synchronized (this) {
+            checkWritable();
+            budgets.put(category, amount);
+        }
+        for (final WalletListener listener : listeners()) {
+            listener.onBudgetSet(this, category, amount);
+        }
+    }
+
+    public void clearBudgets() {
+        synchronized (this) {
+            checkWritable();
+            budgets.clear();
+        }
+        for (final WalletListener listener : listeners()) {
+            listener.onBudgetsCleared(this);
+        }
+    }
+
+    /**
+     * Returns the budget set for the category, or {@code null} if it has none.
+     */
+    public synchronized Long getBudget(final Category category) {
+        return budgets.get(category);
+    }
+
+    /**
+     * Returns a read-only copy of the budgets, so callers can iterate it while other threads keep editing the wallet.
+     */
+    public synchronized Map<Category, Long> getBudgets() {
+        return Collections.unmodifiableMap(new HashMap<>(budgets));
+    }
+
+    public void addListener(WalletListener listener) {
+        listeners().add(listener);
+    }
+
+    public void removeListener(WalletListener listener) {
+        listeners().remove(listener);
+    }
+
+    private List<WalletListener> listeners() {
+        if (listeners == null) {
+            listeners = new CopyOnWriteArrayList<>();
+        }
+        return listeners;
     }
 
-    public Map<Category, Double> getBudgets() {
-        return budgets;
+    private synchronized void writeObject(final ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
     }
 }
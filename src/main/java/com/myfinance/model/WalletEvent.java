@@ -0,0 +1,123 @@
+package com.myfinance.model;
+
+public class WalletEvent {
+    public enum Type {
+        TRANSACTION_ADDED,
+        TRANSACTIONS_ADDED,
+        TRANSACTION_REMOVED,
+        TRANSACTIONS_CLEARED,
+        BUDGET_SET,
+        BUDGETS_CLEARED,
+        TRANSFER,
+        IMPORT_COMPLETED
+    }
+
+    private final Type type;
+    private final String login;
+    private final Transaction transaction;
+    private final Category category;
+    private final long amount;
+    private final int count;
+    private final String counterparty;
+    private final long balance;
+    private final long timestamp;
+
+    private WalletEvent(final Type type, final String login, final Transaction transaction, final Category category,
+                        final long amount, final int count, final String counterparty, final long balance) {
+        this.type = type;
+        this.login = login;
+        this.transaction = transaction;
+        this.category = category;
+        this.amount = amount;
+        this.count = count;
+        this.counterparty = counterparty;
+        this.balance = balance;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    public static WalletEvent transactionAdded(final String login, final Transaction transaction, final long balance) {
+        return new WalletEvent(Type.TRANSACTION_ADDED, login, transaction, transaction.getCategory(), transaction.getAmount(), 1,
+                null, balance);
+    }
+
+    /**
+     * A batch append is published as one event carrying the count and the net amount, so a large import costs one
+     * slot in the stream's buffer instead of one per row.
+     */
+    public static WalletEvent transactionsAdded(final String login, final int count, final long netAmount, final long balance) {
+        return new WalletEvent(Type.TRANSACTIONS_ADDED, login, null, null, netAmount, count, null, balance);
+    }
+
+    public static WalletEvent transactionRemoved(final String login, final Transaction transaction, final long balance) {
+        return new WalletEvent(Type.TRANSACTION_REMOVED, login, transaction, transaction.getCategory(), transaction.getAmount(), 1,
+                null, balance);
+    }
+
+    public static WalletEvent transactionsCleared(final String login, final long balance) {
+        return new WalletEvent(Type.TRANSACTIONS_CLEARED, login, null, null, 0, 0, null, balance);
+    }
+
+    public static WalletEvent budgetSet(final String login, final Category category, final long amount, final long balance) {
+        return new WalletEvent(Type.BUDGET_SET, login, null, category, amount, 0, null, balance);
+    }
+
+    public static WalletEvent budgetsCleared(final String login, final long balance) {
+        return new WalletEvent(Type.BUDGETS_CLEARED, login, null, null, 0, 0, null, balance);
+    }
+
+    public static WalletEvent transfer(final String fromLogin, final String toLogin, final Category category, final long amount,
+                                       final long balance) {
+        return new WalletEvent(Type.TRANSFER, fromLogin, null, category, amount, 1, toLogin, balance);
+    }
+
+    public static WalletEvent importCompleted(final String login, final int count, final long balance) {
+        return new WalletEvent(Type.IMPORT_COMPLETED, login, null, null, 0, count, null, balance);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getLogin() {
+        return login;
+    }
+
+    /**
+     * The added or removed transaction; {@code null} for events that do not concern a single transaction.
+     */
+    public Transaction getTransaction() {
+        return transaction;
+    }
+
+    public Category getCategory() {
+        return category;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * The recipient of a {@link Type#TRANSFER}; {@code null} for other events.
+     */
+    public String getCounterparty() {
+        return counterparty;
+    }
+
+    public long getBalance() {
+        return balance;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + login + (category == null ? "" : " " + category.getName()) + " " + Money.format(amount);
+    }
+}
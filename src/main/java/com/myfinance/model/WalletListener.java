@@ -0,0 +1,31 @@
+package com.myfinance.model;
+
+import java.util.List;
+
+public interface WalletListener {
+    default void onTransactionAdded(final Wallet wallet, final Transaction transaction) {
+    }
+
+    default void onTransactionsAdded(final Wallet wallet, final List<Transaction> transactions) {
+        for (final Transaction transaction : transactions) {
+            onTransactionAdded(wallet, transaction);
+        }
+    }
+
+    default void onTransactionRemoved(final Wallet wallet, final Transaction transaction) {
+    }
+
+    default void onTransactionEdited(final Wallet wallet, final Transaction previous, final Transaction current) {
+        onTransactionRemoved(wallet, previous);
+        onTransactionAdded(wallet, current);
+    }
+
+    default void onTransactionsCleared(final Wallet wallet) {
+    }
+
+    default void onBudgetSet(final Wallet wallet, final Category category, final long amount) {
+    }
+
+    default void onBudgetsCleared(final Wallet wallet) {
+    }
+}
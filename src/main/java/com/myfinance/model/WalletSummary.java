@@ -0,0 +1,137 @@
+package com.myfinance.model;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Balance, transaction count, per-category income and expense and budget status of a wallet. It is written in front of
+ * the transactions in the wallet file, so balance and full-report totals can be read without loading any rows.
+ */
+public class WalletSummary {
+    private final long balance;
+    private final int transactionCount;
+    private final long nextRecurringDue;
+    private final String[] categoryNames;
+    private final boolean[] topLevel;
+    private final long[] incomes;
+    private final long[] expenses;
+    private final String[] budgetNames;
+    private final long[] budgets;
+    private final long[] spent;
+
+    WalletSummary(final long balance, final int transactionCount, final long nextRecurringDue,
+                  final String[] categoryNames, final boolean[] topLevel, final long[] incomes, final long[] expenses,
+                  final String[] budgetNames, final long[] budgets, final long[] spent) {
+        this.balance = balance;
+        this.transactionCount = transactionCount;
+        this.nextRecurringDue = nextRecurringDue;
+        this.categoryNames = categoryNames;
+        this.topLevel = topLevel;
+        this.incomes = incomes;
+        this.expenses = expenses;
+        this.budgetNames = budgetNames;
+        this.budgets = budgets;
+        this.spent = spent;
+    }
+
+    public long getBalance() {
+        return balance;
+    }
+
+    public int getTransactionCount() {
+        return transactionCount;
+    }
+
+    public long getNextRecurringDue() {
+        return nextRecurringDue;
+    }
+
+    public long getTotalIncome() {
+        long total = 0;
+        for (int i = 0; i < categoryNames.length; i++) {
+            total += topLevel[i] ? incomes[i] : 0;
+        }
+        return total;
+    }
+
+    public long getTotalExpense() {
+        long total = 0;
+        for (int i = 0; i < categoryNames.length; i++) {
+            total += topLevel[i] ? expenses[i] : 0;
+        }
+        return total;
+    }
+
+    /**
+     * Visits every category in name order. Totals of a parent category include its subcategories.
+     */
+    public void forEachCategory(final CategoryVisitor visitor) {
+        for (int i = 0; i < categoryNames.length; i++) {
+            visitor.visit(categoryNames[i], incomes[i], expenses[i]);
+        }
+    }
+
+    public void forEachBudget(final BudgetVisitor visitor) {
+        for (int i = 0; i < budgetNames.length; i++) {
+            visitor.visit(budgetNames[i], budgets[i], spent[i]);
+        }
+    }
+
+    public void writeTo(final DataOutput out) throws IOException {
+        out.writeLong(balance);
+        out.writeInt(transactionCount);
+        out.writeLong(nextRecurringDue);
+        out.writeInt(categoryNames.length);
+        for (int i = 0; i < categoryNames.length; i++) {
+            out.writeUTF(categoryNames[i]);
+            out.writeBoolean(topLevel[i]);
+            out.writeLong(incomes[i]);
+            out.writeLong(expenses[i]);
+        }
+        out.writeInt(budgetNames.length);
+        for (int i = 0; i < budgetNames.length; i++) {
+            out.writeUTF(budgetNames[i]);
+            out.writeLong(budgets[i]);
+            out.writeLong(spent[i]);
+        }
+    }
+
+    public static WalletSummary readFrom(final DataInput in) throws IOException {
+        final long balance = in.readLong();
+        final int transactionCount = in.readInt();
+        final long nextRecurringDue = in.readLong();
+        final int categoryCount = in.readInt();
+        final String[] categoryNames = new String[categoryCount];
+        final boolean[] topLevel = new boolean[categoryCount];
+        final long[] incomes = new long[categoryCount];
+        final long[] expenses = new long[categoryCount];
+        for (int i = 0; i < categoryCount; i++) {
+            categoryNames[i] = in.readUTF();
+            topLevel[i] = in.readBoolean();
+            incomes[i] = in.readLong();
+            expenses[i] = in.readLong();
+        }
+        final int budgetCount = in.readInt();
+        final String[] budgetNames = new String[budgetCount];
+        final long[] budgets = new long[budgetCount];
+        final long[] spent = new long[budgetCount];
+        for (int i = 0; i < budgetCount; i++) {
+            budgetNames[i] = in.readUTF();
+            budgets[i] = in.readLong();
+            spent[i] = in.readLong();
+        }
+        return new WalletSummary(balance, transactionCount, nextRecurringDue, categoryNames, topLevel, incomes, expenses,
+                budgetNames, budgets, spent);
+    }
+
+    @FunctionalInterface
+    public interface CategoryVisitor {
+        void visit(String category, long income, long expense);
+    }
+
+    @FunctionalInterface
+    public interface BudgetVisitor {
+        void visit(String category, long budget, long spent);
+    }
+}
@@ -0,0 +1,81 @@
+package com.myfinance.model.index;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class BloomFilter {
+    private static final long FNV64_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV64_PRIME = 0x100000001B3L;
+
+    private final ByteBuffer bits;
+    private final int offset;
+    private final long bitCount;
+    private final int hashCount;
+
+    public BloomFilter(final ByteBuffer bits, final int offset, final long bitCount, final int hashCount) {
+        if (bitCount <= 0 || offset + (bitCount + 7) / 8 > bits.capacity()) {
+            throw new IllegalArgumentException("Размер фильтра не совпадает с буфером");
+        }
+        if (hashCount <= 0) {
+            throw new IllegalArgumentException("Число хеш-функций должно быть положительным");
+        }
+        this.bits = bits;
+        this.offset = offset;
+        this.bitCount = bitCount;
+        this.hashCount = hashCount;
+    }
+
+    public static int optimalHashCount(final int bitsPerEntry) {
+        return Math.max(1, (int) Math.round(bitsPerEntry * Math.log(2)));
+    }
+
+    public static int byteSize(final long bitCount) {
+        return (int) ((bitCount + 7) / 8);
+    }
+
+    public void add(final String key) {
+        final long h1 = hash(key);
+        final long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            final long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            final int index = offset + (int) (bit >>> 3);
+            bits.put(index, (byte) (bits.get(index) | (1 << (bit & 7))));
+        }
+    }
+
+    public boolean mightContain(final String key) {
+        final long h1 = hash(key);
+        final long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            final long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            if ((bits.get(offset + (int) (bit >>> 3)) & (1 << (bit & 7))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    private static long hash(final String key) {
+        long hash = FNV64_OFFSET_BASIS;
+        for (final byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xFF)) * FNV64_PRIME;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -0,0 +1,379 @@
+package com.myfinance.model.index;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed set of non-negative ints in the Roaring layout: values are grouped by their high 16 bits, and each
+ * group is a sorted array while it holds at most {@value #ARRAY_MAX} values and a 65536-bit bitmap after that.
+ * {@link #snapshot()} shares containers with the copy; whichever bitmap writes to a shared container first copies it.
+ */
+public class RoaringBitmap {
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    private char[] keys = new char[4];
+    private Container[] containers = new Container[4];
+    private int size;
+
+    public void add(final int value) {
+        final char key = (char) (value >>> 16);
+        int index = indexOf(key);
+        if (index < 0) {
+            index = -index - 1;
+            insert(index, key, new ArrayContainer());
+        }
+        containers[index] = writable(index).add((char) value);
+    }
+
+    public void remove(final int value) {
+        final int index = indexOf((char) (value >>> 16));
+        if (index < 0) {
+            return;
+        }
+        final Container container = writable(index).remove((char) value);
+        if (container.cardinality() == 0) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+            containers[--size] = null;
+        } else {
+            containers[index] = container;
+        }
+    }
+
+    public boolean contains(final int value) {
+        final int index = indexOf((char) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    public int getCardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Visits the values in {@code [from, to)} in ascending order.
+     */
+    public void forEach(final int from, final int to, final IntConsumer consumer) {
+        final int start = indexOf((char) (Math.max(0, from) >>> 16));
+        for (int i = start < 0 ? -start - 1 : start; i < size; i++) {
+            final int base = keys[i] << 16;
+            if (base >= to) {
+                return;
+            }
+            containers[i].forEach(base, from, to, consumer);
+        }
+    }
+
+    public RoaringBitmap snapshot() {
+        final RoaringBitmap copy = new RoaringBitmap();
+        copy.keys = Arrays.copyOf(keys, Math.max(4, size));
+        copy.containers = Arrays.copyOf(containers, Math.max(4, size));
+        copy.size = size;
+        for (int i = 0; i < size; i++) {
+            containers[i].shared = true;
+        }
+        return copy;
+    }
+
+    public static RoaringBitmap or(final RoaringBitmap left, final RoaringBitmap right) {
+        final RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < left.size || j < right.size) {
+            if (j == right.size || (i < left.size && left.keys[i] < right.keys[j])) {
+                result.append(left.keys[i], left.containers[i].copy());
+                i++;
+            } else if (i == left.size || right.keys[j] < left.keys[i]) {
+                result.append(right.keys[j], right.containers[j].copy());
+                j++;
+            } else {
+                result.append(left.keys[i], left.containers[i].or(right.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public static RoaringBitmap and(final RoaringBitmap left, final RoaringBitmap right) {
+        final RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < left.size && j < right.size) {
+            if (left.keys[i] < right.keys[j]) {
+                i++;
+            } else if (right.keys[j] < left.keys[i]) {
+                j++;
+            } else {
+                final Container container = left.containers[i].and(right.containers[j]);
+                if (container.cardinality() > 0) {
+                    result.append(left.keys[i], container);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    private int indexOf(final char key) {
+        if (size > 0 && keys[size - 1] == key) {
+            return size - 1;
+        }
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private Container writable(final int index) {
+        if (containers[index].shared) {
+            containers[index] = containers[index].copy();
+        }
+        return containers[index];
+    }
+
+    private void insert(final int index, final char key, final Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    private void append(final char key, final Container container) {
+        insert(size, key, container);
+    }
+
+    private abstract static class Container {
+        private boolean shared;
+
+        abstract Container add(char value);
+
+        abstract Container remove(char value);
+
+        abstract boolean contains(char value);
+
+        abstract int cardinality();
+
+        abstract Container copy();
+
+        abstract long[] words();
+
+        abstract void forEach(int base, int from, int to, IntConsumer consumer);
+
+        Container or(final Container other) {
+            if (this instanceof ArrayContainer && other instanceof ArrayContainer
+                    && cardinality() + other.cardinality() <= ARRAY_MAX) {
+                return ((ArrayContainer) this).merge((ArrayContainer) other);
+            }
+            final long[] words = words();
+            final long[] otherWords = other.words();
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                words[i] |= otherWords[i];
+            }
+            return new BitmapContainer(words);
+        }
+
+        Container and(final Container other) {
+            if (this instanceof ArrayContainer) {
+                return ((ArrayContainer) this).filter(other);
+            }
+            if (other instanceof ArrayContainer) {
+                return ((ArrayContainer) other).filter(this);
+            }
+            final long[] words = words();
+            final long[] otherWords = other.words();
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                words[i] &= otherWords[i];
+            }
+            return new BitmapContainer(words);
+        }
+    }
+
+    private static final class ArrayContainer extends Container {
+        private char[] values;
+        private int cardinality;
+
+        private ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        private ArrayContainer(final char[] values, final int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(final char value) {
+            if (cardinality > 0 && values[cardinality - 1] < value) {
+                return insertAt(cardinality, value);
+            }
+            final int index = Arrays.binarySearch(values, 0, cardinality, value);
+            return index >= 0 ? this : insertAt(-index - 1, value);
+        }
+
+        private Container insertAt(final int index, final char value) {
+            if (cardinality == ARRAY_MAX) {
+                return new BitmapContainer(words()).add(value);
+            }
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(final char value) {
+            final int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(final char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(4, cardinality)), cardinality);
+        }
+
+        @Override
+        long[] words() {
+            final long[] words = new long[BITMAP_WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                words[values[i] >>> 6] |= 1L << values[i];
+            }
+            return words;
+        }
+
+        @Override
+        void forEach(final int base, final int from, final int to, final IntConsumer consumer) {
+            for (int i = 0; i < cardinality; i++) {
+                final int value = base | values[i];
+                if (value >= to) {
+                    return;
+                }
+                if (value >= from) {
+                    consumer.accept(value);
+                }
+            }
+        }
+
+        private ArrayContainer merge(final ArrayContainer other) {
+            final char[] merged = new char[Math.max(4, cardinality + other.cardinality)];
+            int i = 0;
+            int j = 0;
+            int count = 0;
+            while (i < cardinality || j < other.cardinality) {
+                if (j == other.cardinality || (i < cardinality && values[i] < other.values[j])) {
+                    merged[count++] = values[i++];
+                } else if (i == cardinality || other.values[j] < values[i]) {
+                    merged[count++] = other.values[j++];
+                } else {
+                    merged[count++] = values[i++];
+                    j++;
+                }
+            }
+            return new ArrayContainer(merged, count);
+        }
+
+        private ArrayContainer filter(final Container other) {
+            final char[] kept = new char[Math.max(4, cardinality)];
+            int count = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (other.contains(values[i])) {
+                    kept[count++] = values[i];
+                }
+            }
+            return new ArrayContainer(kept, count);
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        private final long[] words;
+        private int cardinality;
+
+        private BitmapContainer(final long[] words) {
+            this.words = words;
+            for (final long word : words) {
+                cardinality += Long.bitCount(word);
+            }
+        }
+
+        @Override
+        Container add(final char value) {
+            final long before = words[value >>> 6];
+            words[value >>> 6] = before | (1L << value);
+            cardinality += before == words[value >>> 6] ? 0 : 1;
+            return this;
+        }
+
+        @Override
+        Container remove(final char value) {
+            final long before = words[value >>> 6];
+            words[value >>> 6] = before & ~(1L << value);
+            cardinality -= before == words[value >>> 6] ? 0 : 1;
+            return this;
+        }
+
+        @Override
+        boolean contains(final char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(words.clone());
+        }
+
+        @Override
+        long[] words() {
+            return words.clone();
+        }
+
+        @Override
+        void forEach(final int base, final int from, final int to, final IntConsumer consumer) {
+            for (int i = Math.max(0, (from - base) >> 6); i < BITMAP_WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    final int value = base | (i << 6) | Long.numberOfTrailingZeros(word);
+                    if (value >= to) {
+                        return;
+                    }
+                    if (value >= from) {
+                        consumer.accept(value);
+                    }
+                    word &= word - 1;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.myfinance.model.legacy;
+
+import com.myfinance.model.Money;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads wallets serialized by the first version of the application: amounts were doubles, transactions had no
+ * timestamps and categories had no parents. Their class descriptors carry the original serialVersionUIDs, which are
+ * resolved to the field-compatible classes in this package and then converted to the current model.
+ */
+public final class BaselineWalletFormat {
+    private static final Map<String, Class<?>> CLASSES = new HashMap<>();
+
+    static {
+        for (final Class<?> legacy : new Class<?>[]{Wallet.class, Transaction.class, Income.class, Expense.class, Category.class}) {
+            CLASSES.put("com.myfinance.model." + legacy.getSimpleName(), legacy);
+        }
+    }
+
+    private BaselineWalletFormat() {
+    }
+
+    public static ObjectInputStream open(final InputStream in) throws IOException {
+        return new BaselineObjectInputStream(in);
+    }
+
+    /**
+     * Converts a wallet read through {@link #open}. Baseline transactions are all dated {@code timestamp}, since the
+     * file does not say when they happened.
+     */
+    public static com.myfinance.model.Wallet upgrade(final Object read, final long timestamp) {
+        return read instanceof Wallet ? ((Wallet) read).toWallet(timestamp) : (com.myfinance.model.Wallet) read;
+    }
+
+    static long toMinorUnits(final double amount) {
+        return Math.round(amount * Money.MINOR_UNITS_PER_MAJOR);
+    }
+
+    private static final class BaselineObjectInputStream extends ObjectInputStream {
+        private BaselineObjectInputStream(final InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            final Class<?> legacy = CLASSES.get(desc.getName());
+            if (legacy != null && ObjectStreamClass.lookup(legacy).getSerialVersionUID() == desc.getSerialVersionUID()) {
+                return legacy;
+            }
+            return super.resolveClass(desc);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.myfinance.model.legacy;
+
+import java.io.Serializable;
+
+class Category implements Serializable {
+    private static final long serialVersionUID = 6596430351607924814L;
+
+    private String name;
+
+    com.myfinance.model.Category toCategory() {
+        return new com.myfinance.model.Category(name);
+    }
+}
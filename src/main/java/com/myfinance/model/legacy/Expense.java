@@ -0,0 +1,12 @@
+package com.myfinance.model.legacy;
+
+import com.myfinance.model.TransactionType;
+
+class Expense extends Transaction {
+    private static final long serialVersionUID = -3116603206351949277L;
+
+    @Override
+    TransactionType getType() {
+        return TransactionType.EXPENSE;
+    }
+}
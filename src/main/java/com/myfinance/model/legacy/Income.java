@@ -0,0 +1,12 @@
+package com.myfinance.model.legacy;
+
+import com.myfinance.model.TransactionType;
+
+class Income extends Transaction {
+    private static final long serialVersionUID = -1756170581120483156L;
+
+    @Override
+    TransactionType getType() {
+        return TransactionType.INCOME;
+    }
+}
@@ -0,0 +1,18 @@
+package com.myfinance.model.legacy;
+
+import com.myfinance.model.TransactionType;
+
+import java.io.Serializable;
+
+abstract class Transaction implements Serializable {
+    private static final long serialVersionUID = 8961084447847765638L;
+
+    private double amount;
+    private Category category;
+
+    abstract TransactionType getType();
+
+    com.myfinance.model.Transaction toTransaction(final long timestamp) {
+        return com.myfinance.model.Transaction.of(getType(), BaselineWalletFormat.toMinorUnits(amount), category.toCategory(), timestamp);
+    }
+}
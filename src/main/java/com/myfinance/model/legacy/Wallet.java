@@ -0,0 +1,27 @@
+package com.myfinance.model.legacy;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+class Wallet implements Serializable {
+    private static final long serialVersionUID = -5395459728781295233L;
+
+    private List<Transaction> transactions;
+    private Map<Category, Double> budgets;
+
+    /**
+     * The baseline balance field is not read: the balance is recomputed from the converted transactions.
+     */
+    com.myfinance.model.Wallet toWallet(final long timestamp) {
+        final List<com.myfinance.model.Transaction> converted = new ArrayList<>(transactions.size());
+        for (final Transaction transaction : transactions) {
+            converted.add(transaction.toTransaction(timestamp));
+        }
+        final com.myfinance.model.Wallet wallet = new com.myfinance.model.Wallet();
+        wallet.addTransactions(converted);
+        budgets.forEach((category, amount) -> wallet.setBudget(category.toCategory(), BaselineWalletFormat.toMinorUnits(amount)));
+        return wallet;
+    }
+}
@@ -0,0 +1,40 @@
+package com.myfinance.model.stats;
+
+import com.myfinance.model.TransactionType;
+
+import java.io.Serializable;
+
+public class CategoryTotals implements Serializable {
+    private static final long serialVersionUID = 3421567181507425786L;
+
+    private final long[] totals = new long[TransactionType.values().length];
+    private long count;
+
+    public CategoryTotals copy() {
+        final CategoryTotals copy = new CategoryTotals();
+        System.arraycopy(totals, 0, copy.totals, 0, totals.length);
+        copy.count = count;
+        return copy;
+    }
+
+    public void add(final TransactionType type, final long amount, final int sign) {
+        totals[type.ordinal()] += sign * amount;
+        count += sign;
+    }
+
+    public long getTotal(final TransactionType type) {
+        return totals[type.ordinal()];
+    }
+
+    public long getIncome() {
+        return getTotal(TransactionType.INCOME);
+    }
+
+    public long getExpense() {
+        return getTotal(TransactionType.EXPENSE);
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,62 @@
+package com.myfinance.model.stats;
+
+import com.myfinance.model.Transaction;
+
+import java.io.Serializable;
+import java.util.List;
+
+public class ExpenseStatistics implements Serializable {
+    private static final long serialVersionUID = -4507790265401766035L;
+
+    public static final int TOP_EXPENSES_CAPACITY = 10;
+
+    private final QuantileSketch sketch;
+    private final TopTransactions largest;
+
+    public ExpenseStatistics() {
+        this(QuantileSketch.DEFAULT_K, TOP_EXPENSES_CAPACITY);
+    }
+
+    public ExpenseStatistics(final int sketchK, final int topCapacity) {
+        this(new QuantileSketch(sketchK), new TopTransactions(topCapacity));
+    }
+
+    private ExpenseStatistics(final QuantileSketch sketch, final TopTransactions largest) {
+        this.sketch = sketch;
+        this.largest = largest;
+    }
+
+    public ExpenseStatistics copy() {
+        return new ExpenseStatistics(sketch.copy(), largest.copy());
+    }
+
+    public void add(final Transaction expense) {
+        sketch.update(expense.getAmount());
+        largest.offer(expense);
+    }
+
+    public void merge(final ExpenseStatistics other) {
+        sketch.merge(other.sketch);
+        largest.merge(other.largest);
+    }
+
+    public long getCount() {
+        return sketch.getCount();
+    }
+
+    public long getMedian() {
+        return quantile(0.5);
+    }
+
+    public long quantile(final double q) {
+        return Math.round(sketch.quantile(q));
+    }
+
+    public List<Transaction> getLargest() {
+        return largest.getLargest();
+    }
+
+    public QuantileSketch getSketch() {
+        return sketch;
+    }
+}
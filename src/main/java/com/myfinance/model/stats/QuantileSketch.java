@@ -0,0 +1,199 @@
+package com.myfinance.model.stats;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+public class QuantileSketch implements Serializable {
+    private static final long serialVersionUID = -3884337322301322194L;
+
+    public static final int DEFAULT_K = 200;
+    private static final int MIN_LEVEL_CAPACITY = 8;
+    private static final double LEVEL_DECAY = 2.0 / 3.0;
+
+    private final int k;
+    private double[][] levels;
+    private int[] sizes;
+    private long count;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+    private long randomState = 0x9E3779B97F4A7C15L;
+
+    public QuantileSketch() {
+        this(DEFAULT_K);
+    }
+
+    public QuantileSketch(final int k) {
+        if (k < MIN_LEVEL_CAPACITY) {
+            throw new IllegalArgumentException("Параметр k должен быть не меньше " + MIN_LEVEL_CAPACITY);
+        }
+        this.k = k;
+        this.levels = new double[][]{new double[k]};
+        this.sizes = new int[1];
+    }
+
+    public QuantileSketch copy() {
+        final QuantileSketch copy = new QuantileSketch(k);
+        copy.levels = new double[levels.length][];
+        for (int level = 0; level < levels.length; level++) {
+            copy.levels[level] = levels[level].clone();
+        }
+        copy.sizes = sizes.clone();
+        copy.count = count;
+        copy.min = min;
+        copy.max = max;
+        copy.randomState = randomState;
+        return copy;
+    }
+
+    public void update(final double value) {
+        if (count == 0) {
+            min = value;
+            max = value;
+        } else {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        count++;
+        append(0, value);
+        compress();
+    }
+
+    public void merge(final QuantileSketch other) {
+        if (other.count == 0) {
+            return;
+        }
+        while (levels.length < other.levels.length) {
+            addLevel();
+        }
+        for (int level = 0; level < other.levels.length; level++) {
+            for (int i = 0; i < other.sizes[level]; i++) {
+                append(level, other.levels[level][i]);
+            }
+        }
+        if (count == 0) {
+            min = other.min;
+            max = other.max;
+        } else {
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+        count += other.count;
+        compress();
+    }
+
+    public double quantile(final double q) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (q <= 0) {
+            return min;
+        }
+        if (q >= 1) {
+            return max;
+        }
+        final int retained = getRetainedItems();
+        final int[] levelOf = new int[retained];
+        final double[] values = new double[retained];
+        int index = 0;
+        for (int level = 0; level < levels.length; level++) {
+            for (int i = 0; i < sizes[level]; i++) {
+                values[index] = levels[level][i];
+                levelOf[index] = level;
+                index++;
+            }
+        }
+        final Integer[] order = new Integer[retained];
+        for (int i = 0; i < retained; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+
+        final double target = q * count;
+        long cumulative = 0;
+        for (final int i : order) {
+            cumulative += 1L << levelOf[i];
+            if (cumulative >= target) {
+                return values[i];
+            }
+        }
+        return max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public int getRetainedItems() {
+        int retained = 0;
+        for (final int size : sizes) {
+            retained += size;
+        }
+        return retained;
+    }
+
+    private int capacity(final int level) {
+        final int depth = levels.length - 1 - level;
+        return Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(k * Math.pow(LEVEL_DECAY, depth)));
+    }
+
+    private void append(final int level, final double value) {
+        if (sizes[level] == levels[level].length) {
+            levels[level] = Arrays.copyOf(levels[level], Math.max(MIN_LEVEL_CAPACITY, levels[level].length * 2));
+        }
+        levels[level][sizes[level]++] = value;
+    }
+
+    private void addLevel() {
+        levels = Arrays.copyOf(levels, levels.length + 1);
+        sizes = Arrays.copyOf(sizes, sizes.length + 1);
+        levels[levels.length - 1] = new double[MIN_LEVEL_CAPACITY];
+    }
+
+    private void compress() {
+        int level = 0;
+        while (level < levels.length) {
+            if (sizes[level] >= capacity(level)) {
+                compact(level);
+                level = 0;
+            } else {
+                level++;
+            }
+        }
+    }
+
+    private void compact(final int level) {
+        if (level + 1 == levels.length) {
+            addLevel();
+        }
+        final double[] buffer = levels[level];
+        int size = sizes[level];
+        final boolean keepLast = (size & 1) == 1;
+        final double kept = buffer[size - 1];
+        if (keepLast) {
+            size--;
+        }
+        Arrays.sort(buffer, 0, size);
+        for (int i = nextBit(); i < size; i += 2) {
+            append(level + 1, buffer[i]);
+        }
+        sizes[level] = 0;
+        if (keepLast) {
+            buffer[sizes[level]++] = kept;
+        }
+    }
+
+    private int nextBit() {
+        randomState ^= randomState << 13;
+        randomState ^= randomState >>> 7;
+        randomState ^= randomState << 17;
+        return (int) (randomState & 1);
+    }
+}
@@ -0,0 +1,102 @@
+package com.myfinance.model.stats;
+
+import java.util.Arrays;
+
+/**
+ * Fixed number of consecutive time buckets ending at the newest bucket seen. Adding to a bucket and moving the
+ * window forward are O(1) amortized, and the total over the window is kept up to date on every change.
+ */
+public class TimeBucketRing {
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final long bucketMillis;
+    private final long[] sums;
+    private long head = EMPTY;
+    private long total;
+    private int nonEmptyBuckets;
+
+    public TimeBucketRing(final int bucketCount, final long bucketMillis) {
+        if (bucketCount <= 0 || bucketMillis <= 0) {
+            throw new IllegalArgumentException("Число и длительность интервалов должны быть положительными");
+        }
+        this.bucketMillis = bucketMillis;
+        this.sums = new long[bucketCount];
+    }
+
+    public void advanceTo(final long timestamp) {
+        final long index = Math.floorDiv(timestamp, bucketMillis);
+        if (head == EMPTY) {
+            head = index;
+            return;
+        }
+        if (index <= head) {
+            return;
+        }
+        if (index - head >= sums.length) {
+            Arrays.fill(sums, 0);
+            total = 0;
+            nonEmptyBuckets = 0;
+        } else {
+            for (long expired = head + 1; expired <= index; expired++) {
+                update(slot(expired), -sums[slot(expired)]);
+            }
+        }
+        head = index;
+    }
+
+    /**
+     * Adds {@code amount} (negative to take a value back out) to the bucket of {@code timestamp}, moving the window
+     * forward if needed. Returns false when the timestamp is older than the window.
+     */
+    public boolean add(final long timestamp, final long amount) {
+        advanceTo(timestamp);
+        final long index = Math.floorDiv(timestamp, bucketMillis);
+        if (index <= head - sums.length) {
+            return false;
+        }
+        update(slot(index), amount);
+        return true;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getNewest() {
+        return head == EMPTY ? 0 : sums[slot(head)];
+    }
+
+    public int getNonEmptyBuckets() {
+        return nonEmptyBuckets;
+    }
+
+    public int getBucketCount() {
+        return sums.length;
+    }
+
+    public long getBucketMillis() {
+        return bucketMillis;
+    }
+
+    public void clear() {
+        Arrays.fill(sums, 0);
+        head = EMPTY;
+        total = 0;
+        nonEmptyBuckets = 0;
+    }
+
+    private void update(final int slot, final long delta) {
+        final long before = sums[slot];
+        sums[slot] = before + delta;
+        total += delta;
+        if (before == 0 && sums[slot] != 0) {
+            nonEmptyBuckets++;
+        } else if (before != 0 && sums[slot] == 0) {
+            nonEmptyBuckets--;
+        }
+    }
+
+    private int slot(final long index) {
+        return (int) Math.floorMod(index, (long) sums.length);
+    }
+}
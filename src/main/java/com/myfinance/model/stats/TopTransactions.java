@@ -0,0 +1,90 @@
+package com.myfinance.model.stats;
+
+import com.myfinance.model.Transaction;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+public class TopTransactions implements Serializable {
+    private static final long serialVersionUID = 7583039660307097950L;
+
+    private final Transaction[] heap;
+    private int size;
+
+    public TopTransactions(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер выборки должен быть положительным");
+        }
+        this.heap = new Transaction[capacity];
+    }
+
+    public TopTransactions copy() {
+        final TopTransactions copy = new TopTransactions(heap.length);
+        System.arraycopy(heap, 0, copy.heap, 0, size);
+        copy.size = size;
+        return copy;
+    }
+
+    public void offer(final Transaction transaction) {
+        if (size < heap.length) {
+            heap[size] = transaction;
+            siftUp(size++);
+        } else if (heap[0].getAmount() < transaction.getAmount()) {
+            heap[0] = transaction;
+            siftDown(0);
+        }
+    }
+
+    public void merge(final TopTransactions other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.heap[i]);
+        }
+    }
+
+    public List<Transaction> getLargest() {
+        final List<Transaction> largest = new ArrayList<>(Arrays.asList(heap).subList(0, size));
+        largest.sort(Comparator.comparingLong(Transaction::getAmount).reversed());
+        return largest;
+    }
+
+    public int getCapacity() {
+        return heap.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void siftUp(int index) {
+        final Transaction transaction = heap[index];
+        while (index > 0) {
+            final int parent = (index - 1) >>> 1;
+            if (heap[parent].getAmount() <= transaction.getAmount()) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = transaction;
+    }
+
+    private void siftDown(int index) {
+        final Transaction transaction = heap[index];
+        final int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < size && heap[child + 1].getAmount() < heap[child].getAmount()) {
+                child++;
+            }
+            if (transaction.getAmount() <= heap[child].getAmount()) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = transaction;
+    }
+}
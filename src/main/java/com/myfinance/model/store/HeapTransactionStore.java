@@ -0,0 +1,134 @@
+package com.myfinance.model.store;
+
+import com.myfinance.model.Transaction;
+import com.myfinance.model.TransactionRecordVisitor;
+import com.myfinance.model.TransactionVisitor;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Keeps transactions in fixed-size chunks so a snapshot only copies the chunk table. Chunks handed to a
+ * snapshot are copied before the first in-place write; appends never touch slots a snapshot can see.
+ */
+public class HeapTransactionStore implements TransactionStore {
+    private static final long serialVersionUID = 8212947897898781453L;
+
+    public static final int CHUNK_SIZE = 1024;
+    private static final int CHUNK_SHIFT = Integer.numberOfTrailingZeros(CHUNK_SIZE);
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private Transaction[][] chunks = new Transaction[4][];
+    private int size;
+    private transient BitSet sharedChunks;
+    private transient boolean readOnly;
+
+    public HeapTransactionStore() {
+    }
+
+    private HeapTransactionStore(final Transaction[][] chunks, final int size) {
+        this.chunks = chunks;
+        this.size = size;
+        this.readOnly = true;
+    }
+
+    @Override
+    public void append(final Transaction transaction) {
+        checkWritable();
+        final int chunk = size >>> CHUNK_SHIFT;
+        if (chunk == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunk * 2);
+        }
+        if (chunks[chunk] == null) {
+            chunks[chunk] = new Transaction[CHUNK_SIZE];
+        }
+        chunks[chunk][size & CHUNK_MASK] = transaction;
+        size++;
+    }
+
+    @Override
+    public Transaction get(final int index) {
+        checkIndex(index);
+        return chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    @Override
+    public void set(final int index, final Transaction transaction) {
+        checkWritable();
+        checkIndex(index);
+        final int chunk = index >>> CHUNK_SHIFT;
+        if (sharedChunks != null && sharedChunks.get(chunk)) {
+            chunks[chunk] = chunks[chunk].clone();
+            sharedChunks.clear(chunk);
+        }
+        chunks[chunk][index & CHUNK_MASK] = transaction;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        checkWritable();
+        chunks = new Transaction[4][];
+        size = 0;
+        sharedChunks = null;
+    }
+
+    @Override
+    public void compact(final BitSet removed) {
+        checkWritable();
+        final Transaction[][] source = chunks;
+        final int sourceSize = size;
+        chunks = new Transaction[Math.max(4, chunks.length)][];
+        size = 0;
+        sharedChunks = null;
+        for (int i = removed.nextClearBit(0); i < sourceSize; i = removed.nextClearBit(i + 1)) {
+            append(source[i >>> CHUNK_SHIFT][i & CHUNK_MASK]);
+        }
+    }
+
+    @Override
+    public void forEach(final int fromIndex, final TransactionVisitor visitor) {
+        for (int i = Math.max(0, fromIndex); i < size; i++) {
+            final Transaction transaction = chunks[i >>> CHUNK_SHIFT][i & CHUNK_MASK];
+            visitor.visit(transaction.getType(), transaction.getAmount(), transaction.getCategory());
+        }
+    }
+
+    @Override
+    public void forEach(final int fromIndex, final int toIndex, final TransactionRecordVisitor visitor) {
+        final int end = Math.min(toIndex, size);
+        for (int i = Math.max(0, fromIndex); i < end; i++) {
+            final Transaction transaction = chunks[i >>> CHUNK_SHIFT][i & CHUNK_MASK];
+            visitor.visit(i, transaction.getType(), transaction.getAmount(), transaction.getCategory(), transaction.getTimestamp());
+        }
+    }
+
+    @Override
+    public TransactionStore snapshot() {
+        if (readOnly) {
+            return this;
+        }
+        final int chunkCount = (size + CHUNK_MASK) >>> CHUNK_SHIFT;
+        if (sharedChunks == null) {
+            sharedChunks = new BitSet();
+        }
+        sharedChunks.set(0, chunkCount);
+        return new HeapTransactionStore(Arrays.copyOf(chunks, chunkCount), size);
+    }
+
+    private void checkIndex(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Снимок кошелька доступен только для чтения");
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package com.myfinance.model.store;
+
+import com.myfinance.model.Category;
+import com.myfinance.model.Transaction;
+import com.myfinance.model.TransactionRecordVisitor;
+import com.myfinance.model.TransactionType;
+import com.myfinance.model.TransactionVisitor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps transactions as fixed-size records in memory-mapped segment files. Only the file table is serialized with
+ * the wallet. A segment named by the last saved wallet or handed to a snapshot is shared: before the first write to
+ * one of its slots that a reader can see, it is copied to a new file, while appends past the shared length write in
+ * place. A crash before the next save therefore leaves the saved file table pointing at unchanged segments. Files
+ * replaced by such a copy, {@link #clear} or {@link #compact} may still be read by snapshots or by the saved wallet,
+ * so they are kept until {@link #deleteObsoleteFiles} runs after the next successful save.
+ */
+public class MappedTransactionStore implements TransactionStore, Closeable {
+    private static final long serialVersionUID = -1275259902995574359L;
+
+    public static final int RECORD_BYTES = 24;
+    public static final int DEFAULT_SEGMENT_RECORDS = 1 << 20;
+    private static final int MAX_SEGMENT_RECORDS = Integer.highestOneBit(Integer.MAX_VALUE / RECORD_BYTES);
+    private static final int AMOUNT_OFFSET = 0;
+    private static final int TIMESTAMP_OFFSET = 8;
+    private static final int CATEGORY_OFFSET = 16;
+    private static final int TYPE_OFFSET = 20;
+    private static final TransactionType[] TYPES = TransactionType.values();
+
+    private final String directory;
+    private final int segmentRecords;
+    private final List<Category> categories = new ArrayList<>();
+    private int size;
+    private List<String> segmentFiles = new ArrayList<>();
+    private List<String> obsoleteFiles = new ArrayList<>();
+    private int nextFileId;
+    private transient Map<Category, Integer> categoryIds;
+    private transient List<MappedByteBuffer> segments;
+    private transient BitSet sharedSegments;
+    private transient int sharedSize;
+    private transient boolean readOnly;
+    private transient List<String> savedObsoleteFiles;
+    private transient List<WeakReference<MappedTransactionStore>> snapshots;
+
+    public MappedTransactionStore(final Path directory) {
+        this(directory, DEFAULT_SEGMENT_RECORDS);
+    }
+
+    public MappedTransactionStore(final Path directory, final int segmentRecords) {
+        if (segmentRecords <= 0 || Integer.bitCount(segmentRecords) != 1 || segmentRecords > MAX_SEGMENT_RECORDS) {
+            throw new IllegalArgumentException("Размер сегмента должен быть степенью двойки не больше " + MAX_SEGMENT_RECORDS);
+        }
+        this.directory = directory.toString();
+        this.segmentRecords = segmentRecords;
+        try {
+            Files.createDirectories(directory);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Не удалось создать директорию сегментов: " + directory, e);
+        }
+    }
+
+    private MappedTransactionStore(final MappedTransactionStore source) {
+        final int segmentCount = source.segmentCount();
+        this.directory = source.directory;
+        this.segmentRecords = source.segmentRecords;
+        this.categories.addAll(source.categories);
+        this.size = source.size;
+        this.segmentFiles = new ArrayList<>(source.segmentFiles.subList(0, segmentCount));
+        this.nextFileId = source.nextFileId;
+        if (source.segments != null) {
+            this.segments = new ArrayList<>(source.segments.subList(0, Math.min(segmentCount, source.segments.size())));
+        }
+        this.readOnly = true;
+    }
+
+    @Override
+    public void append(final Transaction transaction) {
+        checkWritable();
+        write(writableSegment(size), size, transaction);
+        size++;
+    }
+
+    @Override
+    public void set(final int index, final Transaction transaction) {
+        checkWritable();
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        write(writableSegment(index), index, transaction);
+    }
+
+    private void write(final MappedByteBuffer segment, final int index, final Transaction transaction) {
+        final int offset = (index % segmentRecords) * RECORD_BYTES;
+        segment.putLong(offset + AMOUNT_OFFSET, transaction.getAmount());
+        segment.putLong(offset + TIMESTAMP_OFFSET, transaction.getTimestamp());
+        segment.putInt(offset + CATEGORY_OFFSET, categoryId(transaction.getCategory()));
+        segment.put(offset + TYPE_OFFSET, (byte) transaction.getType().ordinal());
+    }
+
+    @Override
+    public Transaction get(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        final MappedByteBuffer segment = segment(index / segmentRecords);
+        final int offset = (index % segmentRecords) * RECORD_BYTES;
+        return Transaction.of(TYPES[segment.get(offset + TYPE_OFFSET)], segment.getLong(offset + AMOUNT_OFFSET),
+                categories.get(segment.getInt(offset + CATEGORY_OFFSET)), segment.getLong(offset + TIMESTAMP_OFFSET));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        checkWritable();
+        obsoleteFiles.addAll(segmentFiles);
+        segmentFiles = new ArrayList<>();
+        segments = null;
+        sharedSegments = null;
+        sharedSize = 0;
+        size = 0;
+    }
+
+    @Override
+    public void compact(final BitSet removed) {
+        checkWritable();
+        int target = removed.nextSetBit(0);
+        if (target < 0 || target >= size) {
+            return;
+        }
+        for (int source = removed.nextClearBit(target); source < size; source = removed.nextClearBit(source + 1)) {
+            final MappedByteBuffer to = writableSegment(target);
+            final MappedByteBuffer from = segment(source / segmentRecords);
+            final int fromOffset = (source % segmentRecords) * RECORD_BYTES;
+            final int toOffset = (target % segmentRecords) * RECORD_BYTES;
+            for (int i = 0; i < RECORD_BYTES; i += Long.BYTES) {
+                to.putLong(toOffset + i, from.getLong(fromOffset + i));
+            }
+            target++;
+        }
+        size = target;
+        final int segmentCount = segmentCount();
+        if (segmentFiles.size() > segmentCount) {
+            final List<String> released = segmentFiles.subList(segmentCount, segmentFiles.size());
+            obsoleteFiles.addAll(released);
+            released.clear();
+            if (segments != null && segments.size() > segmentCount) {
+                segments.subList(segmentCount, segments.size()).clear();
+            }
+        }
+    }
+
+    @Override
+    public void forEach(final int fromIndex, final TransactionVisitor visitor) {
+        int index = Math.max(0, fromIndex);
+        while (index < size) {
+            final MappedByteBuffer segment = segment(index / segmentRecords);
+            final int end = Math.min(size - index + index % segmentRecords, segmentRecords) * RECORD_BYTES;
+            for (int offset = (index % segmentRecords) * RECORD_BYTES; offset < end; offset += RECORD_BYTES) {
+                visitor.visit(TYPES[segment.get(offset + TYPE_OFFSET)], segment.getLong(offset + AMOUNT_OFFSET),
+                        categories.get(segment.getInt(offset + CATEGORY_OFFSET)));
+                index++;
+            }
+        }
+    }
+
+    @Override
+    public void forEach(final int fromIndex, final int toIndex, final TransactionRecordVisitor visitor) {
+        final int end = Math.min(toIndex, size);
+        int index = Math.max(0, fromIndex);
+        while (index < end) {
+            final MappedByteBuffer segment = segment(index / segmentRecords);
+            final int segmentEnd = Math.min(end - index + index % segmentRecords, segmentRecords) * RECORD_BYTES;
+            for (int offset = (index % segmentRecords) * RECORD_BYTES; offset < segmentEnd; offset += RECORD_BYTES) {
+                visitor.visit(index, TYPES[segment.get(offset + TYPE_OFFSET)], segment.getLong(offset + AMOUNT_OFFSET),
+                        categories.get(segment.getInt(offset + CATEGORY_OFFSET)), segment.getLong(offset + TIMESTAMP_OFFSET));
+                index++;
+            }
+        }
+    }
+
+    @Override
+    public long getTimestamp(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return segment(index / segmentRecords).getLong((index % segmentRecords) * RECORD_BYTES + TIMESTAMP_OFFSET);
+    }
+
+    @Override
+    public TransactionStore snapshot() {
+        if (readOnly) {
+            return this;
+        }
+        share();
+        final MappedTransactionStore snapshot = new MappedTransactionStore(this);
+        if (snapshots == null) {
+            snapshots = new ArrayList<>();
+        }
+        snapshots.add(new WeakReference<>(snapshot));
+        return snapshot;
+    }
+
+    /**
+     * Deletes the files that were already obsolete when this store was last serialized and that no live snapshot
+     * still names. Files that cannot be deleted stay listed and are retried after the next save.
+     */
+    @Override
+    public void deleteObsoleteFiles() {
+        if (savedObsoleteFiles == null) {
+            return;
+        }
+        final Set<String> inUse = new HashSet<>();
+        if (snapshots != null) {
+            for (final Iterator<WeakReference<MappedTransactionStore>> it = snapshots.iterator(); it.hasNext(); ) {
+                final MappedTransactionStore snapshot = it.next().get();
+                if (snapshot == null) {
+                    it.remove();
+                } else {
+                    inUse.addAll(snapshot.segmentFiles);
+                }
+            }
+        }
+        final Set<String> deleted = new HashSet<>();
+        for (final String fileName : savedObsoleteFiles) {
+            if (inUse.contains(fileName)) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(Paths.get(directory, fileName));
+                deleted.add(fileName);
+            } catch (final IOException e) {
+                // Still listed in obsoleteFiles, so the next save tries again.
+            }
+        }
+        obsoleteFiles.removeAll(deleted);
+        savedObsoleteFiles = null;
+    }
+
+    public Path getDirectory() {
+        return Paths.get(directory);
+    }
+
+    public void flush() {
+        if (segments != null) {
+            for (final MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        segments = null;
+    }
+
+    private int categoryId(final Category category) {
+        if (categoryIds == null) {
+            categoryIds = new HashMap<>();
+            for (int i = 0; i < categories.size(); i++) {
+                categoryIds.put(categories.get(i), i);
+            }
+        }
+        return categoryIds.computeIfAbsent(category, key -> {
+            categories.add(key);
+            return categories.size() - 1;
+        });
+    }
+
+    private int segmentCount() {
+        return (size + segmentRecords - 1) / segmentRecords;
+    }
+
+    private MappedByteBuffer segment(final int segmentIndex) {
+        if (segments == null) {
+            segments = new ArrayList<>();
+        }
+        while (segments.size() <= segmentIndex) {
+            final int next = segments.size();
+            if (next == segmentFiles.size()) {
+                segmentFiles.add(nextFileName());
+                segments.add(map(segmentFiles.get(next), true));
+            } else {
+                segments.add(map(segmentFiles.get(next), false));
+            }
+        }
+        return segments.get(segmentIndex);
+    }
+
+    private void share() {
+        if (sharedSegments == null) {
+            sharedSegments = new BitSet();
+        }
+        sharedSegments.set(0, segmentCount());
+        sharedSize = Math.max(sharedSize, size);
+    }
+
+    /**
+     * Returns the segment holding the slot for a write, first moving it to a new file if a snapshot or the saved
+     * wallet may still read that slot.
+     */
+    private MappedByteBuffer writableSegment(final int index) {
+        final int segmentIndex = index / segmentRecords;
+        final MappedByteBuffer segment = segment(segmentIndex);
+        if (index >= sharedSize || sharedSegments == null || !sharedSegments.get(segmentIndex)) {
+            return segment;
+        }
+        final String fileName = nextFileName();
+        final MappedByteBuffer copy = map(fileName, true);
+        final ByteBuffer source = segment.duplicate();
+        source.clear();
+        copy.put(source);
+        copy.clear();
+        obsoleteFiles.add(segmentFiles.set(segmentIndex, fileName));
+        segments.set(segmentIndex, copy);
+        sharedSegments.clear(segmentIndex);
+        return copy;
+    }
+
+    private String nextFileName() {
+        return String.format("segment-%05d.seg", nextFileId++);
+    }
+
+    private MappedByteBuffer map(final String fileName, final boolean created) {
+        final Path path = Paths.get(directory, fileName);
+        final Set<StandardOpenOption> options = EnumSet.of(StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (created) {
+            options.add(StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        try (final FileChannel channel = FileChannel.open(path, options)) {
+            final MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) segmentRecords * RECORD_BYTES);
+            segment.order(ByteOrder.LITTLE_ENDIAN);
+            return segment;
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Не удалось отобразить сегмент транзакций: " + path, e);
+        }
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Снимок кошелька доступен только для чтения");
+        }
+    }
+
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        flush();
+        out.defaultWriteObject();
+        if (!readOnly) {
+            share();
+            savedObsoleteFiles = new ArrayList<>(obsoleteFiles);
+        }
+    }
+
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        share();
+    }
+}
@@ -0,0 +1,92 @@
+package com.myfinance.model.store;
+
+import com.myfinance.model.Category;
+import com.myfinance.model.TransactionType;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Per-category, per-type count, sum, minimum and maximum amount of one sealed segment, plus its time bounds.
+ * Computed once when the segment is sealed, so aggregate queries over whole segments never read their rows.
+ */
+public class SegmentSummary implements Serializable {
+    private static final long serialVersionUID = 159722635982504744L;
+
+    private static final TransactionType[] TYPES = TransactionType.values();
+
+    private final int firstIndex;
+    private final int rowCount;
+    private final long minTimestamp;
+    private final long maxTimestamp;
+    private final boolean timeOrdered;
+    private final Category[] categories;
+    private final long[] counts;
+    private final long[] sums;
+    private final long[] mins;
+    private final long[] maxs;
+
+    SegmentSummary(final int firstIndex, final int rowCount, final Category[] categories, final byte[] types,
+                   final long[] amounts, final int[] categoryIds, final long[] timestamps) {
+        this.firstIndex = firstIndex;
+        this.rowCount = rowCount;
+        this.categories = categories;
+        this.counts = new long[categories.length * TYPES.length];
+        this.sums = new long[counts.length];
+        this.mins = new long[counts.length];
+        this.maxs = new long[counts.length];
+        Arrays.fill(mins, Long.MAX_VALUE);
+        Arrays.fill(maxs, Long.MIN_VALUE);
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        boolean ordered = true;
+        for (int i = 0; i < rowCount; i++) {
+            final int entry = categoryIds[i] * TYPES.length + types[i];
+            counts[entry]++;
+            sums[entry] += amounts[i];
+            mins[entry] = Math.min(mins[entry], amounts[i]);
+            maxs[entry] = Math.max(maxs[entry], amounts[i]);
+            ordered &= timestamps[i] >= max;
+            min = Math.min(min, timestamps[i]);
+            max = Math.max(max, timestamps[i]);
+        }
+        this.minTimestamp = min;
+        this.maxTimestamp = max;
+        this.timeOrdered = ordered;
+    }
+
+    public int getFirstIndex() {
+        return firstIndex;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public long getMinTimestamp() {
+        return minTimestamp;
+    }
+
+    public long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    public boolean isTimeOrdered() {
+        return timeOrdered;
+    }
+
+    public void forEach(final EntryVisitor visitor) {
+        for (int entry = 0; entry < counts.length; entry++) {
+            if (counts[entry] > 0) {
+                visitor.visit(categories[entry / TYPES.length], TYPES[entry % TYPES.length], counts[entry], sums[entry],
+                        mins[entry], maxs[entry]);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface EntryVisitor {
+        void visit(final Category category, final TransactionType type, final long count, final long sum, final long min,
+                   final long max);
+    }
+}
@@ -0,0 +1,548 @@
+package com.myfinance.model.store;
+
+import com.myfinance.model.Category;
+import com.myfinance.model.Transaction;
+import com.myfinance.model.TransactionRecordVisitor;
+import com.myfinance.model.TransactionType;
+import com.myfinance.model.TransactionVisitor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Keeps the newest transactions on the heap and seals older ones into immutable deflate-compressed segment files.
+ * Only segment metadata and summaries are serialized with the wallet, so loading a wallet reads the hot tail alone;
+ * a segment's rows are read when a scan reaches it and a few decoded segments are cached. Edits of sealed rows go to
+ * a small overlay instead of rewriting the file. Files replaced by {@link #clear} or {@link #compact} may still be
+ * read by snapshots or by the saved wallet, so they are kept until {@link #deleteObsoleteFiles} runs after the next
+ * successful save.
+ */
+public class TieredTransactionStore implements TransactionStore {
+    private static final long serialVersionUID = 4814278719583728841L;
+
+    public static final int DEFAULT_SEGMENT_RECORDS = 4096;
+    public static final int DEFAULT_HOT_RECORDS = 4096;
+    private static final int CACHED_SEGMENTS = 4;
+    private static final TransactionType[] TYPES = TransactionType.values();
+
+    private final String directory;
+    private final int segmentRecords;
+    private final int hotRecords;
+    private List<Segment> sealed = new ArrayList<>();
+    private int coldSize;
+    private HeapTransactionStore hot = new HeapTransactionStore();
+    private TreeMap<Integer, Transaction> coldEdits = new TreeMap<>();
+    private List<String> obsoleteFiles = new ArrayList<>();
+    private int nextFileId;
+    private transient Map<Segment, Rows> cache;
+    private transient long segmentLoads;
+    private transient boolean readOnly;
+    private transient List<String> savedObsoleteFiles;
+    private transient List<WeakReference<TieredTransactionStore>> snapshots;
+
+    public TieredTransactionStore(final Path directory) {
+        this(directory, DEFAULT_SEGMENT_RECORDS, DEFAULT_HOT_RECORDS);
+    }
+
+    public TieredTransactionStore(final Path directory, final int segmentRecords, final int hotRecords) {
+        if (segmentRecords <= 0 || hotRecords < 0) {
+            throw new IllegalArgumentException("Размер сегмента должен быть положительным, а горячего хвоста - неотрицательным");
+        }
+        this.directory = directory.toString();
+        this.segmentRecords = segmentRecords;
+        this.hotRecords = hotRecords;
+        try {
+            Files.createDirectories(directory);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Не удалось создать директорию сегментов: " + directory, e);
+        }
+    }
+
+    private TieredTransactionStore(final TieredTransactionStore source) {
+        this.directory = source.directory;
+        this.segmentRecords = source.segmentRecords;
+        this.hotRecords = source.hotRecords;
+        this.sealed = new ArrayList<>(source.sealed);
+        this.coldSize = source.coldSize;
+        this.hot = (HeapTransactionStore) source.hot.snapshot();
+        this.coldEdits = new TreeMap<>(source.coldEdits);
+        this.readOnly = true;
+    }
+
+    @Override
+    public void append(final Transaction transaction) {
+        checkWritable();
+        hot.append(transaction);
+        if (hot.size() >= hotRecords + segmentRecords) {
+            sealOldest();
+        }
+    }
+
+    @Override
+    public Transaction get(final int index) {
+        if (index >= coldSize) {
+            return hot.get(index - coldSize);
+        }
+        checkIndex(index);
+        final Transaction edited = coldEdits.get(index);
+        if (edited != null) {
+            return edited;
+        }
+        final Segment segment = segmentOf(index);
+        final Rows rows = rows(segment);
+        final int row = index - segment.summary.getFirstIndex();
+        return Transaction.of(TYPES[rows.types[row]], rows.amounts[row], segment.categories[rows.categoryIds[row]], rows.timestamps[row]);
+    }
+
+    @Override
+    public void set(final int index, final Transaction transaction) {
+        checkWritable();
+        if (index >= coldSize) {
+            hot.set(index - coldSize, transaction);
+            return;
+        }
+        checkIndex(index);
+        coldEdits.put(index, transaction);
+    }
+
+    @Override
+    public int size() {
+        return coldSize + hot.size();
+    }
+
+    @Override
+    public void clear() {
+        checkWritable();
+        for (final Segment segment : sealed) {
+            obsoleteFiles.add(segment.fileName);
+        }
+        sealed = new ArrayList<>();
+        coldSize = 0;
+        hot = new HeapTransactionStore();
+        coldEdits = new TreeMap<>();
+        cache = null;
+    }
+
+    @Override
+    public void compact(final BitSet removed) {
+        checkWritable();
+        final List<Transaction> live = new ArrayList<>(size() - removed.cardinality());
+        forEach(0, size(), (slot, type, amount, category, timestamp) -> {
+            if (!removed.get(slot)) {
+                live.add(Transaction.of(type, amount, category, timestamp));
+            }
+        });
+        clear();
+        for (final Transaction transaction : live) {
+            append(transaction);
+        }
+    }
+
+    @Override
+    public void forEach(final int fromIndex, final TransactionVisitor visitor) {
+        forEach(fromIndex, size(), (slot, type, amount, category, timestamp) -> visitor.visit(type, amount, category));
+    }
+
+    @Override
+    public void forEach(final int fromIndex, final int toIndex, final TransactionRecordVisitor visitor) {
+        forEach(fromIndex, toIndex, summary -> false, visitor);
+    }
+
+    @Override
+    public void forEach(final int fromIndex, final int toIndex, final Predicate<SegmentSummary> summaries,
+                        final TransactionRecordVisitor visitor) {
+        final int from = Math.max(0, fromIndex);
+        final int to = Math.min(toIndex, size());
+        for (int i = from < coldSize ? segmentIndexOf(from) : sealed.size(); i < sealed.size(); i++) {
+            final Segment segment = sealed.get(i);
+            final int first = segment.summary.getFirstIndex();
+            final int end = first + segment.summary.getRowCount();
+            if (first >= to) {
+                return;
+            }
+            if (from <= first && end <= to && !hasEdits(first, end) && summaries.test(segment.summary)) {
+                continue;
+            }
+            scanSegment(segment, Math.max(from, first), Math.min(to, end), visitor);
+        }
+        if (to > coldSize) {
+            hot.forEach(Math.max(0, from - coldSize), to - coldSize, (slot, type, amount, category, timestamp) ->
+                    visitor.visit(coldSize + slot, type, amount, category, timestamp));
+        }
+    }
+
+    @Override
+    public boolean hasSegmentSummaries() {
+        return !sealed.isEmpty();
+    }
+
+    @Override
+    public long getTimestamp(final int index) {
+        if (index >= coldSize || coldEdits.containsKey(index)) {
+            return get(index).getTimestamp();
+        }
+        checkIndex(index);
+        final Segment segment = segmentOf(index);
+        return rows(segment).timestamps[index - segment.summary.getFirstIndex()];
+    }
+
+    @Override
+    public int firstIndexAtOrAfter(final long timestamp) {
+        if (!coldEdits.isEmpty()) {
+            return TransactionStore.super.firstIndexAtOrAfter(timestamp);
+        }
+        for (final Segment segment : sealed) {
+            if (segment.summary.getMaxTimestamp() < timestamp) {
+                continue;
+            }
+            final int first = segment.summary.getFirstIndex();
+            if (segment.summary.getMinTimestamp() >= timestamp) {
+                return first;
+            }
+            final long[] timestamps = rows(segment).timestamps;
+            int low = 0;
+            int high = timestamps.length;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (timestamps[middle] < timestamp) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return first + low;
+        }
+        return coldSize + hot.firstIndexAtOrAfter(timestamp);
+    }
+
+    @Override
+    public OptionalLong lastTimestampIfOrdered() {
+        if (!coldEdits.isEmpty()) {
+            return TransactionStore.super.lastTimestampIfOrdered();
+        }
+        long last = Long.MIN_VALUE;
+        for (final Segment segment : sealed) {
+            if (!segment.summary.isTimeOrdered() || segment.summary.getMinTimestamp() < last) {
+                return OptionalLong.empty();
+            }
+            last = segment.summary.getMaxTimestamp();
+        }
+        final boolean[] ordered = {true};
+        final long[] newest = {last};
+        hot.forEach(0, hot.size(), (slot, type, amount, category, timestamp) -> {
+            ordered[0] &= timestamp >= newest[0];
+            newest[0] = Math.max(newest[0], timestamp);
+        });
+        return ordered[0] ? OptionalLong.of(newest[0]) : OptionalLong.empty();
+    }
+
+    @Override
+    public TransactionStore snapshot() {
+        if (readOnly) {
+            return this;
+        }
+        final TieredTransactionStore snapshot = new TieredTransactionStore(this);
+        if (snapshots == null) {
+            snapshots = new ArrayList<>();
+        }
+        snapshots.add(new WeakReference<>(snapshot));
+        return snapshot;
+    }
+
+    /**
+     * Deletes the files that were already obsolete when this store was last serialized and that no live snapshot
+     * still reads. Files that cannot be deleted stay listed and are retried after the next save.
+     */
+    @Override
+    public void deleteObsoleteFiles() {
+        if (savedObsoleteFiles == null) {
+            return;
+        }
+        final Set<String> inUse = new HashSet<>();
+        if (snapshots != null) {
+            for (final Iterator<WeakReference<TieredTransactionStore>> it = snapshots.iterator(); it.hasNext(); ) {
+                final TieredTransactionStore snapshot = it.next().get();
+                if (snapshot == null) {
+                    it.remove();
+                } else {
+                    for (final Segment segment : snapshot.sealed) {
+                        inUse.add(segment.fileName);
+                    }
+                }
+            }
+        }
+        final Set<String> deleted = new HashSet<>();
+        for (final String fileName : savedObsoleteFiles) {
+            if (inUse.contains(fileName)) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(Paths.get(directory, fileName));
+                deleted.add(fileName);
+            } catch (final IOException e) {
+                // Still listed in obsoleteFiles, so the next save tries again.
+            }
+        }
+        obsoleteFiles.removeAll(deleted);
+        savedObsoleteFiles = null;
+    }
+
+    public Path getDirectory() {
+        return Paths.get(directory);
+    }
+
+    public int getSealedSegmentCount() {
+        return sealed.size();
+    }
+
+    public int getHotSize() {
+        return hot.size();
+    }
+
+    /**
+     * Number of times a sealed segment was read from disk since this store was created or loaded.
+     */
+    public long getSegmentLoadCount() {
+        return segmentLoads;
+    }
+
+    private void sealOldest() {
+        final int count = segmentRecords;
+        final byte[] types = new byte[count];
+        final long[] amounts = new long[count];
+        final int[] categoryIds = new int[count];
+        final long[] timestamps = new long[count];
+        final Map<Category, Integer> ids = new HashMap<>();
+        final List<Category> categories = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final Transaction transaction = hot.get(i);
+            types[i] = (byte) transaction.getType().ordinal();
+            amounts[i] = transaction.getAmount();
+            timestamps[i] = transaction.getTimestamp();
+            categoryIds[i] = ids.computeIfAbsent(transaction.getCategory(), category -> {
+                categories.add(category);
+                return categories.size() - 1;
+            });
+        }
+        final String fileName = String.format("cold-%06d.seg", nextFileId++);
+        final Rows rows = new Rows(types, amounts, categoryIds, timestamps);
+        final long checksum = write(Paths.get(directory, fileName), rows);
+        final Category[] table = categories.toArray(new Category[0]);
+        final Segment segment = new Segment(fileName, checksum, table,
+                new SegmentSummary(coldSize, count, table, types, amounts, categoryIds, timestamps));
+        sealed.add(segment);
+        coldSize += count;
+
+        final HeapTransactionStore tail = new HeapTransactionStore();
+        hot.forEach(count, hot.size(), (slot, type, amount, category, timestamp) -> tail.append(hot.get(slot)));
+        hot = tail;
+        cache().put(segment, rows);
+    }
+
+    private void scanSegment(final Segment segment, final int from, final int to, final TransactionRecordVisitor visitor) {
+        final Rows rows = rows(segment);
+        final int first = segment.summary.getFirstIndex();
+        final NavigableMap<Integer, Transaction> edits = coldEdits.isEmpty() ? null : coldEdits.subMap(from, true, to, false);
+        for (int index = from; index < to; index++) {
+            final Transaction edited = edits == null || edits.isEmpty() ? null : edits.get(index);
+            if (edited != null) {
+                visitor.visit(index, edited.getType(), edited.getAmount(), edited.getCategory(), edited.getTimestamp());
+            } else {
+                final int row = index - first;
+                visitor.visit(index, TYPES[rows.types[row]], rows.amounts[row], segment.categories[rows.categoryIds[row]],
+                        rows.timestamps[row]);
+            }
+        }
+    }
+
+    private boolean hasEdits(final int from, final int to) {
+        final Integer edited = coldEdits.ceilingKey(from);
+        return edited != null && edited < to;
+    }
+
+    private Segment segmentOf(final int index) {
+        return sealed.get(segmentIndexOf(index));
+    }
+
+    private int segmentIndexOf(final int index) {
+        int low = 0;
+        int high = sealed.size() - 1;
+        while (low < high) {
+            final int middle = (low + high + 1) >>> 1;
+            if (sealed.get(middle).summary.getFirstIndex() <= index) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private Rows rows(final Segment segment) {
+        final Map<Segment, Rows> cache = cache();
+        Rows rows = cache.get(segment);
+        if (rows == null) {
+            rows = read(Paths.get(directory, segment.fileName), segment);
+            segmentLoads++;
+            cache.put(segment, rows);
+        }
+        return rows;
+    }
+
+    private Map<Segment, Rows> cache() {
+        if (cache == null) {
+            cache = new LinkedHashMap<>(CACHED_SEGMENTS * 2, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<Segment, Rows> eldest) {
+                    return size() > CACHED_SEGMENTS;
+                }
+            };
+        }
+        return cache;
+    }
+
+    /**
+     * Writes the segment to a temporary file, forces it to disk and moves it into place, so the wallet saved after
+     * sealing never refers to a segment that is missing or half written. A file left under the same name by a seal
+     * whose wallet was never saved is replaced.
+     */
+    private static long write(final Path path, final Rows rows) {
+        final CRC32 crc = new CRC32();
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        final Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            try (final FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE)) {
+                final DeflaterOutputStream deflated = new DeflaterOutputStream(Channels.newOutputStream(channel), deflater, 1 << 16);
+                final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(deflated, crc), 1 << 16));
+                final int count = rows.types.length;
+                out.writeInt(count);
+                long previous = 0;
+                for (int i = 0; i < count; i++) {
+                    out.writeByte(rows.types[i]);
+                    out.writeInt(rows.categoryIds[i]);
+                    out.writeLong(rows.amounts[i]);
+                    out.writeLong(rows.timestamps[i] - previous);
+                    previous = rows.timestamps[i];
+                }
+                out.flush();
+                deflated.finish();
+                channel.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Не удалось записать сегмент транзакций: " + path, e);
+        } finally {
+            deflater.end();
+        }
+        return crc.getValue();
+    }
+
+    private static Rows read(final Path path, final Segment segment) {
+        final CRC32 crc = new CRC32();
+        final int count = segment.summary.getRowCount();
+        try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new CheckedInputStream(
+                new InflaterInputStream(Files.newInputStream(path)), crc), 1 << 16))) {
+            if (in.readInt() != count) {
+                throw new IOException("неверное число записей");
+            }
+            final Rows rows = new Rows(new byte[count], new long[count], new int[count], new long[count]);
+            long previous = 0;
+            for (int i = 0; i < count; i++) {
+                rows.types[i] = in.readByte();
+                rows.categoryIds[i] = in.readInt();
+                rows.amounts[i] = in.readLong();
+                previous += in.readLong();
+                rows.timestamps[i] = previous;
+            }
+            if (crc.getValue() != segment.checksum) {
+                throw new IOException("неверная контрольная сумма");
+            }
+            return rows;
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Сегмент транзакций поврежден: " + path, e);
+        }
+    }
+
+    private void checkIndex(final int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Снимок кошелька доступен только для чтения");
+        }
+    }
+
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        if (!readOnly) {
+            savedObsoleteFiles = new ArrayList<>(obsoleteFiles);
+        }
+    }
+
+    private static final class Segment implements Serializable {
+        private static final long serialVersionUID = 6401951595984810918L;
+
+        private final String fileName;
+        private final long checksum;
+        private final Category[] categories;
+        private final SegmentSummary summary;
+
+        private Segment(final String fileName, final long checksum, final Category[] categories, final SegmentSummary summary) {
+            this.fileName = fileName;
+            this.checksum = checksum;
+            this.categories = categories;
+            this.summary = summary;
+        }
+    }
+
+    private static final class Rows {
+        private final byte[] types;
+        private final long[] amounts;
+        private final int[] categoryIds;
+        private final long[] timestamps;
+
+        private Rows(final byte[] types, final long[] amounts, final int[] categoryIds, final long[] timestamps) {
+            this.types = types;
+            this.amounts = amounts;
+            this.categoryIds = categoryIds;
+            this.timestamps = timestamps;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.myfinance.model.store;
+
+import com.myfinance.model.Transaction;
+import com.myfinance.model.TransactionRecordVisitor;
+import com.myfinance.model.TransactionVisitor;
+
+import java.io.Serializable;
+import java.util.BitSet;
+import java.util.OptionalLong;
+import java.util.function.Predicate;
+
+public interface TransactionStore extends Serializable {
+    void append(final Transaction transaction);
+    Transaction get(final int index);
+    void set(final int index, final Transaction transaction);
+    int size();
+    void clear();
+    void compact(final BitSet removed);
+    void forEach(final int fromIndex, final TransactionVisitor visitor);
+    void forEach(final int fromIndex, final int toIndex, final TransactionRecordVisitor visitor);
+
+    default long getTimestamp(final int index) {
+        return get(index).getTimestamp();
+    }
+
+    default void forEach(final TransactionVisitor visitor) {
+        forEach(0, visitor);
+    }
+
+    /**
+     * Like {@link #forEach(int, int, TransactionRecordVisitor)}, but first offers the summary of every sealed segment
+     * that lies entirely inside the range; rows are visited only for segments the predicate declines. Stores without
+     * sealed segments visit every row.
+     */
+    default void forEach(final int fromIndex, final int toIndex, final Predicate<SegmentSummary> summaries,
+                         final TransactionRecordVisitor visitor) {
+        forEach(fromIndex, toIndex, visitor);
+    }
+
+    default boolean hasSegmentSummaries() {
+        return false;
+    }
+
+    /**
+     * Returns the first index whose timestamp is not before {@code timestamp}; records must be in time order.
+     */
+    default int firstIndexAtOrAfter(final long timestamp) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (getTimestamp(middle) < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the newest timestamp if the records are in non-decreasing time order, or empty otherwise.
+     */
+    default OptionalLong lastTimestampIfOrdered() {
+        final boolean[] ordered = {true};
+        final long[] last = {Long.MIN_VALUE};
+        forEach(0, size(), (slot, type, amount, category, timestamp) -> {
+            ordered[0] &= timestamp >= last[0];
+            last[0] = Math.max(last[0], timestamp);
+        });
+        return ordered[0] ? OptionalLong.of(last[0]) : OptionalLong.empty();
+    }
+
+    /**
+     * Deletes files the store stopped using before it was last serialized, once no snapshot still reads them. Only
+     * the owner of the data directory calls it, after the serialized wallet is safely saved.
+     */
+    default void deleteObsoleteFiles() {
+    }
+
+    /**
+     * Returns a store with the current contents that later writes to this store do not change.
+     * The default copies every record; stores that can share their storage override it.
+     */
+    default TransactionStore snapshot() {
+        final HeapTransactionStore copy = new HeapTransactionStore();
+        forEach(0, size(), (slot, type, amount, category, timestamp) -> copy.append(Transaction.of(type, amount, category, timestamp)));
+        return copy;
+    }
+}
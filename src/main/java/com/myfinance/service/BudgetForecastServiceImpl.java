@@ -0,0 +1,167 @@
+package com.myfinance.service;
+
+import com.myfinance.model.*;
+import com.myfinance.service.api.BudgetForecastService;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Forecasts month-end spending per budget by resampling whole days of the wallet's recent expense history. Each
+ * path draws one historical day for every day left in the month and adds that day's spending in all budgeted
+ * categories, so spending that tends to happen together stays together. Paths are split across a fork-join pool,
+ * each leaf with its own {@link SplittableRandom}, so a seeded forecast gives the same result on any number of cores.
+ */
+public class BudgetForecastServiceImpl implements BudgetForecastService {
+    public static final int DEFAULT_PATH_COUNT = 100_000;
+    public static final int DEFAULT_HISTORY_DAYS = 90;
+    private static final int LEAF_PATHS = 4_096;
+
+    private final ForkJoinPool pool;
+    private final int pathCount;
+    private final int historyDays;
+    private final ZoneId zone;
+    private final long seed;
+
+    public BudgetForecastServiceImpl() {
+        this(ForkJoinPool.commonPool(), DEFAULT_PATH_COUNT, DEFAULT_HISTORY_DAYS, ZoneId.systemDefault(), System.nanoTime());
+    }
+
+    public BudgetForecastServiceImpl(final ForkJoinPool pool, final int pathCount, final int historyDays, final ZoneId zone,
+                                     final long seed) {
+        if (pathCount <= 0) {
+            throw new IllegalArgumentException("Число сценариев должно быть положительным");
+        }
+        if (historyDays <= 0) {
+            throw new IllegalArgumentException("Период истории должен быть положительным");
+        }
+        this.pool = pool;
+        this.pathCount = pathCount;
+        this.historyDays = historyDays;
+        this.zone = zone;
+        this.seed = seed;
+    }
+
+    @Override
+    public BudgetForecast forecast(final Wallet liveWallet, final long now) {
+        final Wallet wallet = liveWallet.snapshot();
+        final List<Category> categories = new ArrayList<>(wallet.getBudgets().keySet());
+        categories.sort(Comparator.comparing(Category::getName));
+        final int budgetCount = categories.size();
+        final long[] budgets = new long[budgetCount];
+        final long[] spent = new long[budgetCount];
+        for (int b = 0; b < budgetCount; b++) {
+            budgets[b] = wallet.getBudget(categories.get(b));
+            spent[b] = wallet.getCategoryTotal(categories.get(b), TransactionType.EXPENSE);
+        }
+
+        final LocalDate today = Instant.ofEpochMilli(now).atZone(zone).toLocalDate();
+        final int remainingDays = today.lengthOfMonth() - today.getDayOfMonth();
+        final List<Transaction> history = budgetCount == 0 ? new ArrayList<>() : wallet.query().ofType(TransactionType.EXPENSE)
+                .between(startOf(today.minusDays(historyDays)), startOf(today)).list();
+        LocalDate firstDay = today;
+        for (final Transaction expense : history) {
+            final LocalDate day = dayOf(expense.getTimestamp());
+            firstDay = day.isBefore(firstDay) ? day : firstDay;
+        }
+        final int days = (int) ChronoUnit.DAYS.between(firstDay, today);
+        final long[] daily = new long[days * budgetCount];
+        for (final Transaction expense : history) {
+            final int row = (int) ChronoUnit.DAYS.between(firstDay, dayOf(expense.getTimestamp())) * budgetCount;
+            for (int b = 0; b < budgetCount; b++) {
+                if (expense.getCategory().isWithin(categories.get(b))) {
+                    daily[row + b] += expense.getAmount();
+                }
+            }
+        }
+
+        // Without any history there is nothing to resample, and every path simply keeps what is already spent.
+        final long[] outcome = pool.invoke(new Simulation(daily, days, days == 0 ? 0 : remainingDays, budgets, spent,
+                pathCount, new SplittableRandom(seed)));
+        final List<BudgetRisk> risks = new ArrayList<>(budgetCount);
+        for (int b = 0; b < budgetCount; b++) {
+            risks.add(new BudgetRisk(categories.get(b), budgets[b], spent[b], outcome[budgetCount + b] / pathCount,
+                    (double) outcome[b] / pathCount));
+        }
+        return new BudgetForecast(pathCount, days, remainingDays, risks);
+    }
+
+    private long startOf(final LocalDate day) {
+        return day.atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    private LocalDate dayOf(final long timestamp) {
+        return Instant.ofEpochMilli(timestamp).atZone(zone).toLocalDate();
+    }
+
+    /**
+     * Returns, per budget, the number of paths ending above the budget followed by the sum of month-end spending
+     * over all paths.
+     */
+    private static final class Simulation extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] daily;
+        private final int days;
+        private final int remainingDays;
+        private final long[] budgets;
+        private final long[] spent;
+        private final int paths;
+        private final SplittableRandom random;
+
+        private Simulation(final long[] daily, final int days, final int remainingDays, final long[] budgets,
+                           final long[] spent, final int paths, final SplittableRandom random) {
+            this.daily = daily;
+            this.days = days;
+            this.remainingDays = remainingDays;
+            this.budgets = budgets;
+            this.spent = spent;
+            this.paths = paths;
+            this.random = random;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (paths > LEAF_PATHS) {
+                final int half = paths >>> 1;
+                final Simulation left = new Simulation(daily, days, remainingDays, budgets, spent, half, random.split());
+                left.fork();
+                final long[] right = new Simulation(daily, days, remainingDays, budgets, spent, paths - half, random).compute();
+                final long[] merged = left.join();
+                for (int i = 0; i < merged.length; i++) {
+                    merged[i] += right[i];
+                }
+                return merged;
+            }
+            final int budgetCount = budgets.length;
+            final long[] outcome = new long[budgetCount * 2];
+            final long[] path = new long[budgetCount];
+            for (int p = 0; p < paths; p++) {
+                Arrays.fill(path, 0);
+                for (int d = 0; d < remainingDays; d++) {
+                    final int row = random.nextInt(days) * budgetCount;
+                    for (int b = 0; b < budgetCount; b++) {
+                        path[b] += daily[row + b];
+                    }
+                }
+                for (int b = 0; b < budgetCount; b++) {
+                    final long total = spent[b] + path[b];
+                    if (total > budgets[b]) {
+                        outcome[b]++;
+                    }
+                    outcome[budgetCount + b] += total;
+                }
+            }
+            return outcome;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.myfinance.service;
+
+import com.myfinance.model.*;
+import com.myfinance.service.api.BudgetMonitor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+public class BudgetMonitorImpl implements BudgetMonitor, WalletListener {
+    public static final List<Double> DEFAULT_THRESHOLDS = List.of(0.8, 1.0);
+
+    private final double[] thresholds;
+    private final List<Consumer<BudgetAlert>> alertListeners = new CopyOnWriteArrayList<>();
+    private final Map<Category, Integer> crossedByCategory = new HashMap<>();
+    private Wallet wallet;
+
+    public BudgetMonitorImpl() {
+        this(DEFAULT_THRESHOLDS);
+    }
+
+    public BudgetMonitorImpl(final List<Double> thresholds) {
+        if (thresholds.isEmpty()) {
+            throw new IllegalArgumentException("Список порогов не может быть пустым");
+        }
+        this.thresholds = thresholds.stream().mapToDouble(Double::doubleValue).sorted().distinct().toArray();
+        if (this.thresholds[0] <= 0) {
+            throw new IllegalArgumentException("Пороги должны быть положительными");
+        }
+    }
+
+    @Override
+    public synchronized void attach(final Wallet wallet) {
+        detach();
+        this.wallet = wallet;
+        rebuild();
+        wallet.addListener(this);
+    }
+
+    @Override
+    public synchronized void detach() {
+        if (wallet != null) {
+            wallet.removeListener(this);
+            wallet = null;
+        }
+        crossedByCategory.clear();
+    }
+
+    @Override
+    public void addAlertListener(final Consumer<BudgetAlert> listener) {
+        alertListeners.add(listener);
+    }
+
+    @Override
+    public List<Double> getThresholds() {
+        final List<Double> result = new ArrayList<>(thresholds.length);
+        for (final double threshold : thresholds) {
+            result.add(threshold);
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized long getSpent(final Category category) {
+        return wallet == null ? 0 : wallet.getCategoryTotal(category, TransactionType.EXPENSE);
+    }
+
+    @Override
+    public synchronized void onTransactionAdded(final Wallet wallet, final Transaction transaction) {
+        if (transaction instanceof Expense) {
+            for (Category category = transaction.getCategory(); category != null; category = category.getParent()) {
+                evaluate(category, true);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void onTransactionsAdded(final Wallet wallet, final List<Transaction> transactions) {
+        final Set<Category> touched = new LinkedHashSet<>();
+        for (final Transaction transaction : transactions) {
+            if (transaction instanceof Expense) {
+                Category category = transaction.getCategory();
+                while (category != null && touched.add(category)) {
+                    category = category.getParent();
+                }
+            }
+        }
+        for (final Category category : touched) {
+            evaluate(category, true);
+        }
+    }
+
+    @Override
+    public synchronized void onTransactionRemoved(final Wallet wallet, final Transaction transaction) {
+        if (transaction instanceof Expense) {
+            for (Category category = transaction.getCategory(); category != null; category = category.getParent()) {
+                final long spent = wallet.getCategoryTotal(category, TransactionType.EXPENSE);
+                final Long budget = wallet.getBudget(category);
+                int crossed = crossedByCategory.getOrDefault(category, 0);
+                while (budget != null && crossed > 0 && !isCrossed(spent, budget, thresholds[crossed - 1])) {
+                    crossed--;
+                }
+                crossedByCategory.put(category, crossed);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void onTransactionsCleared(final Wallet wallet) {
+        crossedByCategory.clear();
+    }
+
+    @Override
+    public synchronized void onBudgetSet(final Wallet wallet, final Category category, final long amount) {
+        crossedByCategory.remove(category);
+        evaluate(category, true);
+    }
+
+    @Override
+    public synchronized void onBudgetsCleared(final Wallet wallet) {
+        crossedByCategory.clear();
+    }
+
+    private void rebuild() {
+        for (final Category category : wallet.getBudgets().keySet()) {
+            evaluate(category, false);
+        }
+    }
+
+    private void evaluate(final Category category, final boolean notify) {
+        final Long budget = wallet.getBudget(category);
+        if (budget == null) {
+            return;
+        }
+        final long spent = wallet.getCategoryTotal(category, TransactionType.EXPENSE);
+        final int crossed = crossedByCategory.getOrDefault(category, 0);
+        int level = crossed;
+        while (level < thresholds.length && isCrossed(spent, budget, thresholds[level])) {
+            level++;
+        }
+        if (level == crossed) {
+            return;
+        }
+        crossedByCategory.put(category, level);
+        if (notify) {
+            for (int i = crossed; i < level; i++) {
+                final BudgetAlert alert = new BudgetAlert(category, thresholds[i], budget, spent);
+                for (final Consumer<BudgetAlert> listener : alertListeners) {
+                    listener.accept(alert);
+                }
+            }
+        }
+    }
+
+    private static boolean isCrossed(final long spent, final long budget, final double threshold) {
+        final double limit = budget * threshold;
+        return threshold < 1.0 ? spent >= limit : spent > limit;
+    }
+}
@@ -0,0 +1,183 @@
+package com.myfinance.service;
+
+import com.myfinance.model.BulkExportReport;
+import com.myfinance.model.Wallet;
+import com.myfinance.service.api.BulkExportService;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class BulkExportServiceImpl implements BulkExportService {
+    public static final String TRANSACTIONS_FILE_SUFFIX = "_transactions.csv";
+    public static final String BUDGETS_FILE_SUFFIX = "_budgets.csv";
+    public static final String STAMP_FILE_SUFFIX = "_export.stamp";
+    private static final long DEFAULT_PROGRESS_INTERVAL_MILLIS = 5_000;
+
+    private final int threads;
+    private final long progressIntervalMillis;
+
+    public BulkExportServiceImpl() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_PROGRESS_INTERVAL_MILLIS);
+    }
+
+    public BulkExportServiceImpl(final int threads, final long progressIntervalMillis) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Число потоков должно быть положительным");
+        }
+        this.threads = threads;
+        this.progressIntervalMillis = progressIntervalMillis;
+    }
+
+    @Override
+    public BulkExportReport exportAll(final String dataDirectory, final String targetDirectory) {
+        final long start = System.nanoTime();
+        final List<Path> walletFiles = Files.isDirectory(Paths.get(dataDirectory))
+                ? new DataDirectoryLayout(dataDirectory).walletFiles()
+                : new ArrayList<>();
+        final Progress progress = new Progress(walletFiles.size(), start);
+        final Path target = Paths.get(targetDirectory);
+        try {
+            Files.createDirectories(target);
+        } catch (final IOException e) {
+            System.out.println("Не удалось создать директорию выгрузки: " + e.getMessage());
+            return progress.toReport();
+        }
+
+        final ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread thread = new Thread(runnable, "bulk-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final Semaphore inFlight = new Semaphore(threads * 2);
+        try {
+            for (final Path walletFile : walletFiles) {
+                inFlight.acquire();
+                pool.execute(() -> {
+                    try {
+                        export(walletFile, target, progress);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (final InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+            System.out.println("Выгрузка прервана, при повторном запуске она продолжится с необработанных кошельков.");
+        }
+        return progress.toReport();
+    }
+
+    private void export(final Path walletFile, final Path target, final Progress progress) {
+        final String login = DataDirectoryLayout.loginOf(walletFile);
+        final Path transactionsFile = target.resolve(login + TRANSACTIONS_FILE_SUFFIX);
+        final Path budgetsFile = target.resolve(login + BUDGETS_FILE_SUFFIX);
+        final Path stampFile = target.resolve(login + STAMP_FILE_SUFFIX);
+        try {
+            final String stamp = stampOf(walletFile);
+            if (isUpToDate(stamp, stampFile, transactionsFile, budgetsFile)) {
+                progress.skipped.incrementAndGet();
+                return;
+            }
+            final Wallet wallet = WalletStorage.read(walletFile);
+            try {
+                final long rows = writeAtomically(transactionsFile, file -> CsvExportImportServiceImpl.writeTransactionsCsv(file, wallet));
+                writeAtomically(budgetsFile, file -> {
+                    CsvExportImportServiceImpl.writeBudgetsCsv(file, wallet);
+                    return 0;
+                });
+                writeAtomically(stampFile, file -> {
+                    Files.writeString(file, stamp);
+                    return 0;
+                });
+                progress.rows.addAndGet(rows);
+                progress.bytes.addAndGet(Files.size(transactionsFile) + Files.size(budgetsFile));
+                progress.exported.incrementAndGet();
+            } finally {
+                if (wallet.getTransactionStore() instanceof Closeable) {
+                    ((Closeable) wallet.getTransactionStore()).close();
+                }
+            }
+        } catch (final IOException | ClassNotFoundException | RuntimeException e) {
+            progress.failed.incrementAndGet();
+            System.out.println("Ошибка при выгрузке кошелька " + login + ": " + e.getMessage());
+        } finally {
+            reportProgress(progress);
+        }
+    }
+
+    /**
+     * Size and modification time of the wallet file, taken before it is read. The export is current only while the
+     * wallet file still has exactly the stamp recorded next to it, so a wallet replaced by an older copy or saved
+     * within the file system's timestamp resolution is exported again.
+     */
+    private static String stampOf(final Path walletFile) throws IOException {
+        return Files.size(walletFile) + "," + Files.getLastModifiedTime(walletFile).toMillis();
+    }
+
+    private static boolean isUpToDate(final String stamp, final Path stampFile, final Path transactionsFile,
+                                      final Path budgetsFile) throws IOException {
+        return Files.exists(stampFile) && Files.exists(transactionsFile) && Files.exists(budgetsFile)
+                && Files.readString(stampFile).equals(stamp);
+    }
+
+    private static long writeAtomically(final Path file, final CsvWriter writer) throws IOException {
+        final Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        final long rows = writer.write(tempFile);
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return rows;
+    }
+
+    private void reportProgress(final Progress progress) {
+        final long now = System.nanoTime();
+        final long last = progress.lastReportNanos.get();
+        if (now - last < TimeUnit.MILLISECONDS.toNanos(progressIntervalMillis) || !progress.lastReportNanos.compareAndSet(last, now)) {
+            return;
+        }
+        final BulkExportReport report = progress.toReport();
+        System.out.printf("Обработано кошельков: %d из %d (выгружено %d, пропущено %d, ошибок %d), %.1f кошельков/с, %.1f МБ/с%n",
+                report.getExportedCount() + report.getSkippedCount() + report.getFailedCount(), report.getWalletCount(),
+                report.getExportedCount(), report.getSkippedCount(), report.getFailedCount(),
+                report.getWalletsPerSecond(), report.getMegabytesPerSecond());
+    }
+
+    private interface CsvWriter {
+        long write(Path file) throws IOException;
+    }
+
+    private static final class Progress {
+        private final int walletCount;
+        private final long startNanos;
+        private final AtomicInteger exported = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicLong rows = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong lastReportNanos;
+
+        private Progress(final int walletCount, final long startNanos) {
+            this.walletCount = walletCount;
+            this.startNanos = startNanos;
+            this.lastReportNanos = new AtomicLong(startNanos);
+        }
+
+        private BulkExportReport toReport() {
+            return new BulkExportReport(walletCount, exported.get(), skipped.get(), failed.get(), rows.get(), bytes.get(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.myfinance.service;
+
+import com.myfinance.model.*;
+import com.myfinance.service.api.CrossUserAnalyticsService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class CrossUserAnalyticsServiceImpl implements CrossUserAnalyticsService {
+    private static final long[] BALANCE_BUCKET_BOUNDS = {0, 1_000_00, 10_000_00, 100_000_00, 1_000_000_00};
+    private static final int LEAF_SIZE = 32;
+
+    private final ForkJoinPool pool;
+    private final int topSpenderCount;
+
+    public CrossUserAnalyticsServiceImpl() {
+        this(ForkJoinPool.commonPool(), 10);
+    }
+
+    public CrossUserAnalyticsServiceImpl(final ForkJoinPool pool, final int topSpenderCount) {
+        this.pool = pool;
+        this.topSpenderCount = topSpenderCount;
+    }
+
+    @Override
+    public AnalyticsReport analyze(final String dataDirectory) {
+        final List<Path> walletFiles = Files.isDirectory(Paths.get(dataDirectory))
+                ? new DataDirectoryLayout(dataDirectory).walletFiles()
+                : new ArrayList<>();
+        if (walletFiles.isEmpty()) {
+            return new Accumulator().toReport();
+        }
+        return pool.invoke(new AnalyticsTask(walletFiles, 0, walletFiles.size())).toReport();
+    }
+
+    private final class AnalyticsTask extends RecursiveTask<Accumulator> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Path> walletFiles;
+        private final int from;
+        private final int to;
+
+        private AnalyticsTask(final List<Path> walletFiles, final int from, final int to) {
+            this.walletFiles = walletFiles;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Accumulator compute() {
+            if (to - from <= LEAF_SIZE) {
+                final Accumulator accumulator = new Accumulator();
+                for (int i = from; i < to; i++) {
+                    final Path walletFile = walletFiles.get(i);
+                    try {
+                        accumulator.add(DataDirectoryLayout.loginOf(walletFile), WalletStorage.read(walletFile));
+                    } catch (final IOException | ClassNotFoundException e) {
+                        accumulator.failedWalletCount++;
+                    }
+                }
+                return accumulator;
+            }
+            final int middle = (from + to) >>> 1;
+            final AnalyticsTask left = new AnalyticsTask(walletFiles, from, middle);
+            left.fork();
+            final Accumulator right = new AnalyticsTask(walletFiles, middle, to).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    private final class Accumulator {
+        private final Map<String, Long> expenseByCategory = new HashMap<>();
+        private final PriorityQueue<UserSpending> topSpenders = new PriorityQueue<>(Comparator.comparingLong(UserSpending::getTotalExpense));
+        private final long[] balanceBucketCounts = new long[BALANCE_BUCKET_BOUNDS.length + 1];
+        private int walletCount;
+        private int failedWalletCount;
+        private long totalBalance;
+        private long minBalance = Long.MAX_VALUE;
+        private long maxBalance = Long.MIN_VALUE;
+
+        private void add(final String login, final Wallet wallet) {
+            final long[] totalExpense = new long[1];
+            wallet.query().ofType(TransactionType.EXPENSE).groupByCategory().forEach((category, expense) -> {
+                totalExpense[0] += expense.getSum();
+                expenseByCategory.merge(category.getName(), expense.getSum(), Long::sum);
+            });
+            final long balance = wallet.getBalance();
+            walletCount++;
+            totalBalance += balance;
+            minBalance = Math.min(minBalance, balance);
+            maxBalance = Math.max(maxBalance, balance);
+            balanceBucketCounts[bucketOf(balance)]++;
+            offer(new UserSpending(login, totalExpense[0], balance));
+        }
+
+        private void offer(final UserSpending spending) {
+            if (topSpenderCount <= 0) {
+                return;
+            }
+            if (topSpenders.size() < topSpenderCount) {
+                topSpenders.add(spending);
+            } else if (topSpenders.peek().getTotalExpense() < spending.getTotalExpense()) {
+                topSpenders.poll();
+                topSpenders.add(spending);
+            }
+        }
+
+        private Accumulator merge(final Accumulator other) {
+            other.expenseByCategory.forEach((category, amount) -> expenseByCategory.merge(category, amount, Long::sum));
+            other.topSpenders.forEach(this::offer);
+            for (int i = 0; i < balanceBucketCounts.length; i++) {
+                balanceBucketCounts[i] += other.balanceBucketCounts[i];
+            }
+            walletCount += other.walletCount;
+            failedWalletCount += other.failedWalletCount;
+            totalBalance += other.totalBalance;
+            minBalance = Math.min(minBalance, other.minBalance);
+            maxBalance = Math.max(maxBalance, other.maxBalance);
+            return this;
+        }
+
+        private AnalyticsReport toReport() {
+            final List<UserSpending> spenders = new ArrayList<>(topSpenders);
+            spenders.sort(Comparator.comparingLong(UserSpending::getTotalExpense).reversed());
+            final Map<String, Long> categories = new TreeMap<>(expenseByCategory);
+            return new AnalyticsReport(walletCount, failedWalletCount, categories, spenders, BALANCE_BUCKET_BOUNDS.clone(),
+                    balanceBucketCounts.clone(), totalBalance,
+                    walletCount == 0 ? 0 : minBalance, walletCount == 0 ? 0 : maxBalance);
+        }
+    }
+
+    private static int bucketOf(final long balance) {
+        int bucket = 0;
+        while (bucket < BALANCE_BUCKET_BOUNDS.length && balance >= BALANCE_BUCKET_BOUNDS[bucket]) {
+            bucket++;
+        }
+        return bucket;
+    }
+}
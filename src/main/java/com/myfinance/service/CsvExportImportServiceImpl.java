@@ -1,25 +1,50 @@
 package com.myfinance.service;
 
 import com.myfinance.model.*;
+import com.myfinance.model.index.LongHashSet;
 import com.myfinance.service.api.CsvExportImportService;
 import com.myfinance.service.api.FinanceManager;
+import com.myfinance.service.api.ImportMode;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class CsvExportImportServiceImpl implements CsvExportImportService {
 
-    private static final String TRANSACTIONS_CSV_HEADER = "Type,Amount,Category";
+    private static final String TRANSACTIONS_CSV_HEADER = "Type,Amount,Category,Timestamp";
+    private static final String TRANSACTION_COLUMNS = "Type,Amount,Category";
+    private static final String TIMESTAMP_COLUMN = "Timestamp";
+    private static final String ID_COLUMN = "Id";
+    private static final String DELTA_CSV_HEADER = "Id,Type,Amount,Category,Timestamp,Change";
+    private static final String DELTA_DIRECTORY_SUFFIX = "_delta";
+    private static final long FNV64_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV64_PRIME = 0x100000001B3L;
     private static final String BUDGETS_CSV_HEADER = "Category,Amount";
     private static final String DELIMITER = ",";
     private static final String NEW_LINE = "\n";
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final long DAYS_PER_ERA = 146_097;
+    private static final long DAYS_FROM_ERA_START_TO_EPOCH = 719_468;
 
     private final FinanceManager financeManager;
 
@@ -35,112 +60,464 @@ public class CsvExportImportServiceImpl implements CsvExportImportService {
 
     private void exportTransactions(Wallet wallet, String login) {
         final String fileName = login + "_transactions.csv";
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
+        try {
+            writeTransactionsCsv(Paths.get(fileName), wallet);
+            System.out.println("Транзакции успешно экспортированы в " + fileName);
+        } catch (IOException e) {
+            System.out.println("Ошибка при экспорте транзакций: " + e.getMessage());
+        }
+    }
+
+    static long writeTransactionsCsv(Path file, Wallet wallet) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file.toFile()))) {
             writer.append(TRANSACTIONS_CSV_HEADER);
             writer.append(NEW_LINE);
+            return writeTransactions(writer, wallet.snapshot());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
 
-            for (Transaction transaction : wallet.getTransactions()) {
-                String type = transaction instanceof Income ? "INCOME" : "EXPENSE";
-                writer.append(type);
-                writer.append(DELIMITER);
-                writer.append(String.valueOf(transaction.getAmount()));
-                writer.append(DELIMITER);
-                writer.append(transaction.getCategory().getName());
-                writer.append(NEW_LINE);
+    private static long writeTransactions(Writer writer, Wallet wallet) {
+        final StringBuilder buffer = new StringBuilder(EXPORT_BUFFER_SIZE + 256);
+        final char[] chars = new char[EXPORT_BUFFER_SIZE + 256];
+        final long[] rows = {0};
+        wallet.forEachTransactionFrom(0, (id, type, amount, category, timestamp) -> {
+            rows[0]++;
+            appendTransaction(buffer, type, amount, category, timestamp);
+            buffer.append(NEW_LINE);
+            if (buffer.length() >= EXPORT_BUFFER_SIZE) {
+                flush(writer, buffer, chars);
+            }
+        });
+        flush(writer, buffer, chars);
+        return rows[0];
+    }
+
+    /**
+     * Writes every live transaction as added for a full part, or otherwise what changed since {@code fromSequence}.
+     * Deleted transactions keep only their id.
+     */
+    private static long writeDelta(Writer writer, Wallet wallet, long fromSequence, boolean full) {
+        final StringBuilder buffer = new StringBuilder(EXPORT_BUFFER_SIZE + 256);
+        final char[] chars = new char[EXPORT_BUFFER_SIZE + 256];
+        final long[] rows = {0};
+        final TransactionChangeVisitor row = (id, change, type, amount, category, timestamp) -> {
+            rows[0]++;
+            buffer.append(id);
+            buffer.append(DELIMITER);
+            if (change == TransactionChange.DELETED) {
+                buffer.append(DELIMITER).append(DELIMITER).append(DELIMITER);
+            } else {
+                appendTransaction(buffer, type, amount, category, timestamp);
+            }
+            buffer.append(DELIMITER);
+            buffer.append(change.name());
+            buffer.append(NEW_LINE);
+            if (buffer.length() >= EXPORT_BUFFER_SIZE) {
+                flush(writer, buffer, chars);
+            }
+        };
+        if (full) {
+            wallet.forEachTransactionFrom(0, (id, type, amount, category, timestamp) ->
+                    row.visit(id, TransactionChange.ADDED, type, amount, category, timestamp));
+        } else {
+            wallet.forEachChangeFrom(fromSequence, row);
+        }
+        flush(writer, buffer, chars);
+        return rows[0];
+    }
+
+    private static void appendTransaction(StringBuilder buffer, TransactionType type, long amount, Category category,
+                                          long timestamp) {
+        buffer.append(type.name());
+        buffer.append(DELIMITER);
+        Money.appendTo(buffer, amount);
+        buffer.append(DELIMITER);
+        buffer.append(category.getName());
+        buffer.append(DELIMITER);
+        appendTimestamp(buffer, timestamp);
+    }
+
+    /**
+     * Appends the timestamp as {@link DateTimeFormatter#ISO_INSTANT} would, without allocating for years 0-9999.
+     */
+    static void appendTimestamp(StringBuilder buffer, long timestamp) {
+        final long days = Math.floorDiv(timestamp, MILLIS_PER_DAY);
+        final long shifted = days + DAYS_FROM_ERA_START_TO_EPOCH;
+        final long era = Math.floorDiv(shifted, DAYS_PER_ERA);
+        final long dayOfEra = shifted - era * DAYS_PER_ERA;
+        final long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        final long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        final long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        final long month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        final long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 0 || year > 9999) {
+            DateTimeFormatter.ISO_INSTANT.formatTo(Instant.ofEpochMilli(timestamp), buffer);
+            return;
+        }
+        final long millisOfDay = timestamp - days * MILLIS_PER_DAY;
+        appendDigits(buffer, year, 4).append('-');
+        appendDigits(buffer, month, 2).append('-');
+        appendDigits(buffer, dayOfYear - (153 * shiftedMonth + 2) / 5 + 1, 2).append('T');
+        appendDigits(buffer, millisOfDay / 3_600_000, 2).append(':');
+        appendDigits(buffer, millisOfDay / 60_000 % 60, 2).append(':');
+        appendDigits(buffer, millisOfDay / 1_000 % 60, 2);
+        if (millisOfDay % 1_000 != 0) {
+            appendDigits(buffer.append('.'), millisOfDay % 1_000, 3);
+        }
+        buffer.append('Z');
+    }
+
+    /**
+     * Parses an ISO-8601 instant. The {@code yyyy-MM-ddTHH:mm:ss[.SSS]Z} form written by the export is read without
+     * allocating; anything else goes through {@link Instant#parse}.
+     */
+    static long parseTimestamp(String text) {
+        final int length = text.length();
+        if ((length == 20 || length == 24) && text.charAt(4) == '-' && text.charAt(7) == '-' && text.charAt(10) == 'T'
+                && text.charAt(13) == ':' && text.charAt(16) == ':' && text.charAt(length - 1) == 'Z'
+                && (length == 20 || text.charAt(19) == '.')) {
+            final int year = digits(text, 0, 4);
+            final int month = digits(text, 5, 2);
+            final int day = digits(text, 8, 2);
+            final int hour = digits(text, 11, 2);
+            final int minute = digits(text, 14, 2);
+            final int second = digits(text, 17, 2);
+            final int millis = length == 24 ? digits(text, 20, 3) : 0;
+            if (year >= 0 && month >= 1 && month <= 12 && day >= 1 && day <= lengthOfMonth(year, month)
+                    && hour >= 0 && hour < 24 && minute >= 0 && minute < 60 && second >= 0 && second < 60 && millis >= 0) {
+                final long shiftedYear = month <= 2 ? year - 1 : year;
+                final long era = Math.floorDiv(shiftedYear, 400);
+                final long yearOfEra = shiftedYear - era * 400;
+                final long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+                final long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+                final long days = era * DAYS_PER_ERA + dayOfEra - DAYS_FROM_ERA_START_TO_EPOCH;
+                return days * MILLIS_PER_DAY + ((hour * 60L + minute) * 60 + second) * 1_000 + millis;
+            }
+        }
+        return Instant.parse(text).toEpochMilli();
+    }
+
+    private static StringBuilder appendDigits(StringBuilder buffer, long value, int width) {
+        long bound = 1;
+        for (int i = 1; i < width; i++) {
+            bound *= 10;
+        }
+        for (; bound > 1 && value < bound; bound /= 10) {
+            buffer.append('0');
+        }
+        return buffer.append(value);
+    }
+
+    private static int digits(String text, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            final char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        if (month == 2) {
+            return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0) ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    /**
+     * Copies through a reused array because {@link Writer#append(CharSequence)} copies the buffer into a new string.
+     */
+    private static void flush(Writer writer, StringBuilder buffer, char[] chars) {
+        try {
+            if (buffer.length() > chars.length) {
+                writer.append(buffer);
+            } else {
+                buffer.getChars(0, buffer.length(), chars, 0);
+                writer.write(chars, 0, buffer.length());
             }
-            System.out.println("Транзакции успешно экспортированы в " + fileName);
         } catch (IOException e) {
-            System.out.println("Ошибка при экспорте транзакций: " + e.getMessage());
+            throw new UncheckedIOException(e);
         }
+        buffer.setLength(0);
     }
 
     private void exportBudgets(Wallet wallet, String login) {
         final String fileName = login + "_budgets.csv";
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
+        try {
+            writeBudgetsCsv(Paths.get(fileName), wallet);
+            System.out.println("Бюджеты успешно экспортированы в " + fileName);
+        } catch (IOException e) {
+            System.out.println("Ошибка при экспорте бюджетов: " + e.getMessage());
+        }
+    }
+
+    static void writeBudgetsCsv(Path file, Wallet wallet) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file.toFile()))) {
             writer.append(BUDGETS_CSV_HEADER);
             writer.append(NEW_LINE);
+            for (final Map.Entry<Category, Long> budget : wallet.getBudgets().entrySet()) {
+                writer.append(budget.getKey().getName());
+                writer.append(DELIMITER);
+                writer.append(Money.format(budget.getValue()));
+                writer.append(NEW_LINE);
+            }
+        }
+    }
 
-            wallet.getBudgets().forEach((category, amount) -> {
-                try {
-                    writer.append(category.getName());
-                    writer.append(DELIMITER);
-                    writer.append(String.valueOf(amount));
-                    writer.append(NEW_LINE);
-                } catch (IOException e) {
-                    System.out.println("Ошибка при записи бюджета для категории " + category.getName() + ": " + e.getMessage());
+    @Override
+    public long exportDeltaCsv(Wallet wallet, String login, String consumer) {
+        if (!isValidConsumer(consumer)) {
+            System.out.println("Неверное имя получателя выгрузки: " + consumer);
+            return 0;
+        }
+        final Path directory = deltaDirectory(login, consumer);
+        try {
+            Files.createDirectories(directory);
+            final DeltaExportManifest manifest = new DeltaExportManifest(directory);
+            manifest.load();
+
+            final Wallet snapshot = wallet.snapshot();
+            final long watermark = manifest.getWatermark();
+            final long baseSequence = snapshot.getBaseSequence();
+            final long nextSequence = snapshot.getNextSequence();
+            final boolean reset = manifest.getBaseSequence() != baseSequence || watermark > nextSequence
+                    || watermark < snapshot.getChangeLogStart();
+            final long fromSequence = reset ? 0 : watermark;
+            if (!reset && fromSequence == nextSequence) {
+                System.out.println("Новых изменений для " + consumer + " нет.");
+                return 0;
+            }
+
+            final int number = manifest.nextPartNumber();
+            final String fileName = DeltaExportManifest.partFileName(number);
+            final Path temp = directory.resolve(fileName + ".tmp");
+            final long rows;
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.append(DELTA_CSV_HEADER);
+                writer.append(NEW_LINE);
+                rows = writeDelta(writer, snapshot, fromSequence, reset);
+            }
+            Files.move(temp, directory.resolve(fileName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            manifest.add(new DeltaExportManifest.Part(number, fileName, reset ? baseSequence : fromSequence, nextSequence, rows, reset));
+            manifest.save();
+            System.out.println("Выгружено транзакций: " + rows + " в " + directory.resolve(fileName)
+                    + (reset ? " (полная выгрузка, предыдущие части устарели)" : ""));
+            return rows;
+        } catch (IOException e) {
+            System.out.println("Ошибка при инкрементальном экспорте: " + e.getMessage());
+        } catch (UncheckedIOException e) {
+            System.out.println("Ошибка при инкрементальном экспорте: " + e.getCause().getMessage());
+        }
+        return 0;
+    }
+
+    @Override
+    public int compactDeltaExport(String login, String consumer) {
+        if (!isValidConsumer(consumer)) {
+            System.out.println("Неверное имя получателя выгрузки: " + consumer);
+            return 0;
+        }
+        final Path directory = deltaDirectory(login, consumer);
+        try {
+            final DeltaExportManifest manifest = new DeltaExportManifest(directory);
+            manifest.load();
+            final List<DeltaExportManifest.Part> parts = manifest.getParts();
+            if (parts.size() < 2) {
+                System.out.println("Нет частей для слияния.");
+                return 0;
+            }
+
+            // The newest part stays as is; everything before the last full re-export is obsolete.
+            final int last = parts.size() - 2;
+            int start = last;
+            while (start > 0 && !parts.get(start).isReset()) {
+                start--;
+            }
+            if (start == 0 && last == 0) {
+                System.out.println("Нет частей для слияния.");
+                return 0;
+            }
+
+            final DeltaExportManifest.Part first = parts.get(start);
+            final DeltaExportManifest.Part end = parts.get(last);
+            final String fileName = DeltaExportManifest.mergedPartFileName(first.getNumber(), end.getNumber());
+            final Path temp = directory.resolve(fileName + ".tmp");
+            long rows = 0;
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.append(DELTA_CSV_HEADER);
+                writer.append(NEW_LINE);
+                for (int i = start; i <= last; i++) {
+                    try (BufferedReader reader = Files.newBufferedReader(directory.resolve(parts.get(i).getFileName()), StandardCharsets.UTF_8)) {
+                        String line = reader.readLine();
+                        if (!DELTA_CSV_HEADER.equals(line)) {
+                            throw new IOException("Неверный заголовок в части " + parts.get(i).getFileName());
+                        }
+                        while ((line = reader.readLine()) != null) {
+                            writer.append(line);
+                            writer.append(NEW_LINE);
+                            rows++;
+                        }
+                    }
                 }
-            });
-            System.out.println("Бюджеты успешно экспортированы в " + fileName);
+            }
+            Files.move(temp, directory.resolve(fileName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            final List<DeltaExportManifest.Part> obsolete = new ArrayList<>(parts.subList(0, last + 1));
+            final List<DeltaExportManifest.Part> compacted = new ArrayList<>();
+            compacted.add(new DeltaExportManifest.Part(end.getNumber(), fileName, first.getFirstSequence(),
+                    end.getNextSequence(), rows, first.isReset()));
+            compacted.add(parts.get(parts.size() - 1));
+            manifest.replace(compacted);
+            manifest.save();
+            for (DeltaExportManifest.Part part : obsolete) {
+                if (!part.getFileName().equals(fileName)) {
+                    Files.deleteIfExists(directory.resolve(part.getFileName()));
+                }
+            }
+            System.out.println("Объединено частей: " + obsolete.size() + " в " + directory.resolve(fileName));
+            return obsolete.size();
         } catch (IOException e) {
-            System.out.println("Ошибка при экспорте бюджетов: " + e.getMessage());
+            System.out.println("Ошибка при слиянии частей выгрузки: " + e.getMessage());
+            return 0;
         }
     }
 
+    private static Path deltaDirectory(String login, String consumer) {
+        return Paths.get(login + DELTA_DIRECTORY_SUFFIX, consumer);
+    }
+
+    private static boolean isValidConsumer(String consumer) {
+        return consumer != null && consumer.matches("[A-Za-z0-9_-]+");
+    }
+
     @Override
     public void importFromCsv(Wallet wallet, String login) {
-        ImportValidationResult validationResult = validateFiles(login);
+        importFromCsv(wallet, login, ImportMode.REPLACE);
+    }
+
+    @Override
+    public void importFromCsv(Wallet wallet, String login, ImportMode mode) {
+        ImportValidationResult validationResult = validateFiles(login, mode);
 
         if (!validationResult.isValid()) {
             System.out.println("Импорт отменен. Ошибка валидации: " + validationResult.getErrorMessage());
             return;
         }
 
-        
-        wallet.getTransactions().clear();
-        wallet.getBudgets().clear();
+        List<Transaction> transactions = validationResult.getTransactions();
+        long[] fingerprints = validationResult.getFingerprints();
+        int imported = transactions.size();
 
-        for (Transaction transaction : validationResult.getTransactions()) {
-            wallet.addTransaction(transaction);
+        if (mode == ImportMode.REPLACE) {
+            wallet.clearTransactions();
+            wallet.clearBudgets();
+
+            wallet.addTransactions(transactions);
+            for (int i = 0; i < transactions.size(); i++) {
+                wallet.rememberImportFingerprint(fingerprints[i]);
+            }
+        } else {
+            List<Transaction> newTransactions = new ArrayList<>();
+            for (int i = 0; i < transactions.size(); i++) {
+                if (wallet.rememberImportFingerprint(fingerprints[i])) {
+                    newTransactions.add(transactions.get(i));
+                }
+            }
+            wallet.addTransactions(newTransactions);
+            imported = newTransactions.size();
+            System.out.println("Новых транзакций: " + newTransactions.size() + ", пропущено ранее импортированных: " + (transactions.size() - newTransactions.size()));
         }
-        for (Map.Entry<Category, Double> budgetEntry : validationResult.getBudgets().entrySet()) {
+        for (Map.Entry<Category, Long> budgetEntry : validationResult.getBudgets().entrySet()) {
             wallet.setBudget(budgetEntry.getKey(), budgetEntry.getValue());
         }
 
+        financeManager.getEvents().publish(WalletEvent.importCompleted(login, imported, wallet.getBalance()));
         System.out.println("Импорт данных успешно завершен.");
     }
 
-    private ImportValidationResult validateFiles(String login) {
+    private ImportValidationResult validateFiles(String login, ImportMode mode) {
         List<Transaction> transactions = new ArrayList<>();
-        Map<Category, Double> budgets = new HashMap<>();
+        long[] fingerprints = new long[64];
+        LongHashSet fileFingerprints = new LongHashSet();
+        Map<Category, Long> budgets = new HashMap<>();
 
         
         try (BufferedReader reader = new BufferedReader(new FileReader(login + "_transactions.csv"))) {
             String line = reader.readLine(); 
-            if (line == null || !line.equals(TRANSACTIONS_CSV_HEADER)) {
+            if (line == null || !(line.equals(TRANSACTION_COLUMNS) || line.startsWith(TRANSACTION_COLUMNS + DELIMITER))) {
                 return new ImportValidationResult(false, "Неверный заголовок в файле транзакций.");
             }
+            // Timestamp and Id are optional; files without Timestamp date their rows with the time of the import.
+            String[] header = line.split(DELIMITER);
+            int columns = header.length;
+            int timestampColumn = -1;
+            int idColumn = -1;
+            for (int column = 3; column < columns; column++) {
+                if (header[column].equals(TIMESTAMP_COLUMN) && timestampColumn < 0) {
+                    timestampColumn = column;
+                } else if (header[column].equals(ID_COLUMN) && idColumn < 0) {
+                    idColumn = column;
+                } else {
+                    return new ImportValidationResult(false, "Неверный заголовок в файле транзакций.");
+                }
+            }
+            if (mode == ImportMode.MERGE && timestampColumn < 0 && idColumn < 0) {
+                // Without a date or an id a repeat purchase in a later file looks like a row that was already imported.
+                return new ImportValidationResult(false, "Для добавления новых транзакций файл должен содержать колонку Timestamp или Id.");
+            }
+            long importTime = System.currentTimeMillis();
             int lineNumber = 1;
             while ((line = reader.readLine()) != null) {
                 lineNumber++;
                 String[] parts = line.split(DELIMITER);
-                if (parts.length != 3) {
+                if (parts.length != columns) {
                     return new ImportValidationResult(false, "Неверное количество колонок в файле транзакций на строке " + lineNumber);
                 }
                 String type = parts[0].toUpperCase();
                 if (!type.equals("INCOME") && !type.equals("EXPENSE")) {
                     return new ImportValidationResult(false, "Неверный тип транзакции на строке " + lineNumber);
                 }
-                double amount;
+                long amount;
                 try {
-                    amount = Double.parseDouble(parts[1]);
+                    amount = Money.parse(parts[1]);
                     if (amount <= 0) {
                         return new ImportValidationResult(false, "Сумма должна быть положительной на строке " + lineNumber + " в файле транзакций.");
                     }
                 } catch (NumberFormatException e) {
                     return new ImportValidationResult(false, "Неверный формат суммы на строке " + lineNumber + " в файле транзакций.");
                 }
+                long timestamp = importTime;
+                if (timestampColumn >= 0) {
+                    try {
+                        timestamp = parseTimestamp(parts[timestampColumn]);
+                    } catch (DateTimeParseException e) {
+                        return new ImportValidationResult(false, "Неверный формат даты на строке " + lineNumber + " в файле транзакций.");
+                    }
+                }
                 Category category = financeManager.getOrCreateCategory(parts[2]);
+                if (transactions.size() == fingerprints.length) {
+                    fingerprints = Arrays.copyOf(fingerprints, fingerprints.length * 2);
+                }
+                fingerprints[transactions.size()] = fingerprint(fileFingerprints, type, amount, parts[2], idColumn >= 0 ? parts[idColumn] : "",
+                        timestampColumn >= 0, timestamp);
                 if (type.equals("INCOME")) {
-                    transactions.add(new Income(amount, category));
+                    transactions.add(new Income(amount, category, timestamp));
                 } else {
-                    transactions.add(new Expense(amount, category));
+                    transactions.add(new Expense(amount, category, timestamp));
                 }
             }
         } catch (IOException e) {
             return new ImportValidationResult(false, "Не удалось прочитать файл транзакций: " + e.getMessage());
         }
 
-        
+        if (mode == ImportMode.MERGE && !new File(login + "_budgets.csv").exists()) {
+            return new ImportValidationResult(true, transactions, fingerprints, budgets);
+        }
         try (BufferedReader reader = new BufferedReader(new FileReader(login + "_budgets.csv"))) {
             String line = reader.readLine(); 
             if (line == null || !line.equals(BUDGETS_CSV_HEADER)) {
@@ -153,9 +530,9 @@ public class CsvExportImportServiceImpl implements CsvExportImportService {
                 if (parts.length != 2) {
                     return new ImportValidationResult(false, "Неверное количество колонок в файле бюджетов на строке " + lineNumber);
                 }
-                double amount;
+                long amount;
                 try {
-                    amount = Double.parseDouble(parts[1]);
+                    amount = Money.parse(parts[1]);
                     if (amount <= 0) {
                         return new ImportValidationResult(false, "Сумма должна быть положительной на строке " + lineNumber + " в файле бюджетов.");
                     }
@@ -169,26 +546,64 @@ public class CsvExportImportServiceImpl implements CsvExportImportService {
             return new ImportValidationResult(false, "Не удалось прочитать файл бюджетов: " + e.getMessage());
         }
 
-        return new ImportValidationResult(true, transactions, budgets);
+        return new ImportValidationResult(true, transactions, fingerprints, budgets);
+    }
+
+    /**
+     * Rows from files without a Timestamp column hash as they did before the column existed, so fingerprints already
+     * stored in wallets keep matching.
+     */
+    private static long fingerprint(LongHashSet fileFingerprints, String type, long amount, String category, String id,
+                                    boolean dated, long timestamp) {
+        long hash = hash(FNV64_OFFSET_BASIS, type);
+        hash = (hash ^ amount) * FNV64_PRIME;
+        hash = hash(hash, category);
+        hash = hash(hash, id);
+        if (dated) {
+            hash = (hash ^ timestamp) * FNV64_PRIME;
+        }
+        long fingerprint = mix(hash);
+        for (int occurrence = 1; !fileFingerprints.add(fingerprint); occurrence++) {
+            fingerprint = mix(hash + occurrence * 0x9E3779B97F4A7C15L);
+        }
+        return fingerprint;
+    }
+
+    private static long hash(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV64_PRIME;
+        }
+        return (hash ^ DELIMITER.charAt(0)) * FNV64_PRIME;
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
     }
 
     private static class ImportValidationResult {
         private final boolean isValid;
         private final String errorMessage;
         private final List<Transaction> transactions;
-        private final Map<Category, Double> budgets;
+        private final long[] fingerprints;
+        private final Map<Category, Long> budgets;
 
         public ImportValidationResult(boolean isValid, String errorMessage) {
             this.isValid = isValid;
             this.errorMessage = errorMessage;
             this.transactions = new ArrayList<>();
+            this.fingerprints = new long[0];
             this.budgets = new HashMap<>();
         }
 
-        public ImportValidationResult(boolean isValid, List<Transaction> transactions, Map<Category, Double> budgets) {
+        public ImportValidationResult(boolean isValid, List<Transaction> transactions, long[] fingerprints, Map<Category, Long> budgets) {
             this.isValid = isValid;
             this.errorMessage = "";
             this.transactions = transactions;
+            this.fingerprints = fingerprints;
             this.budgets = budgets;
         }
 
@@ -204,7 +619,11 @@ public class CsvExportImportServiceImpl implements CsvExportImportService {
             return transactions;
         }
 
-        public Map<Category, Double> getBudgets() {
+        public long[] getFingerprints() {
+            return fingerprints;
+        }
+
+        public Map<Category, Long> getBudgets() {
             return budgets;
         }
     }
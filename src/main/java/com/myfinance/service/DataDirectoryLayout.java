@@ -0,0 +1,191 @@
+package com.myfinance.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class DataDirectoryLayout {
+    public static final String WALLET_FILE_SUFFIX = ".wallet";
+    public static final String SEGMENTS_DIRECTORY_SUFFIX = ".segments";
+    public static final String COLD_SEGMENTS_DIRECTORY_SUFFIX = ".cold";
+    public static final String USER_FILE_SUFFIX = ".user";
+    private static final int FNV_OFFSET_BASIS = 0x811C9DC5;
+    private static final int FNV_PRIME = 0x01000193;
+
+    private final Path root;
+    private final WalletManifest manifest;
+    private boolean manifestLoaded;
+
+    public DataDirectoryLayout(final String dataDirectory) {
+        this.root = Paths.get(dataDirectory);
+        this.manifest = new WalletManifest(root.resolve(WalletManifest.FILE_NAME));
+    }
+
+    private synchronized WalletManifest manifest() {
+        if (!manifestLoaded) {
+            manifestLoaded = true;
+            if (!manifest.load() && (hasShardDirectories() || Files.exists(root.resolve(WalletManifest.FILE_NAME)))) {
+                rebuildManifest();
+            }
+            if (manifest.needsCompaction()) {
+                manifest.compact();
+            }
+        }
+        return manifest;
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public static int shardOf(final String login) {
+        int hash = FNV_OFFSET_BASIS;
+        for (final byte b : login.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= FNV_PRIME;
+        }
+        return (hash ^ (hash >>> 16)) & 0xFFFF;
+    }
+
+    public Path shardDirectory(final String login) {
+        final int shard = shardOf(login);
+        return root.resolve(String.format("%02x", shard >>> 8)).resolve(String.format("%02x", shard & 0xFF));
+    }
+
+    public Path walletPath(final String login) {
+        return shardDirectory(login).resolve(login + WALLET_FILE_SUFFIX);
+    }
+
+    public Path segmentsPath(final String login) {
+        return shardDirectory(login).resolve(login + SEGMENTS_DIRECTORY_SUFFIX);
+    }
+
+    public Path coldSegmentsPath(final String login) {
+        return shardDirectory(login).resolve(login + COLD_SEGMENTS_DIRECTORY_SUFFIX);
+    }
+
+    public Path userPath(final String login) {
+        return shardDirectory(login).resolve(login + USER_FILE_SUFFIX);
+    }
+
+    public Path legacyWalletPath(final String login) {
+        return WalletStorage.walletPath(root.toString(), login);
+    }
+
+    public Path resolveForRead(final String login) {
+        final Path walletPath = walletPath(login);
+        if (!Files.exists(walletPath) && Files.exists(legacyWalletPath(login))) {
+            migrate(login);
+        }
+        return walletPath;
+    }
+
+    public Path prepareForWrite(final String login) throws IOException {
+        final Path walletPath = walletPath(login);
+        Files.createDirectories(walletPath.getParent());
+        return walletPath;
+    }
+
+    public void recordSaved(final String login) {
+        try {
+            final long size = Files.size(walletPath(login));
+            synchronized (this) {
+                if (!manifestLoaded && Files.exists(root.resolve(WalletManifest.FILE_NAME))) {
+                    manifest.append(login, shardOf(login), size);
+                    return;
+                }
+            }
+            manifest().put(login, shardOf(login), size);
+        } catch (final IOException e) {
+            System.out.println("Ошибка при обновлении манифеста: " + e.getMessage());
+        }
+    }
+
+    public boolean migrate(final String login) {
+        final Path legacyPath = legacyWalletPath(login);
+        try {
+            final Path walletPath = prepareForWrite(login);
+            Files.move(legacyPath, walletPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            recordSaved(login);
+            return true;
+        } catch (final IOException e) {
+            System.out.println("Ошибка при переносе кошелька " + login + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    public int migrateAll() {
+        int migrated = 0;
+        for (final Path legacyPath : legacyWalletFiles()) {
+            if (migrate(WalletStorage.loginOf(legacyPath))) {
+                migrated++;
+            }
+        }
+        manifest().compact();
+        return migrated;
+    }
+
+    public List<Path> walletFiles() {
+        final List<Path> walletFiles = new ArrayList<>();
+        for (final String login : manifest().logins()) {
+            walletFiles.add(walletPath(login));
+        }
+        walletFiles.addAll(legacyWalletFiles());
+        return walletFiles;
+    }
+
+    public WalletManifest getManifest() {
+        return manifest();
+    }
+
+    public static String loginOf(final Path walletPath) {
+        final String fileName = walletPath.getFileName().toString();
+        if (fileName.endsWith(WALLET_FILE_SUFFIX)) {
+            return fileName.substring(0, fileName.length() - WALLET_FILE_SUFFIX.length());
+        }
+        return WalletStorage.loginOf(walletPath);
+    }
+
+    private List<Path> legacyWalletFiles() {
+        final List<Path> legacyFiles = new ArrayList<>();
+        if (!Files.isDirectory(root)) {
+            return legacyFiles;
+        }
+        try (final DirectoryStream<Path> stream = Files.newDirectoryStream(root, "*" + WalletStorage.WALLET_FILE_SUFFIX)) {
+            for (final Path path : stream) {
+                legacyFiles.add(path);
+            }
+        } catch (final IOException e) {
+            System.out.println("Ошибка при чтении директории данных: " + e.getMessage());
+        }
+        return legacyFiles;
+    }
+
+    private boolean hasShardDirectories() {
+        if (!Files.isDirectory(root)) {
+            return false;
+        }
+        try (final DirectoryStream<Path> stream = Files.newDirectoryStream(root, "[0-9a-f][0-9a-f]")) {
+            return stream.iterator().hasNext();
+        } catch (final IOException e) {
+            return false;
+        }
+    }
+
+    private void rebuildManifest() {
+        try (final Stream<Path> walk = Files.walk(root, 3)) {
+            walk.filter(path -> path.getFileName().toString().endsWith(WALLET_FILE_SUFFIX))
+                .forEach(path -> recordSaved(loginOf(path)));
+        } catch (final IOException e) {
+            System.out.println("Ошибка при восстановлении манифеста: " + e.getMessage());
+        }
+        manifest.compact();
+    }
+}
@@ -0,0 +1,149 @@
+package com.myfinance.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class DeltaExportManifest {
+    public static final String FILE_NAME = "manifest.csv";
+    private static final String HEADER = "Part,File,FirstSequence,NextSequence,Rows,Reset";
+    private static final String DELIMITER = ",";
+
+    private final Path path;
+    private final List<Part> parts = new ArrayList<>();
+
+    public DeltaExportManifest(final Path directory) {
+        this.path = directory.resolve(FILE_NAME);
+    }
+
+    public void load() throws IOException {
+        parts.clear();
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (final BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            if (!HEADER.equals(line)) {
+                throw new IOException("Неверный заголовок манифеста " + path);
+            }
+            int lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                final String[] fields = line.split(DELIMITER);
+                if (fields.length != 6) {
+                    throw new IOException("Неверное количество колонок в манифесте на строке " + lineNumber);
+                }
+                try {
+                    parts.add(new Part(Integer.parseInt(fields[0]), fields[1], Long.parseLong(fields[2]),
+                            Long.parseLong(fields[3]), Long.parseLong(fields[4]), Boolean.parseBoolean(fields[5])));
+                } catch (final NumberFormatException e) {
+                    throw new IOException("Неверное значение в манифесте на строке " + lineNumber);
+                }
+            }
+        }
+    }
+
+    public void save() throws IOException {
+        final Path temp = path.resolveSibling(FILE_NAME + ".tmp");
+        try (final BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writer.append(HEADER).append('\n');
+            for (final Part part : parts) {
+                writer.append(String.valueOf(part.number)).append(DELIMITER)
+                      .append(part.fileName).append(DELIMITER)
+                      .append(String.valueOf(part.firstSequence)).append(DELIMITER)
+                      .append(String.valueOf(part.nextSequence)).append(DELIMITER)
+                      .append(String.valueOf(part.rows)).append(DELIMITER)
+                      .append(String.valueOf(part.reset)).append('\n');
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public long getWatermark() {
+        return parts.isEmpty() ? -1 : parts.get(parts.size() - 1).nextSequence;
+    }
+
+    public long getBaseSequence() {
+        for (int i = parts.size() - 1; i >= 0; i--) {
+            if (parts.get(i).reset) {
+                return parts.get(i).firstSequence;
+            }
+        }
+        return -1;
+    }
+
+    public int nextPartNumber() {
+        return parts.isEmpty() ? 1 : parts.get(parts.size() - 1).number + 1;
+    }
+
+    public void add(final Part part) {
+        parts.add(part);
+    }
+
+    public void replace(final List<Part> newParts) {
+        parts.clear();
+        parts.addAll(newParts);
+    }
+
+    public List<Part> getParts() {
+        return Collections.unmodifiableList(parts);
+    }
+
+    public static String partFileName(final int number) {
+        return String.format("part-%05d.csv", number);
+    }
+
+    public static String mergedPartFileName(final int firstNumber, final int lastNumber) {
+        return String.format("part-%05d-%05d.csv", firstNumber, lastNumber);
+    }
+
+    public static final class Part {
+        private final int number;
+        private final String fileName;
+        private final long firstSequence;
+        private final long nextSequence;
+        private final long rows;
+        private final boolean reset;
+
+        public Part(final int number, final String fileName, final long firstSequence, final long nextSequence,
+                    final long rows, final boolean reset) {
+            this.number = number;
+            this.fileName = fileName;
+            this.firstSequence = firstSequence;
+            this.nextSequence = nextSequence;
+            this.rows = rows;
+            this.reset = reset;
+        }
+
+        public int getNumber() {
+            return number;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public long getFirstSequence() {
+            return firstSequence;
+        }
+
+        public long getNextSequence() {
+            return nextSequence;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public boolean isReset() {
+            return reset;
+        }
+    }
+}
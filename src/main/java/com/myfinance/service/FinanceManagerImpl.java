@@ -1,78 +1,155 @@
 package com.myfinance.service;
 
 import com.myfinance.model.*;
+import com.myfinance.model.store.MappedTransactionStore;
+import com.myfinance.model.store.TieredTransactionStore;
+import com.myfinance.model.store.TransactionStore;
+import com.myfinance.service.codec.WalletCodec;
+import com.myfinance.service.codec.WalletCodecs;
 import com.myfinance.service.api.FinanceManager;
+import com.myfinance.service.api.WalletEventStream;
 
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Clock;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 
 public class FinanceManagerImpl implements FinanceManager {
-    private final String dataDirectory;
-    private final String usersFilePath;
-    private Map<String, User> users = new HashMap<>();
+    private final String recurringIndexPath;
+    private final Clock clock;
+    private final WalletCodec walletCodec;
+    private final ReplicationLog replicationLog;
+    private final DataDirectoryLayout layout;
+    private final UserDirectory users;
+    private final WalletEventStream events = new WalletEventStreamImpl();
     private final Map<String, Wallet> userWallets = new HashMap<>();
     private final Map<String, Category> categories = new HashMap<>();
+    private Map<String, Long> recurringDue;
+    private final ExecutorService compactionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "wallet-compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
     private User currentUser;
+    private WalletSummary currentSummary;
 
     public FinanceManagerImpl() {
         this("data");
     }
 
     public FinanceManagerImpl(final String dataDirectory) {
-        this.dataDirectory = dataDirectory;
+        this(dataDirectory, Clock.systemDefaultZone());
+    }
+
+    public FinanceManagerImpl(final String dataDirectory, final Clock clock) {
+        this(dataDirectory, clock, WalletCodecs.NONE);
+    }
+
+    public FinanceManagerImpl(final String dataDirectory, final Clock clock, final WalletCodec walletCodec) {
+        this(dataDirectory, clock, walletCodec, null);
+    }
+
+    public FinanceManagerImpl(final String dataDirectory, final Clock clock, final WalletCodec walletCodec,
+                              final ReplicationLog replicationLog) {
+        this.clock = clock;
+        this.walletCodec = walletCodec;
+        this.replicationLog = replicationLog;
         try {
             Files.createDirectories(Paths.get(dataDirectory));
         } catch (IOException e) {
             System.out.println("Не удалось создать директорию для данных: " + e.getMessage());
         }
-        this.usersFilePath = Paths.get(dataDirectory, "users.dat").toString();
-        loadUsers();
+        this.recurringIndexPath = Paths.get(dataDirectory, "recurring.dat").toString();
+        this.layout = new DataDirectoryLayout(dataDirectory);
+        this.users = new UserDirectory(layout);
     }
 
     @Override
-    public Category getOrCreateCategory(final String name) {
-        return categories.computeIfAbsent(name, Category::new);
+    public synchronized Category getOrCreateCategory(final String name) {
+        final String path = normalizeCategoryPath(name);
+        final Category existing = categories.get(path);
+        if (existing != null) {
+            return existing;
+        }
+        final int separator = path.lastIndexOf(Category.PATH_SEPARATOR);
+        final Category parent = separator > 0 ? getOrCreateCategory(path.substring(0, separator)) : null;
+        final Category category = new Category(path, parent);
+        categories.put(path, category);
+        return category;
     }
 
     @Override
-    public Optional<Category> getCategoryByName(String name) {
-        return Optional.ofNullable(categories.get(name));
+    public synchronized Optional<Category> getCategoryByName(String name) {
+        return Optional.ofNullable(categories.get(normalizeCategoryPath(name)));
+    }
+
+    private static String normalizeCategoryPath(final String name) {
+        if (!name.contains(Category.PATH_SEPARATOR)) {
+            return name;
+        }
+        final StringBuilder path = new StringBuilder(name.length());
+        for (final String segment : name.split(Category.PATH_SEPARATOR)) {
+            final String trimmed = segment.trim();
+            if (!trimmed.isEmpty()) {
+                if (path.length() > 0) {
+                    path.append(Category.PATH_SEPARATOR);
+                }
+                path.append(trimmed);
+            }
+        }
+        return path.length() > 0 ? path.toString() : name;
     }
 
     @Override
-    public boolean register(final String login, final String password) {
-        if (users.containsKey(login)) {
+    public synchronized boolean register(final String login, final String password) {
+        try {
+            if (!users.create(new User(login, password))) {
+                return false;
+            }
+        } catch (final IOException e) {
+            System.out.println("Ошибка при сохранении пользователя: " + e.getMessage());
             return false;
         }
-        final User newUser = new User(login, password);
-        users.put(login, newUser);
-        userWallets.put(login, new Wallet());
-        saveUsers();
+        ship(ReplicationLog.RecordType.USER, login, layout.userPath(login));
+        putWallet(login, new Wallet());
         saveWallet(login);
         return true;
     }
 
     @Override
-    public boolean login(final String login, final String password) {
-        final User user = users.get(login);
-        if (user != null && user.getPassword().equals(password)) {
-            currentUser = user;
-            loadWallet(login);
+    public synchronized boolean login(final String login, final String password) {
+        final Optional<User> user = users.find(login);
+        if (user.isPresent() && user.get().getPassword().equals(password)) {
+            userWallets.remove(login);
+            final WalletSummary summary = readSummary(login).filter(value -> value.getNextRecurringDue() > clock.millis()).orElse(null);
+            if (summary == null) {
+                if (!loadWallet(login)) {
+                    return false;
+                }
+                userWallets.get(login).postDueRecurring(clock.millis());
+            }
+            currentUser = user.get();
+            currentSummary = summary;
             return true;
         }
         return false;
     }
 
     @Override
-    public void logout() {
+    public synchronized void logout() {
         if (currentUser != null) {
             saveWallet(currentUser.getLogin());
             currentUser = null;
+            currentSummary = null;
         }
     }
 
@@ -82,24 +159,43 @@ public class FinanceManagerImpl implements FinanceManager {
     }
 
     @Override
-    public Optional<Wallet> getCurrentUserWallet() {
-        return Optional.ofNullable(currentUser).map(user -> userWallets.get(user.getLogin()));
+    public synchronized Optional<Wallet> getCurrentUserWallet() {
+        if (currentUser == null) {
+            return Optional.empty();
+        }
+        if (currentSummary != null && !loadWallet(currentUser.getLogin())) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(userWallets.get(currentUser.getLogin()));
+    }
+
+    /**
+     * Served from the summary block of the wallet file until something needs the transactions themselves.
+     */
+    @Override
+    public synchronized Optional<WalletSummary> getCurrentUserSummary() {
+        return currentSummary != null ? Optional.of(currentSummary) : getCurrentUserWallet().map(Wallet::summarize);
     }
 
     @Override
-    public double getWalletBalance() {
-        return getCurrentUserWallet().map(Wallet::getBalance).orElse(0.0);
+    public WalletEventStream getEvents() {
+        return events;
     }
 
     @Override
-    public boolean transfer(final String toLogin, final double amount, final String categoryName) {
+    public synchronized long getWalletBalance() {
+        return currentSummary != null ? currentSummary.getBalance() : getCurrentUserWallet().map(Wallet::getBalance).orElse(0L);
+    }
+
+    @Override
+    public synchronized boolean transfer(final String toLogin, final long amount, final String categoryName) {
         if (currentUser == null) {
             return false;
         }
-        if (!users.containsKey(toLogin)) {
+        if (currentUser.getLogin().equals(toLogin)) {
             return false;
         }
-        if (currentUser.getLogin().equals(toLogin)) {
+        if (!users.exists(toLogin)) {
             return false;
         }
 
@@ -109,7 +205,9 @@ public class FinanceManagerImpl implements FinanceManager {
         }
         final Wallet senderWallet = senderWalletOpt.get();
 
-        loadWallet(toLogin);
+        if (!loadWallet(toLogin)) {
+            return false;
+        }
         final Wallet recipientWallet = userWallets.get(toLogin);
 
         final Category category = getOrCreateCategory(categoryName);
@@ -118,58 +216,268 @@ public class FinanceManagerImpl implements FinanceManager {
 
         senderWallet.addTransaction(expense);
         recipientWallet.addTransaction(income);
+        events.publish(WalletEvent.transfer(currentUser.getLogin(), toLogin, category, amount, senderWallet.getBalance()));
 
         saveWallet(toLogin);
 
         return true;
     }
 
-    @SuppressWarnings("unchecked")
-    private void loadUsers() {
-        final File file = new File(usersFilePath);
-        if (file.exists()) {
-            try (final ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
-                users = (Map<String, User>) ois.readObject();
-            } catch (final IOException | ClassNotFoundException e) {
-                System.out.println("Ошибка при загрузке пользователей: " + e.getMessage());
+    @Override
+    public boolean editTransaction(final long id, final long amount, final String categoryName) {
+        final Optional<Wallet> walletOpt = getCurrentUserWallet();
+        if (walletOpt.isEmpty()) {
+            return false;
+        }
+        final Wallet wallet = walletOpt.get();
+        final Optional<Transaction> existing = wallet.getTransaction(id);
+        return existing.isPresent()
+                && wallet.editTransaction(id, Transaction.of(existing.get().getType(), amount,
+                        getOrCreateCategory(categoryName), existing.get().getTimestamp()));
+    }
+
+    @Override
+    public boolean deleteTransaction(final long id) {
+        final Optional<Wallet> walletOpt = getCurrentUserWallet();
+        if (walletOpt.isEmpty() || !walletOpt.get().deleteTransaction(id)) {
+            return false;
+        }
+        final Wallet wallet = walletOpt.get();
+        if (wallet.needsCompaction()) {
+            compactionExecutor.execute(() -> compactAndSave(wallet));
+        }
+        return true;
+    }
+
+    private void compactAndSave(final Wallet wallet) {
+        if (wallet.needsCompaction()) {
+            wallet.compactTombstones();
+            saveCompacted(wallet);
+        }
+    }
+
+    /**
+     * Saves a wallet compacted in the background. A wallet unloaded in the meantime was saved on the way out with the
+     * same live transactions, so it is skipped.
+     */
+    private synchronized void saveCompacted(final Wallet wallet) {
+        for (final Map.Entry<String, Wallet> entry : userWallets.entrySet()) {
+            if (entry.getValue() == wallet) {
+                writeWallet(entry.getKey());
+                return;
             }
         }
     }
 
-    private void saveUsers() {
-        try (final ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(usersFilePath))) {
-            oos.writeObject(users);
-        } catch (final IOException e) {
-            System.out.println("Ошибка при сохранении пользователей: " + e.getMessage());
+    public synchronized boolean convertToMappedStorage(final String login) {
+        return convertStorage(login, MappedTransactionStore.class, () -> new MappedTransactionStore(layout.segmentsPath(login)));
+    }
+
+    /**
+     * Moves the wallet to {@link TieredTransactionStore}: all but the newest transactions are sealed into compressed
+     * segment files next to the wallet, so loading it no longer reads the whole history.
+     */
+    public synchronized boolean convertToTieredStorage(final String login) {
+        return convertStorage(login, TieredTransactionStore.class, () -> new TieredTransactionStore(layout.coldSegmentsPath(login)));
+    }
+
+    private boolean convertStorage(final String login, final Class<? extends TransactionStore> storeType,
+                                   final Supplier<TransactionStore> storeFactory) {
+        if (!users.exists(login)) {
+            return false;
+        }
+        if (!userWallets.containsKey(login) && !loadWallet(login)) {
+            return false;
+        }
+        final Wallet sourceWallet = userWallets.get(login);
+        if (storeType.isInstance(sourceWallet.getTransactionStore())) {
+            return true;
+        }
+        final Wallet convertedWallet = new Wallet(storeFactory.get());
+        convertedWallet.addTransactions(sourceWallet.getTransactions());
+        sourceWallet.getBudgets().forEach(convertedWallet::setBudget);
+        putWallet(login, convertedWallet);
+        saveWallet(login);
+        return true;
+    }
+
+    public synchronized Optional<Wallet> findWallet(final String login) {
+        if (!users.exists(login)) {
+            return Optional.empty();
+        }
+        if (!userWallets.containsKey(login) && !loadWallet(login)) {
+            return Optional.empty();
         }
+        return Optional.of(userWallets.get(login));
     }
 
-    private void loadWallet(final String login) {
-        final Path walletPath = Paths.get(dataDirectory, login + "_wallet.dat");
-        final File file = walletPath.toFile();
-        if (file.exists()) {
-            try (final ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
-                final Wallet wallet = (Wallet) ois.readObject();
-                userWallets.put(login, wallet);
+    @Override
+    public synchronized int postDueRecurringTransactions() {
+        final long now = clock.millis();
+        final List<String> dueLogins = new ArrayList<>();
+        recurringDue().forEach((login, due) -> {
+            if (due <= now) {
+                dueLogins.add(login);
+            }
+        });
+        if (currentUser != null && userWallets.containsKey(currentUser.getLogin()) && !dueLogins.contains(currentUser.getLogin())) {
+            dueLogins.add(currentUser.getLogin());
+        }
+
+        int posted = 0;
+        boolean indexChanged = false;
+        for (final String login : dueLogins) {
+            if (!users.exists(login)) {
+                indexChanged |= recurringDue().remove(login) != null;
+                continue;
+            }
+            final boolean cached = userWallets.containsKey(login);
+            if (!cached && !loadWallet(login)) {
+                continue;
+            }
+            final Wallet wallet = userWallets.get(login);
+            final int count = wallet.postDueRecurring(now);
+            if (count > 0) {
+                writeWallet(login);
+                indexChanged = true;
+            } else {
+                indexChanged |= updateRecurringDue(login, wallet);
+            }
+            if (!cached && (currentUser == null || !currentUser.getLogin().equals(login))) {
+                userWallets.remove(login);
+            }
+            posted += count;
+        }
+        if (indexChanged) {
+            saveRecurringIndex();
+        }
+        return posted;
+    }
+
+    public int migrateToShardedLayout() {
+        return layout.migrateAll();
+    }
+
+    public synchronized int recompressWallets() {
+        int rewritten = 0;
+        for (final Path walletFile : layout.walletFiles()) {
+            final String login = DataDirectoryLayout.loginOf(walletFile);
+            try {
+                final Wallet wallet = userWallets.containsKey(login) ? userWallets.get(login) : WalletStorage.read(layout.resolveForRead(login));
+                WalletStorage.write(layout.prepareForWrite(login), wallet, walletCodec);
+                layout.recordSaved(login);
+                shipWallet(login, wallet);
+                rewritten++;
             } catch (final IOException | ClassNotFoundException e) {
-                System.out.println("Ошибка при загрузке кошелька: " + e.getMessage());
-                userWallets.put(login, new Wallet());
+                System.out.println("Ошибка при сжатии кошелька " + login + ": " + e.getMessage());
             }
-        } else {
-            userWallets.put(login, new Wallet());
+        }
+        return rewritten;
+    }
+
+    /**
+     * A wallet file that cannot be read is left untouched and the wallet is not cached, so a later save cannot
+     * overwrite it with an empty wallet.
+     */
+    private boolean loadWallet(final String login) {
+        final Path walletPath = layout.resolveForRead(login);
+        if (!Files.exists(walletPath)) {
+            putWallet(login, new Wallet());
+            return true;
+        }
+        try {
+            putWallet(login, WalletStorage.read(walletPath));
+            return true;
+        } catch (final IOException | ClassNotFoundException e) {
+            System.out.println("Ошибка при загрузке кошелька: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private Optional<WalletSummary> readSummary(final String login) {
+        try {
+            return WalletStorage.readSummary(layout.resolveForRead(login));
+        } catch (final IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    private void putWallet(final String login, final Wallet wallet) {
+        wallet.addListener(events.listenerFor(login));
+        userWallets.put(login, wallet);
+        if (currentUser != null && currentUser.getLogin().equals(login)) {
+            currentSummary = null;
         }
     }
 
     private void saveWallet(final String login) {
+        writeWallet(login);
+        saveRecurringIndex();
+    }
+
+    private void writeWallet(final String login) {
         final Wallet wallet = userWallets.get(login);
         if (wallet != null) {
-            final Path walletPath = Paths.get(dataDirectory, login + "_wallet.dat");
-            final File file = walletPath.toFile();
-            try (final ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(file))) {
-                oos.writeObject(wallet);
+            try {
+                WalletStorage.write(layout.prepareForWrite(login), wallet, walletCodec);
+                layout.recordSaved(login);
+                shipWallet(login, wallet);
             } catch (final IOException e) {
                 System.out.println("Ошибка при сохранении кошелька: " + e.getMessage());
             }
+            updateRecurringDue(login, wallet);
+        }
+    }
+
+    private void shipWallet(final String login, final Wallet wallet) {
+        // Mapped and tiered wallets keep transactions in segment files outside the wallet image, so the follower
+        // is only told that they are not replicated.
+        final TransactionStore store = wallet.getTransactionStore();
+        if (store instanceof MappedTransactionStore || store instanceof TieredTransactionStore) {
+            ship(ReplicationLog.RecordType.UNREPLICATED, login, null);
+        } else {
+            ship(ReplicationLog.RecordType.WALLET, login, layout.walletPath(login));
+        }
+    }
+
+    private void ship(final ReplicationLog.RecordType type, final String login, final Path file) {
+        if (replicationLog == null) {
+            return;
+        }
+        try {
+            replicationLog.append(type, login, file == null ? new byte[0] : Files.readAllBytes(file));
+        } catch (final IOException e) {
+            System.out.println("Ошибка при записи журнала репликации: " + e.getMessage());
+        }
+    }
+
+    private boolean updateRecurringDue(final String login, final Wallet wallet) {
+        final long nextDue = wallet.getNextRecurringDue();
+        final Long previous = nextDue == CronSchedule.NEVER ? recurringDue().remove(login) : recurringDue().put(login, nextDue);
+        return previous == null ? nextDue != CronSchedule.NEVER : previous != nextDue;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Long> recurringDue() {
+        if (recurringDue == null) {
+            recurringDue = new HashMap<>();
+            final File file = new File(recurringIndexPath);
+            if (file.exists()) {
+                try (final ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                    recurringDue = (Map<String, Long>) ois.readObject();
+                } catch (final IOException | ClassNotFoundException e) {
+                    System.out.println("Ошибка при загрузке расписания регулярных платежей: " + e.getMessage());
+                }
+            }
+        }
+        return recurringDue;
+    }
+
+    private void saveRecurringIndex() {
+        try (final ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(recurringIndexPath)))) {
+            oos.writeObject(recurringDue());
+        } catch (final IOException e) {
+            System.out.println("Ошибка при сохранении расписания регулярных платежей: " + e.getMessage());
         }
     }
 }
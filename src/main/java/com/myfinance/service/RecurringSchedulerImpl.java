@@ -0,0 +1,65 @@
+package com.myfinance.service;
+
+import com.myfinance.service.api.FinanceManager;
+import com.myfinance.service.api.RecurringScheduler;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class RecurringSchedulerImpl implements RecurringScheduler {
+    public static final long DEFAULT_PERIOD_SECONDS = 60;
+
+    private final FinanceManager financeManager;
+    private final long periodSeconds;
+    private ScheduledExecutorService executor;
+
+    public RecurringSchedulerImpl(final FinanceManager financeManager) {
+        this(financeManager, DEFAULT_PERIOD_SECONDS);
+    }
+
+    public RecurringSchedulerImpl(final FinanceManager financeManager, final long periodSeconds) {
+        if (periodSeconds <= 0) {
+            throw new IllegalArgumentException("Период проверки должен быть положительным");
+        }
+        this.financeManager = financeManager;
+        this.periodSeconds = periodSeconds;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "recurring-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::tick, 0, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    @Override
+    public int runOnce() {
+        return financeManager.postDueRecurringTransactions();
+    }
+
+    private void tick() {
+        try {
+            final int posted = runOnce();
+            if (posted > 0) {
+                System.out.println("\nДобавлено регулярных транзакций: " + posted);
+            }
+        } catch (final RuntimeException e) {
+            System.out.println("Ошибка при проведении регулярных транзакций: " + e.getMessage());
+        }
+    }
+}
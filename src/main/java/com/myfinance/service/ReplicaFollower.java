@@ -0,0 +1,254 @@
+package com.myfinance.service;
+
+import com.myfinance.model.Wallet;
+import com.myfinance.model.WalletSummary;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+public class ReplicaFollower {
+    public static final String POSITION_FILE_NAME = "replica.lsn";
+    public static final String UNREPLICATED_FILE_NAME = "replica.unreplicated";
+    public static final long DEFAULT_POLL_MILLIS = 200;
+
+    private final Path leaderDirectory;
+    private final Path followerDirectory;
+    private final ReplicationLog log;
+    private final DataDirectoryLayout layout;
+    private final DataDirectoryLayout leaderLayout;
+    private final Set<String> unreplicated = ConcurrentHashMap.newKeySet();
+    private ReplicationLog.Cursor cursor;
+    private ScheduledExecutorService executor;
+    private volatile long lagMillis;
+    private volatile long lastAppliedTimestamp;
+    private volatile int snapshotCount;
+
+    public ReplicaFollower(final String leaderDirectory, final String followerDirectory) {
+        this(leaderDirectory, followerDirectory, new ReplicationLog(Paths.get(leaderDirectory, ReplicationLog.DIRECTORY_NAME)));
+    }
+
+    public ReplicaFollower(final String leaderDirectory, final String followerDirectory, final ReplicationLog log) {
+        this.leaderDirectory = Paths.get(leaderDirectory);
+        this.followerDirectory = Paths.get(followerDirectory);
+        this.log = log;
+        this.layout = new DataDirectoryLayout(followerDirectory);
+        this.leaderLayout = new DataDirectoryLayout(leaderDirectory);
+    }
+
+    public synchronized int pollOnce() throws IOException {
+        if (cursor == null) {
+            final Path positionFile = followerDirectory.resolve(POSITION_FILE_NAME);
+            if (Files.exists(positionFile)) {
+                cursor = log.openCursor(Long.parseLong(Files.readString(positionFile, StandardCharsets.UTF_8).trim()));
+                final Path unreplicatedFile = followerDirectory.resolve(UNREPLICATED_FILE_NAME);
+                if (Files.exists(unreplicatedFile)) {
+                    for (final String login : Files.readAllLines(unreplicatedFile, StandardCharsets.UTF_8)) {
+                        if (!login.isEmpty()) {
+                            unreplicated.add(login);
+                        }
+                    }
+                }
+            } else {
+                snapshot();
+            }
+        }
+        final long before = cursor.getNextLsn();
+        long next = cursor.poll(this::apply);
+        if (next == ReplicationLog.SNAPSHOT_REQUIRED) {
+            snapshot();
+            next = cursor.poll(this::apply);
+        }
+        final int applied = (int) (cursor.getNextLsn() - before);
+        if (applied > 0 || next == ReplicationLog.SNAPSHOT_REQUIRED) {
+            savePosition();
+        }
+        if (applied == 0) {
+            lagMillis = 0;
+        }
+        return Math.max(applied, 0);
+    }
+
+    public synchronized void start(final long periodMillis) {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "replica-follower");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                pollOnce();
+            } catch (final IOException | RuntimeException e) {
+                System.out.println("Ошибка репликации: " + e.getMessage());
+            }
+        }, 0, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Users whose wallets the leader keeps in segment files; the follower has no copy of them.
+     */
+    public List<String> getUnreplicatedLogins() {
+        final List<String> logins = new ArrayList<>(unreplicated);
+        Collections.sort(logins);
+        return logins;
+    }
+
+    public boolean isReplicated(final String login) {
+        return !unreplicated.contains(login);
+    }
+
+    public Optional<Wallet> findWallet(final String login) {
+        final Path walletPath = layout.walletPath(login);
+        if (!Files.exists(walletPath)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(WalletStorage.read(walletPath));
+        } catch (final IOException | ClassNotFoundException e) {
+            System.out.println("Ошибка при загрузке кошелька: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Reads only the summary block of the wallet file; wallets written before the block existed are loaded in full.
+     */
+    public Optional<WalletSummary> findSummary(final String login) {
+        final Path walletPath = layout.walletPath(login);
+        if (!Files.exists(walletPath)) {
+            return Optional.empty();
+        }
+        try {
+            final Optional<WalletSummary> summary = WalletStorage.readSummary(walletPath);
+            if (summary.isPresent()) {
+                return summary;
+            }
+        } catch (final IOException e) {
+            System.out.println("Ошибка при загрузке кошелька: " + e.getMessage());
+            return Optional.empty();
+        }
+        return findWallet(login).map(Wallet::summarize);
+    }
+
+    public synchronized long getAppliedLsn() {
+        return cursor == null ? 0 : cursor.getNextLsn() - 1;
+    }
+
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    public long getLastAppliedTimestamp() {
+        return lastAppliedTimestamp;
+    }
+
+    public int getSnapshotCount() {
+        return snapshotCount;
+    }
+
+    private void apply(final ReplicationLog.Record record) throws IOException {
+        final String login = record.getLogin();
+        switch (record.getType()) {
+            case USER:
+                install(layout.userPath(login), record.getPayload());
+                Files.deleteIfExists(followerDirectory.resolve(UserDirectory.FILTER_FILE_NAME));
+                break;
+            case WALLET:
+                install(layout.walletPath(login), record.getPayload());
+                layout.recordSaved(login);
+                if (unreplicated.remove(login)) {
+                    saveUnreplicated();
+                }
+                break;
+            case UNREPLICATED:
+                Files.deleteIfExists(layout.walletPath(login));
+                if (unreplicated.add(login)) {
+                    saveUnreplicated();
+                }
+                break;
+        }
+        lastAppliedTimestamp = record.getTimestamp();
+        lagMillis = Math.max(0, System.currentTimeMillis() - record.getTimestamp());
+    }
+
+    private void snapshot() throws IOException {
+        final long snapshotLsn = log.readNextLsn();
+        Files.createDirectories(followerDirectory);
+        unreplicated.clear();
+        try (final Stream<Path> walk = Files.walk(leaderDirectory, 3)) {
+            for (final Path source : (Iterable<Path>) walk::iterator) {
+                final String fileName = source.getFileName().toString();
+                if (fileName.endsWith(DataDirectoryLayout.USER_FILE_SUFFIX)) {
+                    copy(source, layout.userPath(fileName.substring(0, fileName.length() - DataDirectoryLayout.USER_FILE_SUFFIX.length())));
+                } else if (fileName.endsWith(DataDirectoryLayout.WALLET_FILE_SUFFIX) || fileName.endsWith(WalletStorage.WALLET_FILE_SUFFIX)) {
+                    final String login = DataDirectoryLayout.loginOf(source);
+                    if (Files.isDirectory(leaderLayout.segmentsPath(login)) || Files.isDirectory(leaderLayout.coldSegmentsPath(login))) {
+                        Files.deleteIfExists(layout.walletPath(login));
+                        unreplicated.add(login);
+                    } else if (copy(source, layout.walletPath(login))) {
+                        layout.recordSaved(login);
+                    }
+                } else if (fileName.equals(UserDirectory.LEGACY_FILE_NAME)) {
+                    copy(source, followerDirectory.resolve(UserDirectory.LEGACY_FILE_NAME));
+                }
+            }
+        }
+        Files.deleteIfExists(followerDirectory.resolve(UserDirectory.FILTER_FILE_NAME));
+        saveUnreplicated();
+        cursor = log.openCursor(snapshotLsn);
+        snapshotCount++;
+        savePosition();
+    }
+
+    private boolean copy(final Path source, final Path target) throws IOException {
+        try {
+            install(target, Files.readAllBytes(source));
+            return true;
+        } catch (final NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private static void install(final Path target, final byte[] content) throws IOException {
+        Files.createDirectories(target.getParent());
+        final Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(temp, content);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void saveUnreplicated() throws IOException {
+        install(followerDirectory.resolve(UNREPLICATED_FILE_NAME),
+                String.join("\n", getUnreplicatedLogins()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void savePosition() throws IOException {
+        final Path positionFile = followerDirectory.resolve(POSITION_FILE_NAME);
+        final Path temp = positionFile.resolveSibling(POSITION_FILE_NAME + ".tmp");
+        Files.writeString(temp, Long.toString(cursor.getNextLsn()), StandardCharsets.UTF_8);
+        Files.move(temp, positionFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
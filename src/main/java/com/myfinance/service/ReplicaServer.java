@@ -0,0 +1,116 @@
+package com.myfinance.service;
+
+import com.myfinance.model.WalletSummary;
+import com.myfinance.service.api.ReportGenerator;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Serves read-only reports from a {@link ReplicaFollower} over a line protocol on the loopback interface.
+ * Every response ends with a line holding a single dot.
+ */
+public class ReplicaServer {
+    public static final String END_OF_RESPONSE = ".";
+
+    private final ReplicaFollower follower;
+    private final ReportGenerator reportGenerator;
+    private final int port;
+    private ServerSocket serverSocket;
+    private Thread acceptThread;
+
+    public ReplicaServer(final ReplicaFollower follower, final ReportGenerator reportGenerator, final int port) {
+        this.follower = follower;
+        this.reportGenerator = reportGenerator;
+        this.port = port;
+    }
+
+    public synchronized void start() throws IOException {
+        if (serverSocket != null) {
+            return;
+        }
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        final ServerSocket socket = serverSocket;
+        acceptThread = new Thread(() -> acceptLoop(socket), "replica-server");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    public synchronized int getPort() {
+        return serverSocket == null ? port : serverSocket.getLocalPort();
+    }
+
+    public synchronized void stop() {
+        if (serverSocket == null) {
+            return;
+        }
+        try {
+            serverSocket.close();
+        } catch (final IOException e) {
+            System.out.println("Ошибка при остановке сервера реплики: " + e.getMessage());
+        }
+        serverSocket = null;
+        acceptThread = null;
+    }
+
+    public static String query(final int port, final String command) throws IOException {
+        try (final Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             final BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             final Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            out.write(command + "\n");
+            out.flush();
+            final StringBuilder response = new StringBuilder();
+            String line;
+            while ((line = in.readLine()) != null && !line.equals(END_OF_RESPONSE)) {
+                response.append(line).append('\n');
+            }
+            return response.toString();
+        }
+    }
+
+    private void acceptLoop(final ServerSocket socket) {
+        while (!socket.isClosed()) {
+            try (final Socket client = socket.accept();
+                 final BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+                 final Writer out = new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8)) {
+                final String command = in.readLine();
+                out.write(respond(command == null ? "" : command.trim()));
+                out.write(END_OF_RESPONSE + "\n");
+                out.flush();
+            } catch (final IOException e) {
+                if (!socket.isClosed()) {
+                    System.out.println("Ошибка при обработке запроса к реплике: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private String respond(final String command) {
+        if (command.equals("STATUS")) {
+            return "Применено записей журнала: " + follower.getAppliedLsn() + "\n"
+                    + "Отставание, мс: " + follower.getLagMillis() + "\n"
+                    + "Полных копий: " + follower.getSnapshotCount() + "\n"
+                    + "Не реплицируются (сегментное хранение): " + unreplicatedSummary() + "\n";
+        }
+        if (command.startsWith("REPORT ")) {
+            final String login = command.substring("REPORT ".length()).trim();
+            if (!follower.isReplicated(login)) {
+                return "Кошелек пользователя " + login + " хранится в файлах сегментов и не реплицируется.\n";
+            }
+            final Optional<WalletSummary> summary = follower.findSummary(login);
+            return summary.map(value -> reportGenerator.generateFullReport(value) + "\n")
+                    .orElse("Пользователь " + login + " не найден.\n");
+        }
+        return "Неизвестная команда: " + command + "\n";
+    }
+
+    private String unreplicatedSummary() {
+        final List<String> logins = follower.getUnreplicatedLogins();
+        return logins.isEmpty() ? "0" : logins.size() + " (" + String.join(", ", logins) + ")";
+    }
+}
@@ -0,0 +1,337 @@
+package com.myfinance.service;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+public class ReplicationLog {
+    public static final String DIRECTORY_NAME = "replication";
+    public static final long DEFAULT_SEGMENT_BYTES = 64L << 20;
+    public static final long DEFAULT_RETAIN_BYTES = 1L << 30;
+    public static final long SNAPSHOT_REQUIRED = -1;
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int RECORD_OVERHEAD = Integer.BYTES + Integer.BYTES;
+    private static final int FIXED_BODY_BYTES = Long.BYTES + Long.BYTES + 1 + Short.BYTES;
+
+    /**
+     * {@code UNREPLICATED} carries no payload: the wallet keeps its transactions in segment files outside the
+     * wallet image, so the follower drops its copy and reports the user as not replicated.
+     */
+    public enum RecordType {
+        USER,
+        WALLET,
+        UNREPLICATED
+    }
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final long retainBytes;
+    private FileChannel writer;
+    private long writerBase;
+    private long nextLsn;
+
+    public ReplicationLog(final Path directory) {
+        this(directory, DEFAULT_SEGMENT_BYTES, DEFAULT_RETAIN_BYTES);
+    }
+
+    public ReplicationLog(final Path directory, final long segmentBytes, final long retainBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.retainBytes = retainBytes;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public synchronized long append(final RecordType type, final String login, final byte[] payload) throws IOException {
+        openWriter();
+        if (writer.size() >= segmentBytes) {
+            writer.close();
+            writer = openSegment(nextLsn);
+            writerBase = nextLsn;
+            applyRetention();
+        }
+        final long lsn = nextLsn;
+        writer.write(ByteBuffer.wrap(encode(lsn, System.currentTimeMillis(), type, login, payload)));
+        nextLsn++;
+        return lsn;
+    }
+
+    public synchronized long getNextLsn() throws IOException {
+        openWriter();
+        return nextLsn;
+    }
+
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    public Cursor openCursor(final long fromLsn) {
+        return new Cursor(fromLsn);
+    }
+
+    private void openWriter() throws IOException {
+        if (writer != null) {
+            return;
+        }
+        Files.createDirectories(directory);
+        final List<Long> bases = segmentBases();
+        if (bases.isEmpty()) {
+            writerBase = 1;
+            nextLsn = 1;
+        } else {
+            writerBase = bases.get(bases.size() - 1);
+            final Path segment = segmentPath(writerBase);
+            final long[] tail = scanSegment(writerBase);
+            nextLsn = tail[0];
+            final long validBytes = tail[1];
+            if (validBytes < Files.size(segment)) {
+                try (final FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                    channel.truncate(validBytes);
+                }
+            }
+        }
+        writer = openSegment(writerBase);
+    }
+
+    /**
+     * Reads the next LSN from disk without opening a writer, so a follower in another process never
+     * truncates a record the leader is still writing.
+     */
+    public long readNextLsn() throws IOException {
+        synchronized (this) {
+            if (writer != null) {
+                return nextLsn;
+            }
+        }
+        final List<Long> bases = segmentBases();
+        return bases.isEmpty() ? 1 : scanSegment(bases.get(bases.size() - 1))[0];
+    }
+
+    private long[] scanSegment(final long base) throws IOException {
+        final Path segment = segmentPath(base);
+        long next = base;
+        long validBytes = 0;
+        try (final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment)))) {
+            final long size = Files.size(segment);
+            Record record;
+            while ((record = readRecord(in, size - validBytes)) != null) {
+                validBytes += record.encodedLength;
+                next = record.lsn + 1;
+            }
+        }
+        return new long[]{next, validBytes};
+    }
+
+    private FileChannel openSegment(final long base) throws IOException {
+        return FileChannel.open(segmentPath(base), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void applyRetention() throws IOException {
+        final List<Long> bases = segmentBases();
+        long retained = 0;
+        for (final long base : bases) {
+            if (base != writerBase) {
+                retained += Files.size(segmentPath(base));
+            }
+        }
+        for (final long base : bases) {
+            if (retained <= retainBytes || base == writerBase) {
+                break;
+            }
+            retained -= Files.size(segmentPath(base));
+            Files.delete(segmentPath(base));
+        }
+    }
+
+    private List<Long> segmentBases() throws IOException {
+        final List<Long> bases = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return bases;
+        }
+        try (final DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (final Path path : stream) {
+                final String fileName = path.getFileName().toString();
+                bases.add(Long.parseLong(fileName.substring(0, fileName.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        Collections.sort(bases);
+        return bases;
+    }
+
+    private Path segmentPath(final long base) {
+        return directory.resolve(String.format("%020d%s", base, SEGMENT_SUFFIX));
+    }
+
+    private static byte[] encode(final long lsn, final long timestamp, final RecordType type, final String login, final byte[] payload) {
+        final byte[] loginBytes = login.getBytes(StandardCharsets.UTF_8);
+        final int bodyLength = FIXED_BODY_BYTES + loginBytes.length + payload.length;
+        final ByteBuffer buffer = ByteBuffer.allocate(RECORD_OVERHEAD + bodyLength);
+        buffer.putInt(bodyLength);
+        buffer.putLong(lsn);
+        buffer.putLong(timestamp);
+        buffer.put((byte) type.ordinal());
+        buffer.putShort((short) loginBytes.length);
+        buffer.put(loginBytes);
+        buffer.put(payload);
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.array(), Integer.BYTES, bodyLength);
+        buffer.putInt((int) crc.getValue());
+        return buffer.array();
+    }
+
+    private static Record readRecord(final DataInputStream in, final long remaining) throws IOException {
+        if (remaining < RECORD_OVERHEAD + FIXED_BODY_BYTES) {
+            return null;
+        }
+        final int bodyLength = in.readInt();
+        if (bodyLength < FIXED_BODY_BYTES || bodyLength > remaining - RECORD_OVERHEAD) {
+            return null;
+        }
+        final byte[] body = new byte[bodyLength];
+        in.readFully(body);
+        final int expectedCrc = in.readInt();
+        final CRC32 crc = new CRC32();
+        crc.update(body);
+        if ((int) crc.getValue() != expectedCrc) {
+            return null;
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(body);
+        final long lsn = buffer.getLong();
+        final long timestamp = buffer.getLong();
+        final int type = buffer.get();
+        final byte[] loginBytes = new byte[buffer.getShort() & 0xFFFF];
+        if (type < 0 || type >= RecordType.values().length || loginBytes.length > buffer.remaining()) {
+            return null;
+        }
+        buffer.get(loginBytes);
+        final byte[] payload = new byte[buffer.remaining()];
+        buffer.get(payload);
+        return new Record(lsn, timestamp, RecordType.values()[type], new String(loginBytes, StandardCharsets.UTF_8), payload,
+                RECORD_OVERHEAD + bodyLength);
+    }
+
+    public interface RecordHandler {
+        void handle(Record record) throws IOException;
+    }
+
+    public static final class Record {
+        private final long lsn;
+        private final long timestamp;
+        private final RecordType type;
+        private final String login;
+        private final byte[] payload;
+        private final int encodedLength;
+
+        private Record(final long lsn, final long timestamp, final RecordType type, final String login, final byte[] payload,
+                       final int encodedLength) {
+            this.lsn = lsn;
+            this.timestamp = timestamp;
+            this.type = type;
+            this.login = login;
+            this.payload = payload;
+            this.encodedLength = encodedLength;
+        }
+
+        public long getLsn() {
+            return lsn;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public RecordType getType() {
+            return type;
+        }
+
+        public String getLogin() {
+            return login;
+        }
+
+        public byte[] getPayload() {
+            return payload;
+        }
+    }
+
+    public final class Cursor {
+        private long nextLsn;
+        private long segmentBase = -1;
+        private long offset;
+
+        private Cursor(final long fromLsn) {
+            this.nextLsn = fromLsn;
+        }
+
+        public long getNextLsn() {
+            return nextLsn;
+        }
+
+        public long poll(final RecordHandler handler) throws IOException {
+            while (true) {
+                final List<Long> bases = segmentBases();
+                if (segmentBase < 0) {
+                    if (bases.isEmpty()) {
+                        return nextLsn;
+                    }
+                    final int index = Collections.binarySearch(bases, nextLsn);
+                    final int segment = index >= 0 ? index : -index - 2;
+                    if (segment < 0) {
+                        return SNAPSHOT_REQUIRED;
+                    }
+                    segmentBase = bases.get(segment);
+                    offset = 0;
+                }
+                final long before = nextLsn;
+                if (!readSegment(handler)) {
+                    return SNAPSHOT_REQUIRED;
+                }
+                final int current = bases.indexOf(segmentBase);
+                if (current >= 0 && current + 1 < bases.size() && bases.get(current + 1) == nextLsn) {
+                    segmentBase = nextLsn;
+                    offset = 0;
+                } else if (nextLsn == before) {
+                    return nextLsn;
+                }
+            }
+        }
+
+        private boolean readSegment(final RecordHandler handler) throws IOException {
+            try (final FileChannel channel = FileChannel.open(segmentPath(segmentBase), StandardOpenOption.READ)) {
+                final long size = channel.size();
+                channel.position(offset);
+                final DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+                Record record;
+                while ((record = readRecord(in, size - offset)) != null) {
+                    if (record.lsn > nextLsn) {
+                        return false;
+                    }
+                    if (record.lsn == nextLsn) {
+                        handler.handle(record);
+                        nextLsn++;
+                    }
+                    offset += record.encodedLength;
+                }
+                return true;
+            } catch (final NoSuchFileException e) {
+                segmentBase = -1;
+                return !segmentBases().isEmpty() && segmentBases().get(0) <= nextLsn;
+            }
+        }
+    }
+}
@@ -1,74 +1,147 @@
 package com.myfinance.service;
 
 import com.myfinance.model.*;
+import com.myfinance.model.stats.ExpenseStatistics;
 import com.myfinance.service.api.ReportGenerator;
 
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 public class ReportGeneratorImpl implements ReportGenerator {
 
     @Override
-    public String generateFullReport(final Wallet wallet) {
+    public String generateFullReport(final Wallet liveWallet) {
+        return generateFullReport(liveWallet.summarize());
+    }
+
+    @Override
+    public String generateFullReport(final WalletSummary summary) {
         final StringBuilder report = new StringBuilder();
 
-        final double totalIncome = wallet.getTransactions().stream()
-                .filter(t -> t instanceof Income)
-                .mapToDouble(Transaction::getAmount)
-                .sum();
+        report.append("Общий доход: ").append(Money.format(summary.getTotalIncome())).append("\n");
+
+        report.append("Доходы по категориям:\n");
+        summary.forEachCategory((category, income, expense) -> {
+            if (income != 0) {
+                report.append(category).append(": ").append(Money.format(income)).append("\n");
+            }
+        });
 
-        final double totalExpense = wallet.getTransactions().stream()
-                .filter(t -> t instanceof Expense)
-                .mapToDouble(Transaction::getAmount)
-                .sum();
+        report.append("Общие расходы: ").append(Money.format(summary.getTotalExpense())).append("\n");
 
-        report.append("Общий доход: ").append(String.format("%,.1f", totalIncome)).append("\n");
+        report.append("Бюджет по категориям:\n");
+        summary.forEachBudget((category, budget, spent) ->
+                report.append(category).append(": ").append(Money.format(budget)).append(", Оставшийся бюджет: ").append(Money.format(budget - spent)).append("\n"));
 
-        report.append("Доходы по категориям:\n");
-        final Map<Category, Double> incomeByCategory = wallet.getTransactions().stream()
-                .filter(t -> t instanceof Income)
-                .collect(Collectors.groupingBy(Transaction::getCategory, Collectors.summingDouble(Transaction::getAmount)));
+        return report.toString();
+    }
 
-        incomeByCategory.forEach((category, sum) -> report.append(category.getName()).append(": ").append(String.format("%,.1f", sum)).append("\n"));
+    @Override
+    public String generateReportByCategories(final Wallet liveWallet, final List<Category> categories) {
+        final StringBuilder report = new StringBuilder();
+        if (categories == null || categories.isEmpty()) {
+            return "Категории не выбраны.";
+        }
+        final Wallet wallet = liveWallet.snapshot();
 
-        report.append("Общие расходы: ").append(String.format("%,.1f", totalExpense)).append("\n");
+        final long totalIncome = wallet.query().inCategories(categories).ofType(TransactionType.INCOME).sum();
+        final long totalExpense = wallet.query().inCategories(categories).ofType(TransactionType.EXPENSE).sum();
 
-        final Map<Category, Double> expenseByCategory = wallet.getTransactions().stream()
-                .filter(t -> t instanceof Expense)
-                .collect(Collectors.groupingBy(Transaction::getCategory, Collectors.summingDouble(Transaction::getAmount)));
+        report.append("Общий доход по выбранным категориям: ").append(Money.format(totalIncome)).append("\n");
+        report.append("Общие расходы по выбранным категориям: ").append(Money.format(totalExpense)).append("\n");
 
-        report.append("Бюджет по категориям:\n");
-        wallet.getBudgets().forEach((category, budget) -> {
-            final double spent = expenseByCategory.getOrDefault(category, 0.0);
-            report.append(category.getName()).append(": ").append(String.format("%,.1f", budget)).append(", Оставшийся бюджет: ").append(String.format("%,.1f", budget - spent)).append("\n");
+        return report.toString();
+    }
+
+    @Override
+    public String generateExpenseStatisticsReport(final Wallet liveWallet, final int topCount) {
+        final Wallet wallet = liveWallet.snapshot();
+        final StringBuilder report = new StringBuilder();
+        if (wallet.getExpenseStatistics().isEmpty()) {
+            return "Расходов пока нет.";
+        }
+
+        report.append("Статистика расходов по категориям:\n");
+        wallet.getExpenseStatistics().forEach((category, statistics) -> {
+            report.append(category.getName()).append(" (операций: ").append(statistics.getCount()).append(")\n");
+            report.append("  Медиана: ").append(Money.format(statistics.getMedian()))
+                    .append(", p90: ").append(Money.format(statistics.quantile(0.9)))
+                    .append(", p99: ").append(Money.format(statistics.quantile(0.99))).append("\n");
+            report.append("  Крупнейшие расходы:");
+            statistics.getLargest().stream()
+                    .limit(Math.min(topCount, ExpenseStatistics.TOP_EXPENSES_CAPACITY))
+                    .forEach(expense -> report.append(" ").append(Money.format(expense.getAmount())));
+            report.append("\n");
         });
 
         return report.toString();
     }
 
     @Override
-    public String generateReportByCategories(final Wallet wallet, final List<Category> categories) {
+    public String generateAnalyticsReport(final AnalyticsReport analyticsReport) {
         final StringBuilder report = new StringBuilder();
-        if (categories == null || categories.isEmpty()) {
-            return "Категории не выбраны.";
+        report.append("Обработано кошельков: ").append(analyticsReport.getWalletCount()).append("\n");
+        if (analyticsReport.getFailedWalletCount() > 0) {
+            report.append("Не удалось прочитать кошельков: ").append(analyticsReport.getFailedWalletCount()).append("\n");
         }
 
-        final List<String> categoryNames = categories.stream().map(Category::getName).collect(Collectors.toList());
+        report.append("Расходы по категориям:\n");
+        analyticsReport.getExpenseByCategory().forEach((category, sum) -> report.append(category).append(": ").append(Money.format(sum)).append("\n"));
 
-        final double totalIncome = wallet.getTransactions().stream()
-                .filter(t -> t instanceof Income && categoryNames.contains(t.getCategory().getName()))
-                .mapToDouble(Transaction::getAmount)
-                .sum();
+        report.append("Пользователи с наибольшими расходами:\n");
+        for (final UserSpending spending : analyticsReport.getTopSpenders()) {
+            report.append(spending.getLogin()).append(": ").append(Money.format(spending.getTotalExpense())).append("\n");
+        }
 
-        final double totalExpense = wallet.getTransactions().stream()
-                .filter(t -> t instanceof Expense && categoryNames.contains(t.getCategory().getName()))
-                .mapToDouble(Transaction::getAmount)
-                .sum();
+        report.append("Распределение балансов:\n");
+        final long[] bounds = analyticsReport.getBalanceBucketBounds();
+        final long[] counts = analyticsReport.getBalanceBucketCounts();
+        for (int i = 0; i < counts.length; i++) {
+            if (i == 0) {
+                report.append("< ").append(Money.format(bounds[0]));
+            } else if (i == bounds.length) {
+                report.append(">= ").append(Money.format(bounds[i - 1]));
+            } else {
+                report.append(Money.format(bounds[i - 1])).append(" - ").append(Money.format(bounds[i]));
+            }
+            report.append(": ").append(counts[i]).append("\n");
+        }
+        report.append("Средний баланс: ").append(Money.format(analyticsReport.getAverageBalance())).append("\n");
+        report.append("Минимальный баланс: ").append(Money.format(analyticsReport.getMinBalance())).append("\n");
+        report.append("Максимальный баланс: ").append(Money.format(analyticsReport.getMaxBalance())).append("\n");
 
-        report.append("Общий доход по выбранным категориям: ").append(String.format("%,.1f", totalIncome)).append("\n");
-        report.append("Общие расходы по выбранным категориям: ").append(String.format("%,.1f", totalExpense)).append("\n");
+        return report.toString();
+    }
 
+    @Override
+    public String generateBulkExportReport(final BulkExportReport bulkExportReport) {
+        final StringBuilder report = new StringBuilder();
+        report.append("Кошельков в директории: ").append(bulkExportReport.getWalletCount()).append("\n");
+        report.append("Выгружено: ").append(bulkExportReport.getExportedCount()).append("\n");
+        report.append("Пропущено (уже выгружены): ").append(bulkExportReport.getSkippedCount()).append("\n");
+        if (bulkExportReport.getFailedCount() > 0) {
+            report.append("Не удалось выгрузить: ").append(bulkExportReport.getFailedCount()).append("\n");
+        }
+        report.append("Транзакций: ").append(bulkExportReport.getRowCount()).append("\n");
+        report.append(String.format("Время: %.1f с, %.1f кошельков/с, %.1f МБ/с%n", bulkExportReport.getElapsedMillis() / 1000.0,
+                bulkExportReport.getWalletsPerSecond(), bulkExportReport.getMegabytesPerSecond()));
+        return report.toString();
+    }
+
+    @Override
+    public String generateBudgetForecastReport(final BudgetForecast budgetForecast) {
+        if (budgetForecast.getRisks().isEmpty()) {
+            return "Бюджеты не установлены.";
+        }
+        final StringBuilder report = new StringBuilder();
+        report.append("Дней до конца месяца: ").append(budgetForecast.getRemainingDays())
+                .append(", дней истории: ").append(budgetForecast.getHistoryDays())
+                .append(", сценариев: ").append(budgetForecast.getPathCount()).append("\n");
+        for (final BudgetRisk risk : budgetForecast.getRisks()) {
+            report.append(risk.getCategory().getName()).append(": бюджет ").append(Money.format(risk.getBudget()))
+                    .append(", потрачено ").append(Money.format(risk.getSpent()))
+                    .append(", ожидается к концу месяца ").append(Money.format(risk.getExpectedSpent()))
+                    .append(String.format(", вероятность превышения %.1f%%%n", risk.getExceedProbability() * 100));
+        }
         return report.toString();
     }
-}
\ No newline at end of file
+}
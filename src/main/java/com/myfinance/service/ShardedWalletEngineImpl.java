@@ -0,0 +1,301 @@
+package com.myfinance.service;
+
+import com.myfinance.model.*;
+import com.myfinance.service.api.ShardedWalletEngine;
+import com.myfinance.service.codec.WalletCodec;
+import com.myfinance.service.codec.WalletCodecs;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Partitions users across single-threaded shards by login hash. Each shard owns its wallets, so a wallet is only
+ * ever touched by one thread and requests for different shards never wait for each other. Requests are queued per
+ * shard, and at most {@code queueCapacity} client requests per shard are admitted at once. A transfer between
+ * shards debits the sender on its shard and then sends a credit message to the recipient's shard. If the recipient
+ * does not exist or crediting it fails, a refund message removes the debit again. Messages between shards bypass
+ * the admission limit, so two full shards cannot block each other. Wallets whose save fails stay dirty for the next
+ * flush.
+ */
+public class ShardedWalletEngineImpl implements ShardedWalletEngine {
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    private static final Message STOP = new Message(shard -> {
+    }, null, false);
+
+    private final DataDirectoryLayout layout;
+    private final UserDirectory users;
+    private final WalletCodec walletCodec;
+    private final Shard[] shards;
+    private final Set<CompletableFuture<Boolean>> pendingTransfers = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    public ShardedWalletEngineImpl(final String dataDirectory) {
+        this(dataDirectory, Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY, WalletCodecs.NONE);
+    }
+
+    public ShardedWalletEngineImpl(final String dataDirectory, final int shardCount, final int queueCapacity,
+                                   final WalletCodec walletCodec) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Число шардов должно быть положительным");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Размер очереди должен быть положительным");
+        }
+        this.layout = new DataDirectoryLayout(dataDirectory);
+        this.users = new UserDirectory(layout);
+        this.walletCodec = walletCodec;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, queueCapacity);
+            shards[i].thread.start();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Boolean> addTransaction(final String login, final Transaction transaction) {
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        submit(login, result, shard -> {
+            final Wallet wallet = shard.wallet(login);
+            if (wallet != null) {
+                wallet.addTransaction(transaction);
+                shard.dirty.add(login);
+            }
+            result.complete(wallet != null);
+        });
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> transfer(final String fromLogin, final String toLogin, final long amount, final Category category) {
+        if (amount <= 0 || fromLogin.equals(toLogin)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        pendingTransfers.add(result);
+        result.whenComplete((done, error) -> pendingTransfers.remove(result));
+        submit(fromLogin, result, source -> {
+            final Wallet sender = source.wallet(fromLogin);
+            if (sender == null || sender.getBalance() < amount) {
+                result.complete(false);
+                return;
+            }
+            final long expenseId = sender.addTransaction(new Expense(amount, category));
+            source.dirty.add(fromLogin);
+            final Consumer<Shard> refund = shard -> {
+                shard.wallets.get(fromLogin).deleteTransaction(expenseId);
+                shard.dirty.add(fromLogin);
+            };
+            final Consumer<Shard> credit = destination -> {
+                final Wallet recipient;
+                try {
+                    recipient = destination.wallet(toLogin);
+                    if (recipient != null) {
+                        recipient.addTransaction(new Income(amount, category));
+                        destination.dirty.add(toLogin);
+                    }
+                } catch (final RuntimeException e) {
+                    send(source, shard -> {
+                        refund.accept(shard);
+                        result.completeExceptionally(e);
+                    }, result);
+                    return;
+                }
+                if (recipient == null) {
+                    send(source, shard -> {
+                        refund.accept(shard);
+                        result.complete(false);
+                    }, result);
+                    return;
+                }
+                result.complete(true);
+            };
+            final Shard target = shards[shardOf(toLogin)];
+            if (target == source) {
+                credit.accept(source);
+            } else {
+                send(target, credit, result);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Optional<Wallet>> snapshot(final String login) {
+        final CompletableFuture<Optional<Wallet>> result = new CompletableFuture<>();
+        submit(login, result, shard -> {
+            final Wallet wallet = shard.wallet(login);
+            result.complete(wallet == null ? Optional.empty() : Optional.of(wallet.snapshot()));
+        });
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Integer> flush() {
+        final List<CompletableFuture<Integer>> saved = new ArrayList<>(shards.length);
+        for (final Shard target : shards) {
+            final CompletableFuture<Integer> result = new CompletableFuture<>();
+            send(target, shard -> result.complete(shard.saveDirty()), result);
+            saved.add(result);
+        }
+        return CompletableFuture.allOf(saved.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            int total = 0;
+            for (final CompletableFuture<Integer> result : saved) {
+                total += result.join();
+            }
+            return total;
+        });
+    }
+
+    @Override
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    @Override
+    public int shardOf(final String login) {
+        return DataDirectoryLayout.shardOf(login) % shards.length;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // Transfers admitted before closing may still be waiting for their credit or refund on another shard.
+        CompletableFuture.allOf(pendingTransfers.toArray(new CompletableFuture<?>[0])).handle((ignored, error) -> null).join();
+        flush().join();
+        for (final Shard shard : shards) {
+            shard.queue.add(STOP);
+        }
+        for (final Shard shard : shards) {
+            try {
+                shard.thread.join();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void submit(final String login, final CompletableFuture<?> result, final Consumer<Shard> task) {
+        if (closed) {
+            result.completeExceptionally(new IllegalStateException("Движок шардов остановлен"));
+            return;
+        }
+        final Shard shard = shards[shardOf(login)];
+        try {
+            shard.admission.acquire();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(e);
+            return;
+        }
+        shard.queue.add(new Message(task, result, true));
+    }
+
+    private static void send(final Shard shard, final Consumer<Shard> task, final CompletableFuture<?> result) {
+        shard.queue.add(new Message(task, result, false));
+    }
+
+    private static final class Message {
+        private final Consumer<Shard> task;
+        private final CompletableFuture<?> result;
+        private final boolean admitted;
+
+        private Message(final Consumer<Shard> task, final CompletableFuture<?> result, final boolean admitted) {
+            this.task = task;
+            this.result = result;
+            this.admitted = admitted;
+        }
+    }
+
+    private final class Shard implements Runnable {
+        private final BlockingQueue<Message> queue = new LinkedBlockingQueue<>();
+        private final Semaphore admission;
+        private final Thread thread;
+        private final Map<String, Wallet> wallets = new HashMap<>();
+        private final Set<String> dirty = new LinkedHashSet<>();
+
+        private Shard(final int index, final int queueCapacity) {
+            this.admission = new Semaphore(queueCapacity);
+            this.thread = new Thread(this, "wallet-shard-" + index);
+            thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                final Message message;
+                try {
+                    message = queue.take();
+                } catch (final InterruptedException e) {
+                    return;
+                }
+                if (message == STOP) {
+                    return;
+                }
+                try {
+                    message.task.accept(this);
+                } catch (final RuntimeException e) {
+                    message.result.completeExceptionally(e);
+                } finally {
+                    if (message.admitted) {
+                        admission.release();
+                    }
+                }
+            }
+        }
+
+        private Wallet wallet(final String login) {
+            final Wallet cached = wallets.get(login);
+            if (cached != null || !users.exists(login)) {
+                return cached;
+            }
+            final Path walletPath = layout.resolveForRead(login);
+            Wallet wallet = new Wallet();
+            if (Files.exists(walletPath)) {
+                try {
+                    wallet = WalletStorage.read(walletPath);
+                } catch (final IOException | ClassNotFoundException e) {
+                    // Treated like a missing user, so the unreadable file is never replaced by an empty wallet.
+                    System.out.println("Ошибка при загрузке кошелька: " + e.getMessage());
+                    return null;
+                }
+            }
+            wallets.put(login, wallet);
+            return wallet;
+        }
+
+        private int saveDirty() {
+            int saved = 0;
+            for (final Iterator<String> iterator = dirty.iterator(); iterator.hasNext(); ) {
+                final String login = iterator.next();
+                try {
+                    WalletStorage.write(layout.prepareForWrite(login), wallets.get(login), walletCodec);
+                    layout.recordSaved(login);
+                    iterator.remove();
+                    saved++;
+                } catch (final IOException e) {
+                    System.out.println("Ошибка при сохранении кошелька: " + e.getMessage());
+                }
+            }
+            return saved;
+        }
+    }
+}
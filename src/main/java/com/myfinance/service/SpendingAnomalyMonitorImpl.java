@@ -0,0 +1,208 @@
+package com.myfinance.service;
+
+import com.myfinance.model.*;
+import com.myfinance.model.stats.TimeBucketRing;
+import com.myfinance.service.api.SpendingAnomalyMonitor;
+
+import java.time.Clock;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Flags categories whose spending over the last {@value #RECENT_HOURS} hours exceeds {@code factor} times the
+ * daily average of the previous {@value #BASELINE_DAYS} days. Each category keeps two fixed-size rings of
+ * hourly and daily sums, so memory does not grow with the wallet's history.
+ */
+public class SpendingAnomalyMonitorImpl implements SpendingAnomalyMonitor, WalletListener {
+    public static final int RECENT_HOURS = 24;
+    public static final int BASELINE_DAYS = 30;
+    public static final double DEFAULT_FACTOR = 3.0;
+    public static final int DEFAULT_MIN_ACTIVE_DAYS = 5;
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private final double factor;
+    private final int minActiveDays;
+    private final Clock clock;
+    private final List<Consumer<SpendingAnomalyAlert>> alertListeners = new CopyOnWriteArrayList<>();
+    private final Map<Category, Window> windows = new HashMap<>();
+    private final Set<Category> alerted = new HashSet<>();
+    private Wallet wallet;
+
+    public SpendingAnomalyMonitorImpl() {
+        this(DEFAULT_FACTOR, DEFAULT_MIN_ACTIVE_DAYS, Clock.systemDefaultZone());
+    }
+
+    public SpendingAnomalyMonitorImpl(final double factor, final int minActiveDays, final Clock clock) {
+        if (factor <= 1.0) {
+            throw new IllegalArgumentException("Множитель должен быть больше 1");
+        }
+        if (minActiveDays < 1 || minActiveDays > BASELINE_DAYS) {
+            throw new IllegalArgumentException("Минимальное число дней с расходами должно быть от 1 до " + BASELINE_DAYS);
+        }
+        this.factor = factor;
+        this.minActiveDays = minActiveDays;
+        this.clock = clock;
+    }
+
+    @Override
+    public synchronized void attach(final Wallet wallet) {
+        detach();
+        this.wallet = wallet;
+        final long from = Math.floorDiv(clock.millis(), DAY_MILLIS) * DAY_MILLIS - BASELINE_DAYS * DAY_MILLIS;
+        for (final Transaction transaction : wallet.snapshot().query().ofType(TransactionType.EXPENSE).between(from, Long.MAX_VALUE).list()) {
+            record(transaction, 1);
+        }
+        final long now = clock.millis();
+        windows.forEach((category, window) -> {
+            window.advanceTo(now);
+            if (isAnomalous(window)) {
+                alerted.add(category);
+            }
+        });
+        wallet.addListener(this);
+    }
+
+    @Override
+    public synchronized void detach() {
+        if (wallet != null) {
+            wallet.removeListener(this);
+            wallet = null;
+        }
+        windows.clear();
+        alerted.clear();
+    }
+
+    @Override
+    public void addAlertListener(final Consumer<SpendingAnomalyAlert> listener) {
+        alertListeners.add(listener);
+    }
+
+    @Override
+    public synchronized long getRecentSpent(final Category category) {
+        final Window window = windows.get(category);
+        if (window == null) {
+            return 0;
+        }
+        window.advanceTo(clock.millis());
+        return window.hourly.getTotal();
+    }
+
+    @Override
+    public synchronized long getDailyAverage(final Category category) {
+        final Window window = windows.get(category);
+        if (window == null) {
+            return 0;
+        }
+        window.advanceTo(clock.millis());
+        return window.baselineTotal() / BASELINE_DAYS;
+    }
+
+    @Override
+    public synchronized void onTransactionAdded(final Wallet wallet, final Transaction transaction) {
+        if (transaction instanceof Expense) {
+            record(transaction, 1);
+            for (Category category = transaction.getCategory(); category != null; category = category.getParent()) {
+                evaluate(category, transaction.getTimestamp());
+            }
+        }
+    }
+
+    @Override
+    public synchronized void onTransactionsAdded(final Wallet wallet, final List<Transaction> transactions) {
+        final Set<Category> touched = new LinkedHashSet<>();
+        long latest = Long.MIN_VALUE;
+        for (final Transaction transaction : transactions) {
+            if (transaction instanceof Expense) {
+                record(transaction, 1);
+                latest = Math.max(latest, transaction.getTimestamp());
+                Category category = transaction.getCategory();
+                while (category != null && touched.add(category)) {
+                    category = category.getParent();
+                }
+            }
+        }
+        for (final Category category : touched) {
+            evaluate(category, latest);
+        }
+    }
+
+    @Override
+    public synchronized void onTransactionRemoved(final Wallet wallet, final Transaction transaction) {
+        if (transaction instanceof Expense) {
+            record(transaction, -1);
+            for (Category category = transaction.getCategory(); category != null; category = category.getParent()) {
+                final Window window = windows.get(category);
+                if (window != null) {
+                    window.advanceTo(clock.millis());
+                    if (!isAnomalous(window)) {
+                        alerted.remove(category);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void onTransactionsCleared(final Wallet wallet) {
+        windows.clear();
+        alerted.clear();
+    }
+
+    private void record(final Transaction transaction, final int sign) {
+        for (Category category = transaction.getCategory(); category != null; category = category.getParent()) {
+            final Window window = windows.computeIfAbsent(category, key -> new Window());
+            window.hourly.add(transaction.getTimestamp(), sign * transaction.getAmount());
+            window.daily.add(transaction.getTimestamp(), sign * transaction.getAmount());
+        }
+    }
+
+    private void evaluate(final Category category, final long timestamp) {
+        final Window window = windows.get(category);
+        if (window == null) {
+            return;
+        }
+        final long now = Math.max(clock.millis(), timestamp);
+        window.advanceTo(now);
+        if (!isAnomalous(window)) {
+            alerted.remove(category);
+            return;
+        }
+        if (!alerted.add(category)) {
+            return;
+        }
+        final SpendingAnomalyAlert alert = new SpendingAnomalyAlert(category, window.hourly.getTotal(),
+                window.baselineTotal() / BASELINE_DAYS, factor, now);
+        for (final Consumer<SpendingAnomalyAlert> listener : alertListeners) {
+            listener.accept(alert);
+        }
+    }
+
+    private boolean isAnomalous(final Window window) {
+        final int activeDays = window.daily.getNonEmptyBuckets() - (window.daily.getNewest() != 0 ? 1 : 0);
+        final long baseline = window.baselineTotal();
+        return activeDays >= minActiveDays && baseline > 0
+                && window.hourly.getTotal() * (double) BASELINE_DAYS > factor * baseline;
+    }
+
+    private static final class Window {
+        private final TimeBucketRing hourly = new TimeBucketRing(RECENT_HOURS, HOUR_MILLIS);
+        private final TimeBucketRing daily = new TimeBucketRing(BASELINE_DAYS + 1, DAY_MILLIS);
+
+        private void advanceTo(final long timestamp) {
+            hourly.advanceTo(timestamp);
+            daily.advanceTo(timestamp);
+        }
+
+        private long baselineTotal() {
+            return daily.getTotal() - daily.getNewest();
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.myfinance.service;
+
+import com.myfinance.model.User;
+import com.myfinance.model.index.BloomFilter;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public class UserDirectory {
+    public static final String FILTER_FILE_NAME = "users.bloom";
+    public static final String LEGACY_FILE_NAME = "users.dat";
+    public static final int BITS_PER_USER = 10;
+    public static final int MIN_CAPACITY = 1 << 16;
+    private static final int MAGIC = 0x50464D42;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int COUNT_OFFSET = 16;
+    private static final int HASH_COUNT_OFFSET = 24;
+
+    private final DataDirectoryLayout layout;
+    private final Path filterPath;
+    private final Path legacyPath;
+    private final Map<String, User> cache = new HashMap<>();
+    private ByteBuffer header;
+    private BloomFilter filter;
+
+    public UserDirectory(final DataDirectoryLayout layout) {
+        this.layout = layout;
+        this.filterPath = layout.getRoot().resolve(FILTER_FILE_NAME);
+        this.legacyPath = layout.getRoot().resolve(LEGACY_FILE_NAME);
+    }
+
+    public synchronized Optional<User> find(final String login) {
+        final User cached = cache.get(login);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        if (!filter().mightContain(login)) {
+            return Optional.empty();
+        }
+        final User user = read(login);
+        if (user != null) {
+            cache.put(login, user);
+        }
+        return Optional.ofNullable(user);
+    }
+
+    public boolean exists(final String login) {
+        return find(login).isPresent();
+    }
+
+    /**
+     * Returns {@code false} if the login is taken. The filter bit and user count are forced to disk before the user
+     * file is written, so a crash can leave a false positive in the filter but never a user the filter misses.
+     */
+    public synchronized boolean create(final User user) throws IOException {
+        if (exists(user.getLogin())) {
+            return false;
+        }
+        filter().add(user.getLogin());
+        final long count = header.getLong(COUNT_OFFSET) + 1;
+        header.putLong(COUNT_OFFSET, count);
+        if (header instanceof MappedByteBuffer) {
+            ((MappedByteBuffer) header).force();
+        }
+        if (!write(user)) {
+            return false;
+        }
+        cache.put(user.getLogin(), user);
+        if (count > header.getLong(CAPACITY_OFFSET)) {
+            rebuildFilter(count * 2);
+        }
+        return true;
+    }
+
+    public synchronized void close() {
+        if (header instanceof MappedByteBuffer) {
+            ((MappedByteBuffer) header).force();
+        }
+        header = null;
+        filter = null;
+        cache.clear();
+    }
+
+    private BloomFilter filter() {
+        if (filter == null) {
+            if (Files.exists(legacyPath)) {
+                migrateLegacyUsers();
+            }
+            if (!openFilter()) {
+                rebuildFilter(0);
+            }
+        }
+        return filter;
+    }
+
+    private boolean openFilter() {
+        if (!Files.exists(filterPath)) {
+            return false;
+        }
+        try (final FileChannel channel = FileChannel.open(filterPath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() < HEADER_BYTES) {
+                return false;
+            }
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            final long capacity = buffer.getLong(CAPACITY_OFFSET);
+            final long bitCount = capacity * BITS_PER_USER;
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || capacity <= 0
+                    || HEADER_BYTES + BloomFilter.byteSize(bitCount) != channel.size()
+                    || buffer.getLong(COUNT_OFFSET) > capacity) {
+                return false;
+            }
+            header = buffer;
+            filter = new BloomFilter(buffer, HEADER_BYTES, bitCount, buffer.getInt(HASH_COUNT_OFFSET));
+            return true;
+        } catch (final IOException | IllegalArgumentException e) {
+            System.out.println("Ошибка при чтении фильтра пользователей: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void rebuildFilter(final long minCapacity) {
+        final List<String> logins = userLogins();
+        final long capacity = Math.max(MIN_CAPACITY, Math.max(minCapacity, logins.size() * 2L));
+        final int size = HEADER_BYTES + BloomFilter.byteSize(capacity * BITS_PER_USER);
+        final Path tempPath = filterPath.resolveSibling(FILTER_FILE_NAME + ".tmp");
+        try {
+            Files.deleteIfExists(tempPath);
+            try (final FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                fillFilter(buffer, capacity, logins);
+                buffer.force();
+            }
+            Files.move(tempPath, filterPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException e) {
+            System.out.println("Ошибка при построении фильтра пользователей: " + e.getMessage());
+            fillFilter(ByteBuffer.allocate(size), capacity, logins);
+        }
+    }
+
+    private void fillFilter(final ByteBuffer buffer, final long capacity, final List<String> logins) {
+        final int hashCount = BloomFilter.optimalHashCount(BITS_PER_USER);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        final BloomFilter rebuilt = new BloomFilter(buffer, HEADER_BYTES, capacity * BITS_PER_USER, hashCount);
+        for (final String login : logins) {
+            rebuilt.add(login);
+        }
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(CAPACITY_OFFSET, capacity);
+        buffer.putLong(COUNT_OFFSET, logins.size());
+        buffer.putInt(HASH_COUNT_OFFSET, hashCount);
+        header = buffer;
+        filter = rebuilt;
+    }
+
+    private List<String> userLogins() {
+        final List<String> logins = new ArrayList<>();
+        if (!Files.isDirectory(layout.getRoot())) {
+            return logins;
+        }
+        try (final Stream<Path> walk = Files.walk(layout.getRoot(), 3)) {
+            walk.map(path -> path.getFileName().toString())
+                .filter(fileName -> fileName.endsWith(DataDirectoryLayout.USER_FILE_SUFFIX))
+                .forEach(fileName -> logins.add(fileName.substring(0, fileName.length() - DataDirectoryLayout.USER_FILE_SUFFIX.length())));
+        } catch (final IOException e) {
+            System.out.println("Ошибка при чтении директории пользователей: " + e.getMessage());
+        }
+        return logins;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void migrateLegacyUsers() {
+        final Map<String, User> legacyUsers;
+        try (final ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(legacyPath)))) {
+            legacyUsers = (Map<String, User>) ois.readObject();
+        } catch (final IOException | ClassNotFoundException | ClassCastException e) {
+            System.out.println("Ошибка при загрузке пользователей: " + e.getMessage());
+            return;
+        }
+        try {
+            for (final User user : legacyUsers.values()) {
+                // Пользователь, уже перенесённый при прошлой, прерванной миграции, пропускается.
+                write(user);
+            }
+            Files.move(legacyPath, legacyPath.resolveSibling(LEGACY_FILE_NAME + ".migrated"), StandardCopyOption.REPLACE_EXISTING);
+            Files.deleteIfExists(filterPath);
+        } catch (final IOException e) {
+            System.out.println("Ошибка при переносе пользователей: " + e.getMessage());
+        }
+    }
+
+    private User read(final String login) {
+        try (final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(layout.userPath(login))))) {
+            final String storedLogin = in.readUTF();
+            final String password = in.readUTF();
+            return storedLogin.equals(login) ? new User(storedLogin, password) : null;
+        } catch (final NoSuchFileException e) {
+            return null;
+        } catch (final IOException e) {
+            System.out.println("Ошибка при загрузке пользователя " + login + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Returns {@code false} if the user file already exists.
+     */
+    private boolean write(final User user) throws IOException {
+        final Path userPath = layout.userPath(user.getLogin());
+        Files.createDirectories(userPath.getParent());
+        final OutputStream file;
+        try {
+            file = Files.newOutputStream(userPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        } catch (final FileAlreadyExistsException e) {
+            return false;
+        }
+        try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeUTF(user.getLogin());
+            out.writeUTF(user.getPassword());
+        }
+        return true;
+    }
+}
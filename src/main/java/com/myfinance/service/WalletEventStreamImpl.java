@@ -0,0 +1,178 @@
+package com.myfinance.service;
+
+import com.myfinance.model.*;
+import com.myfinance.service.api.WalletEventStream;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes wallet changes to asynchronous subscribers. {@link #publish} only offers the event to a bounded queue, so
+ * the mutating thread never waits for a subscriber. A batcher thread drains the queue into batches of up to
+ * {@code batchSize} events and submits them to a {@link SubmissionPublisher}, which keeps a bounded buffer of batches
+ * per subscriber and honours each subscriber's {@code request(n)}. When a slow subscriber fills its buffer the batcher
+ * blocks, the queue fills up, and further events are dropped and counted rather than stalling the caller.
+ */
+public class WalletEventStreamImpl implements WalletEventStream {
+    public static final int DEFAULT_QUEUE_CAPACITY = 8192;
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    public static final int DEFAULT_SUBSCRIBER_BUFFER = 64;
+    private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+    private final BlockingQueue<WalletEvent> queue;
+    private final int batchSize;
+    private final ExecutorService executor;
+    private final SubmissionPublisher<List<WalletEvent>> publisher;
+    private final AtomicLong droppedCount = new AtomicLong();
+    private Thread batcher;
+    private volatile boolean subscribed;
+    private volatile boolean closed;
+
+    public WalletEventStreamImpl() {
+        this(DEFAULT_QUEUE_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_SUBSCRIBER_BUFFER);
+    }
+
+    public WalletEventStreamImpl(final int queueCapacity, final int batchSize, final int subscriberBuffer) {
+        if (queueCapacity <= 0 || batchSize <= 0 || subscriberBuffer <= 0) {
+            throw new IllegalArgumentException("Размеры буферов потока событий должны быть положительными");
+        }
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "wallet-events-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.publisher = new SubmissionPublisher<>(executor, subscriberBuffer);
+    }
+
+    @Override
+    public synchronized void subscribe(final Flow.Subscriber<? super List<WalletEvent>> subscriber) {
+        if (!closed && batcher == null) {
+            batcher = new Thread(this::runBatcher, "wallet-event-batcher");
+            batcher.setDaemon(true);
+            batcher.start();
+        }
+        publisher.subscribe(subscriber);
+        subscribed = true;
+    }
+
+    @Override
+    public boolean publish(final WalletEvent event) {
+        // SubmissionPublisher.hasSubscribers() takes the lock the batcher holds while blocked on a full subscriber.
+        if (closed || !subscribed) {
+            return false;
+        }
+        if (!queue.offer(event)) {
+            droppedCount.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public WalletListener listenerFor(final String login) {
+        return new WalletListener() {
+            @Override
+            public void onTransactionAdded(final Wallet wallet, final Transaction transaction) {
+                publish(WalletEvent.transactionAdded(login, transaction, wallet.getBalance()));
+            }
+
+            @Override
+            public void onTransactionsAdded(final Wallet wallet, final List<Transaction> transactions) {
+                long netAmount = 0;
+                for (final Transaction transaction : transactions) {
+                    netAmount += transaction.getType() == TransactionType.INCOME ? transaction.getAmount() : -transaction.getAmount();
+                }
+                publish(WalletEvent.transactionsAdded(login, transactions.size(), netAmount, wallet.getBalance()));
+            }
+
+            @Override
+            public void onTransactionRemoved(final Wallet wallet, final Transaction transaction) {
+                publish(WalletEvent.transactionRemoved(login, transaction, wallet.getBalance()));
+            }
+
+            @Override
+            public void onTransactionsCleared(final Wallet wallet) {
+                publish(WalletEvent.transactionsCleared(login, wallet.getBalance()));
+            }
+
+            @Override
+            public void onBudgetSet(final Wallet wallet, final Category category, final long amount) {
+                publish(WalletEvent.budgetSet(login, category, amount, wallet.getBalance()));
+            }
+
+            @Override
+            public void onBudgetsCleared(final Wallet wallet) {
+                publish(WalletEvent.budgetsCleared(login, wallet.getBalance()));
+            }
+        };
+    }
+
+    @Override
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    @Override
+    public int getSubscriberCount() {
+        return publisher.getNumberOfSubscribers();
+    }
+
+    /**
+     * Stops accepting events, delivers the ones already queued and waits until every subscriber has consumed them.
+     */
+    @Override
+    public void close() {
+        final Thread running;
+        synchronized (this) {
+            closed = true;
+            running = batcher;
+        }
+        if (running == null) {
+            publisher.close();
+        } else {
+            running.interrupt();
+            try {
+                running.join();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runBatcher() {
+        try {
+            while (true) {
+                final List<WalletEvent> batch = new ArrayList<>(batchSize);
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+                publisher.submit(batch);
+            }
+        } catch (final InterruptedException e) {
+            while (!queue.isEmpty()) {
+                final List<WalletEvent> batch = new ArrayList<>(batchSize);
+                queue.drainTo(batch, batchSize);
+                publisher.submit(batch);
+            }
+        } finally {
+            publisher.close();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.myfinance.service;
+
+import com.myfinance.model.WalletEvent;
+
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+
+/**
+ * Hands each batch to a consumer and requests the next batch only after the consumer returns, so a slow consumer
+ * holds the stream back instead of accumulating an unbounded backlog.
+ */
+public class WalletEventSubscriber implements Flow.Subscriber<List<WalletEvent>> {
+    private final Consumer<List<WalletEvent>> consumer;
+    private Flow.Subscription subscription;
+
+    public WalletEventSubscriber(final Consumer<List<WalletEvent>> consumer) {
+        this.consumer = consumer;
+    }
+
+    @Override
+    public void onSubscribe(final Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(final List<WalletEvent> batch) {
+        consumer.accept(batch);
+        subscription.request(1);
+    }
+
+    @Override
+    public void onError(final Throwable throwable) {
+        System.out.println("Ошибка обработки событий кошелька: " + throwable.getMessage());
+    }
+
+    @Override
+    public void onComplete() {
+    }
+
+    public void cancel() {
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+}
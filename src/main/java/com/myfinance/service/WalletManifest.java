@@ -0,0 +1,193 @@
+package com.myfinance.service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+
+public class WalletManifest {
+    public static final String FILE_NAME = "manifest.idx";
+    private static final int MAGIC = 0x50464D4D;
+    private static final int VERSION = 1;
+    private static final byte RECORD_PUT = 1;
+    private static final byte RECORD_REMOVE = 2;
+
+    private final Path path;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private int logRecords;
+
+    public WalletManifest(final Path path) {
+        this.path = path;
+    }
+
+    public synchronized boolean load() {
+        entries.clear();
+        logRecords = 0;
+        if (!Files.exists(path)) {
+            return false;
+        }
+        final boolean complete;
+        try (final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (Files.size(path) < 2 * Integer.BYTES || in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Неверный формат манифеста " + path);
+            }
+            complete = readRecords(in);
+        } catch (final IOException e) {
+            System.out.println("Ошибка при чтении манифеста: " + e.getMessage());
+            entries.clear();
+            return false;
+        }
+        if (!complete) {
+            compact();
+        }
+        return true;
+    }
+
+    private boolean readRecords(final DataInputStream in) throws IOException {
+        try {
+            while (true) {
+                final int type = in.read();
+                if (type < 0) {
+                    return true;
+                }
+                final String login = readLogin(in);
+                if (type == RECORD_PUT) {
+                    entries.put(login, new Entry(in.readUnsignedShort(), in.readLong()));
+                } else if (type == RECORD_REMOVE) {
+                    entries.remove(login);
+                } else {
+                    throw new IOException("Неверный тип записи манифеста: " + type);
+                }
+                logRecords++;
+            }
+        } catch (final EOFException e) {
+            return false;
+        }
+    }
+
+    public synchronized void put(final String login, final int shard, final long size) {
+        final Entry previous = entries.put(login, new Entry(shard, size));
+        if (previous != null && previous.shard == shard && previous.size == size) {
+            return;
+        }
+        append(login, shard, size);
+    }
+
+    public synchronized void append(final String login, final int shard, final long size) {
+        append(out -> {
+            out.writeByte(RECORD_PUT);
+            writeLogin(out, login);
+            out.writeShort(shard);
+            out.writeLong(size);
+        });
+    }
+
+    public synchronized void remove(final String login) {
+        if (entries.remove(login) != null) {
+            append(out -> {
+                out.writeByte(RECORD_REMOVE);
+                writeLogin(out, login);
+            });
+        }
+    }
+
+    public synchronized boolean contains(final String login) {
+        return entries.containsKey(login);
+    }
+
+    public synchronized OptionalLong sizeOf(final String login) {
+        final Entry entry = entries.get(login);
+        return entry == null ? OptionalLong.empty() : OptionalLong.of(entry.size);
+    }
+
+    public synchronized List<String> logins() {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long totalBytes() {
+        long total = 0;
+        for (final Entry entry : entries.values()) {
+            total += entry.size;
+        }
+        return total;
+    }
+
+    public synchronized void compact() {
+        final Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            for (final Map.Entry<String, Entry> entry : entries.entrySet()) {
+                out.writeByte(RECORD_PUT);
+                writeLogin(out, entry.getKey());
+                out.writeShort(entry.getValue().shard);
+                out.writeLong(entry.getValue().size);
+            }
+        } catch (final IOException e) {
+            System.out.println("Ошибка при сжатии манифеста: " + e.getMessage());
+            return;
+        }
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logRecords = entries.size();
+        } catch (final IOException e) {
+            System.out.println("Ошибка при сжатии манифеста: " + e.getMessage());
+        }
+    }
+
+    public synchronized boolean needsCompaction() {
+        return logRecords > 1024 && logRecords > 2 * entries.size();
+    }
+
+    private void append(final RecordWriter writer) {
+        try {
+            final boolean exists = Files.exists(path);
+            try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path.toFile(), true)))) {
+                if (!exists) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                }
+                writer.write(out);
+            }
+            logRecords++;
+        } catch (final IOException e) {
+            System.out.println("Ошибка при записи манифеста: " + e.getMessage());
+        }
+    }
+
+    private static void writeLogin(final DataOutputStream out, final String login) throws IOException {
+        final byte[] bytes = login.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readLogin(final DataInputStream in) throws IOException {
+        final byte[] bytes = new byte[in.readUnsignedShort()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static final class Entry {
+        private final int shard;
+        private final long size;
+
+        private Entry(final int shard, final long size) {
+            this.shard = shard;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.myfinance.service;
+
+import com.myfinance.model.Wallet;
+import com.myfinance.model.WalletSummary;
+import com.myfinance.model.legacy.BaselineWalletFormat;
+import com.myfinance.service.codec.WalletCodec;
+import com.myfinance.service.codec.WalletCodecs;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+/**
+ * Wallet file format: magic, version, codec id and level, then (since version 2) an uncompressed length-prefixed
+ * {@link WalletSummary}, then the serialized wallet encoded with the codec. Files without the magic are plain
+ * serialized wallets written before the header existed.
+ */
+public final class WalletStorage {
+    public static final String WALLET_FILE_SUFFIX = "_wallet.dat";
+    private static final int HEADER_MAGIC = 0x5046575A;
+    private static final int HEADER_VERSION = 2;
+    private static final int UNSUMMARIZED_VERSION = 1;
+
+    private WalletStorage() {
+    }
+
+    public static Path walletPath(final String dataDirectory, final String login) {
+        return Paths.get(dataDirectory, login + WALLET_FILE_SUFFIX);
+    }
+
+    public static String loginOf(final Path walletPath) {
+        final String fileName = walletPath.getFileName().toString();
+        return fileName.substring(0, fileName.length() - WALLET_FILE_SUFFIX.length());
+    }
+
+    public static Wallet read(final Path walletPath) throws IOException, ClassNotFoundException {
+        try (final InputStream in = decode(new BufferedInputStream(new FileInputStream(walletPath.toFile())));
+             final ObjectInputStream ois = BaselineWalletFormat.open(in)) {
+            return BaselineWalletFormat.upgrade(ois.readObject(), Files.getLastModifiedTime(walletPath).toMillis());
+        }
+    }
+
+    /**
+     * Reads only the summary block at the start of the file. Empty for files written before the summary existed.
+     */
+    public static Optional<WalletSummary> readSummary(final Path walletPath) throws IOException {
+        try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(walletPath.toFile())))) {
+            if (in.readInt() != HEADER_MAGIC || in.readUnsignedByte() != HEADER_VERSION) {
+                return Optional.empty();
+            }
+            in.readUnsignedByte();
+            in.readByte();
+            in.readInt();
+            return Optional.of(WalletSummary.readFrom(in));
+        } catch (final EOFException e) {
+            return Optional.empty();
+        }
+    }
+
+    public static void write(final Path walletPath, final Wallet wallet) throws IOException {
+        write(walletPath, wallet, WalletCodecs.NONE);
+    }
+
+    /**
+     * Writes the wallet to a temporary file, syncs it and then moves it over the old file, so a crash leaves either
+     * the previous wallet or the new one. Mapped segments are synced before the wallet that names them, and segment
+     * files that only the previous wallet file named are deleted once the new one is in place.
+     */
+    public static void write(final Path walletPath, final Wallet wallet, final WalletCodec codec) throws IOException {
+        final Path temp = walletPath.resolveSibling(walletPath.getFileName() + ".tmp");
+        try {
+            writeFile(temp, wallet, codec);
+            try (final FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temp, walletPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            wallet.deleteObsoleteFiles();
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void writeFile(final Path path, final Wallet wallet, final WalletCodec codec) throws IOException {
+        final OutputStream file = new BufferedOutputStream(new FileOutputStream(path.toFile()));
+        try {
+            final DataOutputStream header = new DataOutputStream(file);
+            header.writeInt(HEADER_MAGIC);
+            header.writeByte(HEADER_VERSION);
+            header.writeByte(codec.getId());
+            header.writeByte(codec.getLevel());
+            final ByteArrayOutputStream summary = new ByteArrayOutputStream();
+            wallet.summarize().writeTo(new DataOutputStream(summary));
+            header.writeInt(summary.size());
+            summary.writeTo(header);
+        } catch (final IOException e) {
+            file.close();
+            throw e;
+        }
+        try (final ObjectOutputStream oos = new ObjectOutputStream(codec.encode(file))) {
+            oos.writeObject(wallet);
+        }
+    }
+
+    private static InputStream decode(final BufferedInputStream in) throws IOException {
+        try {
+            in.mark(Integer.BYTES);
+            final DataInputStream header = new DataInputStream(in);
+            if (header.readInt() != HEADER_MAGIC) {
+                in.reset();
+                return in;
+            }
+            final int version = header.readUnsignedByte();
+            if (version != HEADER_VERSION && version != UNSUMMARIZED_VERSION) {
+                throw new IOException("Неподдерживаемая версия файла кошелька: " + version);
+            }
+            final WalletCodec codec = WalletCodecs.forHeader(header.readUnsignedByte(), header.readByte());
+            if (version == HEADER_VERSION) {
+                header.readFully(new byte[header.readInt()]);
+            }
+            return codec.decode(in);
+        } catch (final IOException | IllegalArgumentException e) {
+            in.close();
+            throw e instanceof IOException ? (IOException) e : new IOException(e.getMessage(), e);
+        }
+    }
+}
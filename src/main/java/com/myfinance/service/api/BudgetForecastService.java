@@ -0,0 +1,8 @@
+package com.myfinance.service.api;
+
+import com.myfinance.model.BudgetForecast;
+import com.myfinance.model.Wallet;
+
+public interface BudgetForecastService {
+    BudgetForecast forecast(final Wallet wallet, final long now);
+}
@@ -0,0 +1,16 @@
+package com.myfinance.service.api;
+
+import com.myfinance.model.BudgetAlert;
+import com.myfinance.model.Category;
+import com.myfinance.model.Wallet;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface BudgetMonitor {
+    void attach(final Wallet wallet);
+    void detach();
+    void addAlertListener(final Consumer<BudgetAlert> listener);
+    List<Double> getThresholds();
+    long getSpent(final Category category);
+}
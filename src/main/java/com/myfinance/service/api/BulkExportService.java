@@ -0,0 +1,7 @@
+package com.myfinance.service.api;
+
+import com.myfinance.model.BulkExportReport;
+
+public interface BulkExportService {
+    BulkExportReport exportAll(final String dataDirectory, final String targetDirectory);
+}
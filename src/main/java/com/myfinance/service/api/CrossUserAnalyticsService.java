@@ -0,0 +1,7 @@
+package com.myfinance.service.api;
+
+import com.myfinance.model.AnalyticsReport;
+
+public interface CrossUserAnalyticsService {
+    AnalyticsReport analyze(final String dataDirectory);
+}
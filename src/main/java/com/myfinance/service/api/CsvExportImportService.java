@@ -4,5 +4,8 @@ import com.myfinance.model.Wallet;
 
 public interface CsvExportImportService {
     void exportToCsv(Wallet wallet, String login);
+    long exportDeltaCsv(Wallet wallet, String login, String consumer);
+    int compactDeltaExport(String login, String consumer);
     void importFromCsv(Wallet wallet, String login);
+    void importFromCsv(Wallet wallet, String login, ImportMode mode);
 }
@@ -3,6 +3,7 @@ package com.myfinance.service.api;
 import com.myfinance.model.Category;
 import com.myfinance.model.User;
 import com.myfinance.model.Wallet;
+import com.myfinance.model.WalletSummary;
 
 import java.util.Optional;
 
@@ -13,8 +14,13 @@ public interface FinanceManager {
     void logout();
     Optional<User> getCurrentUser();
     Optional<Wallet> getCurrentUserWallet();
-    boolean transfer(final String toLogin, final double amount, final String categoryName);
-    double getWalletBalance();
+    Optional<WalletSummary> getCurrentUserSummary();
+    boolean transfer(final String toLogin, final long amount, final String categoryName);
+    long getWalletBalance();
+    WalletEventStream getEvents();
+    boolean editTransaction(final long id, final long amount, final String categoryName);
+    boolean deleteTransaction(final long id);
+    int postDueRecurringTransactions();
     Optional<Category> getCategoryByName(String name);
 }
 
@@ -0,0 +1,6 @@
+package com.myfinance.service.api;
+
+public enum ImportMode {
+    REPLACE,
+    MERGE
+}
@@ -0,0 +1,7 @@
+package com.myfinance.service.api;
+
+public interface RecurringScheduler {
+    void start();
+    void stop();
+    int runOnce();
+}
@@ -1,11 +1,20 @@
 package com.myfinance.service.api;
 
+import com.myfinance.model.AnalyticsReport;
+import com.myfinance.model.BudgetForecast;
+import com.myfinance.model.BulkExportReport;
 import com.myfinance.model.Category;
 import com.myfinance.model.Wallet;
+import com.myfinance.model.WalletSummary;
 
 import java.util.List;
 
 public interface ReportGenerator {
     String generateFullReport(final Wallet wallet);
+    String generateFullReport(final WalletSummary summary);
     String generateReportByCategories(final Wallet wallet, final List<Category> categories);
+    String generateExpenseStatisticsReport(final Wallet wallet, final int topCount);
+    String generateAnalyticsReport(final AnalyticsReport analyticsReport);
+    String generateBulkExportReport(final BulkExportReport bulkExportReport);
+    String generateBudgetForecastReport(final BudgetForecast budgetForecast);
 }
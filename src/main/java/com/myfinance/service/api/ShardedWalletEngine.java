@@ -0,0 +1,20 @@
+package com.myfinance.service.api;
+
+import com.myfinance.model.Category;
+import com.myfinance.model.Transaction;
+import com.myfinance.model.Wallet;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+public interface ShardedWalletEngine extends AutoCloseable {
+    CompletableFuture<Boolean> addTransaction(final String login, final Transaction transaction);
+    CompletableFuture<Boolean> transfer(final String fromLogin, final String toLogin, final long amount, final Category category);
+    CompletableFuture<Optional<Wallet>> snapshot(final String login);
+    CompletableFuture<Integer> flush();
+    int getShardCount();
+    int shardOf(final String login);
+
+    @Override
+    void close();
+}
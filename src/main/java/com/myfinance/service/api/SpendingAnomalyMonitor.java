@@ -0,0 +1,15 @@
+package com.myfinance.service.api;
+
+import com.myfinance.model.Category;
+import com.myfinance.model.SpendingAnomalyAlert;
+import com.myfinance.model.Wallet;
+
+import java.util.function.Consumer;
+
+public interface SpendingAnomalyMonitor {
+    void attach(final Wallet wallet);
+    void detach();
+    void addAlertListener(final Consumer<SpendingAnomalyAlert> listener);
+    long getRecentSpent(final Category category);
+    long getDailyAverage(final Category category);
+}
@@ -0,0 +1,17 @@
+package com.myfinance.service.api;
+
+import com.myfinance.model.WalletEvent;
+import com.myfinance.model.WalletListener;
+
+import java.util.List;
+import java.util.concurrent.Flow;
+
+public interface WalletEventStream extends Flow.Publisher<List<WalletEvent>>, AutoCloseable {
+    boolean publish(final WalletEvent event);
+    WalletListener listenerFor(final String login);
+    long getDroppedCount();
+    int getSubscriberCount();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,67 @@
+package com.myfinance.service.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+public class DeflateWalletCodec implements WalletCodec {
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final int level;
+
+    public DeflateWalletCodec(final int level) {
+        if (level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Уровень сжатия Deflate должен быть от 1 до 9");
+        }
+        this.level = level;
+    }
+
+    @Override
+    public int getId() {
+        return WalletCodecs.DEFLATE_ID;
+    }
+
+    @Override
+    public int getLevel() {
+        return level;
+    }
+
+    @Override
+    public String getName() {
+        return level == Deflater.DEFAULT_COMPRESSION ? "deflate" : "deflate:" + level;
+    }
+
+    @Override
+    public OutputStream encode(final OutputStream out) {
+        final Deflater deflater = new Deflater(level);
+        return new DeflaterOutputStream(out, deflater, BUFFER_BYTES) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    deflater.end();
+                }
+            }
+        };
+    }
+
+    @Override
+    public InputStream decode(final InputStream in) {
+        final Inflater inflater = new Inflater();
+        return new InflaterInputStream(in, inflater, BUFFER_BYTES) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inflater.end();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,129 @@
+package com.myfinance.service.codec;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+final class LzBlock {
+    static final int BLOCK_BYTES = 1 << 16;
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5;
+    private static final int MATCH_SEARCH_LIMIT = 12;
+    private static final int MAX_OFFSET = 0xFFFF;
+    private static final int HASH_BITS = 14;
+    private static final int RUN_MASK = 15;
+
+    private final int[] table = new int[1 << HASH_BITS];
+
+    static int maxCompressedLength(final int length) {
+        return length + length / 255 + 16;
+    }
+
+    int compress(final byte[] src, final int length, final byte[] dst) {
+        Arrays.fill(table, -1);
+        int anchor = 0;
+        int position = 0;
+        int out = 0;
+        final int searchEnd = length - MATCH_SEARCH_LIMIT;
+        while (position < searchEnd) {
+            final int sequence = readInt(src, position);
+            final int hash = (sequence * -1640531535) >>> (Integer.SIZE - HASH_BITS);
+            final int candidate = table[hash];
+            table[hash] = position;
+            if (candidate >= 0 && position - candidate <= MAX_OFFSET && readInt(src, candidate) == sequence) {
+                final int maxMatch = length - LAST_LITERALS - position;
+                int matchLength = MIN_MATCH;
+                while (matchLength < maxMatch && src[candidate + matchLength] == src[position + matchLength]) {
+                    matchLength++;
+                }
+                out = writeSequence(src, anchor, position - anchor, position - candidate, matchLength, dst, out);
+                position += matchLength;
+                anchor = position;
+            } else {
+                position += 1 + ((position - anchor) >>> 6);
+            }
+        }
+        return writeSequence(src, anchor, length - anchor, 0, 0, dst, out);
+    }
+
+    static void decompress(final byte[] src, final int length, final byte[] dst, final int expectedLength) throws IOException {
+        try {
+            int position = 0;
+            int out = 0;
+            while (position < length) {
+                final int token = src[position++] & 0xFF;
+                int literals = token >>> 4;
+                if (literals == RUN_MASK) {
+                    int next;
+                    do {
+                        next = src[position++] & 0xFF;
+                        literals += next;
+                    } while (next == 255);
+                }
+                System.arraycopy(src, position, dst, out, literals);
+                position += literals;
+                out += literals;
+                if (position >= length) {
+                    break;
+                }
+                final int offset = (src[position] & 0xFF) | (src[position + 1] & 0xFF) << 8;
+                position += 2;
+                int matchLength = token & RUN_MASK;
+                if (matchLength == RUN_MASK) {
+                    int next;
+                    do {
+                        next = src[position++] & 0xFF;
+                        matchLength += next;
+                    } while (next == 255);
+                }
+                matchLength += MIN_MATCH;
+                int reference = out - offset;
+                if (offset == 0 || reference < 0) {
+                    throw new IOException("Поврежденный блок сжатого кошелька");
+                }
+                for (int i = 0; i < matchLength; i++) {
+                    dst[out++] = dst[reference++];
+                }
+            }
+            if (out != expectedLength) {
+                throw new IOException("Поврежденный блок сжатого кошелька");
+            }
+        } catch (final IndexOutOfBoundsException e) {
+            throw new IOException("Поврежденный блок сжатого кошелька", e);
+        }
+    }
+
+    private static int writeSequence(final byte[] src, final int anchor, final int literals, final int offset,
+                                     final int matchLength, final byte[] dst, int out) {
+        final int extraMatch = matchLength - MIN_MATCH;
+        final int tokenPosition = out++;
+        dst[tokenPosition] = (byte) (Math.min(literals, RUN_MASK) << 4 | (offset == 0 ? 0 : Math.min(extraMatch, RUN_MASK)));
+        if (literals >= RUN_MASK) {
+            out = writeLength(literals - RUN_MASK, dst, out);
+        }
+        System.arraycopy(src, anchor, dst, out, literals);
+        out += literals;
+        if (offset == 0) {
+            return out;
+        }
+        dst[out++] = (byte) offset;
+        dst[out++] = (byte) (offset >>> 8);
+        if (extraMatch >= RUN_MASK) {
+            out = writeLength(extraMatch - RUN_MASK, dst, out);
+        }
+        return out;
+    }
+
+    private static int writeLength(int length, final byte[] dst, int out) {
+        while (length >= 255) {
+            dst[out++] = (byte) 255;
+            length -= 255;
+        }
+        dst[out++] = (byte) length;
+        return out;
+    }
+
+    private static int readInt(final byte[] src, final int position) {
+        return (src[position] & 0xFF) | (src[position + 1] & 0xFF) << 8
+                | (src[position + 2] & 0xFF) << 16 | (src[position + 3] & 0xFF) << 24;
+    }
+}
@@ -0,0 +1,82 @@
+package com.myfinance.service.codec;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32C;
+
+class LzInputStream extends InputStream {
+    private final DataInputStream in;
+    private final CRC32C checksum = new CRC32C();
+    private final byte[] buffer = new byte[LzBlock.BLOCK_BYTES];
+    private final byte[] compressed = new byte[LzBlock.maxCompressedLength(LzBlock.BLOCK_BYTES)];
+    private int position;
+    private int limit;
+    private boolean finished;
+
+    LzInputStream(final InputStream in) {
+        this.in = new DataInputStream(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position == limit && !readBlock()) {
+            return -1;
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (position == limit && !readBlock()) {
+            return -1;
+        }
+        final int chunk = Math.min(length, limit - position);
+        System.arraycopy(buffer, position, bytes, offset, chunk);
+        position += chunk;
+        return chunk;
+    }
+
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private boolean readBlock() throws IOException {
+        if (finished) {
+            return false;
+        }
+        final int rawLength = in.readInt();
+        if (rawLength == 0) {
+            finished = true;
+            return false;
+        }
+        final int expectedChecksum = in.readInt();
+        final int storedLength = in.readInt();
+        if (rawLength < 0 || rawLength > buffer.length || storedLength <= 0 || storedLength > rawLength) {
+            throw new IOException("Поврежденный заголовок блока сжатого кошелька");
+        }
+        if (storedLength == rawLength) {
+            in.readFully(buffer, 0, rawLength);
+        } else {
+            in.readFully(compressed, 0, storedLength);
+            LzBlock.decompress(compressed, storedLength, buffer, rawLength);
+        }
+        checksum.reset();
+        checksum.update(buffer, 0, rawLength);
+        if ((int) checksum.getValue() != expectedChecksum) {
+            throw new IOException("Неверная контрольная сумма блока сжатого кошелька");
+        }
+        position = 0;
+        limit = rawLength;
+        return true;
+    }
+}
@@ -0,0 +1,79 @@
+package com.myfinance.service.codec;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32C;
+
+class LzOutputStream extends OutputStream {
+    private final DataOutputStream out;
+    private final LzBlock block = new LzBlock();
+    private final CRC32C checksum = new CRC32C();
+    private final byte[] buffer = new byte[LzBlock.BLOCK_BYTES];
+    private final byte[] compressed = new byte[LzBlock.maxCompressedLength(LzBlock.BLOCK_BYTES)];
+    private int position;
+    private boolean closed;
+
+    LzOutputStream(final OutputStream out) {
+        this.out = new DataOutputStream(out);
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        if (position == buffer.length) {
+            writeBlock();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    @Override
+    public void write(final byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (position == buffer.length) {
+                writeBlock();
+            }
+            final int chunk = Math.min(length, buffer.length - position);
+            System.arraycopy(bytes, offset, buffer, position, chunk);
+            position += chunk;
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (position > 0) {
+                writeBlock();
+            }
+            out.writeInt(0);
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        final int compressedLength = block.compress(buffer, position, compressed);
+        checksum.reset();
+        checksum.update(buffer, 0, position);
+        out.writeInt(position);
+        out.writeInt((int) checksum.getValue());
+        if (compressedLength < position) {
+            out.writeInt(compressedLength);
+            out.write(compressed, 0, compressedLength);
+        } else {
+            out.writeInt(position);
+            out.write(buffer, 0, position);
+        }
+        position = 0;
+    }
+}
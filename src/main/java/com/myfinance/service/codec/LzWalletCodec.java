@@ -0,0 +1,32 @@
+package com.myfinance.service.codec;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public class LzWalletCodec implements WalletCodec {
+
+    @Override
+    public int getId() {
+        return WalletCodecs.LZ_ID;
+    }
+
+    @Override
+    public int getLevel() {
+        return 0;
+    }
+
+    @Override
+    public String getName() {
+        return "lz";
+    }
+
+    @Override
+    public OutputStream encode(final OutputStream out) {
+        return new LzOutputStream(out);
+    }
+
+    @Override
+    public InputStream decode(final InputStream in) {
+        return new LzInputStream(in);
+    }
+}
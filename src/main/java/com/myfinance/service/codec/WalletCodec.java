@@ -0,0 +1,13 @@
+package com.myfinance.service.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public interface WalletCodec {
+    int getId();
+    int getLevel();
+    String getName();
+    OutputStream encode(final OutputStream out) throws IOException;
+    InputStream decode(final InputStream in) throws IOException;
+}
@@ -0,0 +1,81 @@
+package com.myfinance.service.codec;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.Deflater;
+
+public final class WalletCodecs {
+    public static final int NONE_ID = 0;
+    public static final int DEFLATE_ID = 1;
+    public static final int LZ_ID = 2;
+
+    public static final WalletCodec NONE = new WalletCodec() {
+        @Override
+        public int getId() {
+            return NONE_ID;
+        }
+
+        @Override
+        public int getLevel() {
+            return 0;
+        }
+
+        @Override
+        public String getName() {
+            return "none";
+        }
+
+        @Override
+        public OutputStream encode(final OutputStream out) {
+            return out;
+        }
+
+        @Override
+        public InputStream decode(final InputStream in) {
+            return in;
+        }
+    };
+    public static final WalletCodec LZ = new LzWalletCodec();
+
+    private WalletCodecs() {
+    }
+
+    public static WalletCodec deflate(final int level) {
+        return new DeflateWalletCodec(level);
+    }
+
+    public static WalletCodec forHeader(final int id, final int level) {
+        switch (id) {
+            case NONE_ID:
+                return NONE;
+            case DEFLATE_ID:
+                return deflate(level);
+            case LZ_ID:
+                return LZ;
+            default:
+                throw new IllegalArgumentException("Неизвестный формат сжатия кошелька: " + id);
+        }
+    }
+
+    public static WalletCodec parse(final String spec) {
+        final String normalized = spec.trim().toLowerCase(Locale.ROOT);
+        if (normalized.equals(NONE.getName())) {
+            return NONE;
+        }
+        if (normalized.equals(LZ.getName())) {
+            return LZ;
+        }
+        if (normalized.equals("deflate")) {
+            return deflate(Deflater.DEFAULT_COMPRESSION);
+        }
+        if (normalized.startsWith("deflate:")) {
+            try {
+                return deflate(Integer.parseInt(normalized.substring("deflate:".length())));
+            } catch (final NumberFormatException e) {
+                throw new IllegalArgumentException("Неверный уровень сжатия: " + spec);
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный формат сжатия: " + spec + " (none, deflate, deflate:1..9, lz)");
+    }
+}
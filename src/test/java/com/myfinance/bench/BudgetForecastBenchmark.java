@@ -0,0 +1,63 @@
+package com.myfinance.bench;
+
+import com.myfinance.model.*;
+import com.myfinance.service.BudgetForecastServiceImpl;
+
+import java.time.ZoneOffset;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class BudgetForecastBenchmark {
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final int CATEGORY_COUNT = 12;
+    private static final int ROUNDS = 5;
+
+    public static void main(final String[] args) {
+        final int paths = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        final int dailyExpenses = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        final long now = System.currentTimeMillis();
+        final Wallet wallet = new Wallet();
+        final Random random = new Random(7);
+        final Category[] categories = new Category[CATEGORY_COUNT];
+        for (int i = 0; i < CATEGORY_COUNT; i++) {
+            categories[i] = new Category("Category" + i);
+            wallet.setBudget(categories[i], 50_000_00);
+        }
+        for (int day = BudgetForecastServiceImpl.DEFAULT_HISTORY_DAYS; day >= 1; day--) {
+            for (int i = 0; i < dailyExpenses; i++) {
+                wallet.addTransaction(new Expense(1 + random.nextInt(5_000_00), categories[random.nextInt(CATEGORY_COUNT)],
+                        now - day * DAY + random.nextInt((int) DAY)));
+            }
+        }
+        final int cores = Runtime.getRuntime().availableProcessors();
+        for (int parallelism = 1; parallelism < cores; parallelism *= 2) {
+            run(parallelism, paths, wallet, now);
+        }
+        run(cores, paths, wallet, now);
+    }
+
+    private static void run(final int parallelism, final int paths, final Wallet wallet, final long now) {
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            run(pool, paths, wallet, now);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void run(final ForkJoinPool pool, final int paths, final Wallet wallet, final long now) {
+        final BudgetForecastServiceImpl service = new BudgetForecastServiceImpl(pool, paths,
+                BudgetForecastServiceImpl.DEFAULT_HISTORY_DAYS, ZoneOffset.UTC, 1);
+        service.forecast(wallet, now);
+        long best = Long.MAX_VALUE;
+        BudgetForecast forecast = null;
+        for (int round = 0; round < ROUNDS; round++) {
+            final long start = System.nanoTime();
+            forecast = service.forecast(wallet, now);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("threads=%d paths=%,d budgets=%d remaining days=%d best=%,d ms throughput=%,.0f paths/s%n",
+                pool.getParallelism(), paths, forecast.getRisks().size(), forecast.getRemainingDays(), best / 1_000_000,
+                paths * 1e9 / best);
+    }
+}
@@ -0,0 +1,74 @@
+package com.myfinance.bench;
+
+import com.myfinance.model.*;
+import com.myfinance.model.store.HeapTransactionStore;
+import com.myfinance.model.store.MappedTransactionStore;
+import com.myfinance.model.store.TransactionStore;
+import com.myfinance.service.ReportGeneratorImpl;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+public class MappedStorageBenchmark {
+
+    public static void main(final String[] args) throws IOException {
+        final int rows = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        final Path tempDir = Files.createTempDirectory("pfms_mapped_bench_");
+        try {
+            run("heap", new HeapTransactionStore(), rows);
+            run("mapped", new MappedTransactionStore(tempDir.resolve("segments")), rows);
+        } finally {
+            try (Stream<Path> walk = Files.walk(tempDir)) {
+                walk.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    private static void run(final String name, final TransactionStore store, final int rows) {
+        System.gc();
+        final long gcCountBefore = gcCount();
+        final long gcTimeBefore = gcTime();
+        final long start = System.nanoTime();
+
+        final Wallet wallet = new Wallet(store);
+        final Category[] categories = new Category[32];
+        for (int i = 0; i < categories.length; i++) {
+            categories[i] = new Category("Category" + i);
+        }
+        for (int i = 0; i < rows; i++) {
+            final Category category = categories[i & (categories.length - 1)];
+            wallet.addTransaction(i % 10 == 0 ? new Income(100_000, category) : new Expense(1 + i % 5_000, category));
+        }
+        final long loaded = System.nanoTime();
+        final ReportGeneratorImpl reportGenerator = new ReportGeneratorImpl();
+        for (int i = 0; i < 5; i++) {
+            reportGenerator.generateFullReport(wallet);
+        }
+        final long reported = System.nanoTime();
+
+        System.gc();
+        final long retainedHeap = usedHeap();
+        System.out.printf("%-7s rows=%,d load=%,d ms reports=%,d ms gc=%d collections / %,d ms retainedHeap=%,d KB balance=%s%n",
+                name, rows, (loaded - start) / 1_000_000, (reported - loaded) / 1_000_000,
+                gcCount() - gcCountBefore, gcTime() - gcTimeBefore, retainedHeap / 1024, Money.format(wallet.getBalance()));
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+    }
+
+    private static long gcTime() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+    }
+
+    private static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,115 @@
+package com.myfinance.bench;
+
+import com.myfinance.model.*;
+import com.myfinance.service.FinanceManagerImpl;
+import com.myfinance.service.ShardedWalletEngineImpl;
+import com.myfinance.service.codec.WalletCodecs;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+public class ShardedEngineBenchmark {
+    private static final Category TRANSFER = new Category("Перевод");
+    private static final int WINDOW = 256;
+
+    public static void main(final String[] args) throws Exception {
+        final int users = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        final int operations = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        final int clients = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        runLocked(users, operations, clients);
+        for (final int shards : new int[]{1, 2, 4, 8}) {
+            runSharded(users, operations, clients, shards);
+        }
+    }
+
+    private static void runLocked(final int users, final int operations, final int clients) throws InterruptedException {
+        final Map<String, Wallet> wallets = new HashMap<>();
+        for (int i = 0; i < users; i++) {
+            final Wallet wallet = new Wallet();
+            wallet.addTransaction(new Income(1_000_000, TRANSFER));
+            wallets.put("user" + i, wallet);
+        }
+        final long elapsed = runClients(clients, (random, count) -> {
+            for (int i = 0; i < count; i++) {
+                final String from = "user" + random.nextInt(users);
+                final String to = "user" + random.nextInt(users);
+                synchronized (wallets) {
+                    final Wallet source = wallets.get(from);
+                    if (!from.equals(to) && source.getBalance() >= 10) {
+                        source.addTransaction(new Expense(10, TRANSFER));
+                        wallets.get(to).addTransaction(new Income(10, TRANSFER));
+                    }
+                }
+            }
+        }, operations);
+        print("locked", 0, operations, clients, elapsed);
+    }
+
+    private static void runSharded(final int users, final int operations, final int clients, final int shards) throws Exception {
+        final Path dir = Files.createTempDirectory("pfms_sharded_bench_");
+        try {
+            final FinanceManagerImpl financeManager = new FinanceManagerImpl(dir.toString());
+            for (int i = 0; i < users; i++) {
+                financeManager.register("user" + i, "secret");
+            }
+            try (final ShardedWalletEngineImpl engine = new ShardedWalletEngineImpl(dir.toString(), shards,
+                    ShardedWalletEngineImpl.DEFAULT_QUEUE_CAPACITY, WalletCodecs.NONE)) {
+                for (int i = 0; i < users; i++) {
+                    engine.addTransaction("user" + i, new Income(1_000_000, TRANSFER)).join();
+                }
+                final long elapsed = runClients(clients, (random, count) -> {
+                    final List<CompletableFuture<Boolean>> window = new ArrayList<>(WINDOW);
+                    for (int i = 0; i < count; i++) {
+                        window.add(engine.transfer("user" + random.nextInt(users), "user" + random.nextInt(users), 10, TRANSFER));
+                        if (window.size() == WINDOW) {
+                            CompletableFuture.allOf(window.toArray(new CompletableFuture<?>[0])).join();
+                            window.clear();
+                        }
+                    }
+                    CompletableFuture.allOf(window.toArray(new CompletableFuture<?>[0])).join();
+                }, operations);
+                print("sharded", shards, operations, clients, elapsed);
+            }
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    private static long runClients(final int clients, final ClientLoop loop, final int operations) throws InterruptedException {
+        final Thread[] threads = new Thread[clients];
+        final long start = System.nanoTime();
+        for (int c = 0; c < clients; c++) {
+            final Random random = new Random(c);
+            final int count = operations / clients;
+            threads[c] = new Thread(() -> loop.run(random, count), "client-" + c);
+            threads[c].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void print(final String name, final int shards, final int operations, final int clients, final long elapsed) {
+        System.out.printf("%-8s shards=%d clients=%d ops=%,d elapsed=%,d ms throughput=%,.0f ops/s%n",
+                name, shards, clients, operations, elapsed / 1_000_000, operations * 1e9 / elapsed);
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    private static void deleteRecursively(final Path dir) throws IOException {
+        try (Stream<Path> walk = Files.walk(dir)) {
+            walk.sorted(Comparator.reverseOrder())
+                .map(Path::toFile)
+                .forEach(File::delete);
+        }
+    }
+
+    private interface ClientLoop {
+        void run(Random random, int count);
+    }
+}
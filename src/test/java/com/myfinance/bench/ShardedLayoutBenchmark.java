@@ -0,0 +1,79 @@
+package com.myfinance.bench;
+
+import com.myfinance.service.DataDirectoryLayout;
+import com.myfinance.service.WalletStorage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+public class ShardedLayoutBenchmark {
+    private static final int SAMPLES = 100_000;
+    private static final byte[] PAYLOAD = new byte[512];
+
+    public static void main(final String[] args) throws IOException {
+        final int users = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        final Path baseDir = args.length > 1 ? Files.createDirectories(Path.of(args[1])) : Files.createTempDirectory("pfms_layout_bench_");
+        try {
+            final Path flatDir = Files.createDirectories(baseDir.resolve("flat"));
+            final Function<String, Path> flatPath = login -> WalletStorage.walletPath(flatDir.toString(), login);
+            run("flat", users, flatPath, flatPath, flatDir);
+
+            final Path shardedDir = Files.createDirectories(baseDir.resolve("sharded"));
+            final DataDirectoryLayout layout = new DataDirectoryLayout(shardedDir.toString());
+            run("sharded", users, login -> {
+                try {
+                    return layout.prepareForWrite(login);
+                } catch (final IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }, layout::walletPath, shardedDir);
+        } finally {
+            try (Stream<Path> walk = Files.walk(baseDir)) {
+                walk.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    private static void run(final String name, final int users, final Function<String, Path> writePath,
+                            final Function<String, Path> readPath, final Path root) throws IOException {
+        final long createStart = System.nanoTime();
+        for (int i = 0; i < users; i++) {
+            Files.write(writePath.apply("user" + i), PAYLOAD);
+        }
+        final long createMillis = (System.nanoTime() - createStart) / 1_000_000;
+
+        final Random random = new Random(1);
+        final long[] latencies = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            final String login = random.nextInt(4) == 0 ? "missing" + i : "user" + random.nextInt(users);
+            final long start = System.nanoTime();
+            final Path path = readPath.apply(login);
+            if (Files.exists(path)) {
+                Files.readAllBytes(path);
+            }
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+
+        final long listStart = System.nanoTime();
+        long listed = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(root)) {
+            for (final Path ignored : stream) {
+                listed++;
+            }
+        }
+        final long listMillis = (System.nanoTime() - listStart) / 1_000_000;
+
+        System.out.printf("%-8s users=%,d create=%,d ms open p50=%,d us p99=%,d us p99.9=%,d us rootEntries=%,d list=%,d ms%n",
+                name, users, createMillis, latencies[SAMPLES / 2] / 1000, latencies[SAMPLES * 99 / 100] / 1000,
+                latencies[SAMPLES * 999 / 1000] / 1000, listed, listMillis);
+    }
+}
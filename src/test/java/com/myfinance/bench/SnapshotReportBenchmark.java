@@ -0,0 +1,78 @@
+package com.myfinance.bench;
+
+import com.myfinance.model.*;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SnapshotReportBenchmark {
+    private static final Category[] CATEGORIES = new Category[32];
+
+    public static void main(final String[] args) throws InterruptedException {
+        final int rows = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        final int writes = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        final int readers = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            CATEGORIES[i] = new Category("Category" + i);
+        }
+        run("live", rows, writes, readers, false);
+        run("snapshot", rows, writes, readers, true);
+    }
+
+    private static void run(final String name, final int rows, final int writes, final int readers, final boolean useSnapshot)
+            throws InterruptedException {
+        final Wallet wallet = new Wallet();
+        for (int i = 0; i < rows; i++) {
+            wallet.addTransaction(newTransaction(i));
+        }
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicLong reports = new AtomicLong();
+        final Thread[] readerThreads = new Thread[readers];
+        for (int r = 0; r < readers; r++) {
+            readerThreads[r] = new Thread(() -> {
+                final StringBuilder csv = new StringBuilder();
+                while (running.get()) {
+                    final Wallet source = useSnapshot ? wallet.snapshot() : wallet;
+                    source.forEachTransactionFrom(0, (id, type, amount, category, timestamp) -> {
+                        if (csv.length() > 1 << 16) {
+                            csv.setLength(0);
+                        }
+                        csv.append(id).append(';').append(type.name()).append(';');
+                        Money.appendTo(csv, amount);
+                        csv.append(';').append(category.getName()).append('\n');
+                    });
+                    reports.incrementAndGet();
+                }
+            }, "report-" + r);
+            readerThreads[r].start();
+        }
+
+        final long[] latencies = new long[writes];
+        final long start = System.nanoTime();
+        for (int i = 0; i < writes; i++) {
+            final long before = System.nanoTime();
+            wallet.addTransaction(newTransaction(rows + i));
+            latencies[i] = System.nanoTime() - before;
+        }
+        final long elapsed = System.nanoTime() - start;
+        running.set(false);
+        for (final Thread reader : readerThreads) {
+            reader.join();
+        }
+
+        Arrays.sort(latencies);
+        System.out.printf("%-8s rows=%,d writes=%,d readers=%d elapsed=%,d ms reports=%d write p50=%,d ns p99=%,d ns p99.9=%,d ns max=%,d us%n",
+                name, rows, writes, readers, elapsed / 1_000_000, reports.get(), percentile(latencies, 0.5),
+                percentile(latencies, 0.99), percentile(latencies, 0.999), latencies[latencies.length - 1] / 1_000);
+    }
+
+    private static Transaction newTransaction(final int i) {
+        final Category category = CATEGORIES[i & (CATEGORIES.length - 1)];
+        return i % 10 == 0 ? new Income(100_000, category) : new Expense(1 + i % 5_000, category);
+    }
+
+    private static long percentile(final long[] sorted, final double q) {
+        return sorted[Math.min(sorted.length - 1, (int) (q * sorted.length))];
+    }
+}
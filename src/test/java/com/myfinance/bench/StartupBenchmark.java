@@ -0,0 +1,114 @@
+package com.myfinance.bench;
+
+import com.myfinance.model.User;
+import com.myfinance.service.DataDirectoryLayout;
+import com.myfinance.service.FinanceManagerImpl;
+import com.myfinance.service.UserDirectory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+public class StartupBenchmark {
+    private static final int RUNS = 5;
+
+    public static void main(final String[] args) throws Exception {
+        final int[] userCounts = args.length > 0
+                ? Arrays.stream(args[0].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[]{1_000, 10_000, 100_000, 1_000_000};
+        final Path baseDir = args.length > 1 ? Files.createDirectories(Path.of(args[1])) : Files.createTempDirectory("pfms_startup_bench_");
+        try {
+            for (final int users : userCounts) {
+                run(baseDir.resolve("users-" + users), users);
+            }
+        } finally {
+            delete(baseDir);
+        }
+    }
+
+    private static void run(final Path dataDir, final int users) throws Exception {
+        Files.createDirectories(dataDir);
+        final Map<String, User> legacyUsers = new HashMap<>();
+        final long populateStart = System.nanoTime();
+        final UserDirectory directory = new UserDirectory(new DataDirectoryLayout(dataDir.toString()));
+        for (int i = 0; i < users; i++) {
+            final User user = new User("user" + i, "password" + i);
+            directory.create(user);
+            legacyUsers.put(user.getLogin(), user);
+        }
+        directory.close();
+        final long populateMillis = (System.nanoTime() - populateStart) / 1_000_000;
+
+        final Path legacyFile = dataDir.resolveSibling(dataDir.getFileName() + "-legacy-users.dat");
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(legacyFile)))) {
+            out.writeObject(legacyUsers);
+        }
+        legacyUsers.clear();
+
+        final long[] legacy = new long[RUNS];
+        final long[] constructor = new long[RUNS];
+        final long[] firstLogin = new long[RUNS];
+        final long[] missingLogin = new long[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(legacyFile)))) {
+                if (((Map<?, ?>) in.readObject()).size() != users) {
+                    throw new IllegalStateException("Неверное число пользователей");
+                }
+            }
+            legacy[run] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            final FinanceManagerImpl manager = new FinanceManagerImpl(dataDir.toString());
+            constructor[run] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            if (!manager.login("user" + (users / 2), "password" + (users / 2))) {
+                throw new IllegalStateException("Пользователь не найден");
+            }
+            firstLogin[run] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int found = 0;
+            for (int i = 0; i < 1000; i++) {
+                if (manager.login("missing" + i, "password")) {
+                    found++;
+                }
+            }
+            missingLogin[run] = (System.nanoTime() - start) / 1000;
+            if (found > 0) {
+                throw new IllegalStateException("Найден несуществующий пользователь");
+            }
+        }
+        Files.delete(legacyFile);
+
+        System.out.printf("users=%,d populate=%,d ms legacyLoad=%,d us constructor=%,d us firstLogin=%,d us missingLogin=%,d ns%n",
+                users, populateMillis, median(legacy) / 1000, median(constructor) / 1000, median(firstLogin) / 1000, median(missingLogin));
+        delete(dataDir);
+    }
+
+    private static long median(final long[] samples) {
+        final long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static void delete(final Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(path)) {
+            walk.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
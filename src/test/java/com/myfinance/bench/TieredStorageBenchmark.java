@@ -0,0 +1,79 @@
+package com.myfinance.bench;
+
+import com.myfinance.model.*;
+import com.myfinance.model.store.HeapTransactionStore;
+import com.myfinance.model.store.TieredTransactionStore;
+import com.myfinance.model.store.TransactionStore;
+import com.myfinance.service.WalletStorage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+public class TieredStorageBenchmark {
+    private static final long START = 1_600_000_000_000L;
+    private static final long MINUTE = 60_000L;
+
+    public static void main(final String[] args) throws Exception {
+        final int rows = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        final Path tempDir = Files.createTempDirectory("pfms_tiered_bench_");
+        try {
+            Files.createDirectories(tempDir.resolve("heap"));
+            run("heap", new HeapTransactionStore(), tempDir.resolve("heap/user.wallet"), rows);
+            run("tiered", new TieredTransactionStore(tempDir.resolve("tiered/user.cold")), tempDir.resolve("tiered/user.wallet"), rows);
+        } finally {
+            try (Stream<Path> walk = Files.walk(tempDir)) {
+                walk.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    private static void run(final String name, final TransactionStore store, final Path walletPath, final int rows) throws Exception {
+        final Category[] categories = new Category[32];
+        for (int i = 0; i < categories.length; i++) {
+            categories[i] = new Category("Category" + i);
+        }
+        final Wallet wallet = new Wallet(store);
+        for (int i = 0; i < rows; i++) {
+            final Category category = categories[i & (categories.length - 1)];
+            final long timestamp = START + i * MINUTE;
+            wallet.addTransaction(i % 10 == 0 ? new Income(100_000, category, timestamp) : new Expense(1 + i % 5_000, category, timestamp));
+        }
+        WalletStorage.write(walletPath, wallet);
+        final long onDisk = directorySize(walletPath.getParent());
+
+        System.gc();
+        final long heapBefore = usedHeap();
+        final long loadStart = System.nanoTime();
+        final Wallet loaded = WalletStorage.read(walletPath);
+        final long loadTime = System.nanoTime() - loadStart;
+        System.gc();
+        final long retainedHeap = usedHeap() - heapBefore;
+
+        final long end = START + rows * MINUTE;
+        final long recentStart = System.nanoTime();
+        final long recent = loaded.query().ofType(TransactionType.EXPENSE).between(end - 7 * 24 * 60 * MINUTE, end).sum();
+        final long recentTime = System.nanoTime() - recentStart;
+        final long historyStart = System.nanoTime();
+        final int groups = loaded.query().ofType(TransactionType.EXPENSE).between(START, end - 24 * 60 * MINUTE).groupByCategory().size();
+        final long historyTime = System.nanoTime() - historyStart;
+
+        System.out.printf("%-6s rows=%,d disk=%,d KB load=%,d ms retainedHeap=%,d KB lastWeek=%,d us (%s) history=%,d us (%d categories)%n",
+                name, rows, onDisk / 1024, loadTime / 1_000_000, retainedHeap / 1024, recentTime / 1_000, Money.format(recent),
+                historyTime / 1_000, groups);
+    }
+
+    private static long directorySize(final Path directory) throws IOException {
+        try (Stream<Path> walk = Files.walk(directory)) {
+            return walk.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+        }
+    }
+
+    private static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
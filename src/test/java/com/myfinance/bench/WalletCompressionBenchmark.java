@@ -0,0 +1,87 @@
+package com.myfinance.bench;
+
+import com.myfinance.model.*;
+import com.myfinance.service.WalletStorage;
+import com.myfinance.service.codec.WalletCodec;
+import com.myfinance.service.codec.WalletCodecs;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Random;
+
+public class WalletCompressionBenchmark {
+    private static final int RUNS = 7;
+    private static final String[] CATEGORIES = {
+            "Еда/Продукты", "Еда/Рестораны", "Еда/Кофе", "Транспорт/Метро", "Транспорт/Такси", "Транспорт/Топливо",
+            "Дом/Аренда", "Дом/Коммунальные", "Дом/Интернет", "Здоровье/Аптека", "Здоровье/Врачи", "Развлечения/Кино",
+            "Развлечения/Подписки", "Одежда", "Подарки", "Образование", "Путешествия/Билеты", "Путешествия/Отели"};
+
+    public static void main(final String[] args) throws Exception {
+        final int[] sizes = args.length > 0
+                ? Arrays.stream(args[0].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[]{1_000, 10_000, 100_000};
+        final WalletCodec[] codecs = {WalletCodecs.NONE, WalletCodecs.LZ, WalletCodecs.deflate(1), WalletCodecs.deflate(6), WalletCodecs.deflate(9)};
+        final Path file = Files.createTempFile("pfms_compression_bench_", ".wallet");
+        try {
+            for (final int size : sizes) {
+                final Wallet wallet = realisticWallet(size);
+                long rawBytes = 0;
+                for (final WalletCodec codec : codecs) {
+                    final long[] save = new long[RUNS];
+                    final long[] load = new long[RUNS];
+                    for (int run = 0; run < RUNS; run++) {
+                        long start = System.nanoTime();
+                        WalletStorage.write(file, wallet, codec);
+                        save[run] = System.nanoTime() - start;
+                        start = System.nanoTime();
+                        if (WalletStorage.read(file).getTransactionCount() != size) {
+                            throw new IllegalStateException("Кошелек прочитан неверно");
+                        }
+                        load[run] = System.nanoTime() - start;
+                    }
+                    final long bytes = Files.size(file);
+                    if (codec == WalletCodecs.NONE) {
+                        rawBytes = bytes;
+                    }
+                    System.out.printf("transactions=%,d codec=%-9s size=%,d bytes ratio=%.2f save=%,d us load=%,d us%n",
+                            size, codec.getName(), bytes, (double) rawBytes / bytes, median(save) / 1000, median(load) / 1000);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static Wallet realisticWallet(final int size) {
+        final Random random = new Random(size);
+        final Wallet wallet = new Wallet();
+        final Category[] categories = new Category[CATEGORIES.length];
+        for (int i = 0; i < categories.length; i++) {
+            categories[i] = new Category(CATEGORIES[i]);
+            wallet.setBudget(categories[i], 10_000_00L + random.nextInt(50_000_00));
+        }
+        final Category salary = new Category("Зарплата");
+        long timestamp = 1_600_000_000_000L;
+        for (int i = 0; i < size; i++) {
+            timestamp += random.nextInt(6 * 60 * 60 * 1000);
+            if (i % 25 == 0) {
+                wallet.addTransaction(new Income(150_000_00L + random.nextInt(20_000_00), salary, timestamp));
+            } else {
+                final int category = (int) Math.min(categories.length - 1, Math.abs(random.nextGaussian()) * 5);
+                final long amount = (long) Math.exp(4 + random.nextGaussian() * 1.5) * 100;
+                wallet.addTransaction(new Expense(amount, categories[category], timestamp));
+            }
+        }
+        wallet.addRecurringRule(TransactionType.EXPENSE, 45_000_00, categories[6], new CronSchedule("0 9 1 * *"), timestamp, ZoneOffset.UTC);
+        return wallet;
+    }
+
+    private static long median(final long[] samples) {
+        final long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,46 @@
+package com.myfinance.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CronScheduleTest {
+
+    private static final ZoneId UTC = ZoneOffset.UTC;
+
+    @Test
+    void testNextOccurrences() {
+        assertEquals(at(2024, 2, 1, 9, 0), new CronSchedule("0 9 1 * *").next(at(2024, 1, 1, 9, 0), UTC));
+        assertEquals(at(2024, 1, 1, 9, 0), new CronSchedule("0 9 1 * *").next(at(2024, 1, 1, 8, 59), UTC));
+        assertEquals(at(2024, 1, 1, 0, 15), new CronSchedule("*/15 * * * *").next(at(2024, 1, 1, 0, 0), UTC));
+        assertEquals(at(2024, 1, 7, 0, 0), new CronSchedule("@weekly").next(at(2024, 1, 1, 0, 0), UTC));
+        assertEquals(at(2024, 1, 2, 18, 30), new CronSchedule("30 18 * * 1-5").next(at(2024, 1, 1, 19, 0), UTC));
+        assertEquals(at(2024, 2, 29, 0, 0), new CronSchedule("0 0 29 2 *").next(at(2023, 3, 1, 0, 0), UTC));
+        assertEquals(CronSchedule.NEVER, new CronSchedule("0 0 31 2 *").next(at(2024, 1, 1, 0, 0), UTC));
+    }
+
+    @Test
+    void testDayOfMonthOrDayOfWeek() {
+        final CronSchedule schedule = new CronSchedule("0 12 15 * 0");
+        assertEquals(at(2024, 1, 7, 12, 0), schedule.next(at(2024, 1, 1, 0, 0), UTC));
+        assertEquals(at(2024, 1, 14, 12, 0), schedule.next(at(2024, 1, 7, 12, 0), UTC));
+        assertEquals(at(2024, 1, 15, 12, 0), schedule.next(at(2024, 1, 14, 12, 0), UTC));
+    }
+
+    @Test
+    void testInvalidExpressions() {
+        assertThrows(IllegalArgumentException.class, () -> new CronSchedule("0 9 1 *"));
+        assertThrows(IllegalArgumentException.class, () -> new CronSchedule("60 9 1 * *"));
+        assertThrows(IllegalArgumentException.class, () -> new CronSchedule("0 9 0 * *"));
+        assertThrows(IllegalArgumentException.class, () -> new CronSchedule("a 9 1 * *"));
+        assertThrows(IllegalArgumentException.class, () -> new CronSchedule("0 5-2 1 * *"));
+    }
+
+    private static long at(final int year, final int month, final int day, final int hour, final int minute) {
+        return LocalDateTime.of(year, month, day, hour, minute).toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
@@ -0,0 +1,57 @@
+package com.myfinance.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void testParse() {
+        assertEquals(12345, Money.parse("123.45"));
+        assertEquals(12340, Money.parse("123.4"));
+        assertEquals(12300, Money.parse("123"));
+        assertEquals(12300, Money.parse("123."));
+        assertEquals(5, Money.parse(".05"));
+        assertEquals(-150, Money.parse("-1.50"));
+        assertEquals(150, Money.parse("+1.5"));
+        assertEquals(0, Money.parse("0.00"));
+    }
+
+    @Test
+    void testParseLegacyDoubleFormats() {
+        assertEquals(1_000_000_000, Money.parse("1.0E7"));
+        assertEquals(12346, Money.parse("123.455"));
+        assertEquals(10, Money.parse("0.1"));
+    }
+
+    @Test
+    void testParseRejectsInvalidInput() {
+        assertThrows(NumberFormatException.class, () -> Money.parse(""));
+        assertThrows(NumberFormatException.class, () -> Money.parse("-"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("."));
+        assertThrows(NumberFormatException.class, () -> Money.parse("abc"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("1.2.3"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("1 000"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("99999999999999999999"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("1E30"));
+    }
+
+    @Test
+    void testFormat() {
+        assertEquals("123.45", Money.format(12345));
+        assertEquals("0.05", Money.format(5));
+        assertEquals("0.00", Money.format(0));
+        assertEquals("-1.50", Money.format(-150));
+        assertEquals("-0.01", Money.format(-1));
+        assertEquals("-92233720368547758.08", Money.format(Long.MIN_VALUE));
+    }
+
+    @Test
+    void testRoundTrip() {
+        for (long amount = -100_000; amount <= 100_000; amount += 7) {
+            assertEquals(amount, Money.parse(Money.format(amount)));
+        }
+        assertEquals(Long.MAX_VALUE, Money.parse(Money.format(Long.MAX_VALUE)));
+    }
+}
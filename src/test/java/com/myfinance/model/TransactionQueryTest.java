@@ -0,0 +1,155 @@
+package com.myfinance.model;
+
+import com.myfinance.model.store.MappedTransactionStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionQueryTest {
+    private static final Category FOOD = new Category("Еда");
+    private static final Category GROCERIES = new Category("Еда/Продукты");
+    private static final Category CAFE = new Category("Еда/Кафе");
+    private static final Category TAXI = new Category("Такси");
+    private static final Category[] CATEGORIES = {GROCERIES, CAFE, TAXI, new Category("Зарплата")};
+
+    private Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("pfms_query_test_");
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> walk = Files.walk(tempDir)) {
+            walk.sorted(Comparator.reverseOrder())
+                .map(Path::toFile)
+                .forEach(File::delete);
+        }
+    }
+
+    @Test
+    void testMatchesBruteForceOnHeapAndMappedStores() {
+        for (final Wallet wallet : new Wallet[]{new Wallet(), new Wallet(new MappedTransactionStore(tempDir.resolve("segments"), 1 << 10))}) {
+            final Random random = new Random(11);
+            long timestamp = 1_700_000_000_000L;
+            for (int i = 0; i < 5_000; i++) {
+                timestamp += random.nextInt(3_600_000);
+                final Category category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+                final TransactionType type = category == CATEGORIES[3] ? TransactionType.INCOME : TransactionType.EXPENSE;
+                wallet.addTransaction(Transaction.of(type, 1 + random.nextInt(10_000), category, timestamp));
+            }
+            for (long id = 0; id < 5_000; id += 7) {
+                wallet.deleteTransaction(id);
+            }
+            final List<Transaction> live = wallet.getTransactions();
+            final long from = live.get(1_000).getTimestamp();
+            final long to = live.get(3_000).getTimestamp();
+
+            final TransactionQuery query = wallet.query().ofType(TransactionType.EXPENSE).inCategory(FOOD)
+                    .amountBetween(100, 5_000).between(from, to);
+            final long[] expected = live.stream()
+                    .filter(t -> t.getType() == TransactionType.EXPENSE && t.getCategory().isWithin(FOOD))
+                    .filter(t -> t.getAmount() >= 100 && t.getAmount() <= 5_000)
+                    .filter(t -> t.getTimestamp() >= from && t.getTimestamp() < to)
+                    .mapToLong(Transaction::getAmount).toArray();
+            final QueryAggregate aggregate = query.aggregate();
+            assertEquals(QueryPlan.TIME_RANGE_SCAN, query.getLastPlan());
+            assertEquals(expected.length, aggregate.getCount());
+            assertEquals(Arrays.stream(expected).sum(), aggregate.getSum());
+            assertEquals(Arrays.stream(expected).min().getAsLong(), aggregate.getMin().getAsLong());
+            assertEquals(Arrays.stream(expected).max().getAsLong(), aggregate.getMax().getAsLong());
+            assertEquals(expected.length, query.list().size());
+            assertEquals(expected.length, query.ids().length);
+
+            final Map<Category, QueryAggregate> byCategory = wallet.query().inCategory(FOOD).groupByCategory();
+            assertEquals(2, byCategory.size());
+            assertEquals(wallet.getCategoryTotal(GROCERIES, TransactionType.EXPENSE), byCategory.get(GROCERIES).getSum());
+        }
+    }
+
+    @Test
+    void testPlannerUsesIndexes() {
+        final Wallet wallet = new Wallet();
+        wallet.addTransaction(new Expense(300, GROCERIES, 1_000));
+        wallet.addTransaction(new Expense(200, CAFE, 2_000));
+        wallet.addTransaction(new Expense(50, TAXI, 3_000));
+        wallet.addTransaction(new Income(1_000, CATEGORIES[3], 4_000));
+
+        final TransactionQuery food = wallet.query().inCategories(List.of(FOOD, CAFE)).ofType(TransactionType.EXPENSE);
+        assertEquals(500, food.sum());
+        assertEquals(QueryPlan.CATEGORY_TOTALS, food.getLastPlan());
+        final TransactionQuery all = wallet.query();
+        assertEquals(4, all.count());
+        assertEquals(QueryPlan.CATEGORY_TOTALS, all.getLastPlan());
+
+        final TransactionQuery missing = wallet.query().inCategory(new Category("Путешествия"));
+        assertEquals(0, missing.aggregate().getCount());
+        assertEquals(QueryPlan.EMPTY, missing.getLastPlan());
+
+        final TransactionQuery window = wallet.query().between(2_000, 4_000);
+        assertEquals(250, window.sum());
+        assertEquals(QueryPlan.TIME_RANGE_SCAN, window.getLastPlan());
+
+        wallet.addTransaction(new Expense(70, TAXI, 2_500));
+        final TransactionQuery unordered = wallet.query().between(2_000, 4_000);
+        assertEquals(320, unordered.sum());
+        assertEquals(QueryPlan.FULL_SCAN, unordered.getLastPlan());
+        assertEquals(1_000, wallet.query().ofType(TransactionType.INCOME).max().getAsLong());
+        assertTrue(wallet.query().amountBetween(5_000, 6_000).min().isEmpty());
+    }
+
+    @Test
+    void testBitmapIndexMatchesScanAfterEdits() {
+        final Wallet wallet = new Wallet();
+        final Random random = new Random(23);
+        for (int i = 0; i < 20_000; i++) {
+            final Category category = i % 50 == 0 ? TAXI : CATEGORIES[random.nextInt(2)];
+            wallet.addTransaction(new Expense(1 + random.nextInt(1_000), category, i));
+        }
+        final TransactionQuery food = wallet.query().inCategory(FOOD).amountBetween(100, 1_000);
+        food.sum();
+        wallet.query().ofType(TransactionType.EXPENSE).sum();
+        assertEquals(QueryPlan.FULL_SCAN, food.getLastPlan());
+        assertFalse(wallet.hasPositionIndex());
+
+        final TransactionQuery taxi = wallet.query().inCategory(TAXI).amountBetween(100, 1_000);
+        final long before = taxi.sum();
+        assertEquals(QueryPlan.BITMAP_INDEX, taxi.getLastPlan());
+        assertTrue(wallet.hasPositionIndex());
+
+        final Wallet snapshot = wallet.snapshot();
+        for (long id = 0; id < 20_000; id += 100) {
+            wallet.deleteTransaction(id);
+        }
+        final long moved = wallet.addTransaction(new Expense(500, GROCERIES, 20_000));
+        wallet.editTransaction(moved, new Expense(500, TAXI, 20_000));
+        wallet.addTransaction(new Expense(700, TAXI, 20_001));
+
+        final long expected = wallet.getTransactions().stream()
+                .filter(t -> t.getCategory().equals(TAXI) && t.getAmount() >= 100)
+                .mapToLong(Transaction::getAmount).sum();
+        assertEquals(expected, taxi.sum());
+        assertEquals(QueryPlan.BITMAP_INDEX, taxi.getLastPlan());
+        assertEquals(before, snapshot.query().inCategory(TAXI).amountBetween(100, 1_000).sum());
+        assertEquals(wallet.getTransactions().stream().filter(t -> t.getCategory().equals(TAXI)).count(),
+                wallet.query().inCategory(TAXI).list().size());
+
+        food.sum();
+        assertEquals(QueryPlan.FULL_SCAN, food.getLastPlan());
+    }
+}
@@ -0,0 +1,195 @@
+package com.myfinance.model;
+
+import com.myfinance.model.store.HeapTransactionStore;
+import com.myfinance.model.store.MappedTransactionStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WalletSnapshotTest {
+    private static final Category FOOD = new Category("Еда");
+    private static final Category SALARY = new Category("Зарплата");
+
+    private Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("pfms_snapshot_test_");
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> walk = Files.walk(tempDir)) {
+            walk.sorted(Comparator.reverseOrder())
+                .map(Path::toFile)
+                .forEach(File::delete);
+        }
+    }
+
+    @Test
+    void testSnapshotIsUnaffectedByLaterWrites() {
+        for (final Wallet wallet : new Wallet[]{new Wallet(), new Wallet(new MappedTransactionStore(tempDir.resolve("segments"), 1 << 10))}) {
+            final int count = 3 * HeapTransactionStore.CHUNK_SIZE + 17;
+            for (int i = 0; i < count; i++) {
+                wallet.addTransaction(i % 4 == 0 ? new Income(1_000, SALARY, i) : new Expense(1 + i % 100, FOOD, i));
+            }
+            wallet.setBudget(FOOD, 50_000);
+            wallet.deleteTransaction(3);
+
+            final Wallet snapshot = wallet.snapshot();
+            final List<String> before = describe(snapshot.getTransactions());
+            final long balance = snapshot.getBalance();
+            final long foodTotal = snapshot.getCategoryTotal(FOOD, TransactionType.EXPENSE);
+            final long foodCount = snapshot.getExpenseStatistics().get(FOOD).getCount();
+
+            wallet.addTransaction(new Expense(777, FOOD, count));
+            wallet.editTransaction(1, new Expense(5_000, FOOD, 1));
+            wallet.deleteTransaction(HeapTransactionStore.CHUNK_SIZE + 1);
+            for (long id = 10; id < 2_000; id += 2) {
+                wallet.deleteTransaction(id);
+            }
+            wallet.compactTombstones();
+            wallet.setBudget(FOOD, 1);
+
+            assertEquals(before, describe(snapshot.getTransactions()));
+            assertEquals(count - 1, snapshot.getTransactionCount());
+            assertEquals(balance, snapshot.getBalance());
+            assertEquals(foodTotal, snapshot.getCategoryTotal(FOOD, TransactionType.EXPENSE));
+            assertEquals(foodCount, snapshot.getExpenseStatistics().get(FOOD).getCount());
+            assertEquals(50_000L, snapshot.getBudgets().get(FOOD));
+            assertEquals(3L, snapshot.getTransaction(2).map(Transaction::getAmount).orElse(-1L));
+            assertEquals(foodTotal, snapshot.query().ofType(TransactionType.EXPENSE).inCategory(FOOD).sum());
+
+            final long[] nextId = {-1};
+            snapshot.forEachTransactionFrom(count - 5, (id, type, amount, category, timestamp) -> nextId[0] = id + 1);
+            assertEquals(snapshot.getNextId(), nextId[0]);
+
+            wallet.clearTransactions();
+            assertEquals(before, describe(snapshot.getTransactions()));
+        }
+    }
+
+    @Test
+    void testSnapshotKeepsItsIdsWhenTheWalletIsClearedAndRefilled() {
+        final Wallet wallet = new Wallet();
+        for (int i = 0; i < 5; i++) {
+            wallet.addTransaction(new Expense(i + 1, FOOD, i));
+        }
+        final Wallet snapshot = wallet.snapshot();
+        wallet.clearTransactions();
+        for (int i = 0; i < 5; i++) {
+            wallet.addTransaction(new Expense(100 + i, FOOD, i));
+        }
+
+        final List<Long> ids = new ArrayList<>();
+        snapshot.forEachTransactionFrom(0, (id, type, amount, category, timestamp) -> ids.add(id));
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L), ids);
+        assertEquals(1L, snapshot.getTransaction(0).map(Transaction::getAmount).orElse(-1L));
+        assertEquals(100L, wallet.getTransaction(5).map(Transaction::getAmount).orElse(-1L));
+        assertTrue(wallet.getTransaction(0).isEmpty());
+    }
+
+    @Test
+    void testSnapshotIsReadOnly() {
+        final Wallet wallet = new Wallet();
+        final long id = wallet.addTransaction(new Income(100, SALARY));
+        final Wallet snapshot = wallet.snapshot();
+        assertSame(snapshot, snapshot.snapshot());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.addTransaction(new Income(1, SALARY)));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.editTransaction(id, new Income(1, SALARY)));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.deleteTransaction(id));
+        assertThrows(UnsupportedOperationException.class, snapshot::clearTransactions);
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.setBudget(FOOD, 1));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getBudgets().put(FOOD, 1L));
+        assertEquals(100, wallet.getBalance());
+    }
+
+    @Test
+    void testBudgetsAreReturnedAsReadOnlyCopy() {
+        final Wallet wallet = new Wallet();
+        wallet.setBudget(FOOD, 500);
+        final Map<Category, Long> budgets = wallet.getBudgets();
+        assertThrows(UnsupportedOperationException.class, () -> budgets.put(FOOD, 1L));
+        wallet.setBudget(SALARY, 700);
+        wallet.clearBudgets();
+        assertEquals(500L, budgets.get(FOOD));
+        assertEquals(1, budgets.size());
+        assertNull(wallet.getBudget(FOOD));
+    }
+
+    @Test
+    void testPostingRecurringRulesDoesNotAdvanceSnapshot() {
+        final Wallet wallet = new Wallet();
+        wallet.addRecurringRule(TransactionType.EXPENSE, 50, FOOD, new CronSchedule("*/15 * * * *"), 0, ZoneOffset.UTC);
+        final long firstDue = wallet.getNextRecurringDue();
+        final Wallet snapshot = wallet.snapshot();
+
+        assertEquals(4, wallet.postDueRecurring(firstDue + Duration.ofMinutes(45).toMillis()));
+        assertEquals(firstDue, snapshot.getNextRecurringDue());
+        assertEquals(firstDue, snapshot.getRecurringRules().get(0).getNextDue());
+        assertEquals(firstDue + Duration.ofHours(1).toMillis(), wallet.getNextRecurringDue());
+    }
+
+    @Test
+    void testWritersProceedWhileSnapshotIsScanned() throws InterruptedException {
+        final Wallet wallet = new Wallet();
+        for (int i = 0; i < 10_000; i++) {
+            wallet.addTransaction(new Expense(1, FOOD));
+        }
+        final CountDownLatch scanning = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Wallet snapshot = wallet.snapshot();
+        final long[] scanned = {0};
+        final Thread reader = new Thread(() -> snapshot.forEachTransactionFrom(0, (id, type, amount, category, timestamp) -> {
+            if (scanned[0]++ == 0) {
+                scanning.countDown();
+                try {
+                    release.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }));
+        reader.start();
+        assertTrue(scanning.await(10, TimeUnit.SECONDS));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            for (int i = 0; i < 1_000; i++) {
+                wallet.addTransaction(new Expense(2, FOOD));
+            }
+            wallet.editTransaction(0, new Expense(3, FOOD));
+            wallet.deleteTransaction(1);
+        });
+
+        release.countDown();
+        reader.join();
+        assertEquals(10_000, scanned[0]);
+        assertEquals(11_000 - 1, wallet.getTransactionCount());
+    }
+
+    private static List<String> describe(final List<Transaction> transactions) {
+        final List<String> described = new ArrayList<>(transactions.size());
+        for (final Transaction transaction : transactions) {
+            described.add(transaction.getType() + " " + transaction.getAmount() + " " + transaction.getCategory().getName()
+                    + " " + transaction.getTimestamp());
+        }
+        return described;
+    }
+}
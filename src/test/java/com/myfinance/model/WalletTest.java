@@ -0,0 +1,113 @@
+package com.myfinance.model;
+
+import com.myfinance.model.stats.ExpenseStatistics;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WalletTest {
+
+    @Test
+    void testWalletKeepsLargestExpensesPerCategory() {
+        final Category food = new Category("Food");
+        final Category taxi = new Category("Taxi");
+        final Wallet wallet = new Wallet();
+        final Random random = new Random(11);
+        final long[] foodAmounts = new long[10_000];
+        for (int i = 0; i < foodAmounts.length; i++) {
+            foodAmounts[i] = 1 + random.nextInt(1_000_000);
+            wallet.addTransaction(new Expense(foodAmounts[i], food));
+            wallet.addTransaction(new Expense(1, taxi));
+        }
+        Arrays.sort(foodAmounts);
+
+        final List<Transaction> largest = wallet.getExpenseStatistics().get(food).getLargest();
+        assertEquals(ExpenseStatistics.TOP_EXPENSES_CAPACITY, largest.size());
+        for (int i = 0; i < largest.size(); i++) {
+            assertEquals(foodAmounts[foodAmounts.length - 1 - i], largest.get(i).getAmount());
+        }
+        assertEquals(10_000, wallet.getExpenseStatistics().get(taxi).getCount());
+        assertEquals(1, wallet.getExpenseStatistics().get(taxi).getMedian());
+
+        wallet.clearTransactions();
+        assertTrue(wallet.getExpenseStatistics().isEmpty());
+    }
+
+    @Test
+    void testFullChangeLogDropsItsOlderHalf() {
+        final Category food = new Category("Food");
+        final Wallet wallet = new Wallet();
+        wallet.addTransaction(new Expense(1, food, 0));
+        wallet.addTransaction(new Expense(2, food, 0));
+        for (int i = 0; i <= Wallet.CHANGE_LOG_CAPACITY; i++) {
+            wallet.editTransaction(0, new Expense(10 + i, food, 0));
+        }
+        wallet.addTransaction(new Expense(3, food, 0));
+
+        final long start = wallet.getChangeLogStart();
+        assertEquals(2 + Wallet.CHANGE_LOG_CAPACITY / 2, start);
+        assertEquals(0, wallet.getBaseSequence());
+        final List<String> changes = new ArrayList<>();
+        wallet.forEachChangeFrom(start, (id, change, type, amount, category, timestamp) -> changes.add(id + " " + change + " " + amount));
+        assertEquals(List.of("0 EDITED " + (10 + Wallet.CHANGE_LOG_CAPACITY), "2 ADDED 3"), changes);
+    }
+
+    @Test
+    void testIdsSurviveCompactionAndClear() {
+        final Category food = new Category("Food");
+        final Wallet wallet = new Wallet();
+        for (int i = 0; i < 10; i++) {
+            wallet.addTransaction(new Expense(i, food, i));
+        }
+        assertTrue(wallet.deleteTransaction(2));
+        assertTrue(wallet.deleteTransaction(3));
+        assertTrue(wallet.deleteTransaction(7));
+        wallet.compactTombstones();
+        wallet.addTransaction(new Expense(10, food, 10));
+
+        assertEquals(List.of(0L, 1L, 4L, 5L, 6L, 8L, 9L, 10L), idsFrom(wallet, 0));
+        assertEquals(List.of(4L, 5L, 6L, 8L, 9L, 10L), idsFrom(wallet, 2));
+        assertEquals(List.of(8L, 9L, 10L), idsFrom(wallet, 7));
+        assertEquals(List.of(), idsFrom(wallet, 11));
+        assertFalse(wallet.editTransaction(3, new Expense(1, food, 0)));
+        assertTrue(wallet.editTransaction(8, new Expense(80, food, 8)));
+        assertTrue(wallet.deleteTransaction(10));
+        assertFalse(wallet.deleteTransaction(10));
+
+        final Wallet snapshot = wallet.snapshot();
+        wallet.clearTransactions();
+        wallet.addTransaction(new Expense(11, food, 11));
+        assertEquals(List.of(11L), idsFrom(wallet, 0));
+        assertFalse(wallet.deleteTransaction(0));
+        assertEquals(List.of(0L, 1L, 4L, 5L, 6L, 8L, 9L), idsFrom(snapshot, 0));
+    }
+
+    @Test
+    void testCountInCountsNestedCategoriesOnce() {
+        final Category food = new Category("Еда");
+        final Category cafe = new Category("Еда/Кафе");
+        final Category grocery = new Category("Еда/Продукты");
+        final Wallet wallet = new Wallet();
+        wallet.addTransaction(new Expense(10, cafe, 0));
+        wallet.addTransaction(new Expense(20, cafe, 0));
+        wallet.addTransaction(new Expense(30, grocery, 0));
+        wallet.addTransaction(new Expense(40, food, 0));
+
+        assertEquals(4, wallet.countIn(Set.of(food, cafe, grocery)));
+        assertEquals(3, wallet.countIn(Set.of(cafe, grocery)));
+        assertEquals(2, wallet.countIn(Set.of(cafe)));
+        assertEquals(wallet.query().inCategory(food).count(), wallet.countIn(Set.of(food, cafe, grocery)));
+    }
+
+    private static List<Long> idsFrom(final Wallet wallet, final long fromId) {
+        final List<Long> ids = new ArrayList<>();
+        wallet.forEachTransactionFrom(fromId, (id, type, amount, category, timestamp) -> ids.add(id));
+        return ids;
+    }
+}
@@ -0,0 +1,43 @@
+package com.myfinance.model.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    void testNoFalseNegativesAndLowFalsePositiveRate() {
+        final int entries = 100_000;
+        final long bitCount = entries * 10L;
+        final BloomFilter filter = new BloomFilter(ByteBuffer.allocate(BloomFilter.byteSize(bitCount)), 0, bitCount,
+                BloomFilter.optimalHashCount(10));
+        for (int i = 0; i < entries; i++) {
+            filter.add("user" + i);
+        }
+        for (int i = 0; i < entries; i++) {
+            assertTrue(filter.mightContain("user" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < entries; i++) {
+            if (filter.mightContain("missing" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < entries * 0.02, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void testRespectsOffset() {
+        final ByteBuffer buffer = ByteBuffer.allocate(16 + BloomFilter.byteSize(1024));
+        final BloomFilter filter = new BloomFilter(buffer, 16, 1024, 3);
+        filter.add("alice");
+        for (int i = 0; i < 16; i++) {
+            assertEquals(0, buffer.get(i));
+        }
+        assertTrue(new BloomFilter(buffer, 16, 1024, 3).mightContain("alice"));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(buffer, 16, 4096, 3));
+    }
+}
@@ -0,0 +1,91 @@
+package com.myfinance.model.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoaringBitmapTest {
+
+    @Test
+    void testMatchesBitSetAcrossContainerKinds() {
+        final Random random = new Random(17);
+        final RoaringBitmap left = new RoaringBitmap();
+        final RoaringBitmap right = new RoaringBitmap();
+        final BitSet expectedLeft = new BitSet();
+        final BitSet expectedRight = new BitSet();
+        for (int i = 0; i < 100_000; i++) {
+            final int dense = random.nextInt(1 << 16);
+            final int sparse = (1 << 16) + random.nextInt(1 << 20);
+            left.add(dense);
+            expectedLeft.set(dense);
+            left.add(sparse);
+            expectedLeft.set(sparse);
+            final int other = random.nextInt(1 << 18);
+            right.add(other);
+            expectedRight.set(other);
+        }
+        for (int i = 0; i < 50_000; i++) {
+            final int value = random.nextInt(1 << 17);
+            left.remove(value);
+            expectedLeft.clear(value);
+        }
+        assertEquals(expectedLeft.cardinality(), left.getCardinality());
+        for (int value = 0; value < 1 << 18; value++) {
+            assertEquals(expectedLeft.get(value), left.contains(value));
+        }
+
+        final BitSet union = (BitSet) expectedLeft.clone();
+        union.or(expectedRight);
+        assertEquals(union, toBitSet(RoaringBitmap.or(left, right), 0, Integer.MAX_VALUE));
+        final BitSet intersection = (BitSet) expectedLeft.clone();
+        intersection.and(expectedRight);
+        assertEquals(intersection, toBitSet(RoaringBitmap.and(left, right), 0, Integer.MAX_VALUE));
+
+        final BitSet range = expectedLeft.get(0, 200_000);
+        range.clear(0, 50_000);
+        assertEquals(range, toBitSet(left, 50_000, 200_000));
+    }
+
+    @Test
+    void testSnapshotIsCopyOnWrite() {
+        final RoaringBitmap bitmap = new RoaringBitmap();
+        for (int value = 0; value < 10_000; value += 2) {
+            bitmap.add(value);
+        }
+        bitmap.add(100_000);
+        final RoaringBitmap snapshot = bitmap.snapshot();
+        bitmap.add(1);
+        bitmap.remove(100_000);
+        snapshot.add(3);
+
+        assertTrue(bitmap.contains(1));
+        assertFalse(bitmap.contains(3));
+        assertFalse(bitmap.contains(100_000));
+        assertFalse(snapshot.contains(1));
+        assertTrue(snapshot.contains(3));
+        assertTrue(snapshot.contains(100_000));
+        assertEquals(5_001, bitmap.getCardinality());
+        assertEquals(5_002, snapshot.getCardinality());
+
+        final List<Integer> visited = new ArrayList<>();
+        bitmap.forEach(0, 5, visited::add);
+        assertEquals(List.of(0, 1, 2, 4), visited);
+        assertTrue(new RoaringBitmap().isEmpty());
+    }
+
+    private static BitSet toBitSet(final RoaringBitmap bitmap, final int from, final int to) {
+        final BitSet result = new BitSet();
+        final int[] previous = {-1};
+        bitmap.forEach(from, to, value -> {
+            assertTrue(value > previous[0]);
+            previous[0] = value;
+            result.set(value);
+        });
+        return result;
+    }
+}
@@ -0,0 +1,114 @@
+package com.myfinance.model.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuantileSketchTest {
+
+    private static final double MAX_RANK_ERROR = 0.02;
+    private static final double[] QUANTILES = {0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99};
+
+    @Test
+    void testQuantilesMatchExactRanksOnSkewedData() {
+        final Random random = new Random(42);
+        final int n = 500_000;
+        final double[] exact = new double[n];
+        final QuantileSketch sketch = new QuantileSketch();
+        for (int i = 0; i < n; i++) {
+            exact[i] = Math.exp(random.nextGaussian() * 1.5 + 5);
+            sketch.update(exact[i]);
+        }
+        Arrays.sort(exact);
+
+        assertEquals(n, sketch.getCount());
+        assertEquals(exact[0], sketch.getMin());
+        assertEquals(exact[n - 1], sketch.getMax());
+        for (final double q : QUANTILES) {
+            assertRankError(exact, q, sketch.quantile(q));
+        }
+    }
+
+    @Test
+    void testSortedInputDoesNotBiasEstimates() {
+        final int n = 200_000;
+        final double[] exact = new double[n];
+        final QuantileSketch sketch = new QuantileSketch();
+        for (int i = 0; i < n; i++) {
+            exact[i] = i;
+            sketch.update(i);
+        }
+
+        for (final double q : QUANTILES) {
+            assertRankError(exact, q, sketch.quantile(q));
+        }
+    }
+
+    @Test
+    void testMemoryStaysBounded() {
+        final QuantileSketch sketch = new QuantileSketch();
+        final Random random = new Random(7);
+        int maxRetained = 0;
+        for (int i = 0; i < 2_000_000; i++) {
+            sketch.update(random.nextDouble());
+            maxRetained = Math.max(maxRetained, sketch.getRetainedItems());
+        }
+
+        assertTrue(maxRetained < 4 * QuantileSketch.DEFAULT_K, "retained " + maxRetained);
+    }
+
+    @Test
+    void testMergedSketchesMatchExactRanks() {
+        final Random random = new Random(3);
+        final int parts = 8;
+        final int perPart = 50_000;
+        final double[] exact = new double[parts * perPart];
+        final QuantileSketch merged = new QuantileSketch();
+        for (int part = 0; part < parts; part++) {
+            final QuantileSketch sketch = new QuantileSketch();
+            for (int i = 0; i < perPart; i++) {
+                final double value = part * 100 + random.nextDouble() * 500;
+                exact[part * perPart + i] = value;
+                sketch.update(value);
+            }
+            merged.merge(sketch);
+        }
+        Arrays.sort(exact);
+
+        assertEquals(exact.length, merged.getCount());
+        for (final double q : QUANTILES) {
+            assertRankError(exact, q, merged.quantile(q));
+        }
+    }
+
+    @Test
+    void testSmallInputIsExact() {
+        final QuantileSketch sketch = new QuantileSketch();
+        for (int i = 1; i <= 100; i++) {
+            sketch.update(i);
+        }
+
+        assertEquals(50, sketch.quantile(0.5));
+        assertEquals(90, sketch.quantile(0.9));
+        assertEquals(99, sketch.quantile(0.99));
+        assertTrue(Double.isNaN(new QuantileSketch().quantile(0.5)));
+    }
+
+    private static void assertRankError(final double[] sorted, final double q, final double estimate) {
+        int lower = 0;
+        int upper = sorted.length;
+        while (lower < upper) {
+            final int middle = (lower + upper) >>> 1;
+            if (sorted[middle] < estimate) {
+                lower = middle + 1;
+            } else {
+                upper = middle;
+            }
+        }
+        final double rank = (double) lower / sorted.length;
+        assertEquals(q, rank, MAX_RANK_ERROR, "q=" + q + " estimate=" + estimate);
+    }
+}
@@ -0,0 +1,44 @@
+package com.myfinance.model.stats;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeBucketRingTest {
+
+    @Test
+    void testWindowSlidesAndKeepsTotal() {
+        final TimeBucketRing ring = new TimeBucketRing(4, 10);
+        assertTrue(ring.add(0, 5));
+        assertTrue(ring.add(15, 7));
+        assertTrue(ring.add(39, 1));
+        assertEquals(13, ring.getTotal());
+        assertEquals(3, ring.getNonEmptyBuckets());
+
+        ring.advanceTo(40);
+        assertEquals(8, ring.getTotal());
+        assertEquals(0, ring.getNewest());
+        assertFalse(ring.add(5, 100));
+        assertTrue(ring.add(12, 3));
+        assertEquals(11, ring.getTotal());
+
+        assertTrue(ring.add(12, -10));
+        assertEquals(1, ring.getTotal());
+        assertEquals(1, ring.getNonEmptyBuckets());
+
+        ring.advanceTo(1_000);
+        assertEquals(0, ring.getTotal());
+        assertEquals(0, ring.getNonEmptyBuckets());
+    }
+
+    @Test
+    void testNegativeTimestampsUseFloorBuckets() {
+        final TimeBucketRing ring = new TimeBucketRing(2, 10);
+        ring.add(-1, 4);
+        ring.add(0, 6);
+        assertEquals(6, ring.getNewest());
+        assertEquals(10, ring.getTotal());
+        ring.advanceTo(10);
+        assertEquals(6, ring.getTotal());
+    }
+}
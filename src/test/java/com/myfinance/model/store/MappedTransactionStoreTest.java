@@ -0,0 +1,239 @@
+package com.myfinance.model.store;
+
+import com.myfinance.model.*;
+import com.myfinance.service.WalletStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedTransactionStoreTest {
+
+    private Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("pfms_mapped_test_");
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> walk = Files.walk(tempDir)) {
+            walk.sorted(Comparator.reverseOrder())
+                .map(Path::toFile)
+                .forEach(File::delete);
+        }
+    }
+
+    @Test
+    void testRecordsSpanMultipleSegments() {
+        final MappedTransactionStore store = new MappedTransactionStore(tempDir.resolve("segments"), 64);
+        final Category food = new Category("Food");
+        final Category salary = new Category("Salary");
+        for (int i = 0; i < 1000; i++) {
+            store.append(i % 3 == 0 ? new Income(i, salary) : new Expense(i, food));
+        }
+
+        assertEquals(1000, store.size());
+        assertEquals(16, Stream.of(tempDir.resolve("segments").toFile().list()).count());
+        final Transaction transaction = store.get(999);
+        assertTrue(transaction instanceof Income);
+        assertEquals(999, transaction.getAmount());
+        assertEquals(salary, transaction.getCategory());
+        assertEquals(food, store.get(500).getCategory());
+        assertThrows(IndexOutOfBoundsException.class, () -> store.get(1000));
+
+        final long[] sums = new long[TransactionType.values().length];
+        final int[] visited = new int[1];
+        store.forEach((type, amount, category) -> {
+            assertEquals(type == TransactionType.INCOME ? salary : food, category);
+            sums[type.ordinal()] += amount;
+            visited[0]++;
+        });
+        assertEquals(1000, visited[0]);
+        assertEquals(999 * 1000 / 2, sums[0] + sums[1]);
+
+        final long[] tail = new long[2];
+        store.forEach(900, (type, amount, category) -> {
+            tail[0] += amount;
+            tail[1]++;
+        });
+        assertEquals(100, tail[1]);
+        assertEquals((900 + 999) * 100 / 2, tail[0]);
+    }
+
+    @Test
+    void testWalletSurvivesSaveAndLoad() throws Exception {
+        final Path walletPath = tempDir.resolve("user" + WalletStorage.WALLET_FILE_SUFFIX);
+        final Wallet wallet = new Wallet(new MappedTransactionStore(tempDir.resolve("segments"), 1024));
+        final Category food = new Category("Food");
+        wallet.addTransaction(new Income(100_000, new Category("Salary")));
+        for (int i = 0; i < 5000; i++) {
+            wallet.addTransaction(new Expense(10, food));
+        }
+        wallet.setBudget(food, 60_000);
+        WalletStorage.write(walletPath, wallet);
+        ((MappedTransactionStore) wallet.getTransactionStore()).close();
+
+        final Wallet loaded = WalletStorage.read(walletPath);
+
+        assertTrue(loaded.getTransactionStore() instanceof MappedTransactionStore);
+        assertEquals(5001, loaded.getTransactionCount());
+        assertEquals(50_000, loaded.getBalance());
+        assertEquals(10, loaded.getTransactions().get(5000).getAmount());
+        assertEquals(60_000, loaded.getBudgets().get(food));
+
+        loaded.addTransaction(new Expense(50_000, food));
+        assertEquals(5002, loaded.getTransactions().size());
+        assertEquals(food, loaded.getTransactions().get(5001).getCategory());
+    }
+
+    @Test
+    void testSnapshotSharesSegmentsUntilTheyAreEdited() throws Exception {
+        final Path segments = tempDir.resolve("segments");
+        final MappedTransactionStore store = new MappedTransactionStore(segments, 16);
+        final Category food = new Category("Food");
+        for (int i = 0; i < 40; i++) {
+            store.append(new Expense(i, food));
+        }
+
+        final TransactionStore snapshot = store.snapshot();
+        assertTrue(snapshot instanceof MappedTransactionStore);
+        assertSame(snapshot, snapshot.snapshot());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.append(new Expense(1, food)));
+        assertEquals(3, Stream.of(segments.toFile().list()).count());
+
+        store.set(0, new Income(1_000, new Category("Salary")));
+        store.append(new Expense(40, food));
+        final BitSet removed = new BitSet();
+        removed.set(1, 20);
+        store.compact(removed);
+        assertEquals(22, store.size());
+        assertEquals(1_000, store.get(0).getAmount());
+        assertEquals(20, store.get(1).getAmount());
+        assertEquals(40, store.get(21).getAmount());
+
+        assertEquals(40, snapshot.size());
+        for (int i = 0; i < 40; i++) {
+            assertEquals(i, snapshot.get(i).getAmount());
+        }
+        store.clear();
+        assertEquals(39, snapshot.get(39).getAmount());
+
+        final Path walletPath = tempDir.resolve("user" + WalletStorage.WALLET_FILE_SUFFIX);
+        final Wallet wallet = new Wallet(store);
+        wallet.addTransaction(new Expense(5, food));
+        WalletStorage.write(walletPath, wallet);
+        store.close();
+        assertEquals(5, WalletStorage.read(walletPath).getTransactions().get(0).getAmount());
+        assertEquals(4, Stream.of(segments.toFile().list()).count());
+        assertEquals(39, snapshot.get(39).getAmount());
+    }
+
+    @Test
+    void testObsoleteSegmentsAreDeletedOnlyAfterTheOwnerSaves() throws Exception {
+        final Path walletPath = tempDir.resolve("user" + WalletStorage.WALLET_FILE_SUFFIX);
+        final Path segments = tempDir.resolve("segments");
+        final Wallet wallet = new Wallet(new MappedTransactionStore(segments, 16));
+        final Category food = new Category("Food");
+        for (int i = 0; i < 40; i++) {
+            wallet.addTransaction(new Expense(i + 1, food));
+        }
+        final Wallet snapshot = wallet.snapshot();
+        wallet.clearTransactions();
+        wallet.addTransaction(new Expense(5, food));
+        WalletStorage.write(walletPath, wallet);
+        assertEquals(4, Stream.of(segments.toFile().list()).count());
+
+        assertEquals(1, WalletStorage.read(walletPath).getTransactionCount());
+        assertEquals(4, Stream.of(segments.toFile().list()).count());
+
+        wallet.clearTransactions();
+        wallet.addTransaction(new Expense(6, food));
+        WalletStorage.write(walletPath, wallet);
+        assertEquals(4, Stream.of(segments.toFile().list()).count());
+        assertFalse(Files.exists(segments.resolve("segment-00003.seg")));
+        assertEquals(6, WalletStorage.read(walletPath).getTransactions().get(0).getAmount());
+        assertEquals(40, snapshot.getTransactionCount());
+        assertEquals(40, snapshot.getTransactions().get(39).getAmount());
+    }
+
+    @Test
+    void testUnsavedEditsDoNotReachTheSavedWallet() throws Exception {
+        final Path walletPath = tempDir.resolve("user" + WalletStorage.WALLET_FILE_SUFFIX);
+        final Category food = new Category("Food");
+        for (final int edit : new int[]{0, 1, 2}) {
+            final MappedTransactionStore store = new MappedTransactionStore(tempDir.resolve("segments-" + edit), 16);
+            final Wallet wallet = new Wallet(store);
+            for (int i = 0; i < 40; i++) {
+                wallet.addTransaction(new Expense(i + 1, food, i));
+            }
+            WalletStorage.write(walletPath, wallet);
+
+            if (edit == 0) {
+                wallet.editTransaction(5, new Expense(1_000, food, 5));
+            } else if (edit == 1) {
+                for (long id = 20; id < 40; id++) {
+                    wallet.deleteTransaction(id);
+                }
+                wallet.compactTombstones();
+            } else {
+                wallet.clearTransactions();
+            }
+            for (int i = 0; i < 10; i++) {
+                wallet.addTransaction(new Expense(2_000, food, 100 + i));
+            }
+            store.close();
+
+            final Wallet saved = WalletStorage.read(walletPath);
+            assertEquals(40, saved.getTransactionCount());
+            assertEquals(-820, saved.getBalance());
+            for (int i = 0; i < 40; i++) {
+                assertEquals(i + 1, saved.getTransactions().get(i).getAmount());
+            }
+        }
+    }
+
+    @Test
+    void testSnapshotSurvivesCompactionThatShrinksIntoSharedSegment() {
+        final MappedTransactionStore store = new MappedTransactionStore(tempDir.resolve("segments"), 16);
+        final Category food = new Category("Food");
+        for (int i = 0; i < 40; i++) {
+            store.append(new Expense(i, food));
+        }
+        final TransactionStore snapshot = store.snapshot();
+        final BitSet removed = new BitSet();
+        removed.set(35, 40);
+        store.compact(removed);
+        store.append(new Expense(1_000, food));
+
+        assertEquals(1_000, store.get(35).getAmount());
+        assertEquals(35, snapshot.get(35).getAmount());
+    }
+
+    @Test
+    void testClearTransactions() {
+        final Wallet wallet = new Wallet(new MappedTransactionStore(tempDir.resolve("segments"), 16));
+        wallet.addTransaction(new Income(100, new Category("Salary")));
+        wallet.clearTransactions();
+
+        assertEquals(0, wallet.getTransactionCount());
+        assertEquals(0, wallet.getBalance());
+        wallet.forEachTransaction((type, amount, category) -> fail());
+    }
+
+    @Test
+    void testRejectsSegmentSizeThatIsNotPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new MappedTransactionStore(tempDir, 100));
+    }
+}
@@ -0,0 +1,179 @@
+package com.myfinance.model.store;
+
+import com.myfinance.model.*;
+import com.myfinance.service.WalletStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TieredTransactionStoreTest {
+    private static final long START = 1_700_000_000_000L;
+    private static final long HOUR = 3_600_000L;
+    private final Category food = new Category("Еда/Продукты");
+    private final Category cafe = new Category("Еда/Кафе");
+    private final Category salary = new Category("Зарплата");
+
+    private Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("pfms_tiered_test_");
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> walk = Files.walk(tempDir)) {
+            walk.sorted(Comparator.reverseOrder())
+                .map(Path::toFile)
+                .forEach(File::delete);
+        }
+    }
+
+    @Test
+    void testOlderTransactionsAreSealedIntoSegments() throws IOException {
+        Files.createDirectories(tempDir.resolve("cold"));
+        Files.writeString(tempDir.resolve("cold").resolve("cold-000000.seg"), "left by a seal whose wallet was never saved");
+        final TieredTransactionStore store = new TieredTransactionStore(tempDir.resolve("cold"), 100, 50);
+        for (int i = 0; i < 1_000; i++) {
+            store.append(transaction(i));
+        }
+
+        assertEquals(1_000, store.size());
+        assertEquals(9, store.getSealedSegmentCount());
+        assertEquals(100, store.getHotSize());
+        assertEquals(9, Stream.of(tempDir.resolve("cold").toFile().list()).count());
+        for (final int index : new int[]{0, 99, 100, 555, 899, 900, 999}) {
+            assertEquals(transaction(index).getAmount(), store.get(index).getAmount());
+            assertEquals(transaction(index).getTimestamp(), store.getTimestamp(index));
+            assertEquals(transaction(index).getCategory(), store.get(index).getCategory());
+        }
+        final long[] visited = new long[2];
+        store.forEach(250, 950, (slot, type, amount, category, timestamp) -> {
+            assertEquals(transaction(slot).getAmount(), amount);
+            visited[0]++;
+            visited[1] = slot;
+        });
+        assertEquals(700, visited[0]);
+        assertEquals(949, visited[1]);
+        assertEquals(500, store.firstIndexAtOrAfter(START + 500 * HOUR));
+        assertEquals(START + 999 * HOUR, store.lastTimestampIfOrdered().getAsLong());
+        assertThrows(IndexOutOfBoundsException.class, () -> store.get(1_000));
+    }
+
+    @Test
+    void testWalletLoadReadsNoSealedRowsAndQueriesMatchHeapWallet() throws Exception {
+        final Path walletPath = tempDir.resolve("user" + WalletStorage.WALLET_FILE_SUFFIX);
+        final Wallet tiered = new Wallet(new TieredTransactionStore(tempDir.resolve("cold"), 512, 256));
+        final Wallet heap = new Wallet();
+        for (int i = 0; i < 5_000; i++) {
+            tiered.addTransaction(transaction(i));
+            heap.addTransaction(transaction(i));
+        }
+        tiered.setBudget(food, 60_000);
+        WalletStorage.write(walletPath, tiered);
+
+        final Wallet loaded = WalletStorage.read(walletPath);
+        final TieredTransactionStore store = (TieredTransactionStore) loaded.getTransactionStore();
+        assertEquals(5_000, loaded.getTransactionCount());
+        assertEquals(heap.getBalance(), loaded.getBalance());
+        assertEquals(60_000, loaded.getBudgets().get(food));
+        assertEquals(0, store.getSegmentLoadCount());
+
+        final TransactionQuery recent = loaded.query().ofType(TransactionType.EXPENSE).between(START + 4_800 * HOUR, Long.MAX_VALUE);
+        assertEquals(heap.query().ofType(TransactionType.EXPENSE).between(START + 4_800 * HOUR, Long.MAX_VALUE).sum(), recent.sum());
+        assertEquals(0, store.getSegmentLoadCount());
+
+        final TransactionQuery sealedRange = loaded.query().ofType(TransactionType.EXPENSE).between(START, START + 4_096 * HOUR);
+        final Map<Category, QueryAggregate> byCategory = sealedRange.groupByCategory();
+        assertEquals(QueryPlan.SEGMENT_SUMMARIES, sealedRange.getLastPlan());
+        assertEquals(0, store.getSegmentLoadCount());
+        final Map<Category, QueryAggregate> expected = heap.query().ofType(TransactionType.EXPENSE)
+                .between(START, START + 4_096 * HOUR).groupByCategory();
+        assertEquals(expected.keySet(), byCategory.keySet());
+        for (final Category category : expected.keySet()) {
+            assertEquals(expected.get(category).getSum(), byCategory.get(category).getSum());
+            assertEquals(expected.get(category).getCount(), byCategory.get(category).getCount());
+            assertEquals(expected.get(category).getMin(), byCategory.get(category).getMin());
+            assertEquals(expected.get(category).getMax(), byCategory.get(category).getMax());
+        }
+
+        final TransactionQuery partial = loaded.query().between(START + 100 * HOUR, START + 200 * HOUR).amountBetween(100, 700);
+        assertEquals(heap.query().between(START + 100 * HOUR, START + 200 * HOUR).amountBetween(100, 700).aggregate().getSum(),
+                partial.aggregate().getSum());
+        assertEquals(1, store.getSegmentLoadCount());
+        assertEquals(heap.getTransactions().get(1_234).getAmount(), loaded.getTransactions().get(1_234).getAmount());
+    }
+
+    @Test
+    void testEditsDeletesAndCompactionOfSealedRows() {
+        final Wallet wallet = new Wallet(new TieredTransactionStore(tempDir.resolve("cold"), 128, 64));
+        final Random random = new Random(5);
+        for (int i = 0; i < 2_000; i++) {
+            wallet.addTransaction(transaction(i));
+        }
+        final Wallet snapshot = wallet.snapshot();
+        final long snapshotBalance = snapshot.getBalance();
+        final Transaction original = wallet.getTransaction(10).orElseThrow();
+        assertTrue(wallet.editTransaction(10, Transaction.of(original.getType(), original.getAmount() + 1, cafe, original.getTimestamp())));
+        for (int i = 0; i < 1_500; i++) {
+            wallet.deleteTransaction(random.nextInt(2_000));
+        }
+        final List<Long> before = wallet.getTransactions().stream().map(Transaction::getAmount).collect(Collectors.toList());
+        final long sumBefore = wallet.query().between(START, Long.MAX_VALUE).aggregate().getSum();
+        wallet.compactTombstones();
+
+        assertEquals(before, wallet.getTransactions().stream().map(Transaction::getAmount).collect(Collectors.toList()));
+        assertEquals(sumBefore, wallet.query().between(START, Long.MAX_VALUE).aggregate().getSum());
+        assertEquals(snapshotBalance, snapshot.getBalance());
+        assertEquals(2_000, snapshot.getTransactionCount());
+        assertEquals(original.getAmount(), snapshot.getTransaction(10).orElseThrow().getAmount());
+        assertEquals(transaction(1_999).getAmount(), snapshot.getTransactions().get(1_999).getAmount());
+    }
+
+    @Test
+    void testReplacedSegmentsOutliveLoadsAndSnapshots() throws Exception {
+        final Path walletPath = tempDir.resolve("user" + WalletStorage.WALLET_FILE_SUFFIX);
+        final Path cold = tempDir.resolve("cold");
+        final Wallet wallet = new Wallet(new TieredTransactionStore(cold, 100, 50));
+        for (int i = 0; i < 1_000; i++) {
+            wallet.addTransaction(transaction(i));
+        }
+        final Wallet snapshot = wallet.snapshot();
+        wallet.clearTransactions();
+        wallet.addTransaction(transaction(0));
+        WalletStorage.write(walletPath, wallet);
+        assertEquals(1, WalletStorage.read(walletPath).getTransactionCount());
+        assertEquals(9, Stream.of(cold.toFile().list()).count());
+        assertEquals(transaction(500).getAmount(), snapshot.getTransactions().get(500).getAmount());
+
+        for (int i = 1; i < 1_000; i++) {
+            wallet.addTransaction(transaction(i));
+        }
+        wallet.clearTransactions();
+        WalletStorage.write(walletPath, wallet);
+        assertEquals(9, Stream.of(cold.toFile().list()).count());
+        assertEquals(1_000, snapshot.getTransactionCount());
+    }
+
+    private Transaction transaction(final int i) {
+        final long timestamp = START + i * HOUR;
+        if (i % 10 == 0) {
+            return new Income(50_000 + i, salary, timestamp);
+        }
+        return new Expense(1 + (i * 37) % 1_000, i % 3 == 0 ? cafe : food, timestamp);
+    }
+}
@@ -0,0 +1,184 @@
+package com.myfinance.service;
+
+import com.myfinance.model.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Fails when an operation allocates more than its budget in {@code allocation-budgets.properties}. Allocation is
+ * read from the calling thread's counter, so only work done on that thread is charged to the operation.
+ */
+class AllocationBudgetTest {
+    private static final int ROWS = 20_000;
+    private static final int REPORTS = 2_000;
+    private static final Category[] CATEGORIES = {
+            new Category("Еда"), new Category("Такси"), new Category("Кафе"), new Category("Связь"),
+            new Category("Аренда"), new Category("Кино"), new Category("Книги"), new Category("Зарплата")};
+
+    private static Properties budgets;
+    private static com.sun.management.ThreadMXBean threadBean;
+
+    private Path tempDir;
+
+    @BeforeAll
+    static void loadBudgets() throws IOException {
+        budgets = new Properties();
+        try (final InputStream in = AllocationBudgetTest.class.getResourceAsStream("/allocation-budgets.properties")) {
+            assertNotNull(in, "allocation-budgets.properties is missing");
+            budgets.load(in);
+        }
+        threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        tempDir = Files.createTempDirectory("pfms_alloc_test_");
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> walk = Files.walk(tempDir)) {
+            walk.sorted(Comparator.reverseOrder())
+                .map(Path::toFile)
+                .forEach(File::delete);
+        }
+    }
+
+    @Test
+    void testAddTransaction() {
+        final List<Transaction> batch = transactions(ROWS);
+        fillWallet(batch);
+        final Wallet wallet = new Wallet();
+        final long allocated = allocatedBy(() -> batch.forEach(wallet::addTransaction));
+        assertWithinBudget("wallet.addTransaction.bytesPerOp", allocated, ROWS);
+    }
+
+    @Test
+    void testRetainedHeapPerTransaction() {
+        final long before = usedHeap();
+        final Wallet wallet = fillWallet(transactions(ROWS * 10));
+        final long retained = usedHeap() - before;
+        assertEquals(ROWS * 10, wallet.getTransactionCount());
+        assertWithinBudget("wallet.retainedBytes", retained, ROWS * 10);
+    }
+
+    @Test
+    void testReports() {
+        final Wallet wallet = fillWallet(transactions(ROWS));
+        final ReportGeneratorImpl reportGenerator = new ReportGeneratorImpl();
+        final List<Category> selected = List.of(CATEGORIES[0], CATEGORIES[1]);
+        for (int i = 0; i < REPORTS; i++) {
+            reportGenerator.generateFullReport(wallet);
+            reportGenerator.generateReportByCategories(wallet, selected);
+            reportGenerator.generateExpenseStatisticsReport(wallet, 3);
+        }
+        assertWithinBudget("report.full.bytesPerOp",
+                allocatedBy(() -> repeat(REPORTS, () -> reportGenerator.generateFullReport(wallet))), REPORTS);
+        assertWithinBudget("report.categories.bytesPerOp",
+                allocatedBy(() -> repeat(REPORTS, () -> reportGenerator.generateReportByCategories(wallet, selected))), REPORTS);
+        assertWithinBudget("report.expenseStatistics.bytesPerOp",
+                allocatedBy(() -> repeat(REPORTS, () -> reportGenerator.generateExpenseStatisticsReport(wallet, 3))), REPORTS);
+    }
+
+    @Test
+    void testCsvExportAndImport() {
+        final FinanceManagerImpl financeManager = new FinanceManagerImpl(tempDir.resolve("data").toString());
+        final CsvExportImportServiceImpl csvService = new CsvExportImportServiceImpl(financeManager);
+        final String login = tempDir.resolve("alloc").toString();
+        final Wallet wallet = fillWallet(transactions(ROWS));
+        csvService.exportToCsv(wallet, login);
+        csvService.importFromCsv(new Wallet(), login);
+
+        assertWithinBudget("csv.export.bytesPerOp", allocatedBy(() -> csvService.exportToCsv(wallet, login)), ROWS);
+        final Wallet imported = new Wallet();
+        assertWithinBudget("csv.import.bytesPerOp", allocatedBy(() -> csvService.importFromCsv(imported, login)), ROWS);
+        assertEquals(ROWS, imported.getTransactionCount());
+    }
+
+    @Test
+    void testSaveAndLoad() {
+        final FinanceManagerImpl financeManager = new FinanceManagerImpl(tempDir.resolve("data").toString());
+        assertTrue(financeManager.register("alloc", "secret"));
+        assertTrue(financeManager.login("alloc", "secret"));
+        financeManager.getCurrentUserWallet().orElseThrow().addTransactions(transactions(ROWS));
+        financeManager.logout();
+        repeat(3, () -> {
+            financeManager.login("alloc", "secret");
+            financeManager.logout();
+        });
+
+        assertTrue(financeManager.login("alloc", "secret"));
+        assertWithinBudget("manager.save.bytesPerOp", allocatedBy(financeManager::logout), ROWS);
+        final FinanceManagerImpl reopened = new FinanceManagerImpl(tempDir.resolve("data").toString());
+        assertWithinBudget("manager.load.bytesPerOp", allocatedBy(() -> reopened.login("alloc", "secret")), ROWS);
+        assertEquals(ROWS, reopened.getCurrentUserWallet().orElseThrow().getTransactionCount());
+    }
+
+    private static void assertWithinBudget(final String key, final long bytes, final int operations) {
+        final String budget = budgets.getProperty(key);
+        assertNotNull(budget, "no budget for " + key);
+        final double perOperation = (double) bytes / operations;
+        assertTrue(perOperation <= Long.parseLong(budget.trim()),
+                String.format("%s allocated %.1f bytes per operation, budget is %s", key, perOperation, budget.trim()));
+    }
+
+    private static long allocatedBy(final Runnable operation) {
+        final long threadId = Thread.currentThread().getId();
+        final long before = threadBean.getThreadAllocatedBytes(threadId);
+        operation.run();
+        return threadBean.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    private static void repeat(final int times, final Runnable operation) {
+        for (int i = 0; i < times; i++) {
+            operation.run();
+        }
+    }
+
+    private static List<Transaction> transactions(final int count) {
+        final List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final Category category = CATEGORIES[i % CATEGORIES.length];
+            transactions.add(category == CATEGORIES[7]
+                    ? new Income(100_000 + i, category, 1_700_000_000_000L + i)
+                    : new Expense(1 + i % 10_000, category, 1_700_000_000_000L + i));
+        }
+        return transactions;
+    }
+
+    private static Wallet fillWallet(final List<Transaction> transactions) {
+        final Wallet wallet = new Wallet();
+        transactions.forEach(wallet::addTransaction);
+        return wallet;
+    }
+
+    private static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
@@ -0,0 +1,89 @@
+package com.myfinance.service;
+
+import com.myfinance.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BudgetForecastServiceImplTest {
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final long NOW = Instant.parse("2024-06-20T12:00:00Z").toEpochMilli();
+    private static final Category FOOD = new Category("Еда");
+    private static final Category CAFE = new Category("Еда/Кафе", FOOD);
+    private static final Category TAXI = new Category("Такси");
+
+    @Test
+    void testResamplesDailySpendingUntilMonthEnd() {
+        final Wallet wallet = new Wallet();
+        for (int day = 90; day >= 1; day--) {
+            wallet.addTransaction(new Expense(100_00, CAFE, NOW - day * DAY));
+            if (day % 2 == 0) {
+                wallet.addTransaction(new Expense(100_00, TAXI, NOW - day * DAY));
+            }
+        }
+        wallet.setBudget(FOOD, 9_000_00 + 1_000_00);
+        wallet.setBudget(CAFE, 9_000_00 + 1_000_00 - 1);
+        wallet.setBudget(TAXI, 4_500_00 + 500_00);
+
+        final BudgetForecast forecast = service(ForkJoinPool.commonPool()).forecast(wallet, NOW);
+        assertEquals(10, forecast.getRemainingDays());
+        assertEquals(90, forecast.getHistoryDays());
+        final List<BudgetRisk> risks = forecast.getRisks();
+        assertEquals(List.of(FOOD, CAFE, TAXI), List.of(risks.get(0).getCategory(), risks.get(1).getCategory(), risks.get(2).getCategory()));
+        assertEquals(0.0, risks.get(0).getExceedProbability());
+        assertEquals(10_000_00, risks.get(0).getExpectedSpent());
+        assertEquals(1.0, risks.get(1).getExceedProbability());
+        // Taxi days alternate, so the rest of the month is 100 times Binomial(10, 1/2): P(X >= 6) = 386 / 1024.
+        assertEquals(386 / 1024.0, risks.get(2).getExceedProbability(), 0.01);
+        assertEquals(5_000_00, risks.get(2).getExpectedSpent(), 5_00);
+    }
+
+    @Test
+    void testSeededForecastDoesNotDependOnParallelism() {
+        final Wallet wallet = new Wallet();
+        for (int i = 0; i < 500; i++) {
+            wallet.addTransaction(new Expense(1 + (i * 7919) % 5_000_00, i % 3 == 0 ? TAXI : CAFE, NOW - (i % 60 + 1) * DAY));
+        }
+        wallet.setBudget(FOOD, 60_000_00);
+        wallet.setBudget(TAXI, 30_000_00);
+
+        final ForkJoinPool single = new ForkJoinPool(1);
+        final ForkJoinPool quad = new ForkJoinPool(4);
+        try {
+            final List<BudgetRisk> first = service(single).forecast(wallet, NOW).getRisks();
+            final List<BudgetRisk> second = service(quad).forecast(wallet, NOW).getRisks();
+            for (int i = 0; i < first.size(); i++) {
+                assertEquals(first.get(i).getExceedProbability(), second.get(i).getExceedProbability());
+                assertEquals(first.get(i).getExpectedSpent(), second.get(i).getExpectedSpent());
+            }
+        } finally {
+            single.shutdown();
+            quad.shutdown();
+        }
+    }
+
+    @Test
+    void testWithoutHistoryOnlyCurrentSpendingCounts() {
+        final Wallet wallet = new Wallet();
+        assertTrue(service(ForkJoinPool.commonPool()).forecast(wallet, NOW).getRisks().isEmpty());
+
+        wallet.addTransaction(new Expense(300_00, TAXI, NOW));
+        wallet.setBudget(TAXI, 200_00);
+        wallet.setBudget(FOOD, 200_00);
+        final BudgetForecast forecast = service(ForkJoinPool.commonPool()).forecast(wallet, NOW);
+        assertEquals(0, forecast.getHistoryDays());
+        assertEquals(0.0, forecast.getRisks().get(0).getExceedProbability());
+        assertEquals(1.0, forecast.getRisks().get(1).getExceedProbability());
+        assertEquals(300_00, forecast.getRisks().get(1).getExpectedSpent());
+    }
+
+    private static BudgetForecastServiceImpl service(final ForkJoinPool pool) {
+        return new BudgetForecastServiceImpl(pool, BudgetForecastServiceImpl.DEFAULT_PATH_COUNT,
+                BudgetForecastServiceImpl.DEFAULT_HISTORY_DAYS, ZoneOffset.UTC, 42);
+    }
+}
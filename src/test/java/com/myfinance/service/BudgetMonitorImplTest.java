@@ -0,0 +1,166 @@
+package com.myfinance.service;
+
+import com.myfinance.model.*;
+import com.myfinance.service.api.BudgetMonitor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BudgetMonitorImplTest {
+
+    private final Category food = new Category("Food");
+    private final Category taxi = new Category("Taxi");
+    private List<BudgetAlert> alerts;
+    private BudgetMonitor monitor;
+    private Wallet wallet;
+
+    @BeforeEach
+    void setUp() {
+        alerts = new ArrayList<>();
+        monitor = new BudgetMonitorImpl(List.of(0.5, 0.8, 1.0));
+        monitor.addAlertListener(alerts::add);
+        wallet = new Wallet();
+        wallet.setBudget(food, 100);
+        monitor.attach(wallet);
+    }
+
+    @Test
+    void testAlertFiredOncePerCrossing() {
+        wallet.addTransaction(new Expense(40, food));
+        assertTrue(alerts.isEmpty());
+
+        wallet.addTransaction(new Expense(15, food));
+        assertEquals(1, alerts.size());
+        assertEquals(0.5, alerts.get(0).getThreshold());
+
+        wallet.addTransaction(new Expense(5, food));
+        assertEquals(1, alerts.size());
+
+        wallet.addTransaction(new Expense(50, food));
+        assertEquals(3, alerts.size());
+        assertEquals(0.8, alerts.get(1).getThreshold());
+        assertEquals(1.0, alerts.get(2).getThreshold());
+        assertTrue(alerts.get(2).isExceeded());
+        assertEquals(110, alerts.get(2).getSpent());
+    }
+
+    @Test
+    void testSpendingExactlyBudgetIsNotExceeded() {
+        wallet.addTransaction(new Expense(100, food));
+
+        assertEquals(2, alerts.size());
+        assertFalse(alerts.get(1).isExceeded());
+    }
+
+    @Test
+    void testUnbudgetedCategoryDoesNotAlertUntilBudgetSet() {
+        wallet.addTransaction(new Expense(90, taxi));
+        assertTrue(alerts.isEmpty());
+        assertEquals(90, monitor.getSpent(taxi));
+
+        wallet.setBudget(taxi, 100);
+        assertEquals(2, alerts.size());
+    }
+
+    @Test
+    void testRaisingBudgetRearmsThresholds() {
+        wallet.addTransaction(new Expense(60, food));
+        assertEquals(1, alerts.size());
+
+        wallet.setBudget(food, 1000);
+        wallet.addTransaction(new Expense(500, food));
+        assertEquals(2, alerts.size());
+        assertEquals(1000, alerts.get(1).getBudget());
+    }
+
+    @Test
+    void testBatchAddEvaluatesOncePerCategory() {
+        final List<Transaction> batch = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            batch.add(new Expense(1, food));
+        }
+        wallet.addTransactions(batch);
+
+        assertEquals(3, alerts.size());
+        assertEquals(10_000, monitor.getSpent(food));
+    }
+
+    @Test
+    void testClearResetsSpending() {
+        wallet.addTransaction(new Expense(90, food));
+        wallet.clearTransactions();
+        assertEquals(0, monitor.getSpent(food));
+        assertEquals(0, wallet.getBalance());
+
+        wallet.addTransaction(new Expense(60, food));
+        assertEquals(3, alerts.size());
+    }
+
+    @Test
+    void testExistingSpendingCountedOnAttachWithoutAlerts() {
+        final Wallet other = new Wallet();
+        other.addTransaction(new Expense(70, food));
+        other.setBudget(food, 100);
+
+        monitor.attach(other);
+        assertTrue(alerts.isEmpty());
+        assertEquals(70, monitor.getSpent(food));
+
+        other.addTransaction(new Expense(20, food));
+        assertEquals(1, alerts.size());
+        assertEquals(0.8, alerts.get(0).getThreshold());
+
+        wallet.addTransaction(new Expense(100, food));
+        assertEquals(1, alerts.size());
+    }
+
+    @Test
+    void testTransferTriggersAlert(@TempDir final Path tempDir) throws Exception {
+        final FinanceManagerImpl financeManager = new FinanceManagerImpl(tempDir.toString());
+        financeManager.register("sender", "password");
+        financeManager.register("receiver", "password");
+        financeManager.login("sender", "password");
+        final Wallet senderWallet = financeManager.getCurrentUserWallet().orElseThrow();
+        senderWallet.addTransaction(new Income(1000, financeManager.getOrCreateCategory("Salary")));
+        senderWallet.setBudget(financeManager.getOrCreateCategory("Gift"), 100);
+        monitor.attach(senderWallet);
+
+        assertTrue(financeManager.transfer("receiver", 150, "Gift"));
+
+        assertEquals(3, alerts.size());
+    }
+
+    @Test
+    void testDeletedExpenseReArmsThreshold() {
+        final long id = wallet.addTransaction(new Expense(90, food));
+        assertEquals(2, alerts.size());
+
+        wallet.deleteTransaction(id);
+        assertEquals(0, monitor.getSpent(food));
+
+        wallet.addTransaction(new Expense(60, food));
+        assertEquals(3, alerts.size());
+        assertEquals(0.5, alerts.get(2).getThreshold());
+    }
+
+    @Test
+    void testParentBudgetCoversSubcategories() {
+        final Category groceries = new Category("Food/Groceries");
+        final Category restaurants = new Category("Food/Restaurants");
+        wallet.addTransaction(new Expense(40, groceries));
+        assertTrue(alerts.isEmpty());
+
+        wallet.addTransactions(List.of(new Expense(30, restaurants), new Expense(40, groceries)));
+        assertEquals(3, alerts.size());
+        assertEquals(food, alerts.get(2).getCategory());
+        assertEquals(110, alerts.get(2).getSpent());
+        assertEquals(110, monitor.getSpent(food));
+        assertEquals(80, monitor.getSpent(groceries));
+    }
+}
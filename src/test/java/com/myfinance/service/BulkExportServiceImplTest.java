@@ -0,0 +1,80 @@
+package com.myfinance.service;
+
+import com.myfinance.model.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkExportServiceImplTest {
+
+    private Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("pfms_bulk_export_test_");
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> walk = Files.walk(tempDir)) {
+            walk.sorted(Comparator.reverseOrder())
+                .map(Path::toFile)
+                .forEach(File::delete);
+        }
+    }
+
+    @Test
+    void testExportsAllWalletsAndResumes() throws IOException {
+        final Path dataDir = tempDir.resolve("data");
+        final DataDirectoryLayout layout = new DataDirectoryLayout(dataDir.toString());
+        final Category food = new Category("Food");
+        for (int i = 0; i < 50; i++) {
+            final Wallet wallet = new Wallet();
+            wallet.addTransaction(new Income(100_000, new Category("Salary")));
+            for (int j = 0; j < i; j++) {
+                wallet.addTransaction(new Expense(j + 1, food));
+            }
+            wallet.setBudget(food, 5_000);
+            WalletStorage.write(layout.prepareForWrite("user" + i), wallet);
+            layout.recordSaved("user" + i);
+        }
+        Files.writeString(dataDir.resolve("broken" + WalletStorage.WALLET_FILE_SUFFIX), "not a wallet");
+        try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(dataDir.resolve("string" + WalletStorage.WALLET_FILE_SUFFIX)))) {
+            out.writeObject("not a wallet");
+        }
+        final Path target = tempDir.resolve("export");
+
+        final BulkExportReport first = new BulkExportServiceImpl(3, 0).exportAll(dataDir.toString(), target.toString());
+        assertEquals(52, first.getWalletCount());
+        assertEquals(50, first.getExportedCount());
+        assertEquals(0, first.getSkippedCount());
+        assertEquals(2, first.getFailedCount());
+        assertEquals(50 + 49 * 50 / 2, first.getRowCount());
+        final List<String> lines = Files.readAllLines(target.resolve("user7" + BulkExportServiceImpl.TRANSACTIONS_FILE_SUFFIX));
+        assertEquals(9, lines.size());
+        assertTrue(lines.get(1).startsWith("INCOME,1000.00,Salary,"));
+        assertEquals("Food,50.00", Files.readAllLines(target.resolve("user7" + BulkExportServiceImpl.BUDGETS_FILE_SUFFIX)).get(1));
+
+        Files.setLastModifiedTime(layout.walletPath("user3"), FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+        Files.delete(target.resolve("user4" + BulkExportServiceImpl.BUDGETS_FILE_SUFFIX));
+        Files.setLastModifiedTime(layout.walletPath("user5"), FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+        final BulkExportReport resumed = new BulkExportServiceImpl(2, 0).exportAll(dataDir.toString(), target.toString());
+        assertEquals(3, resumed.getExportedCount());
+        assertEquals(47, resumed.getSkippedCount());
+        assertEquals(2, resumed.getFailedCount());
+        assertEquals(1 + 3 + 1 + 4 + 1 + 5, resumed.getRowCount());
+    }
+}
@@ -0,0 +1,81 @@
+package com.myfinance.service;
+
+import com.myfinance.model.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CrossUserAnalyticsServiceImplTest {
+
+    private Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("pfms_analytics_test_");
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> walk = Files.walk(tempDir)) {
+            walk.sorted(Comparator.reverseOrder())
+                .map(Path::toFile)
+                .forEach(File::delete);
+        }
+    }
+
+    @Test
+    void testAggregatesAcrossAllWallets() throws IOException {
+        final Category salary = new Category("Salary");
+        final Category food = new Category("Food");
+        final Category taxi = new Category("Taxi");
+        for (int i = 0; i < 200; i++) {
+            final Wallet wallet = new Wallet();
+            wallet.addTransaction(new Income(100_000, salary));
+            wallet.addTransaction(new Expense(i, food));
+            wallet.addTransaction(new Expense(2, taxi));
+            WalletStorage.write(WalletStorage.walletPath(tempDir.toString(), "user" + i), wallet);
+        }
+        Files.writeString(tempDir.resolve("broken" + WalletStorage.WALLET_FILE_SUFFIX), "not a wallet");
+        Files.writeString(tempDir.resolve("users.dat"), "ignored");
+
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        final AnalyticsReport report = new CrossUserAnalyticsServiceImpl(pool, 3).analyze(tempDir.toString());
+        pool.shutdown();
+
+        assertEquals(200, report.getWalletCount());
+        assertEquals(1, report.getFailedWalletCount());
+        assertEquals(199 * 200 / 2, report.getExpenseByCategory().get("Food"));
+        assertEquals(400, report.getExpenseByCategory().get("Taxi"));
+        assertNull(report.getExpenseByCategory().get("Salary"));
+
+        assertEquals(3, report.getTopSpenders().size());
+        assertEquals("user199", report.getTopSpenders().get(0).getLogin());
+        assertEquals("user198", report.getTopSpenders().get(1).getLogin());
+        assertEquals("user197", report.getTopSpenders().get(2).getLogin());
+
+        assertEquals(99_799, report.getMinBalance());
+        assertEquals(99_998, report.getMaxBalance());
+        assertEquals(200, Stream.of(report.getBalanceBucketCounts()).flatMapToLong(java.util.Arrays::stream).sum());
+        assertEquals(200, report.getBalanceBucketCounts()[1]);
+    }
+
+    @Test
+    void testEmptyDirectory() {
+        final AnalyticsReport report = new CrossUserAnalyticsServiceImpl().analyze(tempDir.resolve("missing").toString());
+
+        assertEquals(0, report.getWalletCount());
+        assertTrue(report.getTopSpenders().isEmpty());
+        assertEquals(0, report.getAverageBalance());
+    }
+}
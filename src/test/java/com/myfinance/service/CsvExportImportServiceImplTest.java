@@ -3,6 +3,7 @@ package com.myfinance.service;
 import com.myfinance.model.*;
 import com.myfinance.service.api.CsvExportImportService;
 import com.myfinance.service.api.FinanceManager;
+import com.myfinance.service.api.ImportMode;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -14,6 +15,12 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -31,10 +38,16 @@ class CsvExportImportServiceImplTest {
 
     @SuppressWarnings("ResultOfMethodCallIgnored")
     @AfterEach
-    void tearDown() {
+    void tearDown() throws IOException {
         
         new File("testuser_transactions.csv").delete();
         new File("testuser_budgets.csv").delete();
+        Path deltaDir = Paths.get("testuser_delta");
+        if (Files.exists(deltaDir)) {
+            try (Stream<Path> walk = Files.walk(deltaDir)) {
+                walk.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
     }
 
     @Test
@@ -47,7 +60,7 @@ class CsvExportImportServiceImplTest {
         Wallet wallet = walletOpt.get();
         wallet.addTransaction(new Income(1000, financeManager.getOrCreateCategory("Salary")));
         wallet.addTransaction(new Expense(150, financeManager.getOrCreateCategory("Food")));
-        wallet.setBudget(financeManager.getOrCreateCategory("Food"), 500.0);
+        wallet.setBudget(financeManager.getOrCreateCategory("Food"), 500);
 
         
         csvService.exportToCsv(wallet, "testuser");
@@ -58,7 +71,75 @@ class CsvExportImportServiceImplTest {
 
         assertEquals(2, newWallet.getTransactions().size());
         assertEquals(850.0, newWallet.getBalance());
-        assertEquals(500.0, newWallet.getBudgets().get(financeManager.getOrCreateCategory("Food")));
+        assertEquals(500, newWallet.getBudgets().get(financeManager.getOrCreateCategory("Food")));
+    }
+
+    @Test
+    void testExportAndImportCsv_KeepsTimestamps() throws IOException {
+        Wallet wallet = new Wallet();
+        long salaryTime = Instant.parse("2024-03-01T09:00:00Z").toEpochMilli();
+        long foodTime = Instant.parse("2024-03-02T18:30:15.250Z").toEpochMilli();
+        wallet.addTransaction(new Income(100_000, financeManager.getOrCreateCategory("Salary"), salaryTime));
+        wallet.addTransaction(new Expense(1_500, financeManager.getOrCreateCategory("Food"), foodTime));
+        csvService.exportToCsv(wallet, "testuser");
+
+        assertEquals(List.of("Type,Amount,Category,Timestamp", "INCOME,1000.00,Salary,2024-03-01T09:00:00Z",
+                "EXPENSE,15.00,Food,2024-03-02T18:30:15.250Z"), Files.readAllLines(Paths.get("testuser_transactions.csv")));
+
+        Wallet imported = new Wallet();
+        csvService.importFromCsv(imported, "testuser");
+        assertEquals(salaryTime, imported.getTransactions().get(0).getTimestamp());
+        assertEquals(foodTime, imported.getTransactions().get(1).getTimestamp());
+    }
+
+    @Test
+    void testImportCsv_WithoutTimestampUsesImportTime() throws IOException {
+        writeTransactions("EXPENSE,10.00,Food");
+        Files.writeString(Paths.get("testuser_budgets.csv"), "Category,Amount\n");
+
+        long before = System.currentTimeMillis();
+        Wallet wallet = new Wallet();
+        csvService.importFromCsv(wallet, "testuser");
+
+        assertEquals(1, wallet.getTransactions().size());
+        assertTrue(wallet.getTransactions().get(0).getTimestamp() >= before);
+    }
+
+    @Test
+    void testImportCsv_InvalidTimestamp() throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter("testuser_transactions.csv"))) {
+            writer.write("Type,Amount,Category,Timestamp\n");
+            writer.write("EXPENSE,10.00,Food,вчера\n");
+        }
+        Files.writeString(Paths.get("testuser_budgets.csv"), "Category,Amount\n");
+
+        Wallet wallet = new Wallet();
+        csvService.importFromCsv(wallet, "testuser");
+
+        assertEquals(0, wallet.getTransactions().size());
+    }
+
+    @Test
+    void testTimestampFormatMatchesIsoInstant() {
+        SplittableRandom random = new SplittableRandom(7);
+        long[] timestamps = new long[10_000];
+        timestamps[0] = 0;
+        timestamps[1] = -1;
+        timestamps[2] = Instant.parse("2024-02-29T23:59:59.999Z").toEpochMilli();
+        timestamps[3] = Instant.parse("2000-03-01T00:00:00Z").toEpochMilli();
+        timestamps[4] = Instant.parse("0000-01-01T00:00:00Z").toEpochMilli();
+        for (int i = 5; i < timestamps.length; i++) {
+            timestamps[i] = random.nextLong(-62_000_000_000_000L, 253_000_000_000_000L);
+        }
+        for (long timestamp : timestamps) {
+            StringBuilder buffer = new StringBuilder();
+            CsvExportImportServiceImpl.appendTimestamp(buffer, timestamp);
+            assertEquals(Instant.ofEpochMilli(timestamp).toString(), buffer.toString());
+            assertEquals(timestamp, CsvExportImportServiceImpl.parseTimestamp(buffer.toString()));
+        }
+        assertEquals(Instant.parse("2024-03-01T12:00:00+03:00").toEpochMilli(),
+                CsvExportImportServiceImpl.parseTimestamp("2024-03-01T12:00:00+03:00"));
+        assertThrows(DateTimeParseException.class, () -> CsvExportImportServiceImpl.parseTimestamp("2023-02-29T00:00:00Z"));
     }
 
     @Test
@@ -99,4 +180,227 @@ class CsvExportImportServiceImplTest {
 
         assertTrue(wallet.getTransactions().isEmpty());
     }
+
+    @Test
+    void testImportCsv_AmountsAreExactMinorUnits() throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter("testuser_transactions.csv"))) {
+            writer.write("Type,Amount,Category\n");
+            writer.write("INCOME,50000.0,Salary\n");
+            writer.write("INCOME,1.0E7,Bonus\n");
+            for (int i = 0; i < 10; i++) {
+                writer.write("EXPENSE,0.1,Food\n");
+            }
+            writer.write("EXPENSE,1500.5,Food\n");
+        }
+        Files.writeString(Paths.get("testuser_budgets.csv"), "Category,Amount\nFood,10000\n");
+
+        Wallet wallet = new Wallet();
+        csvService.importFromCsv(wallet, "testuser");
+
+        assertEquals(13, wallet.getTransactions().size());
+        assertEquals(5_000_000 + 1_000_000_000 - 100 - 150_050, wallet.getBalance());
+        assertEquals(1_000_000, wallet.getBudgets().get(financeManager.getOrCreateCategory("Food")));
+
+        csvService.exportToCsv(wallet, "testuser");
+        Wallet reimported = new Wallet();
+        csvService.importFromCsv(reimported, "testuser");
+
+        assertEquals(wallet.getBalance(), reimported.getBalance());
+        assertTrue(Files.readString(Paths.get("testuser_transactions.csv")).contains("EXPENSE,1500.50,Food"));
+    }
+
+    @Test
+    void testMergeImport_SkipsAlreadyImportedRows() throws IOException {
+        writeIdentifiedTransactions("INCOME,1000.00,Salary,1", "EXPENSE,3.50,Coffee,2", "EXPENSE,3.50,Coffee,3");
+        Files.writeString(Paths.get("testuser_budgets.csv"), "Category,Amount\nCoffee,100\n");
+
+        Wallet wallet = new Wallet();
+        csvService.importFromCsv(wallet, "testuser", ImportMode.MERGE);
+        assertEquals(3, wallet.getTransactions().size());
+        assertEquals(100_000 - 700, wallet.getBalance());
+
+        csvService.importFromCsv(wallet, "testuser", ImportMode.MERGE);
+        assertEquals(3, wallet.getTransactions().size());
+
+        writeIdentifiedTransactions("INCOME,1000.00,Salary,1", "EXPENSE,3.50,Coffee,2", "EXPENSE,3.50,Coffee,3", "EXPENSE,3.50,Coffee,4",
+                "EXPENSE,20.00,Taxi,5");
+        new File("testuser_budgets.csv").delete();
+        csvService.importFromCsv(wallet, "testuser", ImportMode.MERGE);
+
+        assertEquals(5, wallet.getTransactions().size());
+        assertEquals(100_000 - 1050 - 2000, wallet.getBalance());
+        assertEquals(10_000, wallet.getBudgets().get(financeManager.getOrCreateCategory("Coffee")));
+        assertEquals(5, wallet.getImportFingerprintCount());
+    }
+
+    @Test
+    void testMergeImport_IdColumnDistinguishesIdenticalRows() throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter("testuser_transactions.csv"))) {
+            writer.write("Type,Amount,Category,Id\n");
+            writer.write("EXPENSE,3.50,Coffee,2024-05-01\n");
+        }
+
+        Wallet wallet = new Wallet();
+        csvService.importFromCsv(wallet, "testuser", ImportMode.MERGE);
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter("testuser_transactions.csv"))) {
+            writer.write("Type,Amount,Category,Id\n");
+            writer.write("EXPENSE,3.50,Coffee,2024-05-01\n");
+            writer.write("EXPENSE,3.50,Coffee,2024-05-02\n");
+        }
+        csvService.importFromCsv(wallet, "testuser", ImportMode.MERGE);
+
+        assertEquals(2, wallet.getTransactions().size());
+    }
+
+    @Test
+    void testMergeImport_KeepsRepeatPurchasesFromSeparateFiles() throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter("testuser_transactions.csv"))) {
+            writer.write("Type,Amount,Category,Timestamp\n");
+            writer.write("EXPENSE,3.50,Coffee,2024-05-01T08:15:00Z\n");
+        }
+        Wallet wallet = new Wallet();
+        csvService.importFromCsv(wallet, "testuser", ImportMode.MERGE);
+        csvService.importFromCsv(wallet, "testuser", ImportMode.MERGE);
+        assertEquals(1, wallet.getTransactions().size());
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter("testuser_transactions.csv"))) {
+            writer.write("Type,Amount,Category,Timestamp\n");
+            writer.write("EXPENSE,3.50,Coffee,2024-05-02T08:15:00Z\n");
+        }
+        csvService.importFromCsv(wallet, "testuser", ImportMode.MERGE);
+
+        assertEquals(2, wallet.getTransactions().size());
+        assertEquals(-700, wallet.getBalance());
+    }
+
+    @Test
+    void testMergeImport_RejectsFilesWithoutTimestampOrId() throws IOException {
+        writeTransactions("EXPENSE,3.50,Coffee");
+
+        Wallet wallet = new Wallet();
+        wallet.addTransaction(new Expense(350, financeManager.getOrCreateCategory("Coffee")));
+        csvService.importFromCsv(wallet, "testuser", ImportMode.MERGE);
+
+        assertEquals(1, wallet.getTransactionCount());
+        assertEquals(0, wallet.getImportFingerprintCount());
+    }
+
+    @Test
+    void testReplaceImport_RecordsFingerprintsForLaterMerge() throws IOException {
+        writeIdentifiedTransactions("INCOME,1000.00,Salary,1", "EXPENSE,10.00,Food,2");
+        Files.writeString(Paths.get("testuser_budgets.csv"), "Category,Amount\n");
+
+        Wallet wallet = new Wallet();
+        wallet.addTransaction(new Income(5, financeManager.getOrCreateCategory("Gift")));
+        csvService.importFromCsv(wallet, "testuser", ImportMode.REPLACE);
+        csvService.importFromCsv(wallet, "testuser", ImportMode.MERGE);
+
+        assertEquals(2, wallet.getTransactions().size());
+        assertEquals(99_000, wallet.getBalance());
+    }
+
+    @Test
+    void testDeltaExport_WritesOnlyRowsAfterWatermark() throws IOException {
+        Wallet wallet = new Wallet();
+        Category food = financeManager.getOrCreateCategory("Food");
+        wallet.addTransaction(new Income(100_000, financeManager.getOrCreateCategory("Salary")));
+        wallet.addTransaction(new Expense(1_050, food));
+
+        assertEquals(2, csvService.exportDeltaCsv(wallet, "testuser", "warehouse"));
+        assertEquals(0, csvService.exportDeltaCsv(wallet, "testuser", "warehouse"));
+        wallet.addTransaction(new Expense(250, food, 1_714_551_300_000L));
+        assertEquals(1, csvService.exportDeltaCsv(wallet, "testuser", "warehouse"));
+        assertEquals(3, csvService.exportDeltaCsv(wallet, "testuser", "audit"));
+
+        Path dir = Paths.get("testuser_delta", "warehouse");
+        assertEquals(List.of("Id,Type,Amount,Category,Timestamp,Change", "2,EXPENSE,2.50,Food,2024-05-01T08:15:00Z,ADDED"),
+                Files.readAllLines(dir.resolve("part-00002.csv")));
+        assertEquals(List.of("Part,File,FirstSequence,NextSequence,Rows,Reset",
+                "1,part-00001.csv,0,2,2,true", "2,part-00002.csv,2,3,1,false"), Files.readAllLines(dir.resolve("manifest.csv")));
+    }
+
+    @Test
+    void testDeltaExport_ReplaceImportStartsFullPart() throws IOException {
+        Wallet wallet = new Wallet();
+        wallet.addTransaction(new Expense(100, financeManager.getOrCreateCategory("Food")));
+        csvService.exportDeltaCsv(wallet, "testuser", "warehouse");
+
+        writeTransactions("INCOME,1000.00,Salary", "EXPENSE,10.00,Food");
+        Files.writeString(Paths.get("testuser_budgets.csv"), "Category,Amount\n");
+        csvService.importFromCsv(wallet, "testuser", ImportMode.REPLACE);
+
+        assertEquals(2, csvService.exportDeltaCsv(wallet, "testuser", "warehouse"));
+        List<String> manifest = Files.readAllLines(Paths.get("testuser_delta", "warehouse", "manifest.csv"));
+        assertEquals("2,part-00002.csv,1,3,2,true", manifest.get(2));
+    }
+
+    @Test
+    void testDeltaExport_EditsAndDeletesAreDeltaRecords() throws IOException {
+        Wallet wallet = new Wallet();
+        Category food = financeManager.getOrCreateCategory("Food");
+        for (int i = 0; i < 4; i++) {
+            wallet.addTransaction(new Expense(100 + i, food, i * 1_000L));
+        }
+        assertEquals(4, csvService.exportDeltaCsv(wallet, "testuser", "warehouse"));
+
+        wallet.editTransaction(1, new Expense(500, food, 1_000L));
+        wallet.deleteTransaction(2);
+        wallet.addTransaction(new Expense(600, food, 9_000L));
+        wallet.addTransaction(new Expense(700, food, 9_500L));
+        wallet.deleteTransaction(5);
+        wallet.editTransaction(1, new Expense(550, food, 1_000L));
+
+        assertEquals(3, csvService.exportDeltaCsv(wallet, "testuser", "warehouse"));
+        Path dir = Paths.get("testuser_delta", "warehouse");
+        assertEquals(List.of("Id,Type,Amount,Category,Timestamp,Change", "1,EXPENSE,5.50,Food,1970-01-01T00:00:01Z,EDITED",
+                "2,,,,,DELETED", "4,EXPENSE,6.00,Food,1970-01-01T00:00:09Z,ADDED"), Files.readAllLines(dir.resolve("part-00002.csv")));
+        assertEquals("2,part-00002.csv,4,10,3,false", Files.readAllLines(dir.resolve("manifest.csv")).get(2));
+
+        wallet.deleteTransaction(0);
+        assertEquals(1, csvService.exportDeltaCsv(wallet, "testuser", "warehouse"));
+        assertEquals(List.of("Id,Type,Amount,Category,Timestamp,Change", "0,,,,,DELETED"), Files.readAllLines(dir.resolve("part-00003.csv")));
+    }
+
+    @Test
+    void testCompactDeltaExport_MergesOldPartsAndKeepsNewest() throws IOException {
+        Wallet wallet = new Wallet();
+        Category food = financeManager.getOrCreateCategory("Food");
+        for (int i = 1; i <= 4; i++) {
+            wallet.addTransaction(new Expense(i * 100, food, i * 1_000L));
+            csvService.exportDeltaCsv(wallet, "testuser", "warehouse");
+        }
+
+        assertEquals(3, csvService.compactDeltaExport("testuser", "warehouse"));
+
+        Path dir = Paths.get("testuser_delta", "warehouse");
+        assertEquals(List.of("Part,File,FirstSequence,NextSequence,Rows,Reset",
+                "3,part-00001-00003.csv,0,3,3,true", "4,part-00004.csv,3,4,1,false"), Files.readAllLines(dir.resolve("manifest.csv")));
+        assertEquals(List.of("Id,Type,Amount,Category,Timestamp,Change", "0,EXPENSE,1.00,Food,1970-01-01T00:00:01Z,ADDED",
+                "1,EXPENSE,2.00,Food,1970-01-01T00:00:02Z,ADDED", "2,EXPENSE,3.00,Food,1970-01-01T00:00:03Z,ADDED"),
+                Files.readAllLines(dir.resolve("part-00001-00003.csv")));
+        assertFalse(Files.exists(dir.resolve("part-00001.csv")));
+        assertFalse(Files.exists(dir.resolve("part-00003.csv")));
+
+        wallet.addTransaction(new Expense(500, food));
+        assertEquals(1, csvService.exportDeltaCsv(wallet, "testuser", "warehouse"));
+        assertTrue(Files.exists(dir.resolve("part-00005.csv")));
+    }
+
+    private static void writeTransactions(String... rows) throws IOException {
+        writeTransactionFile("Type,Amount,Category", rows);
+    }
+
+    private static void writeIdentifiedTransactions(String... rows) throws IOException {
+        writeTransactionFile("Type,Amount,Category,Id", rows);
+    }
+
+    private static void writeTransactionFile(String header, String... rows) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter("testuser_transactions.csv"))) {
+            writer.write(header + "\n");
+            for (String row : rows) {
+                writer.write(row + "\n");
+            }
+        }
+    }
 }
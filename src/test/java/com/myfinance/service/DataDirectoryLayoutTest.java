@@ -0,0 +1,126 @@
+package com.myfinance.service;
+
+import com.myfinance.model.*;
+import com.myfinance.service.api.FinanceManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataDirectoryLayoutTest {
+
+    private Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("pfms_layout_test_");
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> walk = Files.walk(tempDir)) {
+            walk.sorted(Comparator.reverseOrder())
+                .map(Path::toFile)
+                .forEach(File::delete);
+        }
+    }
+
+    @Test
+    void testWalletIsStoredInShardDirectory() {
+        final FinanceManager financeManager = new FinanceManagerImpl(tempDir.toString());
+        financeManager.register("testuser", "password");
+
+        final DataDirectoryLayout layout = new DataDirectoryLayout(tempDir.toString());
+        final Path walletPath = layout.walletPath("testuser");
+        assertTrue(Files.exists(walletPath));
+        assertEquals(tempDir, walletPath.getParent().getParent().getParent());
+        assertEquals("testuser.wallet", walletPath.getFileName().toString());
+        assertFalse(Files.exists(tempDir.resolve("testuser_wallet.dat")));
+
+        assertTrue(layout.getManifest().contains("testuser"));
+        assertEquals(walletPath.toFile().length(), layout.getManifest().sizeOf("testuser").orElseThrow());
+    }
+
+    @Test
+    void testShardIsStableAndSpread() {
+        assertEquals(DataDirectoryLayout.shardOf("alice"), DataDirectoryLayout.shardOf("alice"));
+        final long distinctShards = Stream.iterate(0, i -> i + 1).limit(10_000)
+                .map(i -> DataDirectoryLayout.shardOf("user" + i))
+                .distinct()
+                .count();
+        assertTrue(distinctShards > 7_000, "distinct shards " + distinctShards);
+    }
+
+    @Test
+    void testLegacyWalletMigratesOnLogin() throws IOException {
+        final FinanceManager financeManager = new FinanceManagerImpl(tempDir.toString());
+        financeManager.register("testuser", "password");
+        final DataDirectoryLayout layout = new DataDirectoryLayout(tempDir.toString());
+        final Wallet legacyWallet = new Wallet();
+        legacyWallet.addTransaction(new Income(1000, new Category("Salary")));
+        WalletStorage.write(layout.legacyWalletPath("testuser"), legacyWallet);
+        Files.delete(layout.walletPath("testuser"));
+
+        final FinanceManager newFinanceManager = new FinanceManagerImpl(tempDir.toString());
+        assertTrue(newFinanceManager.login("testuser", "password"));
+
+        assertEquals(1000, newFinanceManager.getWalletBalance());
+        assertFalse(Files.exists(layout.legacyWalletPath("testuser")));
+        assertTrue(Files.exists(layout.walletPath("testuser")));
+    }
+
+    @Test
+    void testMigrateAllAndManifestRecovery() throws IOException {
+        final DataDirectoryLayout legacy = new DataDirectoryLayout(tempDir.toString());
+        for (int i = 0; i < 50; i++) {
+            final Wallet wallet = new Wallet();
+            wallet.addTransaction(new Income(i, new Category("Salary")));
+            WalletStorage.write(legacy.legacyWalletPath("user" + i), wallet);
+        }
+        assertEquals(50, legacy.walletFiles().size());
+
+        assertEquals(50, new FinanceManagerImpl(tempDir.toString()).migrateToShardedLayout());
+
+        final DataDirectoryLayout migrated = new DataDirectoryLayout(tempDir.toString());
+        assertEquals(50, migrated.getManifest().size());
+        assertEquals(50, migrated.walletFiles().size());
+        assertTrue(migrated.walletFiles().stream().allMatch(Files::exists));
+
+        Files.write(tempDir.resolve(WalletManifest.FILE_NAME), new byte[]{1, 2, 3});
+        final DataDirectoryLayout recovered = new DataDirectoryLayout(tempDir.toString());
+        assertEquals(50, recovered.getManifest().size());
+        assertEquals(migrated.getManifest().totalBytes(), recovered.getManifest().totalBytes());
+    }
+
+    @Test
+    void testManifestReplaysRemovalsAndCompacts() {
+        final WalletManifest manifest = new WalletManifest(tempDir.resolve(WalletManifest.FILE_NAME));
+        for (int i = 0; i < 3000; i++) {
+            manifest.put("user" + (i % 10), DataDirectoryLayout.shardOf("user" + (i % 10)), i);
+        }
+        manifest.remove("user0");
+
+        final WalletManifest reloaded = new WalletManifest(tempDir.resolve(WalletManifest.FILE_NAME));
+        assertTrue(reloaded.load());
+        assertEquals(9, reloaded.size());
+        assertFalse(reloaded.contains("user0"));
+        assertEquals(2999, reloaded.sizeOf("user9").orElseThrow());
+        assertTrue(reloaded.needsCompaction());
+
+        reloaded.compact();
+        assertFalse(reloaded.needsCompaction());
+        final WalletManifest compacted = new WalletManifest(tempDir.resolve(WalletManifest.FILE_NAME));
+        assertTrue(compacted.load());
+        assertEquals(9, compacted.size());
+        assertEquals(2999, compacted.sizeOf("user9").orElseThrow());
+    }
+}
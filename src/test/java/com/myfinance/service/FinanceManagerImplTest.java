@@ -1,17 +1,34 @@
 package com.myfinance.service;
 
 import com.myfinance.model.*;
+import com.myfinance.model.store.MappedTransactionStore;
+import com.myfinance.model.store.TieredTransactionStore;
 import com.myfinance.service.api.FinanceManager;
+import com.myfinance.service.codec.WalletCodecs;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -232,4 +249,356 @@ class FinanceManagerImplTest {
         assertEquals(1000, newWallet.getBalance());
         assertEquals(1, newWallet.getTransactions().size());
     }
+
+    @Test
+    void testSummaryHeaderServesBalanceAndReportWithoutTransactions() throws IOException {
+        financeManager.register("testuser", "password");
+        financeManager.login("testuser", "password");
+        final Wallet wallet = financeManager.getCurrentUserWallet().orElseThrow();
+        wallet.addTransaction(new Income(5_000_00, financeManager.getOrCreateCategory("Зарплата")));
+        wallet.addTransaction(new Expense(300_00, financeManager.getOrCreateCategory("Еда/Продукты")));
+        wallet.addTransaction(new Expense(120_00, financeManager.getOrCreateCategory("Еда/Кафе")));
+        wallet.setBudget(financeManager.getOrCreateCategory("Еда"), 1_000_00);
+        final String expected = new ReportGeneratorImpl().generateFullReport(wallet);
+        financeManager.logout();
+
+        final Path walletPath = new DataDirectoryLayout(tempDir.toString()).resolveForRead("testuser");
+        final WalletSummary summary = WalletStorage.readSummary(walletPath).orElseThrow();
+        assertEquals(3, summary.getTransactionCount());
+        final long bodyOffset = Integer.BYTES + 3 + Integer.BYTES + summaryBytes(summary);
+        try (final FileChannel channel = FileChannel.open(walletPath, StandardOpenOption.WRITE)) {
+            channel.truncate(bodyOffset);
+        }
+
+        final FinanceManager restarted = new FinanceManagerImpl(tempDir.toString());
+        assertTrue(restarted.login("testuser", "password"));
+        assertEquals(4_580_00, restarted.getWalletBalance());
+        assertEquals(expected, new ReportGeneratorImpl().generateFullReport(restarted.getCurrentUserSummary().orElseThrow()));
+        assertTrue(restarted.getCurrentUserWallet().isEmpty());
+        assertEquals(4_580_00, restarted.getWalletBalance());
+        restarted.logout();
+        assertEquals(bodyOffset, Files.size(walletPath));
+    }
+
+    @Test
+    void testBaselineWalletFilesLoad() throws IOException {
+        for (final String file : new String[]{"users.dat", "alice_wallet.dat"}) {
+            try (final InputStream in = getClass().getResourceAsStream("/baseline-data/" + file)) {
+                Files.copy(in, tempDir.resolve(file));
+            }
+        }
+
+        final FinanceManager migrated = new FinanceManagerImpl(tempDir.toString());
+        assertTrue(migrated.login("alice", "secret"));
+        assertEquals(350_15, migrated.getWalletBalance());
+        final Wallet wallet = migrated.getCurrentUserWallet().orElseThrow();
+        assertEquals(3, wallet.getTransactionCount());
+        assertEquals(150_35, wallet.getCategoryTotal(new Category("Еда"), TransactionType.EXPENSE));
+        assertEquals(1_000_00L, wallet.getBudgets().get(new Category("Еда")));
+        migrated.logout();
+
+        final FinanceManager restarted = new FinanceManagerImpl(tempDir.toString());
+        assertTrue(restarted.login("alice", "secret"));
+        assertEquals(350_15, restarted.getWalletBalance());
+        assertEquals(3, restarted.getCurrentUserWallet().orElseThrow().getTransactionCount());
+    }
+
+    @Test
+    void testUnreadableWalletIsNotOverwritten() throws IOException {
+        financeManager.register("testuser", "password");
+        final Path walletPath = new DataDirectoryLayout(tempDir.toString()).resolveForRead("testuser");
+        final byte[] garbage = {1, 2, 3, 4, 5};
+        Files.write(walletPath, garbage);
+
+        final FinanceManagerImpl restarted = new FinanceManagerImpl(tempDir.toString());
+        assertFalse(restarted.login("testuser", "password"));
+        assertTrue(restarted.findWallet("testuser").isEmpty());
+        assertEquals(0, restarted.postDueRecurringTransactions());
+        restarted.logout();
+        assertArrayEquals(garbage, Files.readAllBytes(walletPath));
+    }
+
+    private static int summaryBytes(final WalletSummary summary) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        summary.writeTo(new DataOutputStream(bytes));
+        return bytes.size();
+    }
+
+    @Test
+    void testUsersAreReadLazilyAfterRestart() throws IOException {
+        for (int i = 0; i < 50; i++) {
+            assertTrue(financeManager.register("user" + i, "password" + i));
+        }
+        assertTrue(Files.exists(tempDir.resolve(UserDirectory.FILTER_FILE_NAME)));
+        assertFalse(Files.exists(tempDir.resolve(UserDirectory.LEGACY_FILE_NAME)));
+
+        final FinanceManager restarted = new FinanceManagerImpl(tempDir.toString());
+        assertFalse(restarted.register("user7", "other"));
+        assertTrue(restarted.login("user42", "password42"));
+        assertTrue(restarted.transfer("user3", 0, "Подарок"));
+        assertFalse(restarted.transfer("missing", 0, "Подарок"));
+        restarted.logout();
+        assertFalse(restarted.login("user42", "password41"));
+        assertFalse(restarted.login("missing", "password"));
+    }
+
+    @Test
+    void testUserWriteErrorIsReportedToCaller() throws IOException {
+        final DataDirectoryLayout layout = new DataDirectoryLayout(tempDir.toString());
+        final Path shard = layout.userPath("blocked").getParent();
+        Files.createDirectories(shard.getParent());
+        Files.write(shard, new byte[0]);
+
+        final UserDirectory users = new UserDirectory(layout);
+        assertThrows(IOException.class, () -> users.create(new User("blocked", "secret")));
+        assertFalse(financeManager.register("blocked", "secret"));
+
+        Files.delete(shard);
+        assertTrue(financeManager.register("blocked", "secret"));
+        assertTrue(new FinanceManagerImpl(tempDir.toString()).login("blocked", "secret"));
+    }
+
+    @Test
+    void testLegacyUsersFileIsMigrated() throws IOException {
+        final Map<String, User> legacyUsers = new HashMap<>();
+        legacyUsers.put("legacy", new User("legacy", "secret"));
+        try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(tempDir.resolve(UserDirectory.LEGACY_FILE_NAME)))) {
+            out.writeObject(legacyUsers);
+        }
+
+        final FinanceManager migrated = new FinanceManagerImpl(tempDir.toString());
+        assertTrue(migrated.login("legacy", "secret"));
+        assertFalse(Files.exists(tempDir.resolve(UserDirectory.LEGACY_FILE_NAME)));
+        assertTrue(Files.exists(tempDir.resolve(UserDirectory.LEGACY_FILE_NAME + ".migrated")));
+
+        assertTrue(new FinanceManagerImpl(tempDir.toString()).login("legacy", "secret"));
+    }
+
+    @Test
+    void testMixedCompressionDirectoryLoads() {
+        financeManager.register("plain", "password");
+        financeManager.login("plain", "password");
+        financeManager.getCurrentUserWallet().orElseThrow().addTransaction(new Income(1_000_00, financeManager.getOrCreateCategory("Зарплата")));
+        financeManager.logout();
+
+        final FinanceManagerImpl deflate = new FinanceManagerImpl(tempDir.toString(), Clock.systemDefaultZone(), WalletCodecs.deflate(6));
+        assertTrue(deflate.register("packed", "password"));
+        assertTrue(deflate.login("packed", "password"));
+        deflate.getCurrentUserWallet().orElseThrow().addTransaction(new Expense(250_00, deflate.getOrCreateCategory("Еда")));
+        deflate.logout();
+
+        final FinanceManagerImpl lz = new FinanceManagerImpl(tempDir.toString(), Clock.systemDefaultZone(), WalletCodecs.LZ);
+        assertTrue(lz.login("plain", "password"));
+        assertEquals(1_000_00, lz.getWalletBalance());
+        lz.logout();
+        assertTrue(lz.login("packed", "password"));
+        assertEquals(-250_00, lz.getWalletBalance());
+        lz.logout();
+        assertEquals(2, lz.recompressWallets());
+
+        final FinanceManager plain = new FinanceManagerImpl(tempDir.toString());
+        assertTrue(plain.login("packed", "password"));
+        assertEquals(-250_00, plain.getWalletBalance());
+    }
+
+    @Test
+    void testConvertToMappedStorage() {
+        financeManager.register("testuser", "password");
+        financeManager.login("testuser", "password");
+        final Category category = financeManager.getOrCreateCategory("Salary");
+        financeManager.getCurrentUserWallet().ifPresent(wallet -> {
+            wallet.addTransaction(new Income(1000, category));
+            wallet.setBudget(category, 300);
+        });
+        financeManager.logout();
+
+        final FinanceManagerImpl admin = new FinanceManagerImpl(tempDir.toString());
+        assertTrue(admin.convertToMappedStorage("testuser"));
+        assertFalse(admin.convertToMappedStorage("nonexistent"));
+
+        final FinanceManager newFinanceManager = new FinanceManagerImpl(tempDir.toString());
+        assertTrue(newFinanceManager.login("testuser", "password"));
+        final Wallet wallet = newFinanceManager.getCurrentUserWallet().orElseThrow();
+        assertTrue(wallet.getTransactionStore() instanceof MappedTransactionStore);
+        assertEquals(1000, wallet.getBalance());
+        assertEquals(1, wallet.getTransactions().size());
+        assertEquals(300, wallet.getBudgets().get(category));
+    }
+
+    @Test
+    void testConvertToTieredStorage() {
+        financeManager.register("testuser", "password");
+        financeManager.login("testuser", "password");
+        final Category category = financeManager.getOrCreateCategory("Food");
+        financeManager.getCurrentUserWallet().ifPresent(wallet -> {
+            wallet.addTransaction(new Income(100_000, financeManager.getOrCreateCategory("Salary")));
+            for (int i = 0; i < 20_000; i++) {
+                wallet.addTransaction(new Expense(1, category));
+            }
+            wallet.setBudget(category, 300);
+        });
+        financeManager.logout();
+
+        final FinanceManagerImpl admin = new FinanceManagerImpl(tempDir.toString());
+        assertTrue(admin.convertToTieredStorage("testuser"));
+        assertFalse(admin.convertToTieredStorage("nonexistent"));
+
+        final FinanceManager newFinanceManager = new FinanceManagerImpl(tempDir.toString());
+        assertTrue(newFinanceManager.login("testuser", "password"));
+        final Wallet wallet = newFinanceManager.getCurrentUserWallet().orElseThrow();
+        final TieredTransactionStore store = (TieredTransactionStore) wallet.getTransactionStore();
+        assertEquals(3, store.getSealedSegmentCount());
+        assertEquals(80_000, wallet.getBalance());
+        assertEquals(20_001, wallet.getTransactions().size());
+        assertEquals(300, wallet.getBudgets().get(category));
+        assertTrue(Files.isDirectory(new DataDirectoryLayout(tempDir.toString()).coldSegmentsPath("testuser")));
+    }
+
+    @Test
+    void testEditAndDeleteTransactionById() {
+        financeManager.register("testuser", "password");
+        financeManager.login("testuser", "password");
+        final Wallet wallet = financeManager.getCurrentUserWallet().orElseThrow();
+        final Category food = financeManager.getOrCreateCategory("Food");
+        final long salaryId = wallet.addTransaction(new Income(1000, financeManager.getOrCreateCategory("Salary")));
+        final long lunchId = wallet.addTransaction(new Expense(300, food));
+        final long taxiId = wallet.addTransaction(new Expense(200, financeManager.getOrCreateCategory("Taxi")));
+        assertTrue(salaryId < lunchId && lunchId < taxiId);
+
+        assertTrue(financeManager.editTransaction(lunchId, 30, "Coffee"));
+        assertEquals(770, wallet.getBalance());
+        final Transaction edited = wallet.getTransaction(lunchId).orElseThrow();
+        assertTrue(edited instanceof Expense);
+        assertEquals("Coffee", edited.getCategory().getName());
+        assertFalse(wallet.getExpenseStatistics().containsKey(food));
+
+        assertTrue(financeManager.deleteTransaction(taxiId));
+        assertFalse(financeManager.deleteTransaction(taxiId));
+        assertFalse(financeManager.editTransaction(taxiId, 10, "Taxi"));
+        assertEquals(970, wallet.getBalance());
+        assertEquals(2, wallet.getTransactionCount());
+        assertEquals(2, wallet.getTransactions().size());
+        financeManager.logout();
+
+        final FinanceManager newFinanceManager = new FinanceManagerImpl(tempDir.toString());
+        newFinanceManager.login("testuser", "password");
+        final Wallet loaded = newFinanceManager.getCurrentUserWallet().orElseThrow();
+        assertEquals(970, loaded.getBalance());
+        assertTrue(loaded.getTransaction(taxiId).isEmpty());
+        assertEquals(30, loaded.getTransaction(lunchId).orElseThrow().getAmount());
+        assertTrue(loaded.addTransaction(new Income(1, food)) > taxiId);
+    }
+
+    @Test
+    void testBackgroundCompactionIsSaved() throws Exception {
+        financeManager.register("testuser", "password");
+        financeManager.login("testuser", "password");
+        final Wallet wallet = financeManager.getCurrentUserWallet().orElseThrow();
+        final List<Transaction> expenses = new ArrayList<>();
+        for (int i = 0; i < 4000; i++) {
+            expenses.add(new Expense(i + 1, new Category("Food")));
+        }
+        wallet.addTransactions(expenses);
+        // Only the last delete reaches the compaction threshold, so exactly one compaction runs.
+        for (long id = 0; id < 2 * Wallet.COMPACTION_MIN_TOMBSTONES; id += 2) {
+            assertTrue(financeManager.deleteTransaction(id));
+        }
+
+        final Path walletPath = new DataDirectoryLayout(tempDir.toString()).resolveForRead("testuser");
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        Wallet saved = WalletStorage.read(walletPath);
+        while (saved.getTransactionCount() != 2976 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            saved = WalletStorage.read(walletPath);
+        }
+        assertEquals(0, saved.getTombstoneCount());
+        assertEquals(2976, saved.getTransactionCount());
+        assertEquals(wallet.getBalance(), saved.getBalance());
+    }
+
+    @Test
+    void testTombstoneCompactionKeepsIds() {
+        final Wallet wallet = new Wallet(new MappedTransactionStore(tempDir.resolve("segments"), 256));
+        final Category food = new Category("Food");
+        final long[] ids = new long[4000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = wallet.addTransaction(new Expense(i + 1, food));
+        }
+        for (int i = 0; i < ids.length; i += 2) {
+            wallet.deleteTransaction(ids[i]);
+        }
+        assertTrue(wallet.needsCompaction());
+        final long balance = wallet.getBalance();
+
+        wallet.compactTombstones();
+
+        assertEquals(0, wallet.getTombstoneCount());
+        assertEquals(2000, wallet.getTransactionCount());
+        assertEquals(balance, wallet.getBalance());
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(i % 2 == 1, wallet.getTransaction(ids[i]).isPresent());
+        }
+        assertEquals(4000, wallet.getTransaction(ids[3999]).orElseThrow().getAmount());
+        final long[] visited = new long[1];
+        wallet.forEachTransactionFrom(ids[3000], (id, type, amount, category, timestamp) -> {
+            assertEquals(id + 1, amount);
+            visited[0]++;
+        });
+        assertEquals(500, visited[0]);
+        assertEquals(2000, wallet.getExpenseStatistics().get(food).getCount());
+    }
+
+    @Test
+    void testHierarchicalCategoriesRollUpTotals() {
+        final Category groceries = financeManager.getOrCreateCategory(" Food / Groceries ");
+        final Category restaurants = financeManager.getOrCreateCategory("Food/Restaurants");
+        final Category food = financeManager.getOrCreateCategory("Food");
+        assertEquals("Food/Groceries", groceries.getName());
+        assertSame(food, groceries.getParent());
+        assertSame(food, restaurants.getParent());
+        assertEquals(1, groceries.getDepth());
+        assertTrue(groceries.isWithin(food));
+        assertEquals(Optional.of(groceries), financeManager.getCategoryByName("Food/ Groceries"));
+
+        final Wallet wallet = new Wallet();
+        wallet.addTransaction(new Expense(300, groceries));
+        final long dinnerId = wallet.addTransaction(new Expense(500, restaurants));
+        wallet.addTransaction(new Expense(50, food));
+        assertEquals(850, wallet.getCategoryTotal(food, TransactionType.EXPENSE));
+        assertEquals(300, wallet.getCategoryTotal(groceries, TransactionType.EXPENSE));
+        assertEquals(3, wallet.getCategoryTotals().get(food).getCount());
+
+        wallet.deleteTransaction(dinnerId);
+        assertEquals(350, wallet.getCategoryTotal(food, TransactionType.EXPENSE));
+        assertEquals(0, wallet.getCategoryTotal(restaurants, TransactionType.EXPENSE));
+    }
+
+    @Test
+    void testRecurringCatchUpPostsMissedOccurrencesAcrossUsers() {
+        final Clock january = Clock.fixed(Instant.parse("2024-01-01T10:00:00Z"), ZoneOffset.UTC);
+        final FinanceManager first = new FinanceManagerImpl(tempDir.toString(), january);
+        first.register("tenant", "password");
+        first.register("idle", "password");
+        first.login("tenant", "password");
+        final Wallet wallet = first.getCurrentUserWallet().orElseThrow();
+        wallet.addRecurringRule(TransactionType.EXPENSE, 50_000, first.getOrCreateCategory("Housing/Rent"),
+                new CronSchedule("0 9 1 * *"), january.millis(), ZoneOffset.UTC);
+        wallet.addRecurringRule(TransactionType.INCOME, 200_000, first.getOrCreateCategory("Salary"),
+                new CronSchedule("0 9 5 * *"), january.millis(), ZoneOffset.UTC);
+        assertEquals(0, first.postDueRecurringTransactions());
+        first.logout();
+
+        final Clock may = Clock.fixed(Instant.parse("2024-05-03T00:00:00Z"), ZoneOffset.UTC);
+        final FinanceManager restarted = new FinanceManagerImpl(tempDir.toString(), may);
+        assertEquals(8, restarted.postDueRecurringTransactions());
+        assertEquals(0, restarted.postDueRecurringTransactions());
+
+        restarted.login("tenant", "password");
+        final Wallet loaded = restarted.getCurrentUserWallet().orElseThrow();
+        assertEquals(8, loaded.getTransactionCount());
+        assertEquals(4 * 200_000 - 4 * 50_000, loaded.getBalance());
+        assertEquals(Instant.parse("2024-02-01T09:00:00Z").toEpochMilli(), loaded.getTransactions().get(1).getTimestamp());
+        assertEquals(Instant.parse("2024-05-05T09:00:00Z").toEpochMilli(), loaded.getRecurringRules().get(1).getNextDue());
+        assertEquals(200_000, loaded.getCategoryTotal(restarted.getOrCreateCategory("Housing"), TransactionType.EXPENSE));
+    }
 }
@@ -0,0 +1,225 @@
+package com.myfinance.service;
+
+import com.myfinance.model.*;
+import com.myfinance.service.codec.WalletCodecs;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicationTest {
+
+    private Path tempDir;
+    private Path leaderDir;
+    private Path followerDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("pfms_replication_test_");
+        leaderDir = tempDir.resolve("leader");
+        followerDir = tempDir.resolve("follower");
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> walk = Files.walk(tempDir)) {
+            walk.sorted(Comparator.reverseOrder())
+                .map(Path::toFile)
+                .forEach(File::delete);
+        }
+    }
+
+    @Test
+    void testFollowerAppliesShippedWallets() throws IOException {
+        final ReplicationLog log = new ReplicationLog(leaderDir.resolve(ReplicationLog.DIRECTORY_NAME));
+        final FinanceManagerImpl leader = openLeader(log);
+        final ReplicaFollower follower = new ReplicaFollower(leaderDir.toString(), followerDir.toString());
+        follower.pollOnce();
+        assertEquals(1, follower.getSnapshotCount());
+
+        addIncome(leader, "alice", 150_000);
+        assertTrue(follower.pollOnce() > 0);
+        assertEquals(150_000, follower.findWallet("alice").orElseThrow().getBalance());
+        assertEquals(log.getNextLsn() - 1, follower.getAppliedLsn());
+        assertEquals(0, follower.pollOnce());
+        assertEquals(0, follower.getLagMillis());
+
+        final FinanceManagerImpl replicaManager = new FinanceManagerImpl(followerDir.toString());
+        assertTrue(replicaManager.login("alice", "secret"));
+        assertEquals(150_000, replicaManager.getWalletBalance());
+        assertEquals(1, follower.getSnapshotCount());
+        log.close();
+    }
+
+    @Test
+    void testFollowerResumesFromSavedPosition() throws IOException {
+        final ReplicationLog log = new ReplicationLog(leaderDir.resolve(ReplicationLog.DIRECTORY_NAME));
+        final FinanceManagerImpl leader = openLeader(log);
+        addIncome(leader, "alice", 10_000);
+        new ReplicaFollower(leaderDir.toString(), followerDir.toString()).pollOnce();
+
+        addIncome(leader, "bob", 20_000);
+        final ReplicaFollower restarted = new ReplicaFollower(leaderDir.toString(), followerDir.toString());
+        assertTrue(restarted.pollOnce() > 0);
+        assertEquals(0, restarted.getSnapshotCount());
+        assertEquals(20_000, restarted.findWallet("bob").orElseThrow().getBalance());
+        log.close();
+    }
+
+    @Test
+    void testFollowerTakesSnapshotWhenLogIsTruncated() throws IOException {
+        final ReplicationLog log = new ReplicationLog(leaderDir.resolve(ReplicationLog.DIRECTORY_NAME), 1024, 8192);
+        final FinanceManagerImpl leader = openLeader(log);
+        final ReplicaFollower follower = new ReplicaFollower(leaderDir.toString(), followerDir.toString(),
+                new ReplicationLog(leaderDir.resolve(ReplicationLog.DIRECTORY_NAME), 1024, 8192));
+        follower.pollOnce();
+
+        for (int i = 0; i < 40; i++) {
+            addIncome(leader, "user" + i, 1_000 + i);
+        }
+        follower.pollOnce();
+        assertEquals(2, follower.getSnapshotCount());
+        for (int i = 0; i < 40; i++) {
+            assertEquals(1_000 + i, follower.findWallet("user" + i).orElseThrow().getBalance());
+        }
+
+        addIncome(leader, "late", 5_000);
+        follower.pollOnce();
+        assertEquals(2, follower.getSnapshotCount());
+        assertEquals(5_000, follower.findWallet("late").orElseThrow().getBalance());
+        log.close();
+    }
+
+    @Test
+    void testTornTailIsIgnoredByFollowerAndTruncatedByLeader() throws IOException {
+        final Path logDir = leaderDir.resolve(ReplicationLog.DIRECTORY_NAME);
+        final ReplicationLog log = new ReplicationLog(logDir);
+        addIncome(openLeader(log), "alice", 7_000);
+        final long nextLsn = log.getNextLsn();
+        log.close();
+
+        final Path segment;
+        try (final Stream<Path> segments = Files.list(logDir)) {
+            segment = segments.findFirst().orElseThrow();
+        }
+        final long validSize = Files.size(segment);
+        Files.write(segment, new byte[]{0, 0, 1, 0, 42, 42}, StandardOpenOption.APPEND);
+
+        final ReplicaFollower follower = new ReplicaFollower(leaderDir.toString(), followerDir.toString());
+        follower.pollOnce();
+        assertEquals(nextLsn - 1, follower.getAppliedLsn());
+        assertEquals(7_000, follower.findWallet("alice").orElseThrow().getBalance());
+
+        final ReplicationLog reopened = new ReplicationLog(logDir);
+        assertEquals(nextLsn, reopened.getNextLsn());
+        reopened.close();
+        try (final FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            assertEquals(validSize, channel.size());
+        }
+    }
+
+    @Test
+    void testSegmentWalletsAreReportedAsUnreplicated() throws IOException {
+        final ReplicationLog log = new ReplicationLog(leaderDir.resolve(ReplicationLog.DIRECTORY_NAME));
+        final FinanceManagerImpl leader = openLeader(log);
+        addIncome(leader, "alice", 1_000);
+        addIncome(leader, "bob", 2_000);
+        final ReplicaFollower follower = new ReplicaFollower(leaderDir.toString(), followerDir.toString());
+        follower.pollOnce();
+        assertEquals(2_000, follower.findWallet("bob").orElseThrow().getBalance());
+
+        assertTrue(leader.convertToMappedStorage("bob"));
+        follower.pollOnce();
+        assertFalse(follower.isReplicated("bob"));
+        assertTrue(follower.isReplicated("alice"));
+        assertTrue(follower.findWallet("bob").isEmpty());
+        assertEquals(List.of("bob"), follower.getUnreplicatedLogins());
+
+        final ReplicaFollower restarted = new ReplicaFollower(leaderDir.toString(), followerDir.toString());
+        restarted.pollOnce();
+        assertEquals(0, restarted.getSnapshotCount());
+        assertEquals(List.of("bob"), restarted.getUnreplicatedLogins());
+
+        final ReplicaFollower fresh = new ReplicaFollower(leaderDir.toString(), tempDir.resolve("fresh").toString());
+        fresh.pollOnce();
+        assertEquals(1, fresh.getSnapshotCount());
+        assertEquals(List.of("bob"), fresh.getUnreplicatedLogins());
+        assertTrue(fresh.findWallet("bob").isEmpty());
+        assertEquals(1_000, fresh.findWallet("alice").orElseThrow().getBalance());
+
+        final ReplicaServer server = new ReplicaServer(fresh, new ReportGeneratorImpl(), 0);
+        server.start();
+        try {
+            assertTrue(ReplicaServer.query(server.getPort(), "STATUS").contains("1 (bob)"));
+            assertTrue(ReplicaServer.query(server.getPort(), "REPORT bob").contains("не реплицируется"));
+        } finally {
+            server.stop();
+            log.close();
+        }
+    }
+
+    @Test
+    void testFollowerProcessServesReportsOverSocket() throws Exception {
+        final ReplicationLog log = new ReplicationLog(leaderDir.resolve(ReplicationLog.DIRECTORY_NAME));
+        final FinanceManagerImpl leader = openLeader(log);
+        addIncome(leader, "alice", 1_000);
+        final int port;
+        try (final ServerSocket probe = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            port = probe.getLocalPort();
+        }
+        final Path java = Paths.get(System.getProperty("java.home"), "bin", "java");
+        final Process process = new ProcessBuilder(java.toString(), "-cp", System.getProperty("java.class.path"),
+                "com.myfinance.Main", "replica", leaderDir.toString(), followerDir.toString(), Integer.toString(port))
+                .redirectErrorStream(true)
+                .redirectOutput(tempDir.resolve("replica.out").toFile())
+                .start();
+        try {
+            addIncome(leader, "alice", 2_345_67);
+            final String expected = Money.format(1_000 + 2_345_67);
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            String report = "";
+            while (System.nanoTime() < deadline && !report.contains(expected)) {
+                try {
+                    report = ReplicaServer.query(port, "REPORT alice");
+                } catch (final IOException e) {
+                    assertTrue(process.isAlive(), "Процесс реплики завершился");
+                }
+                Thread.sleep(50);
+            }
+            assertTrue(report.contains(expected), report);
+            assertTrue(ReplicaServer.query(port, "STATUS").contains("Полных копий: 1"));
+        } finally {
+            process.destroy();
+            process.waitFor(10, TimeUnit.SECONDS);
+            log.close();
+        }
+    }
+
+    private FinanceManagerImpl openLeader(final ReplicationLog log) {
+        return new FinanceManagerImpl(leaderDir.toString(), Clock.systemDefaultZone(), WalletCodecs.NONE, log);
+    }
+
+    private static void addIncome(final FinanceManagerImpl leader, final String login, final long amount) {
+        leader.register(login, "secret");
+        assertTrue(leader.login(login, "secret"));
+        leader.getCurrentUserWallet().orElseThrow().addTransaction(new Income(amount, leader.getOrCreateCategory("Зарплата")));
+        leader.logout();
+    }
+}
@@ -0,0 +1,171 @@
+package com.myfinance.service;
+
+import com.myfinance.model.*;
+import com.myfinance.service.api.ShardedWalletEngine;
+import com.myfinance.service.codec.WalletCodecs;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedWalletEngineImplTest {
+    private static final int USERS = 20;
+    private static final Category TRANSFER = new Category("Перевод");
+
+    private Path tempDir;
+    private ShardedWalletEngine engine;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("pfms_shard_test_");
+        final FinanceManagerImpl financeManager = new FinanceManagerImpl(tempDir.toString());
+        for (int i = 0; i < USERS; i++) {
+            assertTrue(financeManager.register("user" + i, "secret"));
+        }
+        engine = new ShardedWalletEngineImpl(tempDir.toString(), 4, 16, WalletCodecs.NONE);
+        for (int i = 0; i < USERS; i++) {
+            assertTrue(engine.addTransaction("user" + i, new Income(1_000, new Category("Зарплата"))).join());
+        }
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    @AfterEach
+    void tearDown() throws IOException {
+        engine.close();
+        try (Stream<Path> walk = Files.walk(tempDir)) {
+            walk.sorted(Comparator.reverseOrder())
+                .map(Path::toFile)
+                .forEach(File::delete);
+        }
+    }
+
+    @Test
+    void testConcurrentTransfersConserveMoney() throws InterruptedException {
+        final List<Thread> clients = new ArrayList<>();
+        final List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        for (int c = 0; c < 4; c++) {
+            final Random random = new Random(c);
+            final List<CompletableFuture<Boolean>> clientResults = new ArrayList<>();
+            final Thread client = new Thread(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    clientResults.add(engine.transfer("user" + random.nextInt(USERS), "user" + random.nextInt(USERS),
+                            1 + random.nextInt(300), TRANSFER));
+                }
+                synchronized (results) {
+                    results.addAll(clientResults);
+                }
+            });
+            clients.add(client);
+            client.start();
+        }
+        for (final Thread client : clients) {
+            client.join();
+        }
+        CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).join();
+        assertEquals(8_000, results.size());
+        assertTrue(results.stream().anyMatch(CompletableFuture::join));
+
+        long total = 0;
+        for (int i = 0; i < USERS; i++) {
+            final long balance = engine.snapshot("user" + i).join().orElseThrow().getBalance();
+            assertTrue(balance >= 0);
+            total += balance;
+        }
+        assertEquals(USERS * 1_000L, total);
+    }
+
+    @Test
+    void testTransferRules() {
+        assertFalse(engine.transfer("user0", "user0", 10, TRANSFER).join());
+        assertFalse(engine.transfer("user0", "user1", 1_001, TRANSFER).join());
+        assertFalse(engine.transfer("user0", "user1", 0, TRANSFER).join());
+        assertFalse(engine.transfer("ghost", "user1", 10, TRANSFER).join());
+        assertFalse(engine.addTransaction("ghost", new Income(10, TRANSFER)).join());
+        assertTrue(engine.snapshot("ghost").join().isEmpty());
+
+        String remoteGhost = "ghost";
+        for (int i = 0; engine.shardOf(remoteGhost) == engine.shardOf("user0"); i++) {
+            remoteGhost = "ghost" + i;
+        }
+        assertFalse(engine.transfer("user0", remoteGhost, 300, TRANSFER).join());
+        final Wallet sender = engine.snapshot("user0").join().orElseThrow();
+        assertEquals(1_000, sender.getBalance());
+        assertEquals(1, sender.getTransactionCount());
+
+        assertTrue(engine.transfer("user0", "user1", 250, TRANSFER).join());
+        assertEquals(750, engine.snapshot("user0").join().orElseThrow().getBalance());
+        assertEquals(1_250, engine.snapshot("user1").join().orElseThrow().getBalance());
+    }
+
+    @Test
+    void testFailedCreditRefundsSender() throws IOException {
+        engine.close();
+        final DataDirectoryLayout layout = new DataDirectoryLayout(tempDir.toString());
+        final String local = userOnShard(true);
+        final String remote = userOnShard(false);
+        for (final String login : List.of(local, remote)) {
+            try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(layout.resolveForRead(login)))) {
+                out.writeObject("not a wallet");
+            }
+        }
+        engine = new ShardedWalletEngineImpl(tempDir.toString(), 4, 16, WalletCodecs.NONE);
+
+        assertThrows(CompletionException.class, () -> engine.transfer("user0", remote, 300, TRANSFER).join());
+        assertThrows(CompletionException.class, () -> engine.transfer("user0", local, 200, TRANSFER).join());
+        final Wallet sender = engine.snapshot("user0").join().orElseThrow();
+        assertEquals(1_000, sender.getBalance());
+        assertEquals(1, sender.getTransactionCount());
+    }
+
+    @Test
+    void testFailedSaveKeepsWalletDirty() throws IOException {
+        final Path walletPath = new DataDirectoryLayout(tempDir.toString()).prepareForWrite("user4");
+        Files.deleteIfExists(walletPath);
+        Files.createDirectories(walletPath.resolve("blocker"));
+        assertEquals(USERS - 1, engine.flush().join());
+        assertEquals(0, engine.flush().join());
+
+        Files.delete(walletPath.resolve("blocker"));
+        Files.delete(walletPath);
+        assertEquals(1, engine.flush().join());
+        assertEquals(0, engine.flush().join());
+    }
+
+    @Test
+    void testCloseSavesWallets() {
+        assertTrue(engine.transfer("user2", "user3", 400, TRANSFER).join());
+        assertEquals(USERS, engine.flush().join());
+        assertEquals(0, engine.flush().join());
+        engine.close();
+
+        final FinanceManagerImpl reopened = new FinanceManagerImpl(tempDir.toString());
+        assertTrue(reopened.login("user3", "secret"));
+        assertEquals(1_400, reopened.getWalletBalance());
+        assertTrue(reopened.login("user2", "secret"));
+        assertEquals(600, reopened.getWalletBalance());
+        assertThrows(Exception.class, () -> engine.addTransaction("user2", new Income(1, TRANSFER)).join());
+    }
+
+    private String userOnShard(final boolean sameAsUser0) {
+        for (int i = 1; i < USERS; i++) {
+            if ((engine.shardOf("user" + i) == engine.shardOf("user0")) == sameAsUser0) {
+                return "user" + i;
+            }
+        }
+        return fail("no user for the shard");
+    }
+}
@@ -0,0 +1,122 @@
+package com.myfinance.service;
+
+import com.myfinance.model.*;
+import com.myfinance.service.api.SpendingAnomalyMonitor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpendingAnomalyMonitorImplTest {
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long TODAY = 19_700 * DAY;
+    private static final long NOW = TODAY + 12 * HOUR;
+
+    private final Category food = new Category("Еда");
+    private final Category cafe = new Category("Еда/Кафе", food);
+    private final Category taxi = new Category("Такси");
+    private List<SpendingAnomalyAlert> alerts;
+    private SpendingAnomalyMonitor monitor;
+    private Wallet wallet;
+
+    @BeforeEach
+    void setUp() {
+        alerts = new ArrayList<>();
+        monitor = new SpendingAnomalyMonitorImpl(3.0, 5, Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC));
+        monitor.addAlertListener(alerts::add);
+        wallet = new Wallet();
+        monitor.attach(wallet);
+    }
+
+    @Test
+    void testBurstAboveDailyAverageAlertsOnce() {
+        addHistory(cafe, 30, 300);
+        assertEquals(300, monitor.getDailyAverage(cafe));
+        assertTrue(alerts.isEmpty());
+
+        wallet.addTransaction(new Expense(500, cafe, NOW));
+        assertTrue(alerts.isEmpty());
+        wallet.addTransaction(new Expense(500, cafe, NOW + 1));
+        assertEquals(2, alerts.size());
+        assertEquals(cafe, alerts.get(0).getCategory());
+        assertEquals(food, alerts.get(1).getCategory());
+        assertEquals(1_000, alerts.get(0).getRecentSpent());
+        assertEquals(300, alerts.get(0).getDailyAverage());
+
+        wallet.addTransaction(new Expense(500, cafe, NOW + 2));
+        assertEquals(2, alerts.size());
+        assertEquals(1_500, monitor.getRecentSpent(food));
+    }
+
+    @Test
+    void testShortHistoryDoesNotAlert() {
+        addHistory(taxi, 3, 100);
+        wallet.addTransaction(new Expense(10_000, taxi, NOW));
+        assertTrue(alerts.isEmpty());
+    }
+
+    @Test
+    void testRemovalRearmsAlert() {
+        addHistory(taxi, 10, 900);
+        final long burst = wallet.addTransaction(new Expense(1_000, taxi, NOW));
+        assertEquals(1, alerts.size());
+
+        wallet.deleteTransaction(burst);
+        assertEquals(0, monitor.getRecentSpent(taxi));
+        wallet.addTransaction(new Expense(1_000, taxi, NOW + 1));
+        assertEquals(2, alerts.size());
+    }
+
+    @Test
+    void testImportedBatchIsChecked() {
+        addHistory(taxi, 10, 900);
+        final List<Transaction> imported = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            imported.add(new Expense(100, taxi, NOW - i * HOUR));
+        }
+        wallet.addTransactions(imported);
+        assertEquals(1, alerts.size());
+        assertEquals(1_000, alerts.get(0).getRecentSpent());
+    }
+
+    @Test
+    void testSpendingOutsideWindowsIsIgnored() {
+        wallet.addTransaction(new Expense(1_000_000, taxi, TODAY - 40 * DAY));
+        addHistory(taxi, 10, 900);
+        assertEquals(300, monitor.getDailyAverage(taxi));
+        wallet.addTransaction(new Expense(950, taxi, NOW - 30 * HOUR));
+        assertEquals(0, monitor.getRecentSpent(taxi));
+        assertTrue(alerts.isEmpty());
+    }
+
+    @Test
+    void testAttachRebuildsWindowsWithoutReplayingAlerts() {
+        addHistory(taxi, 10, 900);
+        wallet.addTransaction(new Expense(1_000, taxi, NOW));
+        assertEquals(1, alerts.size());
+
+        monitor.attach(wallet);
+        assertEquals(1_000, monitor.getRecentSpent(taxi));
+        assertEquals(300, monitor.getDailyAverage(taxi));
+        wallet.addTransaction(new Expense(1, taxi, NOW + 1));
+        assertEquals(1, alerts.size());
+
+        monitor.detach();
+        wallet.addTransaction(new Expense(10_000, taxi, NOW + 2));
+        assertEquals(1, alerts.size());
+    }
+
+    private void addHistory(final Category category, final int days, final long perDay) {
+        for (int day = 1; day <= days; day++) {
+            wallet.addTransaction(new Expense(perDay, category, TODAY - day * DAY + 10 * HOUR));
+        }
+    }
+}
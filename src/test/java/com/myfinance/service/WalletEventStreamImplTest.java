@@ -0,0 +1,128 @@
+package com.myfinance.service;
+
+import com.myfinance.model.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WalletEventStreamImplTest {
+    private final Category food = new Category("Еда");
+    private Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("pfms_events_test_");
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> walk = Files.walk(tempDir)) {
+            walk.sorted(Comparator.reverseOrder())
+                .map(Path::toFile)
+                .forEach(File::delete);
+        }
+    }
+
+    @Test
+    void testFinanceManagerPublishesTypedEvents() {
+        final FinanceManagerImpl financeManager = new FinanceManagerImpl(tempDir.toString());
+        final List<WalletEvent> events = new ArrayList<>();
+        financeManager.getEvents().subscribe(new WalletEventSubscriber(batch -> {
+            synchronized (events) {
+                events.addAll(batch);
+            }
+        }));
+        assertTrue(financeManager.register("alice", "secret"));
+        assertTrue(financeManager.register("bob", "secret"));
+        assertTrue(financeManager.login("alice", "secret"));
+        final Wallet wallet = financeManager.getCurrentUserWallet().orElseThrow();
+        wallet.addTransaction(new Income(1_000, new Category("Зарплата")));
+        wallet.setBudget(food, 500);
+        assertTrue(financeManager.transfer("bob", 300, "Подарок"));
+        financeManager.getEvents().close();
+
+        final List<String> summary = events.stream().map(event -> event.getType() + ":" + event.getLogin()).collect(Collectors.toList());
+        assertEquals(List.of("TRANSACTION_ADDED:alice", "BUDGET_SET:alice", "TRANSACTION_ADDED:alice", "TRANSACTION_ADDED:bob",
+                "TRANSFER:alice"), summary);
+        final WalletEvent transfer = events.get(4);
+        assertEquals("bob", transfer.getCounterparty());
+        assertEquals(300, transfer.getAmount());
+        assertEquals(700, transfer.getBalance());
+        assertEquals(TransactionType.EXPENSE, events.get(2).getTransaction().getType());
+    }
+
+    @Test
+    void testBatchedDeliveryAndNoQueueingWithoutSubscribers() {
+        final WalletEventStreamImpl stream = new WalletEventStreamImpl(1_024, 16, 4);
+        final Wallet wallet = new Wallet();
+        wallet.addListener(stream.listenerFor("alice"));
+        wallet.addTransaction(new Expense(10, food));
+        assertEquals(0, stream.getSubscriberCount());
+
+        final List<List<WalletEvent>> batches = new ArrayList<>();
+        stream.subscribe(new WalletEventSubscriber(batches::add));
+        for (int i = 0; i < 500; i++) {
+            wallet.addTransaction(new Expense(1, food));
+        }
+        wallet.addTransactions(List.of(new Income(100, food), new Expense(40, food)));
+        stream.close();
+
+        final List<WalletEvent> events = batches.stream().flatMap(List::stream).collect(Collectors.toList());
+        assertEquals(501, events.size());
+        assertTrue(batches.stream().allMatch(batch -> !batch.isEmpty() && batch.size() <= 16));
+        final WalletEvent bulk = events.get(500);
+        assertEquals(WalletEvent.Type.TRANSACTIONS_ADDED, bulk.getType());
+        assertEquals(2, bulk.getCount());
+        assertEquals(60, bulk.getAmount());
+        assertEquals(-450, bulk.getBalance());
+        assertEquals(0, stream.getDroppedCount());
+    }
+
+    @Test
+    void testSlowSubscriberDoesNotBlockPublisher() throws InterruptedException {
+        final WalletEventStreamImpl stream = new WalletEventStreamImpl(64, 8, 2);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<WalletEvent> received = new ArrayList<>();
+        stream.subscribe(new WalletEventSubscriber(batch -> {
+            try {
+                release.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (received) {
+                received.addAll(batch);
+            }
+        }));
+        final Wallet wallet = new Wallet();
+        wallet.addListener(stream.listenerFor("alice"));
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < 10_000; i++) {
+            wallet.addTransaction(new Expense(1, food));
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertTrue(stream.getDroppedCount() > 0);
+
+        release.countDown();
+        stream.close();
+        assertEquals(10_000, received.size() + stream.getDroppedCount());
+        for (int i = 1; i < received.size(); i++) {
+            assertTrue(received.get(i - 1).getBalance() > received.get(i).getBalance());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.myfinance.service.codec;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WalletCodecsTest {
+
+    @Test
+    void testRoundTripAcrossBlocks() throws IOException {
+        final Random random = new Random(3);
+        final byte[] noise = new byte[200_000];
+        random.nextBytes(noise);
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            text.append("Expense;Еда/Продукты;").append(random.nextInt(5_000)).append('\n');
+        }
+        final byte[][] samples = {new byte[0], "abc".getBytes(StandardCharsets.UTF_8), noise,
+                text.toString().getBytes(StandardCharsets.UTF_8), new byte[300_000]};
+        for (final WalletCodec codec : new WalletCodec[]{WalletCodecs.NONE, WalletCodecs.deflate(1), WalletCodecs.deflate(9), WalletCodecs.LZ}) {
+            for (final byte[] sample : samples) {
+                final byte[] encoded = encode(codec, sample);
+                assertArrayEquals(sample, decode(codec, encoded), codec.getName());
+                if (codec != WalletCodecs.NONE && sample.length > 1000 && sample != noise) {
+                    assertTrue(encoded.length < sample.length / 2, codec.getName() + ": " + encoded.length);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testCorruptLzBlockIsRejected() throws IOException {
+        final byte[] encoded = encode(WalletCodecs.LZ, new byte[10_000]);
+        encoded[13] ^= 0x7F;
+        assertThrows(IOException.class, () -> decode(WalletCodecs.LZ, encoded));
+        final byte[] truncated = new byte[encoded.length - 4];
+        System.arraycopy(encode(WalletCodecs.LZ, new byte[10_000]), 0, truncated, 0, truncated.length);
+        assertThrows(IOException.class, () -> decode(WalletCodecs.LZ, truncated));
+    }
+
+    @Test
+    void testParse() {
+        assertSame(WalletCodecs.NONE, WalletCodecs.parse("none"));
+        assertSame(WalletCodecs.LZ, WalletCodecs.parse("LZ"));
+        assertEquals(6, WalletCodecs.parse("deflate:6").getLevel());
+        assertEquals("deflate:6", WalletCodecs.forHeader(WalletCodecs.DEFLATE_ID, 6).getName());
+        assertThrows(IllegalArgumentException.class, () -> WalletCodecs.parse("deflate:12"));
+        assertThrows(IllegalArgumentException.class, () -> WalletCodecs.parse("zstd"));
+    }
+
+    private static byte[] encode(final WalletCodec codec, final byte[] data) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = codec.encode(bytes)) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] decode(final WalletCodec codec, final byte[] data) throws IOException {
+        try (InputStream in = codec.decode(new ByteArrayInputStream(data))) {
+            return in.readAllBytes();
+        }
+    }
+}